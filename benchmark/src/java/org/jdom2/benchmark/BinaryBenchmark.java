@@ -0,0 +1,88 @@
+package org.jdom2.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.jdom2.Document;
+import org.jdom2.input.JDOMBinaryBuilder;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.JDOMBinaryOutputter;
+
+/**
+ * Measure moving a Document between JVMs (or in and out of a cache): the
+ * binary codec against Java serialization. Compare the read side with
+ * ParseBenchmark.saxBuild, which is the cost of re-parsing the XML.
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	private Document document = null;
+	private JDOMBinaryOutputter outputter = null;
+	private JDOMBinaryBuilder builder = null;
+	private byte[] binary = null;
+	private byte[] serialized = null;
+
+	@Setup
+	public void setup() throws Exception {
+		document = new SAXBuilder().build(corpus.getInputStream());
+		outputter = new JDOMBinaryOutputter();
+		builder = new JDOMBinaryBuilder();
+		binary = outputter.outputBytes(document);
+		serialized = serialize();
+	}
+
+	@Benchmark
+	public byte[] binaryWrite() {
+		return outputter.outputBytes(document);
+	}
+
+	@Benchmark
+	public Document binaryRead() throws Exception {
+		return builder.build(binary);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(document);
+		oos.close();
+		return baos.toByteArray();
+	}
+
+	@Benchmark
+	public Document deserialize() throws Exception {
+		final ObjectInputStream ois = new ObjectInputStream(
+				new ByteArrayInputStream(serialized));
+		try {
+			return (Document)ois.readObject();
+		} finally {
+			ois.close();
+		}
+	}
+
+}
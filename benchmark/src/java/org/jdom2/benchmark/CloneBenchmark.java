@@ -0,0 +1,62 @@
+package org.jdom2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+
+/**
+ * Measure the 'template' pattern: clone a Document and change a value in
+ * it, with both a mutable and a frozen template.
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CloneBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	private Document template = null;
+	private Document frozen = null;
+
+	@Setup
+	public void setup() throws Exception {
+		template = new SAXBuilder().build(corpus.getInputStream());
+		frozen = new SAXBuilder().build(corpus.getInputStream()).freeze();
+	}
+
+	private static final Document change(final Document doc) {
+		final Element header = doc.getRootElement().getChild("header");
+		header.setAttribute("generated", "now");
+		return doc;
+	}
+
+	@Benchmark
+	public Document cloneAndChange() {
+		return change(template.clone());
+	}
+
+	@Benchmark
+	public Document cloneFrozenAndChange() {
+		return change(frozen.clone());
+	}
+
+}
@@ -0,0 +1,123 @@
+package org.jdom2.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * The fixed set of documents all the benchmarks run against.
+ * <p>
+ * The documents are generated rather than loaded from disk so that every run
+ * (and every machine) measures exactly the same bytes. Each document is a
+ * record-oriented 'feed' with a mix of namespaced and plain elements,
+ * attributes, text that needs escaping, comments and CDATA sections. Only the
+ * number of records changes between the sizes.
+ * <p>
+ * The generated bytes are cached, so the (significant) cost of generating
+ * the HUGE document is paid once per JVM and never inside a measurement.
+ */
+@SuppressWarnings("javadoc")
+public enum Corpus {
+
+	/** A document of a few KiB, typical of a request/response message. */
+	SMALL(20),
+	/** A document of a few hundred KiB. */
+	MEDIUM(2000),
+	/** A document of tens of MiB, typical of a bulk feed. */
+	HUGE(100000);
+
+	/** The namespace used for the 'meta' elements in each record */
+	public static final String META_URI = "urn:jdom2:benchmark:meta";
+
+	private final int records;
+	private byte[] xml = null;
+
+	private Corpus(final int records) {
+		this.records = records;
+	}
+
+	/**
+	 * @return the number of &lt;record&gt; children of the root element.
+	 */
+	public int getRecordCount() {
+		return records;
+	}
+
+	/**
+	 * @return the id attribute value of the last record in the document,
+	 *         useful for worst-case lookups.
+	 */
+	public String getLastId() {
+		return "r" + (records - 1);
+	}
+
+	/**
+	 * Get the UTF-8 encoded document. The same array is returned on every
+	 * call, so callers must not modify it.
+	 *
+	 * @return the document bytes.
+	 */
+	public synchronized byte[] getBytes() {
+		if (xml == null) {
+			try {
+				xml = generate(records).getBytes("UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException("No UTF-8 support", e);
+			}
+		}
+		return xml;
+	}
+
+	/**
+	 * @return a fresh InputStream over the document bytes.
+	 */
+	public InputStream getInputStream() {
+		return new ByteArrayInputStream(getBytes());
+	}
+
+	private static final String[] CATEGORIES = {
+		"books", "music", "film", "games", "garden", "tools", "toys"};
+
+	private static final String generate(final int records) {
+		final StringBuilder sb = new StringBuilder(records * 420);
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		sb.append("<feed xmlns:m=\"").append(META_URI)
+			.append("\" version=\"2.0\" generated=\"2012-06-01T00:00:00Z\">\n");
+		sb.append("  <!-- generated benchmark corpus -->\n");
+		sb.append("  <header><title>Benchmark &amp; Corpus</title>");
+		sb.append("<count>").append(records).append("</count></header>\n");
+		for (int i = 0; i < records; i++) {
+			final String cat = CATEGORIES[i % CATEGORIES.length];
+			sb.append("  <record id=\"r").append(i)
+				.append("\" category=\"").append(cat)
+				.append("\" m:rev=\"").append(i % 13).append("\">\n");
+			sb.append("    <title>Item ").append(i)
+				.append(" in ").append(cat).append("</title>\n");
+			sb.append("    <price currency=\"EUR\">")
+				.append(i % 997).append('.').append(i % 100).append("</price>\n");
+			sb.append("    <description>The &lt;quick&gt; brown fox #")
+				.append(i).append(" jumps over the lazy dog &amp; the \"cat\".")
+				.append(" Caf\u00e9 cr\u00e8me \u20ac").append(i % 50)
+				.append("</description>\n");
+			sb.append("    <m:meta><m:created>2012-01-")
+				.append(10 + (i % 20)).append("</m:created><m:tag>")
+				.append(cat).append("</m:tag><m:tag>t").append(i % 31)
+				.append("</m:tag></m:meta>\n");
+			if (i % 10 == 0) {
+				sb.append("    <notes><![CDATA[raw <markup> & stuff ")
+					.append(i).append("]]></notes>\n");
+			}
+			sb.append("    <related>");
+			for (int r = 1; r <= 3; r++) {
+				sb.append("<ref idref=\"r").append((i + r * 7) % records)
+					.append("\"/>");
+			}
+			sb.append("</related>\n");
+			sb.append("  </record>\n");
+		}
+		sb.append("  <trailer checksum=\"").append(records * 31).append("\"/>\n");
+		sb.append("</feed>\n");
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.jdom2.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.diff.EditScript;
+import org.jdom2.diff.JDOMDiff;
+import org.jdom2.input.SAXBuilder;
+
+/**
+ * Measure the 'delta publishing' pattern: diff two versions of a Document
+ * that differ in a few records, and apply the EditScript to a copy of the
+ * old version.
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiffBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	private final JDOMDiff differ = new JDOMDiff();
+	private Document from = null;
+	private Document to = null;
+	private EditScript script = null;
+
+	@Setup
+	public void setup() throws Exception {
+		from = new SAXBuilder().build(corpus.getInputStream());
+		to = new SAXBuilder().build(corpus.getInputStream());
+		final Element root = to.getRootElement();
+		final List<Element> records = root.getChildren("record");
+		records.get(records.size() / 2).setAttribute("changed", "yes");
+		records.get(0).detach();
+		root.addContent(root.getContentSize() - 1, new Element("record")
+				.setAttribute("id", "new"));
+		script = differ.diff(from, to);
+	}
+
+	/**
+	 * The digests of both versions are cached after the first diff, as they
+	 * are when the same stored version is compared with each new one.
+	 */
+	@Benchmark
+	public EditScript diff() {
+		return differ.diff(from, to);
+	}
+
+	@Benchmark
+	public Document apply() {
+		return script.apply(from.clone());
+	}
+
+	/**
+	 * The baseline for apply(): the copy alone.
+	 */
+	@Benchmark
+	public Document cloneOnly() {
+		return from.clone();
+	}
+
+}
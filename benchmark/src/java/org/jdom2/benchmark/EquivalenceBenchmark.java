@@ -0,0 +1,83 @@
+package org.jdom2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMEquivalence;
+import org.jdom2.input.SAXBuilder;
+
+/**
+ * Measure the 'deduplication' pattern: compare an incoming Document with a
+ * stored one that is almost the same, and digest a stored Document after a
+ * small change.
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EquivalenceBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	private final JDOMEquivalence cached = new JDOMEquivalence();
+	private final JDOMEquivalence uncached = new JDOMEquivalence(false, false);
+	private Document stored = null;
+	private Document incoming = null;
+	private Element trailer = null;
+	private int changes = 0;
+
+	@Setup
+	public void setup() throws Exception {
+		stored = new SAXBuilder().build(corpus.getInputStream());
+		incoming = new SAXBuilder().build(corpus.getInputStream());
+		trailer = incoming.getRootElement().getChild("trailer");
+		trailer.setAttribute("changed", "yes");
+		cached.digest(stored);
+	}
+
+	@Benchmark
+	public boolean equivalent() {
+		return uncached.equivalent(stored, incoming);
+	}
+
+	/**
+	 * The stored digests are cached, only the incoming Document is digested.
+	 */
+	@Benchmark
+	public boolean equivalentCached() {
+		return cached.equivalent(stored, incoming);
+	}
+
+	@Benchmark
+	public long digest() {
+		return uncached.digest(incoming);
+	}
+
+	/**
+	 * Change one Element, and digest again: only the changed Element and
+	 * its ancestors are digested.
+	 */
+	@Benchmark
+	public long digestCachedAfterChange() {
+		trailer.setAttribute("changed", Integer.toString(changes++ & 0xff));
+		return cached.digest(incoming);
+	}
+
+}
@@ -0,0 +1,231 @@
+package org.jdom2.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.jdom2.Content;
+import org.jdom2.ContentSplitter;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.compact.CompactDocument;
+import org.jdom2.compact.CompactElement;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.filter.Filters;
+import org.jdom2.output.Format.TextMode;
+
+/**
+ * Measure the in-memory navigation methods of Element that most user code
+ * relies on: child lookups by name, child lists, and descendant iteration.
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NavigateBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	private Element root = null;
+	private Element frozen = null;
+	private CompactElement compact = null;
+	private Namespace meta = null;
+	private final StringBuilder text = new StringBuilder();
+	private ExecutorService executor = null;
+	private int threads = 1;
+
+	@Setup
+	public void setup() throws Exception {
+		root = new SAXBuilder().build(corpus.getInputStream()).getRootElement();
+		meta = Namespace.getNamespace(Corpus.META_URI);
+		frozen = new SAXBuilder().build(corpus.getInputStream()).freeze()
+				.getRootElement();
+		compact = CompactDocument.build(new SAXBuilder().build(
+				corpus.getInputStream())).getRootElement();
+		threads = Runtime.getRuntime().availableProcessors();
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * The trailer is the last child of the root, so this is the worst case
+	 * for a scan.
+	 */
+	@Benchmark
+	public Element getChildLast() {
+		return root.getChild("trailer");
+	}
+
+	@Benchmark
+	public Element getChildFirst() {
+		return root.getChild("header");
+	}
+
+	@Benchmark
+	public void getChildren(final Blackhole bh) {
+		for (final Element record : root.getChildren("record")) {
+			bh.consume(record.getChild("title"));
+			bh.consume(record.getChild("meta", meta));
+		}
+	}
+
+	@Benchmark
+	public void getChildrenIndexed(final Blackhole bh) {
+		final List<Element> records = root.getChildren();
+		for (int i = 0; i < records.size(); i++) {
+			bh.consume(records.get(i));
+		}
+	}
+
+	/**
+	 * A new view for every access, the views share the child positions.
+	 */
+	@Benchmark
+	public void getChildrenRepeated(final Blackhole bh) {
+		for (int i = 0; i < root.getChildren("record").size(); i++) {
+			bh.consume(root.getChildren("record").get(i));
+		}
+	}
+
+	/**
+	 * A frozen Element already knows where its child Elements are.
+	 */
+	@Benchmark
+	public void getChildrenFrozen(final Blackhole bh) {
+		final List<Element> records = frozen.getChildren();
+		for (int i = 0; i < records.size(); i++) {
+			bh.consume(records.get(i));
+		}
+	}
+
+	/**
+	 * The same lookups as getChildren, on the compact (off-heap capable)
+	 * form of the document.
+	 */
+	@Benchmark
+	public void getChildrenCompact(final Blackhole bh) {
+		for (final CompactElement record : compact.getChildren("record")) {
+			bh.consume(record.getChild("title"));
+			bh.consume(record.getChild("meta", meta));
+		}
+	}
+
+	@Benchmark
+	public String getValue() {
+		return root.getValue();
+	}
+
+	/**
+	 * Extract the normalized text of the whole document in to a reused
+	 * buffer.
+	 */
+	@Benchmark
+	public int appendValueNormalized() throws IOException {
+		text.setLength(0);
+		return root.appendValue(text, TextMode.NORMALIZE).length();
+	}
+
+	@Benchmark
+	public int getDescendants() {
+		int cnt = 0;
+		final Iterator<Content> it = root.getDescendants();
+		while (it.hasNext()) {
+			it.next();
+			cnt++;
+		}
+		return cnt;
+	}
+
+	@Benchmark
+	public int getDescendantsElements() {
+		int cnt = 0;
+		for (final Element e : root.getDescendants(Filters.element("tag", meta))) {
+			cnt += e.getContentSize();
+		}
+		return cnt;
+	}
+
+	/**
+	 * The same as getDescendantsElements, split over all the processors.
+	 */
+	@Benchmark
+	public int getDescendantsElementsParallel() throws Exception {
+		final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for (final ContentSplitter<Element> part : frozen.getDescendantSplitter(
+				Filters.element("tag", meta)).split(threads)) {
+			results.add(executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					int cnt = 0;
+					for (final Element e : part) {
+						cnt += e.getContentSize();
+					}
+					return cnt;
+				}
+			}));
+		}
+		int cnt = 0;
+		for (final Future<Integer> f : results) {
+			cnt += f.get();
+		}
+		return cnt;
+	}
+
+	/**
+	 * Resolve the Namespaces in scope on every Element, as XPath and the
+	 * outputters do.
+	 */
+	@Benchmark
+	public int getNamespacesInScope() {
+		int cnt = 0;
+		for (final Element e : root.getDescendants(Filters.element())) {
+			cnt += e.getNamespacesInScope().size();
+			if (e.getNamespace("") != null) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * All the Elements, except those inside the meta Elements.
+	 */
+	@Benchmark
+	public int getDescendantsPruned() {
+		int cnt = 0;
+		for (final Element e : root.getDescendants(Filters.element(),
+				Filters.element("meta", meta))) {
+			cnt += e.getContentSize();
+		}
+		return cnt;
+	}
+
+}
@@ -0,0 +1,167 @@
+package org.jdom2.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+/**
+ * Measure the cost of serializing a JDOM Document with XMLOutputter, for each
+ * of the standard Format configurations, to both a byte and a character
+ * destination. The destinations discard the data, so only the JDOM side of
+ * the output is measured.
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OutputBenchmark {
+
+	/** The standard Format instances, by name */
+	public static enum Formats {
+		RAW, PRETTY, COMPACT;
+
+		Format getFormat() {
+			switch (this) {
+				case PRETTY:
+					return Format.getPrettyFormat();
+				case COMPACT:
+					return Format.getCompactFormat();
+				default:
+					return Format.getRawFormat();
+			}
+		}
+	}
+
+	private static final class NullOutputStream extends OutputStream {
+		long count = 0L;
+
+		@Override
+		public void write(final int b) throws IOException {
+			count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			count += len;
+		}
+	}
+
+	private static final class NullWriter extends Writer {
+		long count = 0L;
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) {
+			count += len;
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) {
+			count += len;
+		}
+
+		@Override
+		public void flush() {
+			// nothing
+		}
+
+		@Override
+		public void close() {
+			// nothing
+		}
+	}
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	@Param({"RAW", "PRETTY", "COMPACT"})
+	public Formats format;
+
+	private Document document = null;
+	private XMLOutputter outputter = null;
+	private Document edited = null;
+	private List<Element> titles = null;
+	private XMLOutputter cachingoutputter = null;
+	private int edits = 0;
+
+	@Setup
+	public void setup() throws Exception {
+		document = new SAXBuilder().build(corpus.getInputStream());
+		outputter = new XMLOutputter(format.getFormat());
+		edited = new SAXBuilder().build(corpus.getInputStream());
+		titles = new ArrayList<Element>();
+		for (final Element record : edited.getRootElement().getChildren("record")) {
+			titles.add(record.getChild("title"));
+		}
+		cachingoutputter = new XMLOutputter(
+				format.getFormat().setCacheElements(true));
+	}
+
+	/**
+	 * Change the title of one record.
+	 */
+	private void edit() {
+		titles.get(edits++ % titles.size()).setText("edit " + edits);
+	}
+
+	@Benchmark
+	public long outputStream() throws IOException {
+		final NullOutputStream out = new NullOutputStream();
+		outputter.output(document, out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long outputWriter() throws IOException {
+		final NullWriter out = new NullWriter();
+		outputter.output(document, out);
+		return out.count;
+	}
+
+	/**
+	 * Output the document again after a small change.
+	 */
+	@Benchmark
+	public long outputEdited() throws IOException {
+		edit();
+		final NullWriter out = new NullWriter();
+		outputter.output(edited, out);
+		return out.count;
+	}
+
+	/**
+	 * The same as outputEdited, with the output of the unchanged Elements
+	 * cached on them.
+	 */
+	@Benchmark
+	public long outputEditedCached() throws IOException {
+		edit();
+		final NullWriter out = new NullWriter();
+		cachingoutputter.output(edited, out);
+		return out.count;
+	}
+
+}
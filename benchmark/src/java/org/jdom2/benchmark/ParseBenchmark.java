@@ -0,0 +1,175 @@
+package org.jdom2.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.NameCachingJDOMFactory;
+import org.jdom2.Namespace;
+import org.jdom2.input.ParallelSAXBuilder;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.SAXEnginePool;
+import org.jdom2.input.StAXStreamBuilder;
+import org.jdom2.input.stax.DefaultStAXFilter;
+import org.jdom2.input.stax.StAXFilter;
+
+/**
+ * Measure the cost of building a JDOM Document from bytes, using both the
+ * SAX and StAX (stream) builders.
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	/** Selects the record Elements (children of the root). */
+	private static final StAXFilter RECORDS = new DefaultStAXFilter() {
+		@Override
+		public boolean includeElement(final int depth, final String name,
+				final Namespace ns) {
+			return depth == 1 && "record".equals(name);
+		}
+	};
+
+	private SAXBuilder saxbuilder = null;
+	private SAXBuilder deferredbuilder = null;
+	private SAXBuilder sharedtextbuilder = null;
+	private SAXBuilder namecachebuilder = null;
+	private ParallelSAXBuilder parallelbuilder = null;
+	private SAXEnginePool enginepool = null;
+	private StAXStreamBuilder staxbuilder = null;
+	private XMLInputFactory inputfactory = null;
+
+	@Setup
+	public void setup() {
+		// generate the bytes outside of any measurement.
+		corpus.getBytes();
+		saxbuilder = new SAXBuilder();
+		saxbuilder.setReuseParser(true);
+		deferredbuilder = new SAXBuilder();
+		deferredbuilder.setDeferredBuild(true);
+		sharedtextbuilder = new SAXBuilder();
+		sharedtextbuilder.setReuseParser(true);
+		sharedtextbuilder.setSharedText(true);
+		namecachebuilder = new SAXBuilder();
+		namecachebuilder.setReuseParser(true);
+		namecachebuilder.setJDOMFactory(new NameCachingJDOMFactory());
+		enginepool = new SAXBuilder().getEnginePool();
+		parallelbuilder = new ParallelSAXBuilder(new SAXBuilder());
+		parallelbuilder.setChunkSize(64 * 1024);
+		staxbuilder = new StAXStreamBuilder();
+		inputfactory = XMLInputFactory.newInstance();
+	}
+
+	@Benchmark
+	public Document saxBuild() throws Exception {
+		return saxbuilder.build(corpus.getInputStream());
+	}
+
+	/**
+	 * Parse directly from a (heap) ByteBuffer, without a stream wrapper.
+	 */
+	@Benchmark
+	public Document saxBuildByteBuffer() throws Exception {
+		return saxbuilder.build(ByteBuffer.wrap(corpus.getBytes()), null);
+	}
+
+	/**
+	 * Parse with the Text content kept as slices of a shared buffer.
+	 */
+	@Benchmark
+	public Document saxBuildSharedText() throws Exception {
+		return sharedtextbuilder.build(corpus.getInputStream());
+	}
+
+	/**
+	 * Parse with the Element and Attribute names checked only once.
+	 */
+	@Benchmark
+	public Document saxBuildNameCache() throws Exception {
+		return namecachebuilder.build(corpus.getInputStream());
+	}
+
+	/**
+	 * Parse with an engine borrowed from a (thread-safe) pool.
+	 */
+	@Benchmark
+	public Document saxBuildPooled() throws Exception {
+		return enginepool.build(corpus.getInputStream());
+	}
+
+	/**
+	 * Parse chunks of records concurrently.
+	 */
+	@Benchmark
+	public Document saxBuildParallel() throws Exception {
+		return parallelbuilder.build(corpus.getBytes());
+	}
+
+	/**
+	 * Parse with deferred content, and only read the last child of the root.
+	 */
+	@Benchmark
+	public Element saxBuildDeferredSparse() throws Exception {
+		return deferredbuilder.build(corpus.getInputStream())
+				.getRootElement().getChild("trailer");
+	}
+
+	/**
+	 * Stream the records one at a time, without building the Document.
+	 */
+	@Benchmark
+	public int staxStreamRecords() throws XMLStreamException, JDOMException {
+		final XMLStreamReader reader =
+				inputfactory.createXMLStreamReader(corpus.getInputStream());
+		try {
+			int cnt = 0;
+			final Iterator<Element> it =
+					staxbuilder.buildElementIterator(reader, RECORDS);
+			while (it.hasNext()) {
+				cnt += it.next().getContentSize();
+			}
+			return cnt;
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public Document staxStreamBuild() throws XMLStreamException, JDOMException {
+		final XMLStreamReader reader =
+				inputfactory.createXMLStreamReader(corpus.getInputStream());
+		try {
+			return staxbuilder.build(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+}
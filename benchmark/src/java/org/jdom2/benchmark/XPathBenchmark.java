@@ -0,0 +1,137 @@
+package org.jdom2.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jaxen.JaxenException;
+import org.jaxen.SimpleVariableContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.jdom2.AttributeType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.compact.CompactDocument;
+import org.jdom2.compact.CompactXPath;
+import org.jdom2.filter.Filters;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.xpath.XPathExpression;
+import org.jdom2.xpath.XPathFactory;
+
+/**
+ * Measure XPath compilation and evaluation through the default
+ * XPathFactory (Jaxen).
+ */
+@SuppressWarnings("javadoc")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XPathBenchmark {
+
+	private static final String CHILDPATH = "/feed/record/title";
+	private static final String PREDICATEPATH = "//record[@id = $id]";
+	private static final String NSPATH = "//m:tag[. = 'music']";
+	private static final String IDPATH = "id($id)";
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public Corpus corpus;
+
+	private XPathFactory factory = null;
+	private Namespace meta = null;
+	private Document document = null;
+	private Document indexed = null;
+	private CompactDocument compact = null;
+	private Map<String, Object> variables = null;
+	private XPathExpression<Element> childpath = null;
+	private XPathExpression<Element> predicatepath = null;
+	private XPathExpression<Element> nspath = null;
+	private XPathExpression<Element> idpath = null;
+	private CompactXPath compactpath = null;
+
+	@Setup
+	public void setup() throws Exception {
+		document = new SAXBuilder().build(corpus.getInputStream());
+		factory = XPathFactory.instance();
+		meta = Namespace.getNamespace("m", Corpus.META_URI);
+		childpath = factory.compile(CHILDPATH, Filters.element());
+		variables = Collections.<String, Object>singletonMap("id",
+				corpus.getLastId());
+		predicatepath = factory.compile(PREDICATEPATH, Filters.element(),
+				variables);
+		nspath = factory.compile(NSPATH, Filters.element(), null, meta);
+		// the same document, with the record ids declared as IDs.
+		indexed = new SAXBuilder().build(corpus.getInputStream());
+		for (final Element record : indexed.getRootElement().getChildren("record")) {
+			record.getAttribute("id").setAttributeType(AttributeType.ID);
+		}
+		indexed.setIdIndexed(true);
+		idpath = factory.compile(IDPATH, Filters.element(), variables);
+		compact = CompactDocument.build(document);
+		final SimpleVariableContext compactvars = new SimpleVariableContext();
+		compactvars.setVariableValue("id", corpus.getLastId());
+		compactpath = new CompactXPath(PREDICATEPATH);
+		compactpath.setVariableContext(compactvars);
+	}
+
+	@Benchmark
+	public XPathExpression<Element> compile() {
+		return factory.compile(PREDICATEPATH, Filters.element(), variables);
+	}
+
+	@Benchmark
+	public XPathExpression<Element> compileNamespaced() {
+		return factory.compile(NSPATH, Filters.element(), null, meta);
+	}
+
+	@Benchmark
+	public List<Element> evaluateChildPath() {
+		return childpath.evaluate(document);
+	}
+
+	@Benchmark
+	public Element evaluatePredicate() {
+		return predicatepath.evaluateFirst(document);
+	}
+
+	/**
+	 * The predicate path against the compact form of the document.
+	 */
+	@Benchmark
+	public Object evaluatePredicateCompact() throws JaxenException {
+		return compactpath.selectSingleNode(compact);
+	}
+
+	/**
+	 * The same lookup as evaluatePredicate, with id() and the ID index.
+	 */
+	@Benchmark
+	public Element evaluateId() {
+		return idpath.evaluateFirst(indexed);
+	}
+
+	@Benchmark
+	public Element getElementById() {
+		return indexed.getElementById(corpus.getLastId());
+	}
+
+	@Benchmark
+	public List<Element> evaluateNamespaced() {
+		return nspath.evaluate(document);
+	}
+
+}
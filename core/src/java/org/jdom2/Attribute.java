@@ -306,6 +306,32 @@ public class Attribute extends CloneBase
 		return parent;
 	}
 	
+	/**
+	 * Returns whether this Attribute belongs to an Element in a frozen
+	 * (read-only) Document. Frozen Attributes cannot be modified.
+	 * 
+	 * @return true if this Attribute is frozen.
+	 * @see Document#freeze()
+	 */
+	public boolean isFrozen() {
+		return parent != null && parent.isFrozen();
+	}
+
+	/**
+	 * Check that this Attribute can be modified.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *         if this Attribute is part of a frozen Document.
+	 */
+	private final void checkMutable() {
+		if (isFrozen()) {
+			throw ContentList.frozenException();
+		}
+		if (parent != null) {
+			parent.contentChanged();
+		}
+	}
+
 	/**
 	 * Get this Attribute's Document.
 	 * @return The document to which this Attribute is associated, may be null.
@@ -345,6 +371,7 @@ public class Attribute extends CloneBase
 	 *         attribute name.
 	 */
 	public Attribute setName(final String name) {
+		checkMutable();
 		if (name == null) {
 			throw new NullPointerException(
 					"Can not set a null name for an Attribute.");
@@ -353,8 +380,15 @@ public class Attribute extends CloneBase
 		if (reason != null) {
 			throw new IllegalNameException(name, "attribute", reason);
 		}
+		final IdIndex idindex = idIndex();
+		if (idindex != null) {
+			idindex.removed(parent, this);
+		}
 		this.name = name;
 		specified = true;
+		if (idindex != null) {
+			idindex.added(parent, this);
+		}
 		return this;
 	}
 
@@ -440,6 +474,7 @@ public class Attribute extends CloneBase
 	 *         namespace. Attributes cannot be in a default namespace.
 	 */
 	public Attribute setNamespace(Namespace namespace) {
+		checkMutable();
 		if (namespace == null) {
 			namespace = Namespace.NO_NAMESPACE;
 		}
@@ -452,8 +487,18 @@ public class Attribute extends CloneBase
 					"An attribute namespace without a prefix can only be the " +
 					"NO_NAMESPACE namespace");
 		}
+		final IdIndex idindex = idIndex();
+		if (idindex != null) {
+			idindex.removed(parent, this);
+		}
 		this.namespace = namespace;
 		specified = true;
+		if (parent != null) {
+			parent.scopeChanged();
+		}
+		if (idindex != null) {
+			idindex.added(parent, this);
+		}
 		return this;
 	}
 
@@ -478,6 +523,7 @@ public class Attribute extends CloneBase
 	 *         {@link org.jdom2.Verifier#checkCharacterData}).
 	 */
 	public Attribute setValue(final String value) {
+		checkMutable();
 		if (value == null) {
 			throw new NullPointerException(
 					"Can not set a null value for an Attribute");
@@ -486,8 +532,15 @@ public class Attribute extends CloneBase
 		if (reason != null) {
 			throw new IllegalDataException(value, "attribute", reason);
 		}
+		final IdIndex idindex = idIndex();
+		if (idindex != null) {
+			idindex.removed(parent, this);
+		}
 		this.value = value;
 		specified = true;
+		if (idindex != null) {
+			idindex.added(parent, this);
+		}
 		return this;
 	}
 
@@ -509,8 +562,16 @@ public class Attribute extends CloneBase
 	 *         not one of the supported types.
 	 */
 	public Attribute setAttributeType(final AttributeType type) {
+		checkMutable();
+		final IdIndex idindex = idIndex();
+		if (idindex != null) {
+			idindex.removed(parent, this);
+		}
 		this.type = type == null ? AttributeType.UNDECLARED : type;
 		specified = true;
+		if (idindex != null) {
+			idindex.added(parent, this);
+		}
 		return this;
 	}
 
@@ -525,6 +586,7 @@ public class Attribute extends CloneBase
 	 */
 	@Deprecated
 	public Attribute setAttributeType(final int type) {
+		checkMutable();
 		setAttributeType(AttributeType.byIndex(type));
 		return this;
 	}
@@ -546,6 +608,7 @@ public class Attribute extends CloneBase
 	 * @since JDOM2
 	 */
 	public void setSpecified(boolean specified) {
+		checkMutable();
 		this.specified = specified;
 	}
 	
@@ -593,10 +656,29 @@ public class Attribute extends CloneBase
 	 * this has been included in the Element's list yet).
 	 */
 	protected Attribute setParent(Element parent) {
+		final IdIndex was = IdIndex.of(this.parent);
+		if (was != null) {
+			was.removed(this.parent, this);
+		}
+		final IdIndex now = IdIndex.of(parent);
+		if (now != null) {
+			now.added(parent, this);
+		}
 		this.parent = parent;
 		return this;
 	}
 
+	/**
+	 * The ID index of the Document this Attribute is in, if there is one.
+	 * Anything the index may use has to be removed from it before it
+	 * changes, and added again after.
+	 * 
+	 * @return the index, or null.
+	 */
+	private final IdIndex idIndex() {
+		return IdIndex.of(parent);
+	}
+
 	
 	/////////////////////////////////////////////////////////////////
 	// Convenience Methods below here
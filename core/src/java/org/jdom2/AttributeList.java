@@ -98,6 +98,20 @@ final class AttributeList extends AbstractList<Attribute>
 		this.parent = parent;
 	}
 
+	/**
+	 * Throw an UnsupportedOperationException if the parent Element is part of
+	 * a frozen Document. Every change to the list passes through here, and
+	 * may change the Namespaces in scope on, and the digest of, the parent
+	 * Element.
+	 */
+	private final void checkMutable() {
+		if (parent.isFrozen()) {
+			throw ContentList.frozenException();
+		}
+		parent.scopeChanged();
+		parent.contentChanged();
+	}
+
 	/**
 	 * Package internal method to support building from sources that are 100%
 	 * trusted.
@@ -106,7 +120,8 @@ final class AttributeList extends AbstractList<Attribute>
 	 *        an Attribute to add without any checks
 	 */
 	final void uncheckedAddAttribute(final Attribute a) {
-		a.parent = parent;
+		checkMutable();
+		a.setParent(parent);
 		ensureCapacity(size + 1);
 		attributeData[size++] = a;
 		modCount++;
@@ -125,6 +140,7 @@ final class AttributeList extends AbstractList<Attribute>
 	 */
 	@Override
 	public boolean add(final Attribute attribute) {
+		checkMutable();
 		if (attribute.getParent() != null) {
 			throw new IllegalAddException(
 					"The attribute already has an existing parent \""
@@ -164,6 +180,7 @@ final class AttributeList extends AbstractList<Attribute>
 	 */
 	@Override
 	public void add(final int index, final Attribute attribute) {
+		checkMutable();
 		if (index < 0 || index > size) {
 			throw new IndexOutOfBoundsException("Index: " + index +
 					" Size: " + size());
@@ -230,6 +247,7 @@ final class AttributeList extends AbstractList<Attribute>
 	@Override
 	public boolean addAll(final int index,
 			final Collection<? extends Attribute> collection) {
+		checkMutable();
 		if (index < 0 || index > size) {
 			throw new IndexOutOfBoundsException("Index: " + index +
 					" Size: " + size());
@@ -279,6 +297,7 @@ final class AttributeList extends AbstractList<Attribute>
 	 */
 	@Override
 	public void clear() {
+		checkMutable();
 		if (attributeData != null) {
 			while (size > 0) {
 				size--;
@@ -298,6 +317,7 @@ final class AttributeList extends AbstractList<Attribute>
 	 *         if validation rules prevent the addAll
 	 */
 	void clearAndSet(final Collection<? extends Attribute> collection) {
+		checkMutable();
 		if (collection == null || collection.isEmpty()) {
 			clear();
 			return;
@@ -432,6 +452,7 @@ final class AttributeList extends AbstractList<Attribute>
 	 */
 	@Override
 	public Attribute remove(final int index) {
+		checkMutable();
 		if (index < 0 || index >= size)
 			throw new IndexOutOfBoundsException("Index: " + index +
 					" Size: " + size());
@@ -478,6 +499,7 @@ final class AttributeList extends AbstractList<Attribute>
 	 */
 	@Override
 	public Attribute set(final int index, final Attribute attribute) {
+		checkMutable();
 		if (index < 0 || index >= size)
 			throw new IndexOutOfBoundsException("Index: " + index +
 					" Size: " + size());
@@ -581,6 +603,7 @@ final class AttributeList extends AbstractList<Attribute>
 	}
 	
 	private void sortInPlace(final int[] indexes) {
+		checkMutable();
 		// the indexes are a discrete set of values that have no duplicates,
 		// and describe the relative order of each of them.
 		// as a result, we can do some tricks....
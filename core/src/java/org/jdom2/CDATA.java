@@ -111,12 +111,14 @@ public class CDATA extends Text {
 	 */
 	@Override
 	public CDATA setText(final String str) {
+		checkMutable();
 		// Overrides Text.setText() because this needs to check that CDATA rules
 		// are enforced. We could have a separate Verifier check for CDATA
 		// beyond Text and call that alone before super.setText().
 
 		if (str == null || "".equals(str)) {
 			value = EMPTY_STRING;
+			dropShared();
 			return this;
 		}
 
@@ -126,6 +128,7 @@ public class CDATA extends Text {
 		}
 
 		value = str;
+		dropShared();
 
 		return this;
 	}
@@ -142,6 +145,7 @@ public class CDATA extends Text {
 	 */
 	@Override
 	public void append(final String str) {
+		checkMutable();
 		// Overrides Text.append(String) because this needs to check that CDATA
 		// rules are enforced. We could have a separate Verifier check for CDATA
 		// beyond Text and call that alone before super.setText().
@@ -153,10 +157,11 @@ public class CDATA extends Text {
 		// we need a temp value to ensure that the value is changed _after_
 		// validation
 		final String tmpValue;
-		if (value == EMPTY_STRING) {
+		final String current = getText();
+		if (current == EMPTY_STRING) {
 			tmpValue = str;
 		} else {
-			tmpValue = value + str;
+			tmpValue = current + str;
 		}
 
 		// we have to do late checking since the end of a CDATA section could 
@@ -171,6 +176,7 @@ public class CDATA extends Text {
 		}
 
 		value = tmpValue;
+		dropShared();
 	}
 
 	/**
@@ -181,6 +187,7 @@ public class CDATA extends Text {
 	 */
 	@Override
 	public void append(final Text text) {
+		checkMutable();
 		// Overrides Text.append(Text) because this needs to check that CDATA
 		// rules are enforced. We could have a separate Verifier check for CDATA
 		// beyond Text and call that alone before super.setText().
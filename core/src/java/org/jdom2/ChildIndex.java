@@ -0,0 +1,386 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.HashMap;
+
+import org.jdom2.internal.ArrayCopy;
+
+/**
+ * An index of the child Elements of a ContentList, keyed by the Element name
+ * and Namespace URI. The index records, for each name/URI combination, the
+ * matching Elements and their positions in the ContentList, in document
+ * order.
+ * <p>
+ * The ContentList keeps the index up to date as content is added, removed,
+ * and replaced. Appending content (the common case when building documents)
+ * is O(1). Inserting or removing content anywhere else shifts the positions
+ * of the subsequent indexed Elements, which is O(n), just like the array
+ * shift in the ContentList itself.
+ * <p>
+ * This class is not thread-safe, just like ContentList.
+ */
+final class ChildIndex {
+
+	/**
+	 * The Elements with one name/URI combination. Slots for the same name in
+	 * different Namespaces are chained.
+	 */
+	private static final class Slot {
+		private final String uri;
+		private Slot next = null;
+		private Element[] elements = new Element[4];
+		private int[] positions = new int[4];
+		private int count = 0;
+
+		private Slot(final String uri) {
+			this.uri = uri;
+		}
+
+		/**
+		 * Find where an Element at the specified content position is (or
+		 * should be) in this slot.
+		 */
+		private final int search(final int pos) {
+			int left = 0;
+			int right = count - 1;
+			while (left <= right) {
+				final int mid = (left + right) >>> 1;
+				final int p = positions[mid];
+				if (p == pos) {
+					return mid;
+				}
+				if (p < pos) {
+					left = mid + 1;
+				} else {
+					right = mid - 1;
+				}
+			}
+			return left;
+		}
+
+		private final void insert(final Element e, final int pos) {
+			if (count == elements.length) {
+				final int cap = count + (count >>> 1) + 1;
+				elements = ArrayCopy.copyOf(elements, cap);
+				positions = ArrayCopy.copyOf(positions, cap);
+			}
+			// appending is by far the most common.
+			final int at = (count == 0 || positions[count - 1] < pos)
+					? count : search(pos);
+			if (at < count) {
+				System.arraycopy(elements, at, elements, at + 1, count - at);
+				System.arraycopy(positions, at, positions, at + 1, count - at);
+			}
+			elements[at] = e;
+			positions[at] = pos;
+			count++;
+		}
+
+		private final void remove(final int at) {
+			count--;
+			if (at < count) {
+				System.arraycopy(elements, at + 1, elements, at, count - at);
+				System.arraycopy(positions, at + 1, positions, at, count - at);
+			}
+			elements[count] = null;
+		}
+
+		private final void shift(final int from, final int delta) {
+			for (int i = count - 1; i >= 0 && positions[i] >= from; i--) {
+				positions[i] += delta;
+			}
+		}
+	}
+
+	private final HashMap<String, Slot> slots = new HashMap<String, Slot>();
+
+	/**
+	 * Get the slot for a name/URI.
+	 * 
+	 * @param name
+	 *        The Element name.
+	 * @param uri
+	 *        The Namespace URI.
+	 * @param create
+	 *        Whether to create the slot if it does not exist.
+	 * @return the slot, or null if it does not exist and create is false.
+	 */
+	private final Slot getSlot(final String name, final String uri,
+			final boolean create) {
+		final Slot first = slots.get(name);
+		Slot s = first;
+		while (s != null) {
+			if (s.uri.equals(uri)) {
+				return s;
+			}
+			s = s.next;
+		}
+		if (!create) {
+			return null;
+		}
+		s = new Slot(uri);
+		if (first == null) {
+			slots.put(name, s);
+		} else {
+			s.next = first.next;
+			first.next = s;
+		}
+		return s;
+	}
+
+	private final Slot getSlot(final Element e, final boolean create) {
+		return getSlot(e.getName(), e.getNamespaceURI(), create);
+	}
+
+	/**
+	 * Shift the positions of all Elements at or after a position.
+	 */
+	private final void shift(final int from, final int delta) {
+		for (final Slot first : slots.values()) {
+			Slot s = first;
+			while (s != null) {
+				s.shift(from, delta);
+				s = s.next;
+			}
+		}
+	}
+
+	/**
+	 * Discard everything in the index.
+	 */
+	void clear() {
+		slots.clear();
+	}
+
+	/**
+	 * Discard everything in the index and index the specified content.
+	 * 
+	 * @param data
+	 *        The content to index.
+	 * @param size
+	 *        How much of the content is valid.
+	 */
+	void rebuild(final Content[] data, final int size) {
+		clear();
+		for (int i = 0; i < size; i++) {
+			if (data[i] instanceof Element) {
+				final Element e = (Element)data[i];
+				getSlot(e, true).insert(e, i);
+			}
+		}
+	}
+
+	/**
+	 * Record that content has been added to the ContentList.
+	 * 
+	 * @param c
+	 *        The added content.
+	 * @param pos
+	 *        The position the content was added at.
+	 * @param append
+	 *        Whether the content was added at the end of the ContentList.
+	 */
+	void added(final Content c, final int pos, final boolean append) {
+		if (!append) {
+			shift(pos, 1);
+		}
+		if (c instanceof Element) {
+			final Element e = (Element)c;
+			getSlot(e, true).insert(e, pos);
+		}
+	}
+
+	/**
+	 * Record that content has been removed from the ContentList.
+	 * 
+	 * @param c
+	 *        The removed content.
+	 * @param pos
+	 *        The position the content was removed from.
+	 */
+	void removed(final Content c, final int pos) {
+		if (c instanceof Element) {
+			final Slot s = getSlot((Element)c, false);
+			if (s != null) {
+				final int at = s.search(pos);
+				if (at < s.count && s.elements[at] == c) {
+					s.remove(at);
+				}
+			}
+		}
+		shift(pos + 1, -1);
+	}
+
+	/**
+	 * Record that content at a position has been replaced.
+	 * 
+	 * @param old
+	 *        The content that was replaced.
+	 * @param c
+	 *        The replacement content.
+	 * @param pos
+	 *        The position of the replacement.
+	 */
+	void replaced(final Content old, final Content c, final int pos) {
+		if (old instanceof Element) {
+			final Slot s = getSlot((Element)old, false);
+			if (s != null) {
+				final int at = s.search(pos);
+				if (at < s.count && s.elements[at] == old) {
+					s.remove(at);
+				}
+			}
+		}
+		if (c instanceof Element) {
+			final Element e = (Element)c;
+			getSlot(e, true).insert(e, pos);
+		}
+	}
+
+	/**
+	 * Record that an indexed Element has changed its name or Namespace.
+	 * 
+	 * @param e
+	 *        The Element with its new name/Namespace.
+	 * @param oldname
+	 *        The name the Element is indexed by.
+	 * @param olduri
+	 *        The Namespace URI the Element is indexed by.
+	 */
+	void renamed(final Element e, final String oldname, final String olduri) {
+		final Slot s = getSlot(oldname, olduri, false);
+		if (s == null) {
+			return;
+		}
+		for (int i = 0; i < s.count; i++) {
+			if (s.elements[i] == e) {
+				final int pos = s.positions[i];
+				s.remove(i);
+				getSlot(e, true).insert(e, pos);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get the first Element with a name and Namespace URI.
+	 * 
+	 * @param name
+	 *        The Element name.
+	 * @param uri
+	 *        The Namespace URI.
+	 * @return the first matching Element, or null if there is none.
+	 */
+	Element first(final String name, final String uri) {
+		final Slot s = getSlot(name, uri, false);
+		return s == null || s.count == 0 ? null : s.elements[0];
+	}
+
+	/**
+	 * Get the content position of the first Element with a name and
+	 * Namespace URI.
+	 * 
+	 * @param name
+	 *        The Element name.
+	 * @param uri
+	 *        The Namespace URI.
+	 * @return the position of the first matching Element, or -1 if there is
+	 *         none.
+	 */
+	int firstPosition(final String name, final String uri) {
+		final Slot s = getSlot(name, uri, false);
+		return s == null || s.count == 0 ? -1 : s.positions[0];
+	}
+
+	/**
+	 * Get the content positions of all Elements with a name and Namespace
+	 * URI, in document order.
+	 * 
+	 * @param name
+	 *        The Element name.
+	 * @param uri
+	 *        The Namespace URI.
+	 * @param dest
+	 *        The array to copy the positions in to, if it is big enough.
+	 * @return the positions, in dest if it was big enough, otherwise in a new
+	 *         array. The array length may be larger than the number of
+	 *         positions, see {@link #count(String, String)}.
+	 */
+	int[] positions(final String name, final String uri, final int[] dest) {
+		final Slot s = getSlot(name, uri, false);
+		if (s == null || s.count == 0) {
+			return dest;
+		}
+		final int[] ret = dest.length >= s.count ? dest : new int[s.count + 1];
+		System.arraycopy(s.positions, 0, ret, 0, s.count);
+		return ret;
+	}
+
+	/**
+	 * Get the number of Elements with a name and Namespace URI.
+	 * 
+	 * @param name
+	 *        The Element name.
+	 * @param uri
+	 *        The Namespace URI.
+	 * @return the number of matching Elements.
+	 */
+	int count(final String name, final String uri) {
+		final Slot s = getSlot(name, uri, false);
+		return s == null ? 0 : s.count;
+	}
+
+}
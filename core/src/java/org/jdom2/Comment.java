@@ -119,6 +119,7 @@ public class Comment extends Content {
 	 *         Comment.
 	 */
 	public Comment setText(String text) {
+		checkMutable();
 		String reason;
 		if ((reason = Verifier.checkCommentData(text)) != null) {
 			throw new IllegalDataException(text, "comment", reason);
@@ -220,6 +220,40 @@ public abstract class Content extends CloneBase
 		return this;
 	}
 
+	/**
+	 * Returns whether this Content is part of a frozen (read-only) Document.
+	 * Frozen Content cannot be modified.
+	 * 
+	 * @return true if this Content is frozen.
+	 * @see Document#freeze()
+	 */
+	public boolean isFrozen() {
+		final Parent p = parent;
+		if (p instanceof Element) {
+			return ((Element)p).content.isFrozen();
+		}
+		return p instanceof Document && ((Document)p).content.isFrozen();
+	}
+
+	/**
+	 * Check that this Content can be modified.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *         if this Content is part of a frozen Document.
+	 */
+	final void checkMutable() {
+		if (isFrozen()) {
+			throw ContentList.frozenException();
+		}
+		// this Content is about to change, the digest and cached output of
+		// the Element it is (or is in) are no longer valid.
+		if (this instanceof Element) {
+			((Element)this).contentChanged();
+		} else if (parent instanceof Element) {
+			((Element)parent).contentChanged();
+		}
+	}
+
 	/**
 	 * Return this child's owning document or null if the branch containing
 	 * this child is currently not attached to a document.
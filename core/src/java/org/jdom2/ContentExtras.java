@@ -0,0 +1,132 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+/**
+ * The optional state of a {@link ContentList}, and of the Element that owns
+ * the list: the index of the child Elements, deferred content, the frozen
+ * positions, and the caches. Most Elements use none of these, so this is
+ * only allocated when some of it is set, and a Document that uses none of
+ * these features costs the same memory as one without them.
+ * <p>
+ * A frozen list always has its ContentExtras (the frozen positions are in
+ * it), so threads reading a frozen Document concurrently never allocate
+ * one, they only fill in the volatile caches of an existing one.
+ * 
+ * @since JDOM2
+ */
+final class ContentExtras {
+
+	/** The optional index of child Elements by name, null if not indexed */
+	ChildIndex childindex = null;
+
+	/** Content that has not been built yet, null if there is none */
+	ContentList.Pending deferred = null;
+
+	/**
+	 * The positions of the child Elements, if the list is frozen (null if it
+	 * is not frozen).
+	 */
+	int[] frozen = null;
+
+	/**
+	 * The positions found by the most recent FilterList to scan the whole
+	 * list, null if there are none. New views with an equal Filter (for
+	 * example from repeated calls to getChildren()) use them instead of
+	 * scanning again.
+	 * <p>
+	 * Threads reading a frozen Document can race to set this. That is safe:
+	 * the field is volatile and FilterPositions is immutable, so a reader
+	 * sees either null or a complete instance, and every racing thread
+	 * stores positions that are valid for the same unchanged list.
+	 */
+	volatile ContentList.FilterPositions filterpositions = null;
+
+	/**
+	 * The cached Namespaces in scope of the Element, null if there are none
+	 * (see {@link Element#getNamespaceScope()}). A cached scope is always
+	 * current: a change that may alter the scope of an Element discards the
+	 * caches of the Element and all its descendants. Scopes are built from
+	 * the top of the tree down, so if an Element has a cached scope then so
+	 * does its parent Element.
+	 * <p>
+	 * NamespaceScope is immutable and published through this volatile field,
+	 * so threads reading a frozen Document concurrently always see a
+	 * complete scope. They may each build (and replace) the cache, but they
+	 * all build an equal scope.
+	 */
+	volatile NamespaceScope scope = null;
+
+	/**
+	 * The cached structural digest of the Element, 0 if there is none (see
+	 * {@link JDOMEquivalence}). If an Element has a digest, then so do all its
+	 * child Elements.
+	 */
+	volatile long digest = 0L;
+
+	/**
+	 * The serialized form of the Element cached by an output processor,
+	 * null if there is none (see {@link org.jdom2.internal.OutputCache}). If
+	 * an Element has a cached output, then so do all its child Elements.
+	 */
+	volatile Object outputcache = null;
+
+	/**
+	 * The ID index of the Document the Element is in, null if it is not in
+	 * an indexed Document (see {@link Document#setIdIndexed(boolean)}).
+	 */
+	IdIndex idindex = null;
+
+}
@@ -106,6 +106,69 @@ final class ContentList extends AbstractList<Content>
 	/** Document or Element this list belongs to */
 	private final Parent parent;
 
+	/**
+	 * Content of an Element that is built the first time the Element's
+	 * content is accessed. The content may come from a
+	 * {@link DeferredContent}, or be a copy of another (frozen) Element's
+	 * content.
+	 */
+	abstract static class Pending {
+		/**
+		 * Build the content and add it to the Element.
+		 * 
+		 * @param element
+		 *        The Element to add the content to.
+		 */
+		abstract void expand(Element element);
+	}
+
+	/**
+	 * The positions of the content a Filter matches, as found by a
+	 * FilterList. The positions are valid while the data mod count is
+	 * unchanged. Instances are immutable (the positions array is never
+	 * modified) so they can be shared by all the views with an equal Filter.
+	 */
+	static final class FilterPositions {
+		final Filter<?> filter;
+		final int[] positions;
+		final int count;
+		final int datamod;
+
+		FilterPositions(final Filter<?> filter, final int[] positions,
+				final int count, final int datamod) {
+			this.filter = filter;
+			this.positions = positions;
+			this.count = count;
+			this.datamod = datamod;
+		}
+	}
+
+	/**
+	 * The index, deferred content, frozen positions and caches of this list
+	 * and of the Element that owns it, null if it has none (see
+	 * {@link ContentExtras}).
+	 */
+	private ContentExtras extras = null;
+
+	/**
+	 * Whether the content a Filter matches can only change when the list
+	 * changes (or when a child Element is renamed), so the positions it
+	 * matches can be shared by views of the list. Other filters (including
+	 * ones that look at the values of the content, or mutable filters) are
+	 * not shared.
+	 * 
+	 * @param filter
+	 *        The filter to check.
+	 * @return true if the positions the filter matches can be shared.
+	 */
+	static boolean isShareable(final Filter<?> filter) {
+		return filter.getClass() == ElementFilter.class
+				|| Filters.element().equals(filter)
+				|| Filters.content().equals(filter)
+				|| Filters.text().equals(filter)
+				|| Filters.comment().equals(filter);
+	}
+
 	/**
 	 * Force either a Document or Element parent
 	 * 
@@ -115,6 +178,41 @@ final class ContentList extends AbstractList<Content>
 	ContentList(final Parent parent) {
 		this.parent = parent;
 	}
+
+	/**
+	 * @return the optional state of this list, null if there is none.
+	 */
+	final ContentExtras extras() {
+		return extras;
+	}
+
+	/**
+	 * @return the optional state of this list, created if there is none.
+	 */
+	final ContentExtras ensureExtras() {
+		if (extras == null) {
+			extras = new ContentExtras();
+		}
+		return extras;
+	}
+
+	/**
+	 * @return the index of the child Elements, null if there is none.
+	 */
+	private final ChildIndex childIndex() {
+		final ContentExtras x = extras;
+		return x == null ? null : x.childindex;
+	}
+
+	/**
+	 * Build the deferred content, if there is any.
+	 */
+	private final void checkDeferred() {
+		final ContentExtras x = extras;
+		if (x != null && x.deferred != null) {
+			expand();
+		}
+	}
 	
 	/**
 	 * Package internal method to support building from sources that are 100%
@@ -124,12 +222,202 @@ final class ContentList extends AbstractList<Content>
 	 *        content to add without any checks
 	 */
 	final void uncheckedAddContent(final Content c) {
-		c.parent = parent;
+		checkMutable();
+		checkDeferred();
+		c.setParent(parent);
 		ensureCapacity(size + 1);
 		elementData[size++] = c;
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.added(c, size - 1, true);
+		}
 		incModCount();
 	}
 
+	/**
+	 * Turn the index of child Elements on or off. Turning the index on
+	 * indexes all current content.
+	 * 
+	 * @param indexed
+	 *        true to maintain an index of child Elements by name.
+	 */
+	final void setIndexed(final boolean indexed) {
+		if (indexed == (childIndex() != null)) {
+			return;
+		}
+		checkMutable();
+		checkDeferred();
+		if (indexed) {
+			final ChildIndex index = new ChildIndex();
+			index.rebuild(elementData, size);
+			ensureExtras().childindex = index;
+		} else {
+			extras.childindex = null;
+		}
+		// the filtered views need to change how they look up content.
+		incDataModOnly();
+	}
+
+	/**
+	 * @return true if this list maintains an index of its child Elements.
+	 */
+	final boolean isIndexed() {
+		return childIndex() != null;
+	}
+
+	/**
+	 * Get the first child Element with the specified name and Namespace URI
+	 * using the index. Only valid if {@link #isIndexed()}.
+	 * 
+	 * @param name
+	 *        The Element name
+	 * @param uri
+	 *        The Namespace URI
+	 * @return the first matching Element or null.
+	 */
+	final Element indexedChild(final String name, final String uri) {
+		checkDeferred();
+		return childIndex().first(name, uri);
+	}
+
+	/**
+	 * Get the position of the first child Element with the specified name and
+	 * Namespace URI using the index. Only valid if {@link #isIndexed()}.
+	 * 
+	 * @param name
+	 *        The Element name
+	 * @param uri
+	 *        The Namespace URI
+	 * @return the position of the first matching Element or -1.
+	 */
+	final int indexedPosition(final String name, final String uri) {
+		checkDeferred();
+		return childIndex().firstPosition(name, uri);
+	}
+
+	/**
+	 * A child Element has changed its name or Namespace, re-index it if
+	 * needed, and forget the shared filter positions.
+	 * 
+	 * @param child
+	 *        The renamed Element
+	 * @param oldname
+	 *        The Element's previous name
+	 * @param olduri
+	 *        The Element's previous Namespace URI
+	 */
+	final void childRenamed(final Element child, final String oldname,
+			final String olduri) {
+		// ElementFilter positions depend on the names.
+		if (extras != null) {
+			extras.filterpositions = null;
+		}
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.renamed(child, oldname, olduri);
+			// the filtered views need to be refreshed.
+			incDataModOnly();
+		}
+	}
+
+	/**
+	 * Make this list read-only. The deferred content (if any) is built
+	 * first, so that reading the list never modifies it.
+	 */
+	final void freeze() {
+		if (isFrozen()) {
+			return;
+		}
+		checkDeferred();
+		int[] positions = new int[size];
+		int cnt = 0;
+		for (int i = 0; i < size; i++) {
+			if (elementData[i] instanceof Element) {
+				positions[cnt++] = i;
+			}
+		}
+		if (cnt < size) {
+			positions = ArrayCopy.copyOf(positions, cnt);
+		}
+		ensureExtras().frozen = positions;
+	}
+
+	/**
+	 * @return true if this list is read-only.
+	 */
+	final boolean isFrozen() {
+		final ContentExtras x = extras;
+		return x != null && x.frozen != null;
+	}
+
+	/**
+	 * Throw an UnsupportedOperationException if this list is frozen.
+	 */
+	private final void checkMutable() {
+		if (isFrozen()) {
+			throw frozenException();
+		}
+		if (parent instanceof Element) {
+			((Element)parent).contentChanged();
+		}
+	}
+
+	/**
+	 * @return the exception for changes to frozen content.
+	 */
+	static final UnsupportedOperationException frozenException() {
+		return new UnsupportedOperationException(
+				"Unable to modify the content of a frozen Document");
+	}
+
+	/**
+	 * Set the content that will be built when this list is first accessed.
+	 * 
+	 * @param pending
+	 *        The deferred content.
+	 */
+	final void setDeferred(final Pending pending) {
+		if (pending != null || extras != null) {
+			ensureExtras().deferred = pending;
+		}
+	}
+
+	/**
+	 * @return true if this list has content that has not been built yet.
+	 */
+	final boolean isDeferred() {
+		final ContentExtras x = extras;
+		return x != null && x.deferred != null;
+	}
+
+	/**
+	 * Share the deferred content of another list (which is typically being
+	 * cloned). The deferred content is only ever read, so it can be built
+	 * into more than one list.
+	 * 
+	 * @param source
+	 *        The list to share the deferred content of.
+	 * @return true if the source list has deferred content (and all of its
+	 *         content is deferred).
+	 */
+	final boolean shareDeferred(final ContentList source) {
+		if (!source.isDeferred()) {
+			return false;
+		}
+		ensureExtras().deferred = source.extras.deferred;
+		return true;
+	}
+
+	/**
+	 * Build the deferred content.
+	 */
+	private final void expand() {
+		final Pending pending = extras.deferred;
+		// clear it first, adding the content comes back through here.
+		extras.deferred = null;
+		pending.expand((Element)parent);
+	}
+
 	/**
 	 * In the FilterList and FilterList iterators it becomes confusing as to
 	 * which modCount is being used. This formalizes the process, and using
@@ -154,7 +442,7 @@ final class ContentList extends AbstractList<Content>
 	 * 
 	 * @return mod the value.
 	 */
-	private final int getModCount() {
+	final int getModCount() {
 		return sizeModCount;
 	}
 
@@ -184,6 +472,7 @@ final class ContentList extends AbstractList<Content>
 	}
 
 	private final void checkIndex(final int index, final boolean excludes) {
+		checkDeferred();
 		final int max = excludes ? size - 1 : size;
 
 		if (index < 0 || index > max) {
@@ -240,6 +529,7 @@ final class ContentList extends AbstractList<Content>
 	 */
 	@Override
 	public void add(final int index, final Content child) {
+		checkMutable();
 		// Confirm basic sanity of child.
 		checkPreConditions(child, index, false);
 		// Check to see whether this parent believes it can contain this content
@@ -248,13 +538,18 @@ final class ContentList extends AbstractList<Content>
 		child.setParent(parent);
 
 		ensureCapacity(size + 1);
-		if (index == size) {
+		final boolean append = index == size;
+		if (append) {
 			elementData[size++] = child;
 		} else {
 			System.arraycopy(elementData, index, elementData, index + 1, size - index);
 			elementData[index] = child;
 			size++;
 		}
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.added(child, index, append);
+		}
 		// Successful add's increment the AbstractList's modCount
 		incModCount();
 	}
@@ -292,6 +587,7 @@ final class ContentList extends AbstractList<Content>
 			throw new NullPointerException(
 					"Can not add a null collection to the ContentList");
 		}
+		checkMutable();
 
 		checkIndex(index, false);
 
@@ -309,6 +605,19 @@ final class ContentList extends AbstractList<Content>
 
 		ensureCapacity(size() + addcnt);
 
+		if (parent instanceof Element) {
+			// an Element does not care what its siblings are, so all the
+			// content can be checked first, and then moved in one go.
+			final Object[] raw = collection.toArray();
+			final Content[] adding = new Content[raw.length];
+			for (int i = 0; i < raw.length; i++) {
+				// a raw Collection may contain anything.
+				adding[i] = (Content) raw[i];
+			}
+			addAllBulk(index, adding);
+			return true;
+		}
+
 		final int tmpmodcount = getModCount();
 		final int tmpdmc = getDataModCount();
 		boolean ok = false;
@@ -335,11 +644,85 @@ final class ContentList extends AbstractList<Content>
 		return true;
 	}
 
+	/**
+	 * Insert all the (already counted) content at the index with a single
+	 * shift of the existing content. Either all the content is added, or
+	 * none of it is.
+	 * 
+	 * @param index
+	 *        where to insert the content
+	 * @param adding
+	 *        the content to insert
+	 */
+	private final void addAllBulk(final int index, final Content[] adding) {
+		int count = 0;
+		try {
+			for (final Content c : adding) {
+				checkPreConditions(c, index, false);
+				parent.canContainContent(c, index + count, false);
+				c.setParent(parent);
+				count++;
+			}
+		} finally {
+			if (count < adding.length) {
+				// something failed... release the content we took.
+				while (--count >= 0) {
+					removeParent(adding[count]);
+				}
+			}
+		}
+
+		ensureCapacity(size + adding.length);
+		System.arraycopy(elementData, index, elementData,
+				index + adding.length, size - index);
+		System.arraycopy(adding, 0, elementData, index, adding.length);
+		size += adding.length;
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.rebuild(elementData, size);
+		}
+		incModCount();
+	}
+
+	/**
+	 * Remove a range of content with a single shift of the content that
+	 * follows it. This is what <code>subList(from, to).clear()</code> uses.
+	 * 
+	 * @param from
+	 *        the index of the first content to remove
+	 * @param to
+	 *        the index after the last content to remove
+	 */
+	@Override
+	protected void removeRange(final int from, final int to) {
+		checkMutable();
+		checkIndex(from, false);
+		checkIndex(to, false);
+		if (from >= to) {
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			removeParent(elementData[i]);
+		}
+		System.arraycopy(elementData, to, elementData, from, size - to);
+		final int newsize = size - (to - from);
+		Arrays.fill(elementData, newsize, size, null);
+		size = newsize;
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.rebuild(elementData, size);
+		}
+		incModCount();
+	}
+
 	/**
 	 * Clear the current list.
 	 */
 	@Override
 	public void clear() {
+		checkMutable();
+		// discard the deferred content, there is no need to build it.
+		setDeferred(null);
 		if (elementData != null) {
 			for (int i = 0; i < size; i++) {
 				Content obj = elementData[i];
@@ -348,6 +731,10 @@ final class ContentList extends AbstractList<Content>
 			elementData = null;
 			size = 0;
 		}
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.clear();
+		}
 		incModCount();
 	}
 
@@ -359,6 +746,7 @@ final class ContentList extends AbstractList<Content>
 	 *        The collection to use.
 	 */
 	void clearAndSet(final Collection<? extends Content> collection) {
+		checkMutable();
 		if (collection == null || collection.isEmpty()) {
 			clear();
 			return;
@@ -367,6 +755,8 @@ final class ContentList extends AbstractList<Content>
 		// keep a backup in case we need to roll-back...
 		final Content[] old = elementData;
 		final int oldSize = size;
+		final Pending oldDeferred = extras == null ? null : extras.deferred;
+		setDeferred(null);
 		final int oldModCount = getModCount();
 		final int oldDataModCount = getDataModCount();
 
@@ -379,6 +769,10 @@ final class ContentList extends AbstractList<Content>
 		}
 		size = 0;
 		elementData = null;
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.clear();
+		}
 
 		boolean ok = false;
 		try {
@@ -395,6 +789,10 @@ final class ContentList extends AbstractList<Content>
 				while (size < oldSize) {
 					elementData[size++].setParent(parent);
 				}
+				if (childindex != null) {
+					childindex.rebuild(elementData, size);
+				}
+				setDeferred(oldDeferred);
 				setModCount(oldModCount, oldDataModCount);
 			}
 		}
@@ -449,9 +847,33 @@ final class ContentList extends AbstractList<Content>
 	 * @return a list representing the rules of the <code>Filter</code>.
 	 */
 	<E extends Content> List<E> getView(final Filter<E> filter) {
+		checkDeferred();
 		return new FilterList<E>(filter);
 	}
 
+	/**
+	 * Return a view of the child Elements with the given name and Namespace.
+	 * If this list is indexed the view uses the index to locate the Elements.
+	 * 
+	 * @param name
+	 *        The Element name (null for any name).
+	 * @param ns
+	 *        The Element Namespace (null for any Namespace).
+	 * @return a list representing the matching Elements.
+	 */
+	List<Element> getElementView(final String name, final Namespace ns) {
+		checkDeferred();
+		final ElementFilter filter = new ElementFilter(name, ns);
+		if (name == null && ns == null && isFrozen()) {
+			// all the child Elements, and we know where they are.
+			return new FilterList<Element>(filter, extras.frozen);
+		}
+		if (name == null || ns == null) {
+			return new FilterList<Element>(filter);
+		}
+		return new FilterList<Element>(filter, name, ns.getURI());
+	}
+
 	/**
 	 * Return the index of the first Element in the list. If the parent is a
 	 * <code>Document</code> then the element is the root element. If the list
@@ -460,6 +882,7 @@ final class ContentList extends AbstractList<Content>
 	 * @return index of first element, or -1 if one doesn't exist
 	 */
 	int indexOfFirstElement() {
+		checkDeferred();
 		if (elementData != null) {
 			for (int i = 0; i < size; i++) {
 				if (elementData[i] instanceof Element) {
@@ -496,12 +919,17 @@ final class ContentList extends AbstractList<Content>
 	 */
 	@Override
 	public Content remove(final int index) {
+		checkMutable();
 		checkIndex(index, true);
 
 		final Content old = elementData[index];
 		removeParent(old);
 		System.arraycopy(elementData, index + 1, elementData, index, size - index - 1);
 		elementData[--size] = null; // Let gc do its work
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.removed(old, index);
+		}
 		incModCount();
 		return old;
 	}
@@ -523,6 +951,7 @@ final class ContentList extends AbstractList<Content>
 	 */
 	@Override
 	public Content set(final int index, final Content child) {
+		checkMutable();
 		// Confirm basic sanity of child.
 		checkPreConditions(child, index, true);
 
@@ -539,12 +968,28 @@ final class ContentList extends AbstractList<Content>
 		removeParent(old);
 		child.setParent(parent);
 		elementData[index] = child;
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.replaced(old, child, index);
+		}
 		// for set method we increment dataModCount, but not modCount
 		// set does not change the structure of the List (size())
 		incDataModOnly();
 		return old;
 	}
 
+	/**
+	 * Get content without checking the index, or building deferred content.
+	 * For use only after {@link #size()} has been checked.
+	 * 
+	 * @param index
+	 *        The index of the content.
+	 * @return The content at the index.
+	 */
+	final Content uncheckedGet(final int index) {
+		return elementData[index];
+	}
+
 	/**
 	 * Return the number of items in this list
 	 * 
@@ -552,21 +997,25 @@ final class ContentList extends AbstractList<Content>
 	 */
 	@Override
 	public int size() {
+		checkDeferred();
 		return size;
 	}
 
 	@Override
 	public Iterator<Content> iterator() {
+		checkDeferred();
 		return new CLIterator();
 	}
 	
 	@Override
 	public ListIterator<Content> listIterator() {
+		checkDeferred();
 		return new CLListIterator(0);
 	}
 
 	@Override
 	public ListIterator<Content> listIterator(final int start) {
+		checkDeferred();
 		return new CLListIterator(start);
 	}
 
@@ -581,6 +1030,7 @@ final class ContentList extends AbstractList<Content>
 	}
 	
 	private void sortInPlace(final int[] indexes) {
+		checkMutable();
 		// the indexes are a discrete set of values that have no duplicates,
 		// and describe the relative order of each of them.
 		// as a result, we can do some tricks....
@@ -594,6 +1044,10 @@ final class ContentList extends AbstractList<Content>
 		for (int i = 0; i < indexes.length; i ++) {
 			elementData[unsorted[i]] = usc[i];
 		}
+		final ChildIndex childindex = childIndex();
+		if (childindex != null) {
+			childindex.rebuild(elementData, size);
+		}
 	}
 
 	/**
@@ -629,6 +1083,7 @@ final class ContentList extends AbstractList<Content>
 	}
 	
 	final void sort(final Comparator<? super Content> comp) {
+		checkDeferred();
 		final int sz = size;
 		int[] indexes = new int[sz];
 		for (int i = 0 ; i < sz; i++) {
@@ -911,10 +1366,19 @@ final class ContentList extends AbstractList<Content>
 		final Filter<F> filter;
 		// correlate the position in the filtered list to the index in the
 		// backing ContentList.
-		int[] backingpos = new int[size + INITIAL_ARRAY_SIZE];
+		int[] backingpos;
 		int backingsize = 0;
 		// track data modifications in the backing ContentList.
 		int xdata = -1;
+		// the Element name/URI to look up in the ChildIndex (if indexed).
+		private final String indexname;
+		private final String indexuri;
+		// whether backingpos holds all the matches (from the ChildIndex, a
+		// full scan, or from a frozen list).
+		private boolean complete = false;
+		// whether backingpos is shared (with the ContentList, or other
+		// FilterLists), and has to be copied before it is modified.
+		private boolean shared = false;
 
 		/**
 		 * Create a new instance of the FilterList with the specified Filter.
@@ -923,7 +1387,61 @@ final class ContentList extends AbstractList<Content>
 		 *        The underlying Filter to use for filtering the content.
 		 */
 		FilterList(final Filter<F> filter) {
+			this(filter, null, null);
+		}
+
+		/**
+		 * Create a new instance of the FilterList with the specified Filter
+		 * which selects the Elements with a name and Namespace URI. The
+		 * ChildIndex is used to locate the Elements if the ContentList is
+		 * indexed.
+		 * 
+		 * @param filter
+		 *        The underlying Filter to use for filtering the content.
+		 * @param indexname
+		 *        The Element name the filter matches.
+		 * @param indexuri
+		 *        The Element Namespace URI the filter matches.
+		 */
+		FilterList(final Filter<F> filter, final String indexname,
+				final String indexuri) {
 			this.filter = filter;
+			this.indexname = indexname;
+			this.indexuri = indexuri;
+			this.backingpos = new int[size + INITIAL_ARRAY_SIZE];
+		}
+
+		/**
+		 * Create a new instance of the FilterList with the specified Filter
+		 * which matches the content at the given positions (and only that
+		 * content) in a frozen ContentList. The positions array is shared,
+		 * and never modified.
+		 * 
+		 * @param filter
+		 *        The underlying Filter to use for filtering the content.
+		 * @param positions
+		 *        The positions of all the content the filter matches.
+		 */
+		FilterList(final Filter<F> filter, final int[] positions) {
+			this.filter = filter;
+			this.indexname = null;
+			this.indexuri = null;
+			this.backingpos = positions;
+			this.backingsize = positions.length;
+			this.complete = true;
+			this.shared = true;
+			this.xdata = getDataModCount();
+		}
+
+		/**
+		 * Make sure backingpos can be modified (it is not shared).
+		 */
+		private final void unshare() {
+			if (shared) {
+				backingpos = ArrayCopy.copyOf(backingpos,
+						Math.max(backingpos.length, size + 1));
+				shared = false;
+			}
 		}
 		
 		/**
@@ -958,8 +1476,10 @@ final class ContentList extends AbstractList<Content>
 				// we need to invalidate our research...
 				xdata = getDataModCount();
 				backingsize = 0;
-				if (size >= backingpos.length) {
+				complete = false;
+				if (shared || size >= backingpos.length) {
 					backingpos = new int[size + 1];
+					shared = false;
 				}
 			}
 
@@ -969,6 +1489,38 @@ final class ContentList extends AbstractList<Content>
 				return backingpos[index];
 			}
 
+			if (complete) {
+				return size;
+			}
+
+			if (backingsize == 0) {
+				// maybe another view with the same filter has done the work.
+				final FilterPositions fp = extras == null ? null
+						: extras.filterpositions;
+				if (fp != null && fp.datamod == xdata
+						&& fp.filter.equals(filter)) {
+					backingpos = fp.positions;
+					backingsize = fp.count;
+					complete = true;
+					shared = true;
+					return index >= 0 && index < backingsize
+							? backingpos[index] : size;
+				}
+			}
+
+			unshare();
+
+			final ChildIndex childindex = childIndex();
+			if (indexname != null && childindex != null) {
+				// the index has all the positions, no need to scan.
+				backingpos = childindex.positions(indexname, indexuri,
+						backingpos);
+				backingsize = childindex.count(indexname, indexuri);
+				complete = true;
+				return index >= 0 && index < backingsize
+						? backingpos[index] : size;
+			}
+
 			// the index in the backing list of the next value to check.
 			int bpi = 0;
 			if (backingsize > 0) {
@@ -985,6 +1537,14 @@ final class ContentList extends AbstractList<Content>
 				}
 				bpi++;
 			}
+
+			complete = true;
+			if (isShareable(filter)) {
+				// we have all the matches now, share them with later views.
+				shared = true;
+				ensureExtras().filterpositions = new FilterPositions(filter,
+						backingpos, backingsize, xdata);
+			}
 			return size;
 		}
 
@@ -1014,11 +1574,13 @@ final class ContentList extends AbstractList<Content>
 				// we can optimise the laziness now by doing a partial reset on
 				// the backing list... invalidate everything *after* the added
 				// content
+				unshare();
 				if (backingpos.length <= size) {
 					backingpos = ArrayCopy.copyOf(backingpos, backingpos.length + 1);
 				}
 				backingpos[index] = adj;
 				backingsize = index + 1;
+				complete = false;
 				xdata = getDataModCount();
 
 			} else {
@@ -1070,11 +1632,13 @@ final class ContentList extends AbstractList<Content>
 						// the backing list... invalidate everything *after* the
 						// added
 						// content
+						unshare();
 						if (backingpos.length <= size) {
 							backingpos = ArrayCopy.copyOf(backingpos, backingpos.length + addcnt);
 						}
 						backingpos[index + count] = adj + count;
 						backingsize = index + count + 1;
+						complete = false;
 						xdata = getDataModCount();
 
 						count++;
@@ -1097,6 +1661,7 @@ final class ContentList extends AbstractList<Content>
 					// reset the cache... will need to redo some work on another
 					// call maybe....
 					backingsize = index;
+					complete = false;
 					xdata = tmpmodcount;
 				}
 			}
@@ -1157,6 +1722,7 @@ final class ContentList extends AbstractList<Content>
 			final Content oldc = ContentList.this.remove(adj);
 			// optimise the backing cache.
 			backingsize = index;
+			complete = false;
 			xdata = getDataModCount();
 			// use Filter to ensure the cast is right.
 			return filter.filter(oldc);
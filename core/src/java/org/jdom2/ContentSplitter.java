@@ -0,0 +1,387 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jdom2.filter.Filter;
+
+/**
+ * Splits the children, or the descendants, of an Element into parts that
+ * can be processed concurrently, like a <code>java.util.Spliterator</code>
+ * (which JDOM can not use, it runs on Java 5). A ContentSplitter covers a
+ * run of sibling content (with all their descendants when it is a
+ * descendant splitter). {@link #trySplit()} takes the first half (by the
+ * number of nodes, not the number of siblings) off this ContentSplitter,
+ * and splits inside a subtree when there is only one sibling left.
+ * <p>
+ * The parts are visited in document order, and all the parts (in the
+ * order they were split off) visit the same content as
+ * {@link Element#getDescendants(Filter)} (or
+ * {@link Element#getContent(Filter)} for a child splitter). A typical use
+ * is:
+ * <pre>
+ *   final List&lt;Future&lt;Integer&gt;&gt; results = ...;
+ *   for (final ContentSplitter&lt;Element&gt; part :
+ *           root.getDescendantSplitter(Filters.element("record")).split(threads)) {
+ *       results.add(executor.submit(new Callable&lt;Integer&gt;() {
+ *           public Integer call() {
+ *               int cnt = 0;
+ *               for (Element record : part) {
+ *                   cnt += process(record);
+ *               }
+ *               return cnt;
+ *           }
+ *       }));
+ *   }
+ * </pre>
+ * <p>
+ * The sizes are exact: the first split (or {@link #estimateSize()}) counts
+ * the content it covers. Counting also builds any content that was not
+ * built yet (deferred or lazily copied content), so after that the parts
+ * only read the Document, and can be processed by different threads at
+ * once. The Document must not be changed while it is being split or
+ * processed (freezing it is the easy way to make sure).
+ * <p>
+ * A ContentSplitter can not be split once it has started to iterate, and
+ * its Iterators do not support remove().
+ * 
+ * @param <F>
+ *        The type of content that is returned.
+ * @see Element#getDescendantSplitter(Filter)
+ * @see Element#getChildSplitter()
+ * @since JDOM2
+ */
+public final class ContentSplitter<F extends Content> implements Iterable<F> {
+
+	private final Filter<F> filter;
+	/** Whether the descendants of the content are included */
+	private final boolean deep;
+	/** Whether only Elements can match the filter */
+	private final boolean elementsonly;
+
+	/** Content visited (without its descendants) before the range, or null */
+	private Content head;
+	/** The siblings in the range */
+	private ContentList list;
+	private int from;
+	private int to;
+	/**
+	 * The running total of the sizes of the siblings, sums[i - base] is the
+	 * size of the content in the list before index i. Null until counted.
+	 */
+	private long[] sums = null;
+	private int base = 0;
+	private boolean started = false;
+
+	/**
+	 * Split a ContentList.
+	 * 
+	 * @param list
+	 *        The ContentList with the content to split.
+	 * @param filter
+	 *        The content to return.
+	 * @param deep
+	 *        Whether to include the descendants of the content.
+	 */
+	ContentSplitter(final ContentList list, final Filter<F> filter,
+			final boolean deep) {
+		if (filter == null) {
+			throw new NullPointerException("Cannot split with a null Filter");
+		}
+		this.filter = filter;
+		this.deep = deep;
+		this.elementsonly = deep && DescendantIterator.isElementsOnly(filter);
+		this.list = list;
+		this.from = 0;
+		this.to = list.size();
+	}
+
+	/**
+	 * A part split off another ContentSplitter.
+	 */
+	private ContentSplitter(final ContentSplitter<F> source, final Content head,
+			final int from, final int to) {
+		this.filter = source.filter;
+		this.deep = source.deep;
+		this.elementsonly = source.elementsonly;
+		this.head = head;
+		this.list = source.list;
+		this.from = from;
+		this.to = to;
+		this.sums = source.sums;
+		this.base = source.base;
+	}
+
+	/**
+	 * The size of one sibling: 1, plus its descendants if this is deep (but
+	 * only the Elements count when only Elements can match).
+	 */
+	private long size(final Content c) {
+		if (!(c instanceof Element)) {
+			return elementsonly ? 0 : 1;
+		}
+		if (!deep) {
+			return 1;
+		}
+		long cnt = 1;
+		final DescendantIterator it = new DescendantIterator((Element)c, null,
+				elementsonly);
+		while (it.hasNext()) {
+			it.next();
+			cnt++;
+		}
+		return cnt;
+	}
+
+	private void count() {
+		if (sums != null) {
+			return;
+		}
+		final long[] s = new long[to - from + 1];
+		for (int i = from; i < to; i++) {
+			s[i - from + 1] = s[i - from] + size(list.uncheckedGet(i));
+		}
+		sums = s;
+		base = from;
+	}
+
+	/**
+	 * The number of nodes this ContentSplitter visits (not all of them may
+	 * match the Filter). When the Filter only matches Elements, only the
+	 * Elements are counted.
+	 * 
+	 * @return the number of nodes in this ContentSplitter.
+	 */
+	public long estimateSize() {
+		count();
+		return (head == null ? 0 : 1) + sums[to - base] - sums[from - base];
+	}
+
+	/**
+	 * Take the first part (about half) of the content off this
+	 * ContentSplitter.
+	 * 
+	 * @return a ContentSplitter for the content before what is left in this
+	 *         one, or null if this can not be split.
+	 * @throws IllegalStateException
+	 *         if this ContentSplitter has started to iterate.
+	 */
+	public ContentSplitter<F> trySplit() {
+		if (started) {
+			throw new IllegalStateException(
+					"Cannot split once iteration has started");
+		}
+		count();
+		if (to - from >= 2) {
+			// the first sibling where the running total passes half-way.
+			final long h = head == null ? 0 : 1;
+			final long half = sums[from - base] - h
+					+ (h + sums[to - base] - sums[from - base]) / 2;
+			int left = from + 1;
+			int right = to - 1;
+			while (left < right) {
+				final int mid = (left + right) >>> 1;
+				if (sums[mid - base] < half) {
+					left = mid + 1;
+				} else {
+					right = mid;
+				}
+			}
+			final ContentSplitter<F> prefix =
+					new ContentSplitter<F>(this, head, from, left);
+			head = null;
+			from = left;
+			return prefix;
+		}
+		if (to - from == 1 && deep) {
+			final Content c = list.uncheckedGet(from);
+			if (c instanceof Element && ((Element)c).content.size() > 0) {
+				if (head != null) {
+					// the head has to go first.
+					final ContentSplitter<F> prefix =
+							new ContentSplitter<F>(this, head, from, from);
+					head = null;
+					return prefix;
+				}
+				// go down to the children.
+				head = c;
+				list = ((Element)c).content;
+				from = 0;
+				to = list.size();
+				sums = null;
+				return trySplit();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Split this ContentSplitter into about <code>parts</code> parts of about
+	 * the same size, by splitting the largest part until there are enough
+	 * parts (or nothing more can be split). This ContentSplitter is the last
+	 * of the parts.
+	 * 
+	 * @param parts
+	 *        The number of parts wanted.
+	 * @return The parts, in document order.
+	 */
+	public List<ContentSplitter<F>> split(final int parts) {
+		final List<ContentSplitter<F>> ret = new ArrayList<ContentSplitter<F>>();
+		final List<Boolean> done = new ArrayList<Boolean>();
+		ret.add(this);
+		done.add(Boolean.FALSE);
+		while (ret.size() < parts) {
+			int big = -1;
+			long bigsize = 1;
+			for (int i = 0; i < ret.size(); i++) {
+				final long size = ret.get(i).estimateSize();
+				if (!done.get(i).booleanValue() && size > bigsize) {
+					big = i;
+					bigsize = size;
+				}
+			}
+			if (big < 0) {
+				break;
+			}
+			final ContentSplitter<F> prefix = ret.get(big).trySplit();
+			if (prefix == null) {
+				done.set(big, Boolean.TRUE);
+			} else {
+				ret.add(big, prefix);
+				done.add(big, Boolean.FALSE);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Iterate the content (that matches the filter) in this
+	 * ContentSplitter. Once an Iterator has been created this
+	 * ContentSplitter can not be split.
+	 */
+	@Override
+	public Iterator<F> iterator() {
+		started = true;
+		return new SplitIterator();
+	}
+
+	@Override
+	public String toString() {
+		return "[ContentSplitter: " + (deep ? "descendants of " : "")
+				+ "content " + from + " to " + to + "]";
+	}
+
+	/**
+	 * Iterate the head, and the range (with the descendants if deep).
+	 */
+	private final class SplitIterator implements Iterator<F> {
+		private Content first = head;
+		private int cursor = from;
+		private DescendantIterator sub = null;
+		private F next = null;
+
+		@Override
+		public boolean hasNext() {
+			if (next != null) {
+				return true;
+			}
+			while (true) {
+				Content c = null;
+				if (first != null) {
+					c = first;
+					first = null;
+				} else if (sub != null && sub.hasNext()) {
+					c = sub.next();
+				} else if (cursor < to) {
+					c = list.uncheckedGet(cursor++);
+					if (deep && c instanceof Element) {
+						sub = new DescendantIterator((Element)c, null,
+								elementsonly);
+					} else {
+						sub = null;
+					}
+				} else {
+					return false;
+				}
+				next = filter.filter(c);
+				if (next != null) {
+					return true;
+				}
+			}
+		}
+
+		@Override
+		public F next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(
+						"Iterated beyond the end of the ContentSplitter");
+			}
+			final F ret = next;
+			next = null;
+			return ret;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException(
+					"Cannot remove content with a ContentSplitter");
+		}
+	}
+
+}
@@ -0,0 +1,619 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import org.jdom2.internal.ArrayCopy;
+
+/**
+ * A compact record of XML content that is only turned in to JDOM Content
+ * when it is first accessed. Builders use this class to defer the building
+ * of the content of Elements: instead of creating Element, Attribute, and
+ * Text instances for the whole document, the parse events are recorded in a
+ * few arrays, and each Element's content is built (by the JDOMFactory) the
+ * first time the Element's content is accessed in any way.
+ * <p>
+ * This saves both memory and time when large documents are only sparsely
+ * read, and it costs a little more when all the content is eventually
+ * accessed.
+ * <p>
+ * Content is recorded in document order using the <code>startElement</code>,
+ * <code>addAttribute</code>, <code>addNamespaceDeclaration</code>,
+ * <code>endElement</code>, <code>text</code>, <code>cdata</code>,
+ * <code>comment</code>, <code>processingInstruction</code> and
+ * <code>entityRef</code> methods. Attributes and Namespace declarations
+ * belong to the Element that was most recently started, and have to be
+ * recorded before any of that Element's content. When the content of an
+ * Element is complete (all the recorded Elements are ended) it is handed to
+ * the Element with {@link #defer(Element)}.
+ * <p>
+ * The recorded content is never modified once it is deferred. The same
+ * recorded content is shared by clones of an Element that have not been
+ * built yet.
+ * <p>
+ * <strong>Note:</strong> building the deferred content modifies the
+ * Element, even if it is only read. Documents with deferred content are not
+ * safe for concurrent access by multiple threads, even read-only access,
+ * unless all the content has been built.
+ * 
+ * @since JDOM2
+ */
+public final class DeferredContent {
+
+	/**
+	 * The deferred content of one Element: a range of records.
+	 */
+	static final class Pending extends ContentList.Pending {
+		private final DeferredContent store;
+		private final int from;
+		private final int to;
+
+		private Pending(final DeferredContent store, final int from,
+				final int to) {
+			this.store = store;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		void expand(final Element element) {
+			store.expand(element, from, to);
+		}
+	}
+
+	/*
+	 * The record types, and the sizes of the records. Element records are
+	 * followed immediately by the Element's Attribute and Namespace records.
+	 * Element records contain the index of the record after the Element's
+	 * last descendant.
+	 */
+	private static final int ELEMENT = 0;   // type, end, name, ns, line, col
+	private static final int ATTRIBUTE = 1; // type, name, ns, off, len, spec
+	private static final int NAMESPACE = 2; // type, ns
+	private static final int TEXT = 3;      // type, off, len, line, col
+	private static final int CDATA = 4;     // type, off, len, line, col
+	private static final int COMMENT = 5;   // type, off, len, line, col
+	private static final int PI = 6;        // type, target, off, len, line, col
+	private static final int ENTITYREF = 7; // type, name, pub, sys, line, col
+
+	private static final AttributeType[] ATTTYPES = AttributeType.values();
+
+	private final JDOMFactory factory;
+
+	private int[] data = new int[256];
+	private int datasize = 0;
+
+	private char[] chars = new char[1024];
+	private int charsize = 0;
+
+	private String[] names = new String[32];
+	private final HashMap<String, Integer> namemap =
+			new HashMap<String, Integer>();
+
+	private Namespace[] namespaces = new Namespace[8];
+	private final IdentityHashMap<Namespace, Integer> nsmap =
+			new IdentityHashMap<Namespace, Integer>();
+
+	/** The indexes of the Element records that are not ended yet. */
+	private int[] open = new int[16];
+	private int depth = 0;
+
+	/** Whether Attributes/Namespaces can be added to the current Element */
+	private boolean inStartTag = false;
+
+	/** Where the content for the next defer() call starts. */
+	private int deferfrom = 0;
+
+	/**
+	 * Create a DeferredContent that builds the content with a JDOMFactory.
+	 * 
+	 * @param factory
+	 *        The JDOMFactory to build content with (null for a
+	 *        {@link DefaultJDOMFactory}).
+	 */
+	public DeferredContent(final JDOMFactory factory) {
+		this.factory = factory == null ? new DefaultJDOMFactory() : factory;
+	}
+
+	/**
+	 * Get the JDOMFactory used to build the content.
+	 * 
+	 * @return the JDOMFactory.
+	 */
+	public JDOMFactory getFactory() {
+		return factory;
+	}
+
+	/**
+	 * Is the content of an Element still deferred (not built yet).
+	 * 
+	 * @param element
+	 *        The Element to check.
+	 * @return true if the Element has content that has not been built yet.
+	 */
+	public static boolean isDeferred(final Element element) {
+		return element.content.isDeferred();
+	}
+
+	/**
+	 * Get the number of Elements that are started and not yet ended.
+	 * 
+	 * @return the current Element depth.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	private final void ensureData(final int need) {
+		if (datasize + need > data.length) {
+			data = ArrayCopy.copyOf(data, (datasize + need) * 2);
+		}
+	}
+
+	private final int addChars(final char[] ch, final int start,
+			final int length) {
+		if (charsize + length > chars.length) {
+			chars = ArrayCopy.copyOf(chars, (charsize + length) * 2);
+		}
+		System.arraycopy(ch, start, chars, charsize, length);
+		final int off = charsize;
+		charsize += length;
+		return off;
+	}
+
+	private final int addChars(final String value) {
+		final int length = value.length();
+		if (charsize + length > chars.length) {
+			chars = ArrayCopy.copyOf(chars, (charsize + length) * 2);
+		}
+		value.getChars(0, length, chars, charsize);
+		final int off = charsize;
+		charsize += length;
+		return off;
+	}
+
+	private final int name(final String name) {
+		if (name == null) {
+			return -1;
+		}
+		final Integer idx = namemap.get(name);
+		if (idx != null) {
+			return idx.intValue();
+		}
+		final int ret = namemap.size();
+		if (ret == names.length) {
+			names = ArrayCopy.copyOf(names, ret * 2);
+		}
+		names[ret] = name;
+		namemap.put(name, Integer.valueOf(ret));
+		return ret;
+	}
+
+	private final int namespace(final Namespace ns) {
+		final Integer idx = nsmap.get(ns);
+		if (idx != null) {
+			return idx.intValue();
+		}
+		final int ret = nsmap.size();
+		if (ret == namespaces.length) {
+			namespaces = ArrayCopy.copyOf(namespaces, ret * 2);
+		}
+		namespaces[ret] = ns;
+		nsmap.put(ns, Integer.valueOf(ret));
+		return ret;
+	}
+
+	private final void content(final int type, final int off, final int len,
+			final int line, final int col) {
+		inStartTag = false;
+		ensureData(5);
+		data[datasize++] = type;
+		data[datasize++] = off;
+		data[datasize++] = len;
+		data[datasize++] = line;
+		data[datasize++] = col;
+	}
+
+	/**
+	 * Record the start of an Element.
+	 * 
+	 * @param line
+	 *        The line the Element starts on (-1 if unknown).
+	 * @param col
+	 *        The column the Element starts on (-1 if unknown).
+	 * @param name
+	 *        The Element's local name.
+	 * @param namespace
+	 *        The Element's Namespace.
+	 */
+	public void startElement(final int line, final int col, final String name,
+			final Namespace namespace) {
+		if (depth == open.length) {
+			open = ArrayCopy.copyOf(open, depth * 2);
+		}
+		open[depth++] = datasize;
+		ensureData(6);
+		data[datasize++] = ELEMENT;
+		data[datasize++] = -1;
+		data[datasize++] = name(name);
+		data[datasize++] = namespace(namespace == null 
+				? Namespace.NO_NAMESPACE : namespace);
+		data[datasize++] = line;
+		data[datasize++] = col;
+		inStartTag = true;
+	}
+
+	private final void checkStartTag(final String what) {
+		if (!inStartTag) {
+			throw new IllegalStateException("Cannot add " + what
+					+ " unless it immediately follows the start of an Element");
+		}
+	}
+
+	/**
+	 * Record an Attribute of the most recently started Element.
+	 * 
+	 * @param name
+	 *        The Attribute's local name.
+	 * @param namespace
+	 *        The Attribute's Namespace.
+	 * @param value
+	 *        The Attribute's value.
+	 * @param type
+	 *        The Attribute's type (null for
+	 *        {@link AttributeType#UNDECLARED}).
+	 * @param specified
+	 *        false if the Attribute was defaulted from a DTD.
+	 */
+	public void addAttribute(final String name, final Namespace namespace,
+			final String value, final AttributeType type,
+			final boolean specified) {
+		checkStartTag("an Attribute");
+		ensureData(6);
+		data[datasize++] = ATTRIBUTE;
+		data[datasize++] = name(name);
+		data[datasize++] = namespace(namespace == null 
+				? Namespace.NO_NAMESPACE : namespace);
+		data[datasize++] = addChars(value);
+		data[datasize++] = value.length();
+		data[datasize++] = ((type == null ? AttributeType.UNDECLARED : type)
+				.ordinal() << 1) | (specified ? 1 : 0);
+	}
+
+	/**
+	 * Record a Namespace declaration of the most recently started Element.
+	 * 
+	 * @param namespace
+	 *        The declared Namespace.
+	 */
+	public void addNamespaceDeclaration(final Namespace namespace) {
+		checkStartTag("a Namespace declaration");
+		ensureData(2);
+		data[datasize++] = NAMESPACE;
+		data[datasize++] = namespace(namespace);
+	}
+
+	/**
+	 * Record the end of the most recently started Element.
+	 */
+	public void endElement() {
+		if (depth == 0) {
+			throw new IllegalStateException("There is no Element to end");
+		}
+		inStartTag = false;
+		data[open[--depth] + 1] = datasize;
+	}
+
+	/**
+	 * Record Text content.
+	 * 
+	 * @param line
+	 *        The line the Text ends on (-1 if unknown).
+	 * @param col
+	 *        The column the Text ends on (-1 if unknown).
+	 * @param ch
+	 *        The characters.
+	 * @param start
+	 *        The index of the first character.
+	 * @param length
+	 *        The number of characters.
+	 */
+	public void text(final int line, final int col, final char[] ch,
+			final int start, final int length) {
+		content(TEXT, addChars(ch, start, length), length, line, col);
+	}
+
+	/**
+	 * Record Text content.
+	 * 
+	 * @param line
+	 *        The line the Text ends on (-1 if unknown).
+	 * @param col
+	 *        The column the Text ends on (-1 if unknown).
+	 * @param text
+	 *        The text.
+	 */
+	public void text(final int line, final int col, final String text) {
+		content(TEXT, addChars(text), text.length(), line, col);
+	}
+
+	/**
+	 * Record CDATA content.
+	 * 
+	 * @param line
+	 *        The line the CDATA ends on (-1 if unknown).
+	 * @param col
+	 *        The column the CDATA ends on (-1 if unknown).
+	 * @param ch
+	 *        The characters.
+	 * @param start
+	 *        The index of the first character.
+	 * @param length
+	 *        The number of characters.
+	 */
+	public void cdata(final int line, final int col, final char[] ch,
+			final int start, final int length) {
+		content(CDATA, addChars(ch, start, length), length, line, col);
+	}
+
+	/**
+	 * Record CDATA content.
+	 * 
+	 * @param line
+	 *        The line the CDATA ends on (-1 if unknown).
+	 * @param col
+	 *        The column the CDATA ends on (-1 if unknown).
+	 * @param text
+	 *        The text.
+	 */
+	public void cdata(final int line, final int col, final String text) {
+		content(CDATA, addChars(text), text.length(), line, col);
+	}
+
+	/**
+	 * Record a Comment.
+	 * 
+	 * @param line
+	 *        The line the Comment is on (-1 if unknown).
+	 * @param col
+	 *        The column the Comment is on (-1 if unknown).
+	 * @param text
+	 *        The Comment text.
+	 */
+	public void comment(final int line, final int col, final String text) {
+		content(COMMENT, addChars(text), text.length(), line, col);
+	}
+
+	/**
+	 * Record a ProcessingInstruction.
+	 * 
+	 * @param line
+	 *        The line the ProcessingInstruction is on (-1 if unknown).
+	 * @param col
+	 *        The column the ProcessingInstruction is on (-1 if unknown).
+	 * @param target
+	 *        The ProcessingInstruction target.
+	 * @param pidata
+	 *        The ProcessingInstruction data.
+	 */
+	public void processingInstruction(final int line, final int col,
+			final String target, final String pidata) {
+		inStartTag = false;
+		ensureData(6);
+		data[datasize++] = PI;
+		data[datasize++] = name(target);
+		data[datasize++] = addChars(pidata);
+		data[datasize++] = pidata.length();
+		data[datasize++] = line;
+		data[datasize++] = col;
+	}
+
+	/**
+	 * Record an EntityRef.
+	 * 
+	 * @param line
+	 *        The line the EntityRef is on (-1 if unknown).
+	 * @param col
+	 *        The column the EntityRef is on (-1 if unknown).
+	 * @param name
+	 *        The entity name.
+	 * @param publicID
+	 *        The entity public ID (may be null).
+	 * @param systemID
+	 *        The entity system ID (may be null).
+	 */
+	public void entityRef(final int line, final int col, final String name,
+			final String publicID, final String systemID) {
+		inStartTag = false;
+		ensureData(6);
+		data[datasize++] = ENTITYREF;
+		data[datasize++] = name(name);
+		data[datasize++] = name(publicID);
+		data[datasize++] = name(systemID);
+		data[datasize++] = line;
+		data[datasize++] = col;
+	}
+
+	/**
+	 * Hand all the content recorded since the previous call to defer (or
+	 * since this DeferredContent was created) to an Element. The content will
+	 * be built when the Element's content is first accessed.
+	 * 
+	 * @param element
+	 *        The Element that the content belongs to. The Element must have
+	 *        no content.
+	 * @throws IllegalStateException
+	 *         if there are Elements that are not ended, or if the Element
+	 *         already has content.
+	 */
+	public void defer(final Element element) {
+		if (depth != 0) {
+			throw new IllegalStateException("Cannot defer content while there "
+					+ "are " + depth + " Elements that are not ended");
+		}
+		if (element.content.isDeferred() || !element.content.isEmpty()) {
+			throw new IllegalStateException(
+					"Cannot defer content to an Element that has content");
+		}
+		inStartTag = false;
+		if (deferfrom < datasize) {
+			element.content.setDeferred(new Pending(this, deferfrom, datasize));
+		}
+		deferfrom = datasize;
+	}
+
+	private final String string(final int off, final int len) {
+		return len == 0 ? "" : new String(chars, off, len);
+	}
+
+	/**
+	 * Build the content in a range of records, and add it to an Element.
+	 * 
+	 * @param parent
+	 *        The Element to add the content to.
+	 * @param from
+	 *        The first record.
+	 * @param to
+	 *        The index after the last record.
+	 */
+	private final void expand(final Element parent, final int from, final int to) {
+		final int[] d = data;
+		int i = from;
+		while (i < to) {
+			switch (d[i]) {
+				case ELEMENT: {
+					final int end = d[i + 1];
+					final Element e = element(d[i + 2], d[i + 3], d[i + 4], d[i + 5]);
+					i += 6;
+					while (i < end && (d[i] == ATTRIBUTE || d[i] == NAMESPACE)) {
+						if (d[i] == ATTRIBUTE) {
+							final Attribute a = factory.attribute(names[d[i + 1]],
+									string(d[i + 3], d[i + 4]),
+									ATTTYPES[d[i + 5] >>> 1], namespaces[d[i + 2]]);
+							if ((d[i + 5] & 1) == 0) {
+								a.setSpecified(false);
+							}
+							factory.setAttribute(e, a);
+							i += 6;
+						} else {
+							if (namespaces[d[i + 1]] != e.getNamespace()) {
+								e.addNamespaceDeclaration(namespaces[d[i + 1]]);
+							}
+							i += 2;
+						}
+					}
+					if (i < end) {
+						e.content.setDeferred(new Pending(this, i, end));
+					}
+					factory.addContent(parent, e);
+					i = end;
+					break;
+				}
+				case TEXT: {
+					final String s = string(d[i + 1], d[i + 2]);
+					factory.addContent(parent, d[i + 3] < 0 ? factory.text(s)
+							: factory.text(d[i + 3], d[i + 4], s));
+					i += 5;
+					break;
+				}
+				case CDATA: {
+					final String s = string(d[i + 1], d[i + 2]);
+					factory.addContent(parent, d[i + 3] < 0 ? factory.cdata(s)
+							: factory.cdata(d[i + 3], d[i + 4], s));
+					i += 5;
+					break;
+				}
+				case COMMENT: {
+					final String s = string(d[i + 1], d[i + 2]);
+					factory.addContent(parent, d[i + 3] < 0 ? factory.comment(s)
+							: factory.comment(d[i + 3], d[i + 4], s));
+					i += 5;
+					break;
+				}
+				case PI: {
+					final String t = names[d[i + 1]];
+					final String s = string(d[i + 2], d[i + 3]);
+					factory.addContent(parent, d[i + 4] < 0
+							? factory.processingInstruction(t, s)
+							: factory.processingInstruction(d[i + 4], d[i + 5], t, s));
+					i += 6;
+					break;
+				}
+				case ENTITYREF: {
+					final String n = names[d[i + 1]];
+					final String p = d[i + 2] < 0 ? null : names[d[i + 2]];
+					final String s = d[i + 3] < 0 ? null : names[d[i + 3]];
+					factory.addContent(parent, d[i + 4] < 0
+							? factory.entityRef(n, p, s)
+							: factory.entityRef(d[i + 4], d[i + 5], n, p, s));
+					i += 6;
+					break;
+				}
+				default:
+					throw new IllegalStateException("Corrupt deferred content "
+							+ "record type " + d[i] + " at " + i);
+			}
+		}
+	}
+
+	private final Element element(final int name, final int ns, final int line,
+			final int col) {
+		return line < 0 ? factory.element(names[name], namespaces[ns])
+				: factory.element(line, col, names[name], namespaces[ns]);
+	}
+
+}
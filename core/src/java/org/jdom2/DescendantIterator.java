@@ -54,16 +54,26 @@
 
 package org.jdom2;
 
-import java.util.*;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
 
-import org.jdom2.Content;
-import org.jdom2.Parent;
+import org.jdom2.filter.ElementFilter;
+import org.jdom2.filter.Filter;
+import org.jdom2.filter.Filters;
 import org.jdom2.internal.ArrayCopy;
 import org.jdom2.util.IteratorIterable;
 
 /**
  * Traverse all a parent's descendants (all children at any level below
  * the parent - excludes the parent itself).
+ * <p>
+ * The ContentList of each level is walked by index, and the levels above
+ * are kept in arrays (one ContentList, a cursor and a mod-count for each
+ * level), so there is no Iterator for each level.
+ * <p>
+ * The descendants of an Element that matches the optional <em>prune</em>
+ * Filter are skipped (the Element itself is not). When only Elements are
+ * wanted the other content is skipped as the lists are walked.
  *
  * @author Bradley S. Huffman
  * @author Jason Hunter
@@ -73,24 +83,34 @@ final class DescendantIterator implements IteratorIterable<Content> {
 	
 	/** Needed to be Iterable! */
 	private final Parent parent;
+	/** Elements whose descendants are skipped, may be null */
+	private final Filter<?> prune;
+	/** Whether only Elements are returned */
+	private final boolean elementsonly;
 	
 	/*
-	 * Note, we use an Array of Object here, even through
-	 * List<Iterator<Content>> would look neater, etc.
-	 * Fact is, for 'hamlet', using a list for the stack takes about
-	 * twice as long as using the Object[] array.
+	 * Note, we use arrays here, even through a List of some level state
+	 * would look neater, etc. The arrays are what makes the traversal light.
 	 */
-	private Object[] stack = new Object[16];
-	private int ssize = 0;
-
-	/** The iterator that supplied to most recent next() */
-	private Iterator<Content> current = null;
-	/** The iterator going down the tree, null unless next() returned Parent */
-	private Iterator<Content> descending = null;
-	/** The iterator going up the tree, null unless next() returned dead-end */
-	private Iterator<Content> ascending = null;
-	/** what it says... */
-	private boolean hasnext = true;
+	private ContentList[] lists = new ContentList[16];
+	private int[] cursors = new int[16];
+	private int[] expects = new int[16];
+	private int depth = 0;
+
+	/** The list being walked */
+	private ContentList list;
+	/** Where the next content in the list is */
+	private int cursor = 0;
+	/** The expected mod-count of the list */
+	private int expect;
+
+	/** The Element returned by next() that has not been descended in to */
+	private Element pending = null;
+	/** Whether hasNext() descended in to what next() returned */
+	private boolean descended = false;
+	/** The list and position of what next() returned, null after remove() */
+	private ContentList lastlist = null;
+	private int lastindex = -1;
 
 	/**
 	 * Iterator for the descendants of the supplied object.
@@ -98,16 +118,42 @@ final class DescendantIterator implements IteratorIterable<Content> {
 	 * @param parent document or element whose descendants will be iterated
 	 */
 	DescendantIterator(Parent parent) {
-		this.parent = parent;
+		this(parent, null, false);
+	}
+	
+	/**
+	 * Iterator for the descendants of the supplied object.
+	 *
+	 * @param parent document or element whose descendants will be iterated
+	 * @param prune the Elements whose descendants are skipped (may be null)
+	 * @param elementsonly true if only Elements are to be returned
+	 */
+	DescendantIterator(Parent parent, Filter<?> prune, boolean elementsonly) {
 		// can trust that parent is not null, DescendantIterator is package-private.
-		current = parent.getContent().iterator();
-		hasnext = current.hasNext();
+		this.parent = parent;
+		this.prune = prune;
+		this.elementsonly = elementsonly;
+		list = parent instanceof Element ? ((Element)parent).content
+				: ((Document)parent).content;
+		expect = list.getModCount();
+	}
+
+	/**
+	 * Whether a filter can only match Elements, so the descendants that are
+	 * not Elements need not be looked at.
+	 * 
+	 * @param filter The filter to check.
+	 * @return true if only Elements can match.
+	 */
+	static boolean isElementsOnly(final Filter<?> filter) {
+		return filter instanceof ElementFilter
+				|| Filters.element().equals(filter);
 	}
 	
 	@Override
 	public DescendantIterator iterator() {
 		// Implement the Iterable stuff.
-		return new DescendantIterator(parent);
+		return new DescendantIterator(parent, prune, elementsonly);
 	}
 
 	/**
@@ -117,7 +163,47 @@ final class DescendantIterator implements IteratorIterable<Content> {
 	 */
 	@Override
 	public boolean hasNext() {
-		return hasnext;
+		if (pending != null) {
+			// our next is down, if there is anything down there.
+			final ContentList kids = pending.content;
+			pending = null;
+			if (kids.size() > 0) {
+				if (depth == lists.length) {
+					lists = ArrayCopy.copyOf(lists, depth + 16);
+					cursors = ArrayCopy.copyOf(cursors, depth + 16);
+					expects = ArrayCopy.copyOf(expects, depth + 16);
+				}
+				lists[depth] = list;
+				cursors[depth] = cursor;
+				expects[depth++] = expect;
+				list = kids;
+				cursor = 0;
+				expect = kids.getModCount();
+				descended = true;
+			}
+		}
+		while (true) {
+			final int size = list.size();
+			if (elementsonly) {
+				while (cursor < size
+						&& !(list.uncheckedGet(cursor) instanceof Element)) {
+					cursor++;
+				}
+			}
+			if (cursor < size) {
+				// our next is along.
+				return true;
+			}
+			if (depth == 0) {
+				return false;
+			}
+			// our next is up.
+			descended = false;
+			list = lists[--depth];
+			lists[depth] = null;
+			cursor = cursors[depth];
+			expect = expects[depth];
+		}
 	}
 
 	/**
@@ -127,51 +213,21 @@ final class DescendantIterator implements IteratorIterable<Content> {
 	 */
 	@Override
 	public Content next() {
-		// set the 'current' if it needs changing.
-		if (descending != null) {
-			current = descending;
-			descending = null;
-		} else if (ascending != null) {
-			current = ascending;
-			ascending = null;
+		if (!hasNext()) {
+			throw new NoSuchElementException("Iterated beyond the end of " +
+					"the descendants.");
 		}
-		
-		final Content ret = current.next();
-		
-		// got an item to return.
-		// sort out the next state....
-		if ((ret instanceof Element) && ((Element)ret).getContentSize() > 0) {
-			// there is another descendant, and it has values.
-			// our next will be down....
-			descending = ((Element)ret).getContent().iterator();
-			if (ssize >= stack.length) {
-				stack = ArrayCopy.copyOf(stack, ssize + 16);
-			}
-			stack[ssize++] = current;
-			return ret;
-		}
-		
-		if (current.hasNext()) {
-			// our next will be along....
-			return ret;
+		if (list.getModCount() != expect) {
+			throw new ConcurrentModificationException("ContentList was " +
+					"modified outside of this Iterator");
 		}
-		
-		// our next will be up.
-		while (ssize > 0) {
-			
-			// if the stack was generic, this would not be needed, but,
-			// the java.uti.* stack codes are too slow.
-			@SuppressWarnings("unchecked")
-			final Iterator<Content> subit = (Iterator<Content>)stack[--ssize];
-			ascending = subit;
-			stack[ssize] = null;
-			if (ascending.hasNext()) {
-				return ret;
-			}
+		descended = false;
+		lastlist = list;
+		lastindex = cursor;
+		final Content ret = list.uncheckedGet(cursor++);
+		if (ret instanceof Element && (prune == null || !prune.matches(ret))) {
+			pending = (Element)ret;
 		}
-
-		ascending = null;
-		hasnext = false;
 		return ret;
 	}
 
@@ -183,28 +239,30 @@ final class DescendantIterator implements IteratorIterable<Content> {
 	 */
 	@Override
 	public void remove() {
-		current.remove();
-		// if our next move was to go down, we can't.
-		// we can go along, or up.
-		descending = null;
-		if (current.hasNext() || ascending != null) {
-			// we have a next element, or our next move was up anyway.
-			return;
+		if (lastlist == null) {
+			throw new IllegalStateException("Can only remove() content " +
+					"after a call to next()");
 		}
-		// our next move was going to be down, or accross, but those are not
-		// possible any more, need to check up.
-		// our next will be up.
-		while (ssize > 0) {
-			@SuppressWarnings("unchecked")
-			final Iterator<Content> subit = (Iterator<Content>)stack[--ssize];
-			stack[ssize] = null;
-			ascending = subit;
-			if (ascending.hasNext()) {
-				return;
-			}
+		if (descended) {
+			// hasNext() went down in to what is being removed, come back up.
+			list = lists[--depth];
+			lists[depth] = null;
+			cursor = cursors[depth];
+			expect = expects[depth];
+			descended = false;
+		}
+		if (lastlist == list && list.getModCount() != expect) {
+			throw new ConcurrentModificationException("ContentList was " +
+					"modified outside of this Iterator");
+		}
+		// we can't go down in to the removed content.
+		pending = null;
+		lastlist.remove(lastindex);
+		if (lastlist == list) {
+			cursor = lastindex;
+			expect = list.getModCount();
 		}
-		ascending = null;
-		hasnext = false;
+		lastlist = null;
 	}
 
 }
@@ -178,6 +178,7 @@ public class DocType extends Content {
 	 *         legal XML element name.
 	 */
 	public DocType setElementName(String elementName) {
+		checkMutable();
 		// This can contain a colon so we use checkXMLName()
 		// instead of checkElementName()
 		String reason = Verifier.checkXMLName(elementName);
@@ -209,6 +210,7 @@ public class DocType extends Content {
 	 *         public ID.
 	 */
 	public DocType setPublicID(String publicID) {
+		checkMutable();
 		String reason = Verifier.checkPublicID(publicID);
 		if (reason != null) {
 			throw new IllegalDataException(publicID, "DocType", reason);
@@ -240,6 +242,7 @@ public class DocType extends Content {
 	 *         system literal.
 	 */
 	public DocType setSystemID(String systemID) {
+		checkMutable();
 		String reason = Verifier.checkSystemLiteral(systemID);
 		if (reason != null) {
 			throw new IllegalDataException(systemID, "DocType", reason);
@@ -266,6 +269,7 @@ public class DocType extends Content {
 	 *        <code>String</code>.
 	 */
 	public void setInternalSubset(String newData) {
+		checkMutable();
 		internalSubset = newData;
 	}
 
@@ -90,6 +90,11 @@ public class Document extends CloneBase implements Parent {
 	// Supports the setProperty/getProperty calls
 	private transient HashMap<String,Object> propertyMap = null;
 
+	/**
+	 * The index of the Elements by ID and key, null unless it was asked for.
+	 */
+	transient IdIndex idindex = null;
+
 	/**
 	 * Creates a new empty document.  A document must have a root element,
 	 * so this document will not be well-formed and accessor methods will
@@ -196,6 +201,261 @@ public class Document extends CloneBase implements Parent {
 	//        return -1;
 	//    }
 
+	/**
+	 * Make this Document, and all its content, read-only. Any attempt to
+	 * modify a frozen Document (or its Elements, Attributes, Text, etc.)
+	 * throws an <code>UnsupportedOperationException</code>. Freezing cannot
+	 * be undone, but a {@link #clone()} of a frozen Document is not frozen.
+	 * Cloning a frozen Document is cheap, the content of the cloned Elements
+	 * is copied only when it is first accessed (see {@link Element#clone()}).
+	 * <p>
+	 * Reading a JDOM Document normally updates some internal state (deferred
+	 * content is built when it is first accessed, for example). Freezing
+	 * completes all of that work, so a frozen Document can be read by any
+	 * number of threads concurrently without any synchronization (as long as
+	 * the Document is safely published to those threads, for example through
+	 * a final or volatile field, or a concurrent collection). Reading a
+	 * frozen Document may still cache some derived values (the Namespaces in
+	 * scope of an Element, for example), but each cache is an immutable
+	 * object published through a volatile field, and threads that race to
+	 * fill it in all create equal values. Frozen Elements
+	 * also know where their child Elements are, so
+	 * {@link Element#getChildren()} does not need to scan the content.
+	 * <p>
+	 * Document properties ({@link #setProperty(String, Object)}) are not part
+	 * of the XML content, and are not frozen.
+	 * 
+	 * @return this Document (frozen).
+	 */
+	public Document freeze() {
+		if (content.isFrozen()) {
+			return this;
+		}
+		final ArrayList<Element> pending = new ArrayList<Element>();
+		addElements(content, pending);
+		while (!pending.isEmpty()) {
+			final Element e = pending.remove(pending.size() - 1);
+			addElements(e.content, pending);
+			e.content.freeze();
+		}
+		if (idindex != null) {
+			idindex.freeze();
+		}
+		content.freeze();
+		return this;
+	}
+
+	/**
+	 * Add the Elements in the content to the pending list, and create the
+	 * String of any Text that is a slice of a shared buffer (otherwise the
+	 * first read of the Text would write it).
+	 */
+	private static final void addElements(final ContentList list,
+			final ArrayList<Element> pending) {
+		final int sz = list.size();
+		for (int i = 0; i < sz; i++) {
+			final Content c = list.get(i);
+			if (c instanceof Element) {
+				pending.add((Element)c);
+			} else if (c instanceof Text) {
+				((Text)c).unshare();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether this Document is frozen (read-only).
+	 * 
+	 * @return true if this Document is frozen.
+	 * @see #freeze()
+	 */
+	public boolean isFrozen() {
+		return content.isFrozen();
+	}
+
+	/**
+	 * Index (or stop indexing) the Elements of this Document by the value of
+	 * their ID Attributes, so {@link #getElementById(String)} (and the XPath
+	 * <code>id()</code> function) does not have to scan the Document. An ID
+	 * Attribute is one of type {@link AttributeType#ID} (as declared in the
+	 * DTD), or an <code>xml:id</code> Attribute.
+	 * <p>
+	 * The index is kept up to date as Elements are attached, detached and
+	 * renamed, and as Attributes are added, removed and changed, anywhere in
+	 * the Document. Content that is not in an indexed Document does not pay
+	 * for the index.
+	 * <p>
+	 * Turning the index off also forgets the declared keys (see
+	 * {@link #declareKey(String, String, Namespace, String, Namespace)}). A
+	 * {@link #clone()} of an indexed Document is indexed with the same keys,
+	 * but the index is not serialized.
+	 * <p>
+	 * Like all other changes to a Document this is not thread-safe: a frozen
+	 * Document should be indexed before it is shared between threads.
+	 * 
+	 * @param indexed
+	 *        true to index this Document, false to drop the index.
+	 * @return this Document, for chaining.
+	 */
+	public Document setIdIndexed(final boolean indexed) {
+		if (indexed == (idindex != null)) {
+			return this;
+		}
+		if (!indexed) {
+			// clear the index from the Elements too.
+			final IdIndex index = idindex;
+			idindex = null;
+			for (int i = 0; i < content.size(); i++) {
+				final Content c = content.get(i);
+				if (c instanceof Element) {
+					index.detached((Element)c);
+				}
+			}
+			return this;
+		}
+		final IdIndex index = new IdIndex();
+		for (int i = 0; i < content.size(); i++) {
+			final Content c = content.get(i);
+			if (c instanceof Element) {
+				index.attached((Element)c);
+			}
+		}
+		idindex = index;
+		return this;
+	}
+
+	/**
+	 * Is this Document indexed by ID.
+	 * 
+	 * @return true if this Document is indexed.
+	 * @see #setIdIndexed(boolean)
+	 */
+	public boolean isIdIndexed() {
+		return idindex != null;
+	}
+
+	/**
+	 * Get the Element with an ID Attribute of the given value (see
+	 * {@link #setIdIndexed(boolean)}). This is a fast lookup when the
+	 * Document is indexed, and a scan of the Document when it is not.
+	 * <p>
+	 * IDs should be unique. If they are not, this is the first Element with
+	 * the ID in document order.
+	 * 
+	 * @param id
+	 *        the ID to look for.
+	 * @return the Element with the ID, or null if there is none.
+	 */
+	public Element getElementById(final String id) {
+		if (id == null) {
+			return null;
+		}
+		if (idindex != null) {
+			return idindex.getId(id);
+		}
+		return IdIndex.scan(this, id);
+	}
+
+	/**
+	 * Declare a key, like an XSLT <code>xsl:key</code>: the Elements with
+	 * the given name are indexed by the value of the given Attribute, and
+	 * can then be found with {@link #getElementsByKey(String, String)}.
+	 * Declaring a key indexes the Document (see
+	 * {@link #setIdIndexed(boolean)}), and a key with the same name is
+	 * replaced.
+	 * 
+	 * @param key
+	 *        the name of the key.
+	 * @param elementname
+	 *        the name of the Elements to index, or null for all Elements.
+	 * @param elementns
+	 *        the Namespace of the Elements (null for NO_NAMESPACE).
+	 * @param attributename
+	 *        the name of the Attribute to index the Elements by.
+	 * @param attributens
+	 *        the Namespace of the Attribute (null for NO_NAMESPACE).
+	 * @return this Document, for chaining.
+	 */
+	public Document declareKey(final String key, final String elementname,
+			final Namespace elementns, final String attributename,
+			final Namespace attributens) {
+		if (key == null) {
+			throw new NullPointerException("Cannot declare a null key");
+		}
+		if (attributename == null) {
+			throw new NullPointerException(
+					"Cannot declare a key without an Attribute name");
+		}
+		setIdIndexed(true);
+		idindex.declareKey(this, key, elementname,
+				elementns == null ? "" : elementns.getURI(), attributename,
+				attributens == null ? "" : attributens.getURI());
+		return this;
+	}
+
+	/**
+	 * Declare a key on Elements and an Attribute that are in no Namespace.
+	 * 
+	 * @param key
+	 *        the name of the key.
+	 * @param elementname
+	 *        the name of the Elements to index, or null for all Elements.
+	 * @param attributename
+	 *        the name of the Attribute to index the Elements by.
+	 * @return this Document, for chaining.
+	 * @see #declareKey(String, String, Namespace, String, Namespace)
+	 */
+	public Document declareKey(final String key, final String elementname,
+			final String attributename) {
+		return declareKey(key, elementname, null, attributename, null);
+	}
+
+	/**
+	 * Forget a key declared with
+	 * {@link #declareKey(String, String, Namespace, String, Namespace)}.
+	 * 
+	 * @param key
+	 *        the name of the key.
+	 * @return true if the key was declared.
+	 */
+	public boolean removeKey(final String key) {
+		return idindex != null && idindex.removeKey(key);
+	}
+
+	/**
+	 * Get the Elements with a key value, in document order (like the XSLT
+	 * <code>key()</code> function).
+	 * 
+	 * @param key
+	 *        the name of a declared key.
+	 * @param value
+	 *        the Attribute value to look for.
+	 * @return an unmodifiable (possibly empty) List of the Elements.
+	 * @throws IllegalArgumentException
+	 *         if the key is not declared.
+	 */
+	public List<Element> getElementsByKey(final String key, final String value) {
+		final List<Element> got = idindex == null || value == null ? null
+				: idindex.getKey(key, value);
+		if (got == null) {
+			if (idindex != null && idindex.hasKey(key)) {
+				return Collections.emptyList();
+			}
+			throw new IllegalArgumentException(
+					"There is no key declared with the name " + key);
+		}
+		return got;
+	}
+
+	/**
+	 * Check that this Document can be modified.
+	 */
+	private final void checkMutable() {
+		if (content.isFrozen()) {
+			throw ContentList.frozenException();
+		}
+	}
+
 	/**
 	 * This will return <code>true</code> if this document has a
 	 * root element, <code>false</code> otherwise.
@@ -515,6 +775,7 @@ public class Document extends CloneBase implements Parent {
 	 * @param uri the base URI of this document
 	 */
 	public final void setBaseURI(String uri) {
+		checkMutable();
 		this.baseURI = uri;  // XXX We don't check the URI
 	}
 
@@ -686,6 +947,8 @@ public class Document extends CloneBase implements Parent {
 		// The clone has a reference to this object's content list, so
 		// owerwrite with a empty list
 		doc.content = new ContentList(doc);
+		// the cloned content is indexed as it is added.
+		doc.idindex = idindex == null ? null : idindex.emptyCopy();
 
 		// Add the cloned content to clone
 
@@ -733,7 +996,36 @@ public class Document extends CloneBase implements Parent {
 	 */
 	@Override
 	public <F extends Content> IteratorIterable<F> getDescendants(final Filter<F> filter) {
-		return new FilterIterator<F>(new DescendantIterator(this), filter);
+		return new FilterIterator<F>(new DescendantIterator(this, null,
+				DescendantIterator.isElementsOnly(filter)), filter);
+	}
+
+	/**
+	 * Returns an iterator that walks over the descendants in document order
+	 * applying the Filter to return only content that match the filter rule,
+	 * but does not walk in to the Elements that match the <code>prune</code>
+	 * Filter. The pruned Elements themselves are returned (if they match the
+	 * filter), their descendants are not. For example, to see all Elements
+	 * except the content of the <code>binary</code> Elements:
+	 * <pre>
+	 *   for (Element e : document.getDescendants(Filters.element(),
+	 *           Filters.element("binary"))) {
+	 *       ....
+	 *   }
+	 * </pre>
+	 * Skipping a subtree costs nothing, no matter how large it is.
+	 *
+	 * @param <F> The type of the content that matches the filter
+	 * @param filter filter to select which descendants to see
+	 * @param prune filter to select the Elements whose descendants are
+	 *        skipped (null to skip none)
+	 * @return an iterator to walk descendants that match a filter
+	 * @since JDOM2
+	 */
+	public <F extends Content> IteratorIterable<F> getDescendants(
+			final Filter<F> filter, final Filter<?> prune) {
+		return new FilterIterator<F>(new DescendantIterator(this, prune,
+				DescendantIterator.isElementsOnly(filter)), filter);
 	}
 
 	/**
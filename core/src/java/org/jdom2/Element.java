@@ -66,14 +66,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.TreeMap;
 
 import org.jdom2.ContentList.FilterList;
 import org.jdom2.filter.ElementFilter;
 import org.jdom2.filter.Filter;
+import org.jdom2.filter.Filters;
+import org.jdom2.internal.ArrayCopy;
+import org.jdom2.internal.OutputCache;
+import org.jdom2.output.Format.TextMode;
 import org.jdom2.util.IteratorIterable;
 
 /**
@@ -128,6 +130,22 @@ public class Element extends Content implements Parent {
 	 */
 	transient ContentList content = new ContentList(this);
 
+	static {
+		// the output processors get to the output cache through this.
+		OutputCache.install(new OutputCache() {
+			@Override
+			protected Object getCache(final Element element) {
+				final ContentExtras x = element.content.extras();
+				return x == null ? null : x.outputcache;
+			}
+
+			@Override
+			protected boolean setCache(final Element element, final Object cache) {
+				return element.setOutputCache(cache);
+			}
+		});
+	}
+
 	/**
 	 * This protected constructor is provided in order to support an Element
 	 * subclass that wants full control over variable initialization. It
@@ -222,14 +240,39 @@ public class Element extends Content implements Parent {
 	 *                              name
 	 */
 	public Element setName(final String name) {
+		checkMutable();
 		final String reason = Verifier.checkElementName(name);
 		if (reason != null) {
 			throw new IllegalNameException(name, "element", reason);
 		}
+		final String oldname = this.name;
 		this.name = name;
+		renamed(oldname, namespace);
 		return this;
 	}
 
+	/**
+	 * Let the parent's content know this Element's name or Namespace has
+	 * changed (it may be indexed, or have cached filter positions), and
+	 * the ID index of the Document (it may have keys for the name).
+	 * 
+	 * @param oldname The name this Element had before the change.
+	 * @param oldns The Namespace this Element had before the change.
+	 */
+	private final void renamed(final String oldname, final Namespace oldns) {
+		final IdIndex idindex = getIdIndex();
+		if (idindex != null) {
+			idindex.renamed(this, oldname, oldns.getURI());
+		}
+		if (parent instanceof Element) {
+			((Element)parent).content.childRenamed(this, oldname,
+					oldns.getURI());
+		} else if (parent instanceof Document) {
+			((Document)parent).content.childRenamed(this, oldname,
+					oldns.getURI());
+		}
+	}
+
 	/**
 	 * Returns the element's {@link Namespace}.
 	 *
@@ -248,6 +291,7 @@ public class Element extends Content implements Parent {
 	 * @throws IllegalAddException if there is a Namespace conflict
 	 */
 	public Element setNamespace(Namespace namespace) {
+		checkMutable();
 		if (namespace == null) {
 			namespace = Namespace.NO_NAMESPACE;
 		}
@@ -269,7 +313,10 @@ public class Element extends Content implements Parent {
 			}
 		}
 		
+		final Namespace oldnamespace = this.namespace;
 		this.namespace = namespace;
+		scopeChanged();
+		renamed(name, oldnamespace);
 		return this;
 	}
 
@@ -320,30 +367,180 @@ public class Element extends Content implements Parent {
 			return getNamespace();
 		}
 
-		// Scan the additional namespaces
-		if (additionalNamespaces != null) {
-			for (int i = 0; i < additionalNamespaces.size(); i++) {
-				final Namespace ns = additionalNamespaces.get(i);
-				if (prefix.equals(ns.getPrefix())) {
-					return ns;
-				}
+		return getNamespaceScope().getNamespace(prefix);
+	}
+
+	/**
+	 * Get the (cached) Namespaces in scope on this Element.
+	 * <p>
+	 * A cached scope is always current (changes discard the caches, see
+	 * {@link #scopeChanged()}), so this is a single read once the scope is
+	 * built. Otherwise the scopes are built from the nearest ancestor with a
+	 * cached scope down to this Element.
+	 * 
+	 * @return the Namespaces in scope.
+	 */
+	final NamespaceScope getNamespaceScope() {
+		final NamespaceScope mine = cachedScope();
+		if (mine != null) {
+			return mine;
+		}
+
+		// build the missing scopes from the top down. This is not
+		// recursive, the tree may be very deep.
+		Element[] chain = new Element[8];
+		int depth = 0;
+		NamespaceScope pscope = null;
+		for (Element e = this; e != null;
+				e = e.parent instanceof Element ? (Element)e.parent : null) {
+			pscope = e.cachedScope();
+			if (pscope != null) {
+				break;
+			}
+			if (depth == chain.length) {
+				chain = ArrayCopy.copyOf(chain, depth * 2);
 			}
+			chain[depth++] = e;
 		}
+		while (--depth >= 0) {
+			final Element e = chain[depth];
+			pscope = NamespaceScope.build(e, pscope);
+			e.content.ensureExtras().scope = pscope;
+		}
+		// pscope is now the scope of this Element.
+		return pscope;
+	}
 
-		if (attributes != null) {
-			for (final Attribute a : attributes) {
-				if (prefix.equals(a.getNamespacePrefix())) {
-					return a.getNamespace();
+	/**
+	 * Note that the Namespaces in scope of this Element may have changed
+	 * (its own Namespace, additional Namespaces, or Attribute Namespaces
+	 * changed, or it moved), so discard the cached scopes of this Element and
+	 * its descendants. Elements without a cached scope have no descendants
+	 * with one, so the walk skips them, and it costs nothing when no scopes
+	 * were built.
+	 */
+	final void scopeChanged() {
+		if (cachedScope() == null) {
+			return;
+		}
+		// not recursive, the tree may be very deep.
+		Element[] pending = new Element[8];
+		int cnt = 0;
+		pending[cnt++] = this;
+		while (cnt > 0) {
+			final Element e = pending[--cnt];
+			pending[cnt] = null;
+			e.content.extras().scope = null;
+			if (e.content.isDeferred()) {
+				// the child Elements are not built yet.
+				continue;
+			}
+			final int sz = e.content.size();
+			for (int i = 0; i < sz; i++) {
+				final Content c = e.content.uncheckedGet(i);
+				if (c instanceof Element && ((Element)c).cachedScope() != null) {
+					if (cnt == pending.length) {
+						pending = ArrayCopy.copyOf(pending, cnt * 2);
+					}
+					pending[cnt++] = (Element)c;
 				}
 			}
 		}
+	}
 
-		// If we still don't have a match, ask the parent
-		if (parent instanceof Element) {
-			return ((Element)parent).getNamespace(prefix);
+	/**
+	 * Note that this Element, its Attributes, or its content is about to
+	 * change, so the digests and cached output of this Element and its
+	 * ancestors are stale. Ancestors of an Element without a digest or a
+	 * cached output have neither, so the walk up stops at the first Element
+	 * without one.
+	 */
+	final void contentChanged() {
+		Element e = this;
+		while (e != null) {
+			final ContentExtras x = e.content.extras();
+			if (x == null || (x.digest == 0L && x.outputcache == null)) {
+				return;
+			}
+			x.digest = 0L;
+			x.outputcache = null;
+			e = e.parent instanceof Element ? (Element)e.parent : null;
 		}
+	}
 
-		return null;
+	/**
+	 * @return the cached Namespaces in scope, null if there are none (see
+	 *         {@link ContentExtras#scope}).
+	 */
+	private final NamespaceScope cachedScope() {
+		final ContentExtras x = content.extras();
+		return x == null ? null : x.scope;
+	}
+
+	/**
+	 * @return the cached structural digest, 0 if there is none (see
+	 *         {@link ContentExtras#digest}).
+	 */
+	final long getDigest() {
+		final ContentExtras x = content.extras();
+		return x == null ? 0L : x.digest;
+	}
+
+	/**
+	 * Cache the structural digest of this Element.
+	 * 
+	 * @param digest
+	 *        the digest, not 0.
+	 */
+	final void setDigest(final long digest) {
+		content.ensureExtras().digest = digest;
+	}
+
+	/**
+	 * @return the ID index of the Document this Element is in, null if it is
+	 *         not in an indexed Document (see {@link ContentExtras#idindex}).
+	 */
+	final IdIndex getIdIndex() {
+		final ContentExtras x = content.extras();
+		return x == null ? null : x.idindex;
+	}
+
+	/**
+	 * Set the ID index of the Document this Element is in.
+	 * 
+	 * @param index
+	 *        the index, null if the Document is not indexed.
+	 */
+	final void setIdIndex(final IdIndex index) {
+		if (index != null || content.extras() != null) {
+			content.ensureExtras().idindex = index;
+		}
+	}
+
+	/**
+	 * Cache the serialized output of this Element (see {@link OutputCache}).
+	 * 
+	 * @param cache
+	 *        the output to cache, null to discard the cache of this Element
+	 *        (and of its ancestors).
+	 * @return true if the cache was set, false if a child Element has no
+	 *         cache.
+	 */
+	final boolean setOutputCache(final Object cache) {
+		if (cache == null) {
+			contentChanged();
+			return true;
+		}
+		final int sz = content.size();
+		for (int i = 0; i < sz; i++) {
+			final Content c = content.get(i);
+			if (c instanceof Element
+					&& OutputCache.get((Element)c) == null) {
+				return false;
+			}
+		}
+		content.ensureExtras().outputcache = cache;
+		return true;
 	}
 
 	/**
@@ -381,6 +578,7 @@ public class Element extends Content implements Parent {
 	 *                             namespace prefix on the element
 	 */
 	public boolean addNamespaceDeclaration(final Namespace additionalNamespace) {
+		checkMutable();
 
 		if (additionalNamespaces == null) {
 			additionalNamespaces = new ArrayList<Namespace>(INITIAL_ARRAY_SIZE);
@@ -399,6 +597,7 @@ public class Element extends Content implements Parent {
 			throw new IllegalAddException(this, additionalNamespace, reason);
 		}
 
+		scopeChanged();
 		return additionalNamespaces.add(additionalNamespace);
 	}
 
@@ -413,10 +612,13 @@ public class Element extends Content implements Parent {
 	 * @param additionalNamespace namespace to remove. A null Namespace does nothing.
 	 */
 	public void removeNamespaceDeclaration(final Namespace additionalNamespace) {
+		checkMutable();
 		if (additionalNamespaces == null) {
 			return;
 		}
-		additionalNamespaces.remove(additionalNamespace);
+		if (additionalNamespaces.remove(additionalNamespace)) {
+			scopeChanged();
+		}
 	}
 
 	/**
@@ -450,13 +652,151 @@ public class Element extends Content implements Parent {
 	@Override
 	public String getValue() {
 		final StringBuilder buffer = new StringBuilder();
+		try {
+			appendValue(buffer);
+		} catch (IOException e) {
+			throw new IllegalStateException("StringBuilder failed", e);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Append the XPath 1.0 string value of this element (see
+	 * {@link #getValue()}) to an Appendable, without building it as a String
+	 * first. The descendants are visited without recursion, and the content
+	 * of each Text is appended as it is (see {@link Text#getCharSequence()}),
+	 * so the only garbage is a small stack the depth of the Element.
+	 * <p>
+	 * A {@link java.nio.CharBuffer} is also an Appendable, and throws
+	 * {@link java.nio.BufferOverflowException} when it is full.
+	 * 
+	 * @param <A>
+	 *        The type of Appendable.
+	 * @param out
+	 *        Where to append the value.
+	 * @return the same Appendable.
+	 * @throws IOException
+	 *         if the Appendable fails.
+	 * @since JDOM2
+	 */
+	public <A extends Appendable> A appendValue(final A out) throws IOException {
+		Element[] parents = null;
+		int[] positions = null;
+		int depth = 0;
+		Element current = this;
+		int pos = 0;
+		while (true) {
+			final ContentList kids = current.content;
+			if (pos < kids.size()) {
+				final Content child = kids.get(pos++);
+				if (child instanceof Text) {
+					out.append(((Text) child).getCharSequence());
+				} else if (child instanceof Element) {
+					if (parents == null) {
+						parents = new Element[8];
+						positions = new int[8];
+					} else if (depth == parents.length) {
+						parents = ArrayCopy.copyOf(parents, depth * 2);
+						positions = ArrayCopy.copyOf(positions, depth * 2);
+					}
+					parents[depth] = current;
+					positions[depth++] = pos;
+					current = (Element) child;
+					pos = 0;
+				}
+			} else if (depth == 0) {
+				return out;
+			} else {
+				current = parents[--depth];
+				parents[depth] = null;
+				pos = positions[depth];
+			}
+		}
+	}
 
-		for (Content child : getContent()) {
-			if (child instanceof Element || child instanceof Text) {
-				buffer.append(child.getValue());
+	/**
+	 * Append the string value of this element (see {@link #getValue()}) to an
+	 * Appendable with its whitespace trimmed or normalized as it is appended.
+	 * The {@link TextMode} is applied to the whole value, the same way
+	 * {@link org.jdom2.output.XMLOutputter} applies it to text (using the XML
+	 * definition of whitespace). For example, with
+	 * {@link TextMode#NORMALIZE} this appends the same as
+	 * <code>Text.normalizeString(getValue())</code>.
+	 * 
+	 * @param <A>
+	 *        The type of Appendable.
+	 * @param out
+	 *        Where to append the value.
+	 * @param mode
+	 *        How to treat whitespace (null is the same as PRESERVE).
+	 * @return the same Appendable.
+	 * @throws IOException
+	 *         if the Appendable fails.
+	 * @see #appendValue(Appendable)
+	 * @since JDOM2
+	 */
+	public <A extends Appendable> A appendValue(final A out,
+			final TextMode mode) throws IOException {
+		if (mode == null || mode == TextMode.PRESERVE) {
+			return appendValue(out);
+		}
+		final TextModeAppender tma = new TextModeAppender(out, mode);
+		appendValue(tma);
+		tma.finish();
+		return out;
+	}
+
+	/**
+	 * Append the text directly held under this element (see
+	 * {@link #getText()}) to an Appendable, without building it as a String
+	 * first.
+	 * 
+	 * @param <A>
+	 *        The type of Appendable.
+	 * @param out
+	 *        Where to append the text.
+	 * @return the same Appendable.
+	 * @throws IOException
+	 *         if the Appendable fails.
+	 * @since JDOM2
+	 */
+	public <A extends Appendable> A appendText(final A out) throws IOException {
+		final ContentList kids = content;
+		for (int i = 0; i < kids.size(); i++) {
+			final Content child = kids.get(i);
+			if (child instanceof Text) {
+				out.append(((Text) child).getCharSequence());
 			}
 		}
-		return buffer.toString();
+		return out;
+	}
+
+	/**
+	 * Append the text directly held under this element (see
+	 * {@link #getText()}) to an Appendable with its whitespace trimmed or
+	 * normalized as it is appended. See
+	 * {@link #appendValue(Appendable, TextMode)}.
+	 * 
+	 * @param <A>
+	 *        The type of Appendable.
+	 * @param out
+	 *        Where to append the text.
+	 * @param mode
+	 *        How to treat whitespace (null is the same as PRESERVE).
+	 * @return the same Appendable.
+	 * @throws IOException
+	 *         if the Appendable fails.
+	 * @since JDOM2
+	 */
+	public <A extends Appendable> A appendText(final A out,
+			final TextMode mode) throws IOException {
+		if (mode == null || mode == TextMode.PRESERVE) {
+			return appendText(out);
+		}
+		final TextModeAppender tma = new TextModeAppender(out, mode);
+		appendText(tma);
+		tma.finish();
+		return out;
 	}
 
 	/**
@@ -474,6 +814,11 @@ public class Element extends Content implements Parent {
 		return parent instanceof Document;
 	}
 
+	@Override
+	public boolean isFrozen() {
+		return content.isFrozen();
+	}
+
 	@Override
 	public int getContentSize() {
 		return content.size();
@@ -527,7 +872,7 @@ public class Element extends Content implements Parent {
 		for (int i = 0; i < content.size(); i++) {
 			final Object obj = content.get(i);
 			if (obj instanceof Text) {
-				textContent.append(((Text) obj).getText());
+				textContent.append(((Text) obj).getCharSequence());
 				hasText = true;
 			}
 		}
@@ -1085,6 +1430,10 @@ public class Element extends Content implements Parent {
 	 */
 	AttributeList getAttributeList() {
 		if (attributes == null) {
+			if (content.isFrozen()) {
+				// an (empty, read-only) list that does not modify this Element.
+				return new AttributeList(this);
+			}
 			attributes = new AttributeList(this);
 		}
 		return attributes;
@@ -1424,12 +1773,42 @@ public class Element extends Content implements Parent {
 		return stringForm.toString();
 	}
 
+	/**
+	 * The content of a clone of a frozen Element, copied from the frozen
+	 * Element when the clone's content is first accessed.
+	 */
+	private static final class FrozenCopy extends ContentList.Pending {
+		private final Element source;
+
+		FrozenCopy(final Element source) {
+			this.source = source;
+		}
+
+		@Override
+		void expand(final Element element) {
+			final ContentList from = source.content;
+			final int sz = from.size();
+			element.content.ensureCapacity(sz);
+			for (int i = 0; i < sz; i++) {
+				element.content.uncheckedAddContent(from.get(i).clone());
+			}
+		}
+	}
+
 	/**
 	 * <p>
 	 *  This returns a deep clone of this element.
 	 *  The new element is detached from its parent, and getParent()
 	 *  on the clone will return null.
 	 * </p>
+	 * <p>
+	 *  Cloning an Element that is part of a frozen Document (see
+	 *  {@link Document#freeze()}) is cheap: the content of the frozen
+	 *  Element cannot change, so the clone's content is only copied when it
+	 *  is first accessed (and the same applies to the cloned child Elements).
+	 *  Taking a clone of a frozen template Document and changing a few values
+	 *  only copies the Elements on the paths to those values.
+	 * </p>
 	 *
 	 * @return the clone of this element
 	 */
@@ -1451,7 +1830,9 @@ public class Element extends Content implements Parent {
 
 		// Reference to content list and attribute lists are copyed by
 		// super.clone() so we set it new lists if the original had lists
+		// the new list has none of the caches (or the ID index) of this one.
 		element.content = new ContentList(element);
+		element.content.setIndexed(content.isIndexed());
 		element.attributes = attributes == null ? null : new AttributeList(element);
 
 		// Cloning attributes
@@ -1467,10 +1848,15 @@ public class Element extends Content implements Parent {
 			element.additionalNamespaces = new ArrayList<Namespace>(additionalNamespaces);
 		}
 
-		// Cloning content
-		for(int i = 0; i < content.size(); i++) {
-			final Content c = content.get(i);
-			element.content.add(c.clone());
+		// Cloning content, deferred content is shared, and built separately.
+		// Frozen content can't change, so it is copied when it is needed.
+		if (content.isFrozen()) {
+			element.content.setDeferred(new FrozenCopy(this));
+		} else if (!element.content.shareDeferred(content)) {
+			for(int i = 0; i < content.size(); i++) {
+				final Content c = content.get(i);
+				element.content.add(c.clone());
+			}
 		}
 
 		return element;
@@ -1498,7 +1884,67 @@ public class Element extends Content implements Parent {
 	 */
 	@Override
 	public <F extends Content> IteratorIterable<F> getDescendants(final Filter<F> filter) {
-		return new FilterIterator<F>(new DescendantIterator(this), filter);
+		return new FilterIterator<F>(new DescendantIterator(this, null,
+				DescendantIterator.isElementsOnly(filter)), filter);
+	}
+
+	/**
+	 * Returns an iterator that walks over the descendants in document order
+	 * applying the Filter to return only content that match the filter rule,
+	 * but does not walk in to the Elements that match the <code>prune</code>
+	 * Filter. The pruned Elements themselves are returned (if they match the
+	 * filter), their descendants are not. For example, to see all Elements
+	 * except the content of the <code>binary</code> Elements:
+	 * <pre>
+	 *   for (Element e : element.getDescendants(Filters.element(),
+	 *           Filters.element("binary"))) {
+	 *       ....
+	 *   }
+	 * </pre>
+	 * Skipping a subtree costs nothing, no matter how large it is.
+	 *
+	 * @param <F> The type of the content that matches the filter
+	 * @param filter filter to select which descendants to see
+	 * @param prune filter to select the Elements whose descendants are
+	 *        skipped (null to skip none)
+	 * @return an iterator to walk descendants that match a filter
+	 * @since JDOM2
+	 */
+	public <F extends Content> IteratorIterable<F> getDescendants(
+			final Filter<F> filter, final Filter<?> prune) {
+		return new FilterIterator<F>(new DescendantIterator(this, prune,
+				DescendantIterator.isElementsOnly(filter)), filter);
+	}
+
+	/**
+	 * Returns a ContentSplitter for the descendants of this Element that
+	 * match a Filter, so they can be split in to parts that are processed
+	 * concurrently. The parts visit the same content, in the same order, as
+	 * {@link #getDescendants(Filter)}. This Element must not be changed
+	 * while the ContentSplitter (or its parts) are in use.
+	 *
+	 * @param <F> The type of the content that matches the filter
+	 * @param filter filter to select which descendants to see
+	 * @return a ContentSplitter for the matching descendants
+	 * @since JDOM2
+	 */
+	public <F extends Content> ContentSplitter<F> getDescendantSplitter(
+			final Filter<F> filter) {
+		return new ContentSplitter<F>(content, filter, true);
+	}
+
+	/**
+	 * Returns a ContentSplitter for the content of this Element (but not
+	 * the descendants of the content), so it can be split in to parts that
+	 * are processed concurrently. This Element must not be changed while the
+	 * ContentSplitter (or its parts) are in use.
+	 *
+	 * @return a ContentSplitter for the content of this Element.
+	 * @see #getDescendantSplitter(Filter)
+	 * @since JDOM2
+	 */
+	public ContentSplitter<Content> getChildSplitter() {
+		return new ContentSplitter<Content>(content, Filters.content(), false);
 	}
 
 
@@ -1535,7 +1981,40 @@ public class Element extends Content implements Parent {
 	 * @return list of child <code>Element</code> objects for this element
 	 */
 	public List<Element> getChildren() {
-		return content.getView(new ElementFilter());
+		return content.getElementView(null, null);
+	}
+
+	/**
+	 * Turn on (or off) the index of this Element's child Elements. When the
+	 * index is on, {@link #getChild(String, Namespace)},
+	 * {@link #getChildren(String, Namespace)} and
+	 * {@link #removeChild(String, Namespace)} (and their no-Namespace
+	 * versions) locate the matching children without scanning all the content.
+	 * <p>
+	 * The index is kept up to date as content is added, removed, or renamed,
+	 * which makes those changes a little more expensive. It is only worth it
+	 * for Elements with many children that are looked up by name repeatedly.
+	 * The index is copied when the Element is cloned, but it is not
+	 * serialized.
+	 * 
+	 * @param indexed true to maintain the index, false to discard it.
+	 * @return this Element (for method chaining).
+	 * @since JDOM2
+	 */
+	public Element setChildIndexed(final boolean indexed) {
+		content.setIndexed(indexed);
+		return this;
+	}
+
+	/**
+	 * Is the index of child Elements on for this Element.
+	 * 
+	 * @return true if this Element maintains an index of its child Elements.
+	 * @see #setChildIndexed(boolean)
+	 * @since JDOM2
+	 */
+	public boolean isChildIndexed() {
+		return content.isIndexed();
 	}
 
 	/**
@@ -1576,7 +2055,7 @@ public class Element extends Content implements Parent {
 	 * @return all matching child elements
 	 */
 	public List<Element> getChildren(final String cname, final Namespace ns) {
-		return content.getView(new ElementFilter(cname, ns));
+		return content.getElementView(cname, ns);
 	}
 
 	/**
@@ -1590,6 +2069,9 @@ public class Element extends Content implements Parent {
 	 * @return the first matching child element, or null if not found
 	 */
 	public Element getChild(final String cname, final Namespace ns) {
+		if (cname != null && ns != null && content.isIndexed()) {
+			return content.indexedChild(cname, ns.getURI());
+		}
 		final List<Element> elements = content.getView(new ElementFilter(cname, ns));
 		final Iterator<Element> iter = elements.iterator();
 		if (iter.hasNext()) {
@@ -1637,6 +2119,14 @@ public class Element extends Content implements Parent {
 	 * @return whether deletion occurred
 	 */
 	public boolean removeChild(final String cname, final Namespace ns) {
+		if (cname != null && ns != null && content.isIndexed()) {
+			final int pos = content.indexedPosition(cname, ns.getURI());
+			if (pos < 0) {
+				return false;
+			}
+			content.remove(pos);
+			return true;
+		}
 		final ElementFilter filter = new ElementFilter(cname, ns);
 		final List<Element> old = content.getView(filter);
 		final Iterator<Element> iter = old.iterator();
@@ -1725,117 +2215,27 @@ public class Element extends Content implements Parent {
 	 */
 	@Override
 	public List<Namespace> getNamespacesInScope() {
-		// The assumption here is that all namespaces are valid,
-		// that there are no namespace collisions on this element
-
-		// This method is also the 'anchor' of the three getNamespaces*() methods
-		// It does not make reference to this Element instance's other
-		// getNamespace*() methods
-
-		TreeMap<String,Namespace> namespaces = new TreeMap<String, Namespace>();
-		namespaces.put(Namespace.XML_NAMESPACE.getPrefix(), Namespace.XML_NAMESPACE);
-		namespaces.put(getNamespacePrefix(), getNamespace());
-		if (additionalNamespaces != null) {
-			for (Namespace ns : getAdditionalNamespaces()) {
-				if (!namespaces.containsKey(ns.getPrefix())) {
-					namespaces.put(ns.getPrefix(), ns);
-				}
-			}
-		}
-		if (attributes != null) {
-			for (Attribute att : getAttributes()) {
-				Namespace ns = att.getNamespace();
-				if (!namespaces.containsKey(ns.getPrefix())) {
-					namespaces.put(ns.getPrefix(), ns);
-				}
-			}
-		}
-		// Right, we now have all the namespaces that are current on this ELement.
-		// Include any other namespaces that are inherited.
-		final Element pnt = getParentElement();
-		if (pnt != null) {
-			for (Namespace ns : pnt.getNamespacesInScope()) {
-				if (!namespaces.containsKey(ns.getPrefix())) {
-					namespaces.put(ns.getPrefix(), ns);
-				}
-			}
-		}
-
-		if (pnt == null && !namespaces.containsKey("")) {
-			// we are the root element, and there is no 'default' namespace.
-			namespaces.put(Namespace.NO_NAMESPACE.getPrefix(), Namespace.NO_NAMESPACE);
-		}
-
-		ArrayList<Namespace> al = new ArrayList<Namespace>(namespaces.size());
-		al.add(getNamespace());
-		namespaces.remove(getNamespacePrefix());
-		al.addAll(namespaces.values());
-
-		return Collections.unmodifiableList(al);
+		// The scope is cached, and shared with the parent Element when it is
+		// the same.
+		return getNamespaceScope().getNamespacesInScope();
 	}
 
 	@Override
 	public List<Namespace> getNamespacesInherited() {
-		if (getParentElement() == null) {
-			ArrayList<Namespace> ret = new ArrayList<Namespace>(getNamespacesInScope());
-			for (Iterator<Namespace> it = ret.iterator(); it.hasNext();) {
-				Namespace ns = it.next();
-				if (ns == Namespace.NO_NAMESPACE || ns == Namespace.XML_NAMESPACE) {
-					continue;
-				}
-				it.remove();
-			}
-			return Collections.unmodifiableList(ret);
-		}
-
-		// OK, the things we inherit are the prefixes we have in scope that
+		// the things we inherit are the prefixes we have in scope that
 		// are also in our parent's scope.
-		HashMap<String,Namespace> parents = new HashMap<String, Namespace>();
-		for (Namespace ns : getParentElement().getNamespacesInScope()) {
-			parents.put(ns.getPrefix(), ns);
-		}
-
-		ArrayList<Namespace> al = new ArrayList<Namespace>();
-		for (Namespace ns : getNamespacesInScope()) {
-			if (ns == parents.get(ns.getPrefix())) {
-				// inherited
-				al.add(ns);
-			}
-		}
-
-		return Collections.unmodifiableList(al);
+		final NamespaceScope mine = getNamespaceScope();
+		return mine.getNamespacesInherited(parent instanceof Element
+				? ((Element)parent).getNamespaceScope() : null);
 	}
 
 	@Override
 	public List<Namespace> getNamespacesIntroduced() {
-		if (getParentElement() == null) {
-			// we introduce everything... except Namespace.XML_NAMESPACE
-			List<Namespace> ret = new ArrayList<Namespace>(getNamespacesInScope());
-			for (Iterator<Namespace> it = ret.iterator(); it.hasNext(); ) {
-				Namespace ns = it.next();
-				if (ns == Namespace.XML_NAMESPACE || ns == Namespace.NO_NAMESPACE) {
-					it.remove();
-				}
-			}
-			return Collections.unmodifiableList(ret);
-		}
-
-		// OK, the things we introduce are the prefixes we have in scope that
+		// the things we introduce are the prefixes we have in scope that
 		// are *not* in our parent's scope.
-		HashMap<String,Namespace> parents = new HashMap<String, Namespace>();
-		for (Namespace ns : getParentElement().getNamespacesInScope()) {
-			parents.put(ns.getPrefix(), ns);
-		}
-
-		ArrayList<Namespace> al = new ArrayList<Namespace>();
-		for (Namespace ns : getNamespacesInScope()) {
-			if (!parents.containsKey(ns.getPrefix()) || ns != parents.get(ns.getPrefix())) {
-				// introduced
-				al.add(ns);
-			}
-		}
-
-		return Collections.unmodifiableList(al);
+		final NamespaceScope mine = getNamespaceScope();
+		return mine.getNamespacesIntroduced(parent instanceof Element
+				? ((Element)parent).getNamespaceScope() : null);
 	}
 
 	@Override
@@ -1843,6 +2243,33 @@ public class Element extends Content implements Parent {
 		return (Element)super.detach();
 	}
 
+	/**
+	 * Keeps the ID index of the Documents this Element leaves and joins up
+	 * to date.
+	 * 
+	 * <p>
+	 * This returns Content (not Element) so that existing subclasses that
+	 * override it still compile.
+	 * 
+	 * @see Document#setIdIndexed(boolean)
+	 */
+	@Override
+	protected Content setParent(final Parent parent) {
+		// the inherited Namespaces change.
+		scopeChanged();
+		final IdIndex now = IdIndex.of(parent);
+		final IdIndex idindex = getIdIndex();
+		if (idindex != now) {
+			if (idindex != null) {
+				idindex.detached(this);
+			}
+			if (now != null) {
+				now.attached(this);
+			}
+		}
+		return super.setParent(parent);
+	}
+
 	@Override
 	public void canContainContent(Content child, int index, boolean replace) throws IllegalAddException {
 		if (child instanceof DocType) {
@@ -0,0 +1,566 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom2.filter.Filters;
+import org.jdom2.internal.ArrayCopy;
+
+/**
+ * An index of the Elements of a Document by the value of their ID
+ * Attributes, and by the value of declared keys (an Attribute of Elements
+ * with a given name, like an XSLT <code>xsl:key</code>).
+ * <p>
+ * An ID Attribute is one of type {@link AttributeType#ID}, or an
+ * <code>xml:id</code> Attribute.
+ * <p>
+ * The index is kept up to date by the Elements and Attributes of the
+ * Document as they are attached, detached, renamed, and changed. Every
+ * Element of an indexed Document refers to the index (the field is set as
+ * the Element is attached, from its new parent), so finding the index is
+ * not a walk to the root, and content that is not in an indexed Document
+ * only checks for a null index.
+ * <p>
+ * This class is not thread-safe, just like the Document.
+ */
+final class IdIndex {
+
+	/**
+	 * A declared key: the values of one Attribute of the Elements with one
+	 * name (or all Elements).
+	 */
+	private static final class Key {
+		private final String elementname;
+		private final String elementuri;
+		private final String attributename;
+		private final String attributeuri;
+		private final HashMap<String, Object> values =
+				new HashMap<String, Object>();
+
+		private Key(final String elementname, final String elementuri,
+				final String attributename, final String attributeuri) {
+			this.elementname = elementname;
+			this.elementuri = elementuri;
+			this.attributename = attributename;
+			this.attributeuri = attributeuri;
+		}
+
+		private final boolean matches(final String ename, final String euri,
+				final Attribute att) {
+			return attributename.equals(att.getName())
+					&& attributeuri.equals(att.getNamespaceURI())
+					&& (elementname == null || (elementname.equals(ename)
+							&& elementuri.equals(euri)));
+		}
+	}
+
+	/**
+	 * The Elements with a value that is not unique. A walk that indexes the
+	 * whole Document adds them in document order, Elements that are indexed
+	 * as they are attached or changed are sorted into document order when
+	 * they are next looked up.
+	 */
+	private static final class Group {
+		private Element[] elements = new Element[4];
+		private int size = 0;
+		private boolean sorted = true;
+	}
+
+	/**
+	 * Compares the Elements of one Document by where they are in it.
+	 */
+	private static final Comparator<Element> DOCUMENTORDER =
+			new Comparator<Element>() {
+		@Override
+		public int compare(final Element a, final Element b) {
+			if (a == b) {
+				return 0;
+			}
+			final ArrayList<Element> pa = ancestry(a);
+			final ArrayList<Element> pb = ancestry(b);
+			// both end with the root Element.
+			int i = pa.size() - 1;
+			int j = pb.size() - 1;
+			while (i >= 0 && j >= 0 && pa.get(i) == pb.get(j)) {
+				i--;
+				j--;
+			}
+			if (i < 0) {
+				// a is an ancestor of b
+				return -1;
+			}
+			if (j < 0) {
+				return 1;
+			}
+			final Element ca = pa.get(i);
+			final Parent parent = ca.getParent();
+			return parent.indexOf(ca) - parent.indexOf(pb.get(j));
+		}
+	};
+
+	/**
+	 * The values map to a single Element (the common case), or a Group
+	 * when the value is not unique.
+	 */
+	private final HashMap<String, Object> ids = new HashMap<String, Object>();
+	private final LinkedHashMap<String, Key> keys =
+			new LinkedHashMap<String, Key>();
+
+	/**
+	 * Set while a whole tree is (un)indexed. Walking the tree builds any
+	 * deferred content, and the new content would otherwise index itself
+	 * again while the walk is going to index it anyway.
+	 */
+	private boolean walking = false;
+
+	/**
+	 * Set while a walk indexes the whole Document into empty values, so the
+	 * Elements are added in document order.
+	 */
+	private boolean inorder = false;
+
+	/**
+	 * An empty index with the same keys, for a cloned Document.
+	 * 
+	 * @return the new index.
+	 */
+	IdIndex emptyCopy() {
+		final IdIndex copy = new IdIndex();
+		for (final Map.Entry<String, Key> me : keys.entrySet()) {
+			final Key k = me.getValue();
+			copy.keys.put(me.getKey(), new Key(k.elementname, k.elementuri,
+					k.attributename, k.attributeuri));
+		}
+		return copy;
+	}
+
+	/**
+	 * The index of the Document a Parent is in.
+	 * 
+	 * @param parent
+	 *        the Parent (may be null).
+	 * @return the index, or null if there is none.
+	 */
+	static final IdIndex of(final Parent parent) {
+		if (parent instanceof Element) {
+			return ((Element) parent).getIdIndex();
+		}
+		return parent == null ? null : ((Document) parent).idindex;
+	}
+
+	static final boolean isId(final Attribute att) {
+		return att.getAttributeType() == AttributeType.ID
+				|| ("id".equals(att.getName())
+						&& JDOMConstants.NS_URI_XML.equals(att.getNamespaceURI()));
+	}
+
+	private static final ArrayList<Element> ancestry(final Element element) {
+		final ArrayList<Element> ret = new ArrayList<Element>();
+		Element e = element;
+		while (e != null) {
+			ret.add(e);
+			e = e.getParentElement();
+		}
+		return ret;
+	}
+
+	private final void put(final HashMap<String, Object> map,
+			final String value, final Element element) {
+		final Object was = map.get(value);
+		if (was == null) {
+			map.put(value, element);
+			return;
+		}
+		if (was == element) {
+			return;
+		}
+		// not unique, keep them all.
+		final Group group;
+		if (was instanceof Element) {
+			group = new Group();
+			group.elements[group.size++] = (Element) was;
+			map.put(value, group);
+		} else {
+			group = (Group) was;
+			if (inorder) {
+				// the Attributes of an Element are indexed together.
+				if (group.elements[group.size - 1] == element) {
+					return;
+				}
+			} else {
+				for (int i = 0; i < group.size; i++) {
+					if (group.elements[i] == element) {
+						return;
+					}
+				}
+			}
+		}
+		if (group.size == group.elements.length) {
+			group.elements = ArrayCopy.copyOf(group.elements, group.size * 2);
+		}
+		group.elements[group.size++] = element;
+		if (!inorder) {
+			group.sorted = false;
+		}
+	}
+
+	private static final void remove(final HashMap<String, Object> map,
+			final String value, final Element element) {
+		final Object was = map.get(value);
+		if (was == element) {
+			map.remove(value);
+		} else if (was instanceof Group) {
+			final Group group = (Group) was;
+			final Element[] all = group.elements;
+			for (int i = 0; i < group.size; i++) {
+				if (all[i] == element) {
+					if (group.size == 2) {
+						map.put(value, all[1 - i]);
+					} else {
+						System.arraycopy(all, i + 1, all, i, group.size - i - 1);
+						all[--group.size] = null;
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	private static final Element[] inOrder(final Group group) {
+		if (!group.sorted) {
+			Arrays.sort(group.elements, 0, group.size, DOCUMENTORDER);
+			group.sorted = true;
+		}
+		return group.elements;
+	}
+
+	private static final void inOrder(final HashMap<String, Object> map) {
+		for (final Object o : map.values()) {
+			if (o instanceof Group) {
+				inOrder((Group) o);
+			}
+		}
+	}
+
+	/**
+	 * Sort all the Elements with values that are not unique in to document
+	 * order, so looking them up in a frozen Document changes nothing.
+	 */
+	final void freeze() {
+		inOrder(ids);
+		for (final Key k : keys.values()) {
+			inOrder(k.values);
+		}
+	}
+
+	private final boolean isEmpty() {
+		if (!ids.isEmpty()) {
+			return false;
+		}
+		for (final Key k : keys.values()) {
+			if (!k.values.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private final void attribute(final Element element, final String ename,
+			final String euri, final Attribute att, final boolean add) {
+		if (isId(att)) {
+			if (add) {
+				put(ids, att.getValue(), element);
+			} else {
+				remove(ids, att.getValue(), element);
+			}
+		}
+		for (final Key k : keys.values()) {
+			if (k.matches(ename, euri, att)) {
+				if (add) {
+					put(k.values, att.getValue(), element);
+				} else {
+					remove(k.values, att.getValue(), element);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Index an Attribute that was set on an Element in the Document.
+	 * 
+	 * @param element
+	 *        the Attribute's Element
+	 * @param att
+	 *        the Attribute
+	 */
+	final void added(final Element element, final Attribute att) {
+		if (walking) {
+			return;
+		}
+		attribute(element, element.getName(), element.getNamespaceURI(),
+				att, true);
+	}
+
+	/**
+	 * Forget an Attribute that is being removed from an Element in the
+	 * Document (or is about to change).
+	 * 
+	 * @param element
+	 *        the Attribute's Element
+	 * @param att
+	 *        the Attribute
+	 */
+	final void removed(final Element element, final Attribute att) {
+		if (walking) {
+			return;
+		}
+		attribute(element, element.getName(), element.getNamespaceURI(),
+				att, false);
+	}
+
+	/**
+	 * Re-index the Attributes of a renamed Element for the keys.
+	 * 
+	 * @param element
+	 *        the renamed Element (with its new name)
+	 * @param oldname
+	 *        the name it had
+	 * @param olduri
+	 *        the Namespace URI it had
+	 */
+	final void renamed(final Element element, final String oldname,
+			final String olduri) {
+		if (walking || keys.isEmpty() || !element.hasAttributes()) {
+			return;
+		}
+		for (final Attribute att : element.getAttributes()) {
+			attribute(element, oldname, olduri, att, false);
+			attribute(element, element.getName(), element.getNamespaceURI(),
+					att, true);
+		}
+	}
+
+	/**
+	 * Walk an Element and all its descendants, with the Attributes that
+	 * match a key (or all of the indexed Attributes, and setting or clearing
+	 * the index on the Elements, if there is no key).
+	 */
+	private final void tree(final Element root, final Key only,
+			final boolean add) {
+		if (walking) {
+			return;
+		}
+		walking = true;
+		inorder = add && (only == null ? isEmpty() : only.values.isEmpty());
+		try {
+			final ArrayList<Element> pending = new ArrayList<Element>();
+			pending.add(root);
+			while (!pending.isEmpty()) {
+				final Element e = pending.remove(pending.size() - 1);
+				if (only == null) {
+					// before the content is built, new content gets it from e.
+					e.setIdIndex(add ? this : null);
+				}
+				if (e.hasAttributes()) {
+					final String ename = e.getName();
+					final String euri = e.getNamespaceURI();
+					for (final Attribute att : e.getAttributes()) {
+						if (only == null) {
+							attribute(e, ename, euri, att, add);
+						} else if (only.matches(ename, euri, att)) {
+							put(only.values, att.getValue(), e);
+						}
+					}
+				}
+				// getContentSize() builds any deferred content first. The
+				// last child is pushed first, so the walk is in document order.
+				final int size = e.getContentSize();
+				for (int i = size - 1; i >= 0; i--) {
+					final Content c = e.getContent(i);
+					if (c instanceof Element) {
+						pending.add((Element) c);
+					}
+				}
+			}
+		} finally {
+			walking = false;
+			inorder = false;
+		}
+	}
+
+	/**
+	 * Index an Element, and all its descendants, that was attached to the
+	 * Document.
+	 * 
+	 * @param root
+	 *        the attached Element.
+	 */
+	final void attached(final Element root) {
+		tree(root, null, true);
+	}
+
+	/**
+	 * Forget an Element, and all its descendants, that is being detached
+	 * from the Document.
+	 * 
+	 * @param root
+	 *        the detached Element.
+	 */
+	final void detached(final Element root) {
+		tree(root, null, false);
+	}
+
+	/**
+	 * Declare (or replace) a key, and index the Document for it.
+	 */
+	final void declareKey(final Document document, final String key,
+			final String elementname, final String elementuri,
+			final String attributename, final String attributeuri) {
+		final Key k = new Key(elementname, elementuri, attributename,
+				attributeuri);
+		keys.put(key, k);
+		if (document.hasRootElement()) {
+			tree(document.getRootElement(), k, true);
+		}
+	}
+
+	final boolean removeKey(final String key) {
+		return keys.remove(key) != null;
+	}
+
+	final boolean hasKey(final String key) {
+		return keys.containsKey(key);
+	}
+
+	/**
+	 * The Element with an ID. If the ID is not unique, the first one in
+	 * document order.
+	 * 
+	 * @param id
+	 *        the ID value
+	 * @return the Element, or null if there is none.
+	 */
+	final Element getId(final String id) {
+		final Object got = ids.get(id);
+		if (got instanceof Group) {
+			return inOrder((Group) got)[0];
+		}
+		return (Element) got;
+	}
+
+	/**
+	 * The Elements with a key value, in document order.
+	 * 
+	 * @param key
+	 *        the declared key
+	 * @param value
+	 *        the value to look for
+	 * @return the Elements, or null if the key is not declared.
+	 */
+	final List<Element> getKey(final String key, final String value) {
+		final Key k = keys.get(key);
+		if (k == null) {
+			return null;
+		}
+		final Object got = k.values.get(value);
+		if (got == null) {
+			return Collections.emptyList();
+		}
+		if (got instanceof Element) {
+			return Collections.singletonList((Element) got);
+		}
+		final Group group = (Group) got;
+		final Element[] all = inOrder(group);
+		final ArrayList<Element> ret = new ArrayList<Element>(group.size);
+		for (int i = 0; i < group.size; i++) {
+			ret.add(all[i]);
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * Find an Element by ID without an index.
+	 * 
+	 * @param document
+	 *        the Document to scan
+	 * @param id
+	 *        the ID value
+	 * @return the first Element with the ID in document order, or null.
+	 */
+	static final Element scan(final Document document, final String id) {
+		if (!document.hasRootElement()) {
+			return null;
+		}
+		for (final Element e : document.getDescendants(Filters.element())) {
+			if (e.hasAttributes()) {
+				for (final Attribute att : e.getAttributes()) {
+					if (isId(att) && id.equals(att.getValue())) {
+						return e;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,683 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.List;
+
+import org.jdom2.internal.ArrayCopy;
+
+/**
+ * Compare JDOM content by its structure and values, instead of by identity
+ * (the equals() and hashCode() methods of all JDOM content are identity
+ * based).
+ * <p>
+ * Two pieces of content are equivalent when:
+ * <ul>
+ * <li>Elements have the same name and Namespace URI (the prefix does not
+ * matter), the same Attributes in any order, and equivalent content in the
+ * same order.
+ * <li>Attributes have the same name, Namespace URI and value (the type does
+ * not matter).
+ * <li>Adjacent Text and CDATA content is joined, and compared as one run of
+ * text. Empty runs of text are ignored.
+ * <li>Comments have the same text, ProcessingInstructions the same target and
+ * data, and EntityRefs the same name, public ID and system ID.
+ * <li>DocTypes have the same element name, public ID, system ID and internal
+ * subset.
+ * <li>Documents have equivalent content (the base URI does not matter).
+ * </ul>
+ * Additional Namespace declarations are not compared.
+ * <p>
+ * The {@link #digest(Content) digest} of content is a 64-bit hash of its
+ * structure, computed bottom-up: equivalent content always has the same
+ * digest, and content with different digests is never equivalent. Digests
+ * are suited to finding candidate duplicates (for example as the key of a
+ * Map), which are then confirmed with {@link #equivalent(Content, Content)}.
+ * <p>
+ * Element digests can be cached on the Elements. A cached digest is
+ * discarded when the Element, its Attributes, or anything in it changes, so
+ * repeated digests of a large document that changes in a few places only
+ * digest the changed subtrees (and their ancestors). When the digests are
+ * cached, the comparison of two documents starts with them, and rejects
+ * different documents (and different subtrees) without comparing them.
+ * <p>
+ * A JDOMEquivalence can optionally trust the digests, and treat Elements
+ * with the same digest as equivalent without comparing them. The chance of
+ * two different Elements having the same 64-bit digest is tiny, but not
+ * zero, so this is not the default.
+ * <p>
+ * A JDOMEquivalence instance is thread-safe. Caching digests modifies the
+ * Elements, so it is only thread-safe for content that is not being
+ * modified (for example a {@link Document#freeze() frozen} Document). The
+ * digests and comparisons are not recursive, so any depth of content is
+ * supported.
+ * 
+ * @since JDOM2
+ */
+public final class JDOMEquivalence {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** Terminates a String in the digest, not a legal XML character */
+	private static final char END = '￿';
+	/** Marks a null String in the digest, not a legal XML character */
+	private static final char NULL = '￾';
+
+	private final boolean cache;
+	private final boolean trust;
+
+	/**
+	 * Create a JDOMEquivalence that caches Element digests, and always
+	 * compares content exactly.
+	 */
+	public JDOMEquivalence() {
+		this(true, false);
+	}
+
+	/**
+	 * Create a JDOMEquivalence.
+	 * 
+	 * @param cachedigests
+	 *        Whether to cache the digests of Elements on the Elements.
+	 * @param trustdigests
+	 *        Whether to treat Elements with the same digest as equivalent
+	 *        without comparing them.
+	 */
+	public JDOMEquivalence(final boolean cachedigests,
+			final boolean trustdigests) {
+		this.cache = cachedigests;
+		this.trust = trustdigests;
+	}
+
+	/**
+	 * @return whether Element digests are cached on the Elements.
+	 */
+	public boolean isCacheDigests() {
+		return cache;
+	}
+
+	/**
+	 * @return whether Elements with the same digest are treated as
+	 *         equivalent without comparing them.
+	 */
+	public boolean isTrustDigests() {
+		return trust;
+	}
+
+	/* * * * * * * * * * * * * * Digests * * * * * * * * * * * * * */
+
+	private static final long mix(final long hash, final char ch) {
+		return (hash ^ ch) * FNV_PRIME;
+	}
+
+	private static final long mix(final long hash, final CharSequence chars) {
+		if (chars == null) {
+			return mix(hash, NULL);
+		}
+		long h = hash;
+		final int len = chars.length();
+		for (int i = 0; i < len; i++) {
+			h = (h ^ chars.charAt(i)) * FNV_PRIME;
+		}
+		return mix(h, END);
+	}
+
+	private static final long mix(final long hash, final long value) {
+		return (hash ^ value) * FNV_PRIME;
+	}
+
+	/**
+	 * Finish a digest, spreading all the bits (the MurmurHash3 finalizer).
+	 * 0 is reserved for 'no digest'.
+	 */
+	private static final long finish(final long hash) {
+		long h = hash;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h == 0L ? 1L : h;
+	}
+
+	private static final long digestAttribute(final Attribute att) {
+		long h = mix(FNV_OFFSET, 'A');
+		h = mix(h, att.getName());
+		h = mix(h, att.getNamespaceURI());
+		h = mix(h, att.getValue());
+		return finish(h);
+	}
+
+	/**
+	 * The start of an Element's digest: its name, Namespace URI, and
+	 * Attributes (in any order).
+	 */
+	private static final long digestStart(final Element element) {
+		long h = mix(FNV_OFFSET, 'E');
+		h = mix(h, element.getName());
+		h = mix(h, element.getNamespaceURI());
+		final AttributeList atts = element.attributes;
+		long sum = 0L;
+		if (atts != null) {
+			for (int i = atts.size() - 1; i >= 0; i--) {
+				sum += digestAttribute(atts.get(i));
+			}
+		}
+		return mix(h, sum);
+	}
+
+	/**
+	 * The digest of Content that is not an Element, Text, or CDATA.
+	 */
+	private static final long digestLeaf(final Content content) {
+		long h = FNV_OFFSET;
+		switch (content.getCType()) {
+			case Comment:
+				h = mix(h, 'C');
+				h = mix(h, ((Comment)content).getText());
+				break;
+			case ProcessingInstruction:
+				final ProcessingInstruction pi = (ProcessingInstruction)content;
+				h = mix(h, 'P');
+				h = mix(h, pi.getTarget());
+				h = mix(h, pi.getData());
+				break;
+			case EntityRef:
+				final EntityRef er = (EntityRef)content;
+				h = mix(h, 'R');
+				h = mix(h, er.getName());
+				h = mix(h, er.getPublicID());
+				h = mix(h, er.getSystemID());
+				break;
+			case DocType:
+				final DocType dt = (DocType)content;
+				h = mix(h, 'D');
+				h = mix(h, dt.getElementName());
+				h = mix(h, dt.getPublicID());
+				h = mix(h, dt.getSystemID());
+				h = mix(h, dt.getInternalSubset());
+				break;
+			default:
+				throw new IllegalStateException("Unexpected content "
+						+ content.getCType());
+		}
+		return finish(h);
+	}
+
+	/**
+	 * Get the digest of an Element, using (and, if this JDOMEquivalence
+	 * caches digests, setting) the cached digests of it and its descendants.
+	 * 
+	 * @param element
+	 *        The Element.
+	 * @return the digest.
+	 */
+	private final long digestElement(final Element element) {
+		final long known = element.getDigest();
+		if (known != 0L) {
+			return known;
+		}
+		// a depth-first walk, with the state of each level in the stacks.
+		Element[] elements = new Element[16];
+		int[] cursors = new int[16];
+		long[] hashes = new long[16];
+		int depth = 0;
+		elements[0] = element;
+		hashes[0] = digestStart(element);
+		// the current run of Text (and CDATA)
+		long run = 0L;
+		boolean inrun = false;
+		while (true) {
+			final Element e = elements[depth];
+			final ContentList content = e.content;
+			final int cursor = cursors[depth];
+			if (cursor < content.size()) {
+				cursors[depth] = cursor + 1;
+				final Content c = content.get(cursor);
+				final CharSequence text;
+				switch (c.getCType()) {
+					case Text:
+					case CDATA:
+						text = ((Text)c).getCharSequence();
+						if (text.length() > 0) {
+							if (!inrun) {
+								run = mix(FNV_OFFSET, 'T');
+								inrun = true;
+							}
+							for (int i = 0; i < text.length(); i++) {
+								run = mix(run, text.charAt(i));
+							}
+						}
+						continue;
+					default:
+						break;
+				}
+				if (inrun) {
+					hashes[depth] = mix(hashes[depth], finish(mix(run, END)));
+					inrun = false;
+				}
+				if (c instanceof Element) {
+					final Element kid = (Element)c;
+					final long kd = kid.getDigest();
+					if (kd != 0L) {
+						hashes[depth] = mix(hashes[depth], kd);
+					} else {
+						if (++depth == elements.length) {
+							elements = ArrayCopy.copyOf(elements, depth * 2);
+							cursors = ArrayCopy.copyOf(cursors, depth * 2);
+							hashes = ArrayCopy.copyOf(hashes, depth * 2);
+						}
+						elements[depth] = kid;
+						cursors[depth] = 0;
+						hashes[depth] = digestStart(kid);
+					}
+				} else {
+					hashes[depth] = mix(hashes[depth], digestLeaf(c));
+				}
+				continue;
+			}
+			// all the content of e is done.
+			if (inrun) {
+				hashes[depth] = mix(hashes[depth], finish(mix(run, END)));
+				inrun = false;
+			}
+			final long d = finish(hashes[depth]);
+			if (cache) {
+				e.setDigest(d);
+			}
+			elements[depth] = null;
+			if (depth == 0) {
+				return d;
+			}
+			depth--;
+			hashes[depth] = mix(hashes[depth], d);
+		}
+	}
+
+	/**
+	 * Get the digest of some content: a 64-bit hash of its structure and
+	 * values, the same for all equivalent content.
+	 * 
+	 * @param content
+	 *        The content to digest.
+	 * @return the digest, never 0.
+	 * @throws NullPointerException
+	 *         if the content is null.
+	 */
+	public long digest(final Content content) {
+		switch (content.getCType()) {
+			case Element:
+				return digestElement((Element)content);
+			case Text:
+			case CDATA:
+				final CharSequence text = ((Text)content).getCharSequence();
+				if (text.length() == 0) {
+					// the same as no content at all.
+					return finish(FNV_OFFSET);
+				}
+				return finish(mix(mix(FNV_OFFSET, 'T'), text));
+			default:
+				return digestLeaf(content);
+		}
+	}
+
+	/**
+	 * Get the digest of an Attribute.
+	 * 
+	 * @param attribute
+	 *        The Attribute to digest.
+	 * @return the digest, never 0.
+	 * @throws NullPointerException
+	 *         if the attribute is null.
+	 */
+	public long digest(final Attribute attribute) {
+		return digestAttribute(attribute);
+	}
+
+	/**
+	 * Get the digest of a Document: a 64-bit hash of its content, the same
+	 * for all equivalent Documents.
+	 * 
+	 * @param document
+	 *        The Document to digest.
+	 * @return the digest, never 0.
+	 * @throws NullPointerException
+	 *         if the document is null.
+	 */
+	public long digest(final Document document) {
+		long h = mix(FNV_OFFSET, 'N');
+		final ContentList content = document.content;
+		for (int i = 0; i < content.size(); i++) {
+			h = mix(h, digest(content.get(i)));
+		}
+		return finish(h);
+	}
+
+	/* * * * * * * * * * * * * * Equivalence * * * * * * * * * * * * * */
+
+	/**
+	 * A stack of Element pairs still to be compared.
+	 */
+	private static final class Pending {
+		private Element[] left = new Element[16];
+		private Element[] right = new Element[16];
+		private int size = 0;
+
+		void push(final Element l, final Element r) {
+			if (size == left.length) {
+				left = ArrayCopy.copyOf(left, size * 2);
+				right = ArrayCopy.copyOf(right, size * 2);
+			}
+			left[size] = l;
+			right[size] = r;
+			size++;
+		}
+	}
+
+	private static final boolean same(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private static final boolean isText(final Content c) {
+		final Content.CType ct = c.getCType();
+		return ct == Content.CType.Text || ct == Content.CType.CDATA;
+	}
+
+	/**
+	 * Find the end of the run of Text starting at a position.
+	 */
+	private static final int runEnd(final List<Content> content, final int from) {
+		int end = from;
+		while (end < content.size() && isText(content.get(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Get the text in a run of Text content.
+	 */
+	private static final CharSequence runText(final List<Content> content,
+			final int from, final int to) {
+		if (to - from == 1) {
+			return ((Text)content.get(from)).getCharSequence();
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (int i = from; i < to; i++) {
+			sb.append(((Text)content.get(i)).getCharSequence());
+		}
+		return sb;
+	}
+
+	private static final boolean sameChars(final CharSequence a,
+			final CharSequence b) {
+		final int len = a.length();
+		if (len != b.length()) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (a.charAt(i) != b.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compare content that is not an Element, Text or CDATA.
+	 */
+	private static final boolean sameLeaf(final Content a, final Content b) {
+		if (a.getCType() != b.getCType()) {
+			return false;
+		}
+		switch (a.getCType()) {
+			case Comment:
+				return ((Comment)a).getText().equals(((Comment)b).getText());
+			case ProcessingInstruction:
+				final ProcessingInstruction pa = (ProcessingInstruction)a;
+				final ProcessingInstruction pb = (ProcessingInstruction)b;
+				return pa.getTarget().equals(pb.getTarget())
+						&& same(pa.getData(), pb.getData());
+			case EntityRef:
+				final EntityRef ea = (EntityRef)a;
+				final EntityRef eb = (EntityRef)b;
+				return ea.getName().equals(eb.getName())
+						&& same(ea.getPublicID(), eb.getPublicID())
+						&& same(ea.getSystemID(), eb.getSystemID());
+			case DocType:
+				final DocType da = (DocType)a;
+				final DocType db = (DocType)b;
+				return same(da.getElementName(), db.getElementName())
+						&& same(da.getPublicID(), db.getPublicID())
+						&& same(da.getSystemID(), db.getSystemID())
+						&& same(da.getInternalSubset(), db.getInternalSubset());
+			default:
+				throw new IllegalStateException("Unexpected content "
+						+ a.getCType());
+		}
+	}
+
+	/**
+	 * Compare two content lists, adding the pairs of child Elements to
+	 * compare to the pending stack.
+	 */
+	private static final boolean sameContent(final List<Content> a,
+			final List<Content> b, final Pending pending) {
+		int ia = 0;
+		int ib = 0;
+		final int sa = a.size();
+		final int sb = b.size();
+		while (true) {
+			// compare any runs of text (empty runs are the same as none).
+			final int ea = runEnd(a, ia);
+			final int eb = runEnd(b, ib);
+			if (ea > ia || eb > ib) {
+				final CharSequence ta = ea > ia ? runText(a, ia, ea) : "";
+				final CharSequence tb = eb > ib ? runText(b, ib, eb) : "";
+				if (!sameChars(ta, tb)) {
+					return false;
+				}
+				ia = ea;
+				ib = eb;
+			}
+			if (ia == sa || ib == sb) {
+				return ia == sa && ib == sb;
+			}
+			final Content ca = a.get(ia++);
+			final Content cb = b.get(ib++);
+			if (ca instanceof Element) {
+				if (!(cb instanceof Element)) {
+					return false;
+				}
+				pending.push((Element)ca, (Element)cb);
+			} else if (!sameLeaf(ca, cb)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Compare the names, Namespaces and Attributes of two Elements.
+	 */
+	private static final boolean sameElement(final Element a, final Element b) {
+		if (!a.getName().equals(b.getName())
+				|| !a.getNamespaceURI().equals(b.getNamespaceURI())) {
+			return false;
+		}
+		final AttributeList aa = a.attributes;
+		final AttributeList ba = b.attributes;
+		final int asz = aa == null ? 0 : aa.size();
+		final int bsz = ba == null ? 0 : ba.size();
+		if (asz != bsz) {
+			return false;
+		}
+		for (int i = 0; i < asz; i++) {
+			final Attribute att = aa.get(i);
+			final int bi = ba.indexOf(att.getName(), att.getNamespace());
+			if (bi < 0 || !att.getValue().equals(ba.get(bi).getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compare the Element pairs on the pending stack (and their descendants).
+	 */
+	private final boolean compare(final Pending pending) {
+		while (pending.size > 0) {
+			pending.size--;
+			final Element a = pending.left[pending.size];
+			final Element b = pending.right[pending.size];
+			pending.left[pending.size] = null;
+			pending.right[pending.size] = null;
+			if (a == b) {
+				continue;
+			}
+			final long da = a.getDigest();
+			final long db = b.getDigest();
+			if (da != 0L && db != 0L) {
+				if (da != db) {
+					return false;
+				}
+				if (trust) {
+					continue;
+				}
+			}
+			if (!sameElement(a, b)
+					|| !sameContent(a.content, b.content, pending)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether two pieces of content are equivalent (see the class
+	 * documentation).
+	 * 
+	 * @param a
+	 *        The first content.
+	 * @param b
+	 *        The second content.
+	 * @return true if the content is equivalent.
+	 * @throws NullPointerException
+	 *         if either content is null.
+	 */
+	public boolean equivalent(final Content a, final Content b) {
+		if (a == b) {
+			return true;
+		}
+		if (isText(a) || isText(b)) {
+			return isText(a) && isText(b) && sameChars(
+					((Text)a).getCharSequence(), ((Text)b).getCharSequence());
+		}
+		if (!(a instanceof Element) || !(b instanceof Element)) {
+			return !(a instanceof Element) && !(b instanceof Element)
+					&& sameLeaf(a, b);
+		}
+		final Element ea = (Element)a;
+		final Element eb = (Element)b;
+		if (cache && digestElement(ea) != digestElement(eb)) {
+			return false;
+		}
+		final Pending pending = new Pending();
+		pending.push(ea, eb);
+		return compare(pending);
+	}
+
+	/**
+	 * Check whether two Attributes are equivalent: they have the same name,
+	 * Namespace URI, and value.
+	 * 
+	 * @param a
+	 *        The first Attribute.
+	 * @param b
+	 *        The second Attribute.
+	 * @return true if the Attributes are equivalent.
+	 * @throws NullPointerException
+	 *         if either Attribute is null.
+	 */
+	public boolean equivalent(final Attribute a, final Attribute b) {
+		return a == b || (a.getName().equals(b.getName())
+				&& a.getNamespaceURI().equals(b.getNamespaceURI())
+				&& a.getValue().equals(b.getValue()));
+	}
+
+	/**
+	 * Check whether two Documents are equivalent: they have equivalent
+	 * content.
+	 * 
+	 * @param a
+	 *        The first Document.
+	 * @param b
+	 *        The second Document.
+	 * @return true if the Documents are equivalent.
+	 * @throws NullPointerException
+	 *         if either Document is null.
+	 */
+	public boolean equivalent(final Document a, final Document b) {
+		if (a == b) {
+			return true;
+		}
+		if (cache && digest(a) != digest(b)) {
+			return false;
+		}
+		final Pending pending = new Pending();
+		return sameContent(a.content, b.content, pending) && compare(pending);
+	}
+
+}
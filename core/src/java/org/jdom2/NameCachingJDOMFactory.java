@@ -0,0 +1,266 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A JDOMFactory that checks Element and Attribute names just like the
+ * {@link DefaultJDOMFactory}, but remembers the names that passed, so that
+ * repeated names (documents typically use a few hundred names, millions of
+ * times) are not scanned again. Names that fail are never remembered, and
+ * Attribute values are always checked, so, unlike the
+ * {@link UncheckedJDOMFactory}, bad input is still rejected.
+ * <p>
+ * Namespace prefixes and URIs are not cached here, they are already only
+ * checked the first time {@link Namespace#getNamespace(String, String)}
+ * sees them.
+ * <p>
+ * The remembered names are held in bounded concurrent sets: once the limit
+ * is reached, new names are checked every time. This factory is thread-safe,
+ * and one instance can be shared by any number of builders. To use it with
+ * a builder:
+ * 
+ * <pre>
+ * SAXBuilder builder = new SAXBuilder();
+ * builder.setJDOMFactory(new NameCachingJDOMFactory());
+ * </pre>
+ * 
+ * @see Verifier#checkElementName(String)
+ * @see Verifier#checkAttributeName(String)
+ * @since JDOM2
+ */
+public class NameCachingJDOMFactory extends DefaultJDOMFactory {
+
+	/** The default maximum number of names remembered, of each kind */
+	public static final int DEFAULT_MAX_NAMES = 4096;
+
+	/**
+	 * A bounded, thread-safe, set of verified names.
+	 */
+	private static final class NameSet {
+		private final ConcurrentHashMap<String, Boolean> names =
+				new ConcurrentHashMap<String, Boolean>();
+		private final AtomicInteger size = new AtomicInteger();
+		private final int maxsize;
+
+		NameSet(final int maxsize) {
+			this.maxsize = maxsize;
+		}
+
+		boolean contains(final String name) {
+			return names.containsKey(name);
+		}
+
+		void add(final String name) {
+			// the limit may be exceeded by a few names when threads race.
+			if (size.get() < maxsize
+					&& names.putIfAbsent(name, Boolean.TRUE) == null) {
+				size.incrementAndGet();
+			}
+		}
+
+		int size() {
+			return size.get();
+		}
+
+		void clear() {
+			names.clear();
+			size.set(0);
+		}
+	}
+
+	private final NameSet elementnames;
+	private final NameSet attributenames;
+
+	/**
+	 * Create a NameCachingJDOMFactory that remembers at most
+	 * {@link #DEFAULT_MAX_NAMES} Element names, and as many Attribute names.
+	 */
+	public NameCachingJDOMFactory() {
+		this(DEFAULT_MAX_NAMES);
+	}
+
+	/**
+	 * Create a NameCachingJDOMFactory that remembers at most maxnames Element
+	 * names, and as many Attribute names.
+	 * 
+	 * @param maxnames
+	 *        The maximum number of names of each kind to remember.
+	 * @throws IllegalArgumentException
+	 *         if maxnames is negative.
+	 */
+	public NameCachingJDOMFactory(final int maxnames) {
+		super();
+		if (maxnames < 0) {
+			throw new IllegalArgumentException(
+					"The maximum number of names can not be negative: "
+							+ maxnames);
+		}
+		elementnames = new NameSet(maxnames);
+		attributenames = new NameSet(maxnames);
+	}
+
+	/**
+	 * Get the number of Element names that are remembered as valid.
+	 * 
+	 * @return the number of remembered Element names.
+	 */
+	public int getElementNameCount() {
+		return elementnames.size();
+	}
+
+	/**
+	 * Get the number of Attribute names that are remembered as valid.
+	 * 
+	 * @return the number of remembered Attribute names.
+	 */
+	public int getAttributeNameCount() {
+		return attributenames.size();
+	}
+
+	/**
+	 * Forget all the remembered names.
+	 */
+	public void clearCache() {
+		elementnames.clear();
+		attributenames.clear();
+	}
+
+	@Override
+	public Element element(final int line, final int col, final String name,
+			final Namespace namespace) {
+		if (name == null || !elementnames.contains(name)) {
+			// check it the normal way, and only remember it if it passes.
+			final Element e = super.element(line, col, name, namespace);
+			elementnames.add(name);
+			return e;
+		}
+		final Element e = new Element();
+		e.name = name;
+		e.setNamespace(namespace);
+		return e;
+	}
+
+	@Override
+	public Element element(final int line, final int col, final String name) {
+		return element(line, col, name, Namespace.NO_NAMESPACE);
+	}
+
+	@Override
+	public Element element(final int line, final int col, final String name,
+			final String uri) {
+		return element(line, col, name, Namespace.getNamespace("", uri));
+	}
+
+	@Override
+	public Element element(final int line, final int col, final String name,
+			final String prefix, final String uri) {
+		return element(line, col, name, Namespace.getNamespace(prefix, uri));
+	}
+
+	@Override
+	public Attribute attribute(final String name, final String value,
+			final AttributeType type, final Namespace namespace) {
+		if (name == null || !attributenames.contains(name)) {
+			// check it the normal way, and only remember it if it passes.
+			final Attribute a = super.attribute(name, value, type, namespace);
+			attributenames.add(name);
+			return a;
+		}
+		final Attribute a = new Attribute();
+		a.name = name;
+		// the value, type and namespace are still checked.
+		a.setValue(value);
+		a.setAttributeType(type);
+		a.setNamespace(namespace);
+		return a;
+	}
+
+	@Override
+	public Attribute attribute(final String name, final String value,
+			final Namespace namespace) {
+		return attribute(name, value, AttributeType.UNDECLARED, namespace);
+	}
+
+	@Override
+	@Deprecated
+	public Attribute attribute(final String name, final String value,
+			final int type, final Namespace namespace) {
+		return attribute(name, value, AttributeType.byIndex(type), namespace);
+	}
+
+	@Override
+	public Attribute attribute(final String name, final String value) {
+		return attribute(name, value, AttributeType.UNDECLARED,
+				Namespace.NO_NAMESPACE);
+	}
+
+	@Override
+	@Deprecated
+	public Attribute attribute(final String name, final String value,
+			final int type) {
+		return attribute(name, value, AttributeType.byIndex(type),
+				Namespace.NO_NAMESPACE);
+	}
+
+	@Override
+	public Attribute attribute(final String name, final String value,
+			final AttributeType type) {
+		return attribute(name, value, type, Namespace.NO_NAMESPACE);
+	}
+
+}
@@ -0,0 +1,259 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The Namespaces in scope on an Element, as an immutable value that the
+ * Element caches (see {@link Element#getNamespacesInScope()}). An Element
+ * that has the same Namespaces in scope as its parent Element (the common
+ * case) shares its parent's NamespaceScope.
+ * <p>
+ * The Namespaces are in the order of {@link Element#getNamespacesInScope()}:
+ * the Element's Namespace first, and the rest sorted by prefix, so prefixes
+ * are found with a binary search.
+ * 
+ * @since JDOM2
+ */
+final class NamespaceScope {
+
+	/** The Namespaces in scope, the Element's own Namespace first */
+	private final Namespace[] inscope;
+	/** The same, as an unmodifiable List */
+	private final List<Namespace> list;
+	/**
+	 * Whether the default (no-prefix) Namespace is only in scope because
+	 * nothing declares it (it is not returned by
+	 * {@link Element#getNamespace(String)}).
+	 */
+	private final boolean nodefault;
+
+	private NamespaceScope(final Namespace[] inscope, final boolean nodefault) {
+		this.inscope = inscope;
+		this.list = Collections.unmodifiableList(Arrays.asList(inscope));
+		this.nodefault = nodefault;
+	}
+
+	/**
+	 * Calculate the scope of an Element.
+	 * 
+	 * @param element
+	 *        The Element.
+	 * @param parentscope
+	 *        The scope of the Element's parent Element, null if there is no
+	 *        parent Element.
+	 * @return the scope, which is the parent scope if it is the same.
+	 */
+	static NamespaceScope build(final Element element,
+			final NamespaceScope parentscope) {
+		// The assumption here is that all namespaces are valid,
+		// that there are no namespace collisions on this element
+		final Namespace ens = element.getNamespace();
+		final TreeMap<String, Namespace> namespaces =
+				new TreeMap<String, Namespace>();
+		namespaces.put(Namespace.XML_NAMESPACE.getPrefix(),
+				Namespace.XML_NAMESPACE);
+		namespaces.put(ens.getPrefix(), ens);
+		if (element.additionalNamespaces != null) {
+			for (Namespace ns : element.additionalNamespaces) {
+				if (!namespaces.containsKey(ns.getPrefix())) {
+					namespaces.put(ns.getPrefix(), ns);
+				}
+			}
+		}
+		if (element.attributes != null) {
+			final AttributeList atts = element.attributes;
+			for (int i = 0; i < atts.size(); i++) {
+				final Namespace ns = atts.get(i).getNamespace();
+				if (!namespaces.containsKey(ns.getPrefix())) {
+					namespaces.put(ns.getPrefix(), ns);
+				}
+			}
+		}
+		// Include any other namespaces that are inherited.
+		boolean nodefault = false;
+		if (parentscope != null) {
+			for (Namespace ns : parentscope.inscope) {
+				if (!namespaces.containsKey(ns.getPrefix())) {
+					namespaces.put(ns.getPrefix(), ns);
+					if (ns.getPrefix().length() == 0) {
+						nodefault = parentscope.nodefault;
+					}
+				}
+			}
+		} else if (!namespaces.containsKey("")) {
+			// we are the root element, and there is no 'default' namespace.
+			namespaces.put("", Namespace.NO_NAMESPACE);
+			nodefault = true;
+		}
+
+		final Namespace[] inscope = new Namespace[namespaces.size()];
+		inscope[0] = ens;
+		namespaces.remove(ens.getPrefix());
+		int i = 1;
+		for (Namespace ns : namespaces.values()) {
+			inscope[i++] = ns;
+		}
+		if (parentscope != null && parentscope.nodefault == nodefault
+				&& Arrays.equals(parentscope.inscope, inscope)) {
+			// Namespace.equals() is identity, so this is the same scope.
+			return parentscope;
+		}
+		return new NamespaceScope(inscope, nodefault);
+	}
+
+	/**
+	 * Find the Namespace in scope for a prefix.
+	 * 
+	 * @param prefix
+	 *        The prefix to find.
+	 * @return the Namespace for the prefix, or null if there is none.
+	 */
+	Namespace find(final String prefix) {
+		if (prefix.equals(inscope[0].getPrefix())) {
+			return inscope[0];
+		}
+		int left = 1;
+		int right = inscope.length - 1;
+		while (left <= right) {
+			final int mid = (left + right) >>> 1;
+			final int cmp = inscope[mid].getPrefix().compareTo(prefix);
+			if (cmp == 0) {
+				return inscope[mid];
+			}
+			if (cmp < 0) {
+				left = mid + 1;
+			} else {
+				right = mid - 1;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The Namespace bound to a prefix, the same as
+	 * {@link Element#getNamespace(String)}.
+	 * 
+	 * @param prefix
+	 *        The prefix to look up.
+	 * @return the bound Namespace, or null if the prefix is not bound.
+	 */
+	Namespace getNamespace(final String prefix) {
+		if (nodefault && prefix.length() == 0) {
+			return null;
+		}
+		return find(prefix);
+	}
+
+	/**
+	 * @return the Namespaces in scope.
+	 */
+	List<Namespace> getNamespacesInScope() {
+		return list;
+	}
+
+	/**
+	 * The Namespaces in scope that are the same in the parent scope (or, if
+	 * there is no parent, the ones that are always in scope).
+	 * 
+	 * @param parentscope
+	 *        The parent scope, null if there is no parent Element.
+	 * @return the inherited Namespaces
+	 */
+	List<Namespace> getNamespacesInherited(final NamespaceScope parentscope) {
+		if (parentscope == this) {
+			return list;
+		}
+		final Namespace[] ret = new Namespace[inscope.length];
+		int cnt = 0;
+		for (Namespace ns : inscope) {
+			if (parentscope == null
+					? ns == Namespace.NO_NAMESPACE || ns == Namespace.XML_NAMESPACE
+					: ns == parentscope.find(ns.getPrefix())) {
+				ret[cnt++] = ns;
+			}
+		}
+		return Collections.unmodifiableList(Arrays.asList(ret).subList(0, cnt));
+	}
+
+	/**
+	 * The Namespaces in scope that are not in the parent scope (or, if
+	 * there is no parent, all but the ones that are always in scope).
+	 * 
+	 * @param parentscope
+	 *        The parent scope, null if there is no parent Element.
+	 * @return the introduced Namespaces
+	 */
+	List<Namespace> getNamespacesIntroduced(final NamespaceScope parentscope) {
+		if (parentscope == this) {
+			return Collections.emptyList();
+		}
+		final Namespace[] ret = new Namespace[inscope.length];
+		int cnt = 0;
+		for (Namespace ns : inscope) {
+			if (parentscope == null
+					? ns != Namespace.NO_NAMESPACE && ns != Namespace.XML_NAMESPACE
+					: ns != parentscope.find(ns.getPrefix())) {
+				ret[cnt++] = ns;
+			}
+		}
+		return Collections.unmodifiableList(Arrays.asList(ret).subList(0, cnt));
+	}
+
+}
@@ -0,0 +1,310 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+/**
+ * A buffer that holds the character content of many {@link Text} (and
+ * {@link CDATA}) nodes. Characters are appended to the end of the buffer,
+ * and when a Text is complete {@link #text()} (or {@link #cdata()}) creates
+ * a new Text that uses a slice of the buffer as its content. Only the Text
+ * created here keep a slice, so other Text do not pay for the field. The
+ * Text only creates a String when
+ * {@link Text#getText()} is called, and the XMLOutputter writes the slice
+ * directly (see {@link Text#getCharSequence()}).
+ * <p>
+ * This saves a copy of the characters and a String for every Text node,
+ * which adds up on text-heavy documents that are mostly output again or
+ * only partly read. The buffer is made of fixed-size chunks, so the
+ * characters are never moved once they are shared, and the slices never
+ * change.
+ * <p>
+ * <strong>Note:</strong> a slice keeps its whole chunk in memory. A Text
+ * that is detached and kept after the rest of the Document is dropped
+ * still keeps its chunk.
+ * <p>
+ * The content of shared Text is not checked by the {@link Verifier} (as
+ * with the {@link UncheckedJDOMFactory}), it is expected to come from an XML
+ * parser. A SharedTextBuffer is not thread-safe, but the Text slices it
+ * creates are immutable.
+ * 
+ * @see org.jdom2.input.SAXBuilder#setSharedText(boolean)
+ * @since JDOM2
+ */
+public final class SharedTextBuffer {
+
+	/** The default number of chars in each chunk */
+	public static final int DEFAULT_CHUNK_SIZE = 16384;
+
+	/**
+	 * An immutable slice of a chunk.
+	 */
+	private static final class Slice implements CharSequence {
+		private final char[] chars;
+		private final int offset;
+		private final int length;
+
+		Slice(final char[] chars, final int offset, final int length) {
+			this.chars = chars;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(final int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("Index " + index
+						+ " is not in the range 0 to " + length);
+			}
+			return chars[offset + index];
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			if (start < 0 || end > length || start > end) {
+				throw new IndexOutOfBoundsException("Range " + start + " to "
+						+ end + " is not in the range 0 to " + length);
+			}
+			return new Slice(chars, offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, offset, length);
+		}
+	}
+
+	/**
+	 * Text that is a slice of the buffer until the String is created.
+	 */
+	private static final class SharedText extends Text {
+		private static final long serialVersionUID = 200L;
+
+		/** The slice, null once the value is set */
+		private transient CharSequence slice;
+
+		SharedText(final CharSequence slice) {
+			super();
+			this.slice = slice;
+		}
+
+		@Override
+		CharSequence getShared() {
+			return slice;
+		}
+
+		@Override
+		void dropShared() {
+			slice = null;
+		}
+	}
+
+	/**
+	 * CDATA that is a slice of the buffer until the String is created.
+	 */
+	private static final class SharedCDATA extends CDATA {
+		private static final long serialVersionUID = 200L;
+
+		/** The slice, null once the value is set */
+		private transient CharSequence slice;
+
+		SharedCDATA(final CharSequence slice) {
+			super();
+			this.slice = slice;
+		}
+
+		@Override
+		CharSequence getShared() {
+			return slice;
+		}
+
+		@Override
+		void dropShared() {
+			slice = null;
+		}
+	}
+
+	private final int chunksize;
+	/** The chunk being filled */
+	private char[] chunk;
+	/** Where the pending (not yet shared) characters start */
+	private int from = 0;
+	/** The end of the pending characters */
+	private int to = 0;
+
+	/**
+	 * Create a SharedTextBuffer with the default chunk size.
+	 */
+	public SharedTextBuffer() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a SharedTextBuffer.
+	 * 
+	 * @param chunksize
+	 *        The number of chars in each chunk. A Text that is larger than
+	 *        the chunk size gets a chunk of its own.
+	 */
+	public SharedTextBuffer(final int chunksize) {
+		if (chunksize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive, not "
+					+ chunksize);
+		}
+		this.chunksize = chunksize;
+		this.chunk = new char[chunksize];
+	}
+
+	/**
+	 * Add characters to the pending text.
+	 * 
+	 * @param ch
+	 *        The characters to add.
+	 * @param start
+	 *        The first character to add.
+	 * @param length
+	 *        The number of characters to add.
+	 */
+	public void append(final char[] ch, final int start, final int length) {
+		if (to + length > chunk.length) {
+			// move the pending text to a new chunk.
+			final int pending = to - from;
+			final char[] next = new char[Math.max(chunksize, (pending + length) * 2)];
+			System.arraycopy(chunk, from, next, 0, pending);
+			chunk = next;
+			from = 0;
+			to = pending;
+		}
+		System.arraycopy(ch, start, chunk, to, length);
+		to += length;
+	}
+
+	/**
+	 * The number of pending characters.
+	 * 
+	 * @return the length of the pending text.
+	 */
+	public int length() {
+		return to - from;
+	}
+
+	/**
+	 * Is the pending text all XML whitespace.
+	 * 
+	 * @return true if there is no pending text, or it is all whitespace.
+	 */
+	public boolean isAllWhitespace() {
+		for (int i = from; i < to; i++) {
+			if (!Verifier.isXMLWhitespace(chunk[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Drop the pending text.
+	 */
+	public void clear() {
+		to = from;
+	}
+
+	/**
+	 * Take the pending text, and start new pending text.
+	 * 
+	 * @return the pending text, null if there is none.
+	 */
+	private CharSequence take() {
+		if (to == from) {
+			return null;
+		}
+		final Slice slice = new Slice(chunk, from, to - from);
+		from = to;
+		return slice;
+	}
+
+	/**
+	 * Create a new Text that uses the pending text as its content, and start
+	 * new pending text. The content is not checked by the {@link Verifier}.
+	 * 
+	 * @return a new (unattached) Text.
+	 */
+	public Text text() {
+		final CharSequence slice = take();
+		return slice == null ? new Text(Text.EMPTY_STRING) : new SharedText(slice);
+	}
+
+	/**
+	 * Create a new CDATA that uses the pending text as its content, and
+	 * start new pending text. The content is not checked by the
+	 * {@link Verifier} (not even for the CDATA end delimiter).
+	 * 
+	 * @return a new (unattached) CDATA.
+	 */
+	public CDATA cdata() {
+		final CharSequence slice = take();
+		return slice == null ? new CDATA(Text.EMPTY_STRING) : new SharedCDATA(slice);
+	}
+
+	@Override
+	public String toString() {
+		return "[SharedTextBuffer: " + (to - from) + " pending chars]";
+	}
+
+}
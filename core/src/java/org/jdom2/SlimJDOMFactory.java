@@ -61,14 +61,22 @@ import java.util.Map;
  * This JDOMFactory instance reduces the amount of memory used by JDOM content.
  * It does this by reusing String instances instead of using new (but equals())
  * instances. It uses the {@link StringBin} class to provide a String cache.
+ * <p>
+ * The default String cache is not thread-safe, so the default SlimJDOMFactory
+ * should only be used by one builder at a time. Alternatively, construct the
+ * SlimJDOMFactory with a {@link StringInterner}, in which case the factory is
+ * thread-safe, and one StringInterner can be shared by any number of
+ * factories and builders (so that all documents share the same Strings).
  * 
  * @see StringBin
+ * @see StringInterner
  * @author Rolf Lear
  *
  */
 public class SlimJDOMFactory extends DefaultJDOMFactory {
 	
 	private StringBin cache = new StringBin();
+	private final StringInterner interner;
 	private final boolean cachetext;
 	
 	/**
@@ -86,22 +94,54 @@ public class SlimJDOMFactory extends DefaultJDOMFactory {
 	 * Comment and Attribute values cached as well.
 	 */
 	public SlimJDOMFactory(final boolean cachetext) {
+		this(null, cachetext);
+	}
+
+	/**
+	 * Construct a thread-safe SlimJDOMFactory which reuses String instances
+	 * from a (potentially shared) StringInterner.
+	 * @param interner the StringInterner to use. If null, a private
+	 * (not thread-safe) String cache is used instead.
+	 * @param cachetext should be true if you want the content of CDATA, Text,
+	 * Comment and Attribute values cached as well.
+	 * @since JDOM2
+	 */
+	public SlimJDOMFactory(final StringInterner interner, final boolean cachetext) {
 		super();
+		this.interner = interner;
 		this.cachetext = cachetext;
 	}
 
+	/**
+	 * Get the StringInterner used by this factory.
+	 * @return the StringInterner, or null if this factory uses a private cache.
+	 * @since JDOM2
+	 */
+	public StringInterner getInterner() {
+		return interner;
+	}
 
 	/**
 	 * Reset any Cached String instance data from this SlimJDOMFaxctory cache.
+	 * If this factory uses a StringInterner, then the interner is cleared
+	 * (which affects all factories sharing it).
 	 */
 	public void clearCache() {
-		cache = new StringBin();
+		if (interner != null) {
+			interner.clear();
+		} else {
+			cache = new StringBin();
+		}
+	}
+
+	private final String reuse(final String value) {
+		return interner == null ? cache.reuse(value) : interner.reuse(value);
 	}
 
 	@Override
 	public Attribute attribute(final String name, final String value, final Namespace namespace) {
-		return super.attribute(cache.reuse(name), 
-				(cachetext ? cache.reuse(value) : value), 
+		return super.attribute(reuse(name), 
+				(cachetext ? reuse(value) : value), 
 				namespace);
 	}
 
@@ -109,120 +149,120 @@ public class SlimJDOMFactory extends DefaultJDOMFactory {
 	@Deprecated
 	public Attribute attribute(final String name, final String value, final int type,
 			final Namespace namespace) {
-		return super.attribute(cache.reuse(name),
-				(cachetext ? cache.reuse(value) : value), 
+		return super.attribute(reuse(name),
+				(cachetext ? reuse(value) : value), 
 				type, namespace);
 	}
 
 	@Override
 	public Attribute attribute(final String name, final String value, final AttributeType type,
 			Namespace namespace) {
-		return super.attribute(cache.reuse(name),
-				(cachetext ? cache.reuse(value) : value),
+		return super.attribute(reuse(name),
+				(cachetext ? reuse(value) : value),
 				type, namespace);
 	}
 
 	@Override
 	public Attribute attribute(final String name, final String value) {
-		return super.attribute(cache.reuse(name), 
-				(cachetext ? cache.reuse(value) : value));
+		return super.attribute(reuse(name), 
+				(cachetext ? reuse(value) : value));
 	}
 
 	@Override
 	@Deprecated
 	public Attribute attribute(final String name, final String value, final int type) {
-		return super.attribute(cache.reuse(name),
-				(cachetext ? cache.reuse(value) : value), 
+		return super.attribute(reuse(name),
+				(cachetext ? reuse(value) : value), 
 				type);
 	}
 
 	@Override
 	public Attribute attribute(final String name, final String value, final AttributeType type) {
-		return super.attribute(cache.reuse(name),
-				(cachetext ? cache.reuse(value) : value), 
+		return super.attribute(reuse(name),
+				(cachetext ? reuse(value) : value), 
 				type);
 	}
 
 	@Override
 	public CDATA cdata(final int line, final int col, final String str) {
-		return super.cdata(line, col, (cachetext ? cache.reuse(str) : str));
+		return super.cdata(line, col, (cachetext ? reuse(str) : str));
 	}
 
 	@Override
 	public Text text(final int line, final int col, final String str) {
-		return super.text(line, col, (cachetext ? cache.reuse(str) : str));
+		return super.text(line, col, (cachetext ? reuse(str) : str));
 	}
 
 	@Override
 	public Comment comment(final int line, final int col, final String text) {
-		return super.comment(line, col, (cachetext ? cache.reuse(text) : text));
+		return super.comment(line, col, (cachetext ? reuse(text) : text));
 	}
 
 	@Override
 	public DocType docType(final int line, final int col, final String elementName, final String publicID, final String systemID) {
-		return super.docType(line, col, cache.reuse(elementName), publicID, systemID);
+		return super.docType(line, col, reuse(elementName), publicID, systemID);
 	}
 
 	@Override
 	public DocType docType(final int line, final int col, final String elementName, final String systemID) {
-		return super.docType(line, col, cache.reuse(elementName), systemID);
+		return super.docType(line, col, reuse(elementName), systemID);
 	}
 
 	@Override
 	public DocType docType(final int line, final int col, final String elementName) {
-		return super.docType(line, col, cache.reuse(elementName));
+		return super.docType(line, col, reuse(elementName));
 	}
 
 	@Override
 	public Element element(final int line, final int col, final String name, final Namespace namespace) {
-		return super.element(line, col, cache.reuse(name), namespace);
+		return super.element(line, col, reuse(name), namespace);
 	}
 
 	@Override
 	public Element element(final int line, final int col, final String name) {
-		return super.element(line, col, cache.reuse(name));
+		return super.element(line, col, reuse(name));
 	}
 
 	@Override
 	public Element element(final int line, final int col, final String name, final String uri) {
-		return super.element(line, col, cache.reuse(name), uri);
+		return super.element(line, col, reuse(name), uri);
 	}
 
 	@Override
 	public Element element(final int line, final int col, final String name, final String prefix, final String uri) {
-		return super.element(line, col, cache.reuse(name), prefix, uri);
+		return super.element(line, col, reuse(name), prefix, uri);
 	}
 
 	@Override
 	public ProcessingInstruction processingInstruction(final int line, final int col, final String target,
 			final Map<String, String> data) {
-		return super.processingInstruction(line, col, cache.reuse(target), data);
+		return super.processingInstruction(line, col, reuse(target), data);
 	}
 
 	@Override
 	public ProcessingInstruction processingInstruction(final int line, final int col, final String target,
 			final String data) {
-		return super.processingInstruction(line, col, cache.reuse(target), data);
+		return super.processingInstruction(line, col, reuse(target), data);
 	}
 
 	@Override
 	public ProcessingInstruction processingInstruction(final int line, final int col, final String target) {
-		return super.processingInstruction(line, col, cache.reuse(target));
+		return super.processingInstruction(line, col, reuse(target));
 	}
 
 	@Override
 	public EntityRef entityRef(final int line, final int col, final String name) {
-		return super.entityRef(line, col, cache.reuse(name));
+		return super.entityRef(line, col, reuse(name));
 	}
 
 	@Override
 	public EntityRef entityRef(final int line, final int col, final String name, final String publicID, final String systemID) {
-		return super.entityRef(line, col, cache.reuse(name), publicID, systemID);
+		return super.entityRef(line, col, reuse(name), publicID, systemID);
 	}
 
 	@Override
 	public EntityRef entityRef(final int line, final int col, final String name, final String systemID) {
-		return super.entityRef(line, col, cache.reuse(name), systemID);
+		return super.entityRef(line, col, reuse(name), systemID);
 	}
 
 }
@@ -0,0 +1,309 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe mechanism for storing and reusing unique instances of Strings,
+ * in the same way as {@link StringBin}, but which can be shared by many
+ * threads (and thus many {@link SlimJDOMFactory} and SAXBuilder instances) at
+ * the same time. Documents of the same 'type' built on different threads
+ * will then share their element names, attribute names, and (optionally)
+ * values.
+ * <p>
+ * Contention is limited by 'striping' the Strings in to a number of
+ * independently locked segments (based on the String hashCode()).
+ * <p>
+ * The interner can be bounded, in which case each segment will evict its
+ * least-recently-used String when it becomes full. A bounded interner is
+ * appropriate when the input data (typically text and attribute values) is
+ * not limited to a known set of values. An unbounded interner never evicts
+ * anything until it is {@link #clear() cleared}.
+ * <p>
+ * Hit (the String was reused), miss (the String was added), and eviction
+ * counts are maintained and can be used to tune the size limit.
+ * 
+ * @see SlimJDOMFactory
+ * @since JDOM2
+ */
+public final class StringInterner {
+
+	/** The default number of independently locked segments */
+	public static final int DEFAULT_CONCURRENCY = 16;
+
+	/**
+	 * One independently-locked segment of the interner. In a bounded interner
+	 * the LinkedHashMap is in access-order, which makes it an LRU cache.
+	 */
+	private static final class Segment extends LinkedHashMap<String, String> {
+		private static final long serialVersionUID = 200L;
+
+		private final int capacity;
+		private long hits = 0L;
+		private long misses = 0L;
+		private long evictions = 0L;
+
+		Segment(final int capacity) {
+			super(16, 0.75f, capacity > 0);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(
+				final Map.Entry<String, String> eldest) {
+			if (capacity > 0 && size() > capacity) {
+				evictions++;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private final Segment[] segments;
+	private final int mask;
+	private final int maxsize;
+
+	/**
+	 * Create an unbounded StringInterner with the default concurrency.
+	 */
+	public StringInterner() {
+		this(0, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Create a StringInterner that holds (approximately) at most maxsize
+	 * Strings, with the default concurrency.
+	 * 
+	 * @param maxsize
+	 *        The maximum number of Strings to hold, 0 for unbounded.
+	 */
+	public StringInterner(final int maxsize) {
+		this(maxsize, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Create a StringInterner that holds (approximately) at most maxsize
+	 * Strings, in concurrency segments.
+	 * 
+	 * @param maxsize
+	 *        The maximum number of Strings to hold, 0 for unbounded. The
+	 *        limit is spread evenly over the segments, so it is approximate.
+	 * @param concurrency
+	 *        The number of independently locked segments, rounded up to a
+	 *        power of 2.
+	 * @throws IllegalArgumentException
+	 *         if maxsize is negative or concurrency is less than 1.
+	 */
+	public StringInterner(final int maxsize, final int concurrency) {
+		if (maxsize < 0) {
+			throw new IllegalArgumentException(
+					"The maximum size can not be negative: " + maxsize);
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"The concurrency must be at least 1, not " + concurrency);
+		}
+		int cnt = 1;
+		while (cnt < concurrency && cnt < (1 << 16)) {
+			cnt <<= 1;
+		}
+		if (maxsize > 0) {
+			// do not have more segments than Strings.
+			while (cnt > 1 && cnt > maxsize) {
+				cnt >>>= 1;
+			}
+		}
+		final int segcap = maxsize == 0 ? 0 : (maxsize + cnt - 1) / cnt;
+		this.maxsize = maxsize;
+		this.mask = cnt - 1;
+		this.segments = new Segment[cnt];
+		for (int i = 0; i < cnt; i++) {
+			segments[i] = new Segment(segcap);
+		}
+	}
+
+	private final Segment segmentFor(final String value) {
+		// spread the higher bits in to the segment selection.
+		int h = value.hashCode();
+		h ^= (h >>> 16);
+		h ^= (h >>> 8);
+		return segments[h & mask];
+	}
+
+	/**
+	 * Get a String instance that is equal to the input value, reusing a
+	 * previously seen instance if possible. The input value is itself stored
+	 * for reuse if no equal String was known. Null input values are returned
+	 * as null.
+	 * 
+	 * @param value
+	 *        The value to reuse.
+	 * @return a String that is equals() to the input value, or null if the
+	 *         input was null
+	 */
+	public String reuse(final String value) {
+		if (value == null) {
+			return null;
+		}
+		final Segment seg = segmentFor(value);
+		synchronized (seg) {
+			final String known = seg.get(value);
+			if (known != null) {
+				seg.hits++;
+				return known;
+			}
+			seg.misses++;
+			seg.put(value, value);
+			return value;
+		}
+	}
+
+	/**
+	 * Remove all Strings from this interner. The hit/miss/eviction statistics
+	 * are not reset.
+	 */
+	public void clear() {
+		for (final Segment seg : segments) {
+			synchronized (seg) {
+				seg.clear();
+			}
+		}
+	}
+
+	/**
+	 * Reset the hit/miss/eviction statistics to 0.
+	 */
+	public void resetStatistics() {
+		for (final Segment seg : segments) {
+			synchronized (seg) {
+				seg.hits = 0L;
+				seg.misses = 0L;
+				seg.evictions = 0L;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of Strings currently held.
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment seg : segments) {
+			synchronized (seg) {
+				size += seg.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the maximum size specified at construction, 0 if unbounded.
+	 */
+	public int getMaxSize() {
+		return maxsize;
+	}
+
+	/**
+	 * @return the number of calls to {@link #reuse(String)} that returned a
+	 *         previously stored String.
+	 */
+	public long getHitCount() {
+		long cnt = 0L;
+		for (final Segment seg : segments) {
+			synchronized (seg) {
+				cnt += seg.hits;
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * @return the number of calls to {@link #reuse(String)} that stored a new
+	 *         String.
+	 */
+	public long getMissCount() {
+		long cnt = 0L;
+		for (final Segment seg : segments) {
+			synchronized (seg) {
+				cnt += seg.misses;
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * @return the number of Strings removed to keep a bounded interner within
+	 *         its size limit.
+	 */
+	public long getEvictionCount() {
+		long cnt = 0L;
+		for (final Segment seg : segments) {
+			synchronized (seg) {
+				cnt += seg.evictions;
+			}
+		}
+		return cnt;
+	}
+
+	@Override
+	public String toString() {
+		return "StringInterner[size=" + size() + ", maxSize=" + maxsize
+				+ ", hits=" + getHitCount() + ", misses=" + getMissCount()
+				+ ", evictions=" + getEvictionCount() + "]";
+	}
+
+}
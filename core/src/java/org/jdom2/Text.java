@@ -54,6 +54,9 @@
 
 package org.jdom2;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
 import org.jdom2.output.Format;
 
 /**
@@ -74,12 +77,19 @@ public class Text extends Content {
 	
 	static final String EMPTY_STRING = "";
 
-	/** The actual character content */
+	/**
+	 * The actual character content.
+	 * <p>
+	 * This is null for Text that is a slice of a shared buffer (see
+	 * {@link org.jdom2.input.SAXBuilder#setSharedText(boolean)}) until
+	 * {@link #getText()} is first called, so subclasses should read the
+	 * content with {@link #getText()} rather than this field.
+	 */
 	// XXX See http://www.servlets.com/archive/servlet/ReadMsg?msgId=8612
 	// from elharo for a description of why Java characters may not suffice
 	// long term
 	protected String value;
-	
+
 	/**
 	 * CData type extends Text, and it needs to be able to change the Content
 	 * type of this Content.
@@ -119,9 +129,70 @@ public class Text extends Content {
 	 * @return <code>String</code> - character content of this node.
 	 */
 	public String getText() {
+		if (value == null) {
+			final CharSequence shared = getShared();
+			if (shared != null) {
+				// not thread-safe, like any other read of a Document that is
+				// not frozen. Freezing creates the String (see unshare()).
+				value = shared.toString();
+			}
+		}
 		return value;
 	}
 
+	/**
+	 * The character content when this Text is a slice of a buffer shared by
+	 * many Text nodes (see {@link SharedTextBuffer}). When there is a slice
+	 * the {@link #value} is only created (and then cached) when it is asked
+	 * for. Only the Text created by a SharedTextBuffer have a slice, so other
+	 * Text do not need a field for it.
+	 * 
+	 * @return the slice, or null if this Text is not a slice.
+	 */
+	CharSequence getShared() {
+		return null;
+	}
+
+	/**
+	 * Drop the slice of the shared buffer, the {@link #value} is set.
+	 */
+	void dropShared() {
+		// only shared Text have a slice.
+	}
+
+	/**
+	 * Create the String of Text that is a slice of a shared buffer now, and
+	 * drop the buffer, so reading this Text later writes nothing. Used when
+	 * the Document is frozen.
+	 */
+	final void unshare() {
+		final CharSequence shared = getShared();
+		if (shared != null) {
+			if (value == null) {
+				value = shared.toString();
+			}
+			dropShared();
+		}
+	}
+
+	/**
+	 * The character content of this node without creating a String if it is
+	 * not needed. For Text that was built with
+	 * {@link SharedTextBuffer} (see
+	 * {@link org.jdom2.input.SAXBuilder#setSharedText(boolean)}) this is a
+	 * slice of the shared buffer, for all other Text it is the same as
+	 * {@link #getText()}.
+	 * <p>
+	 * The returned sequence never changes, even if this Text is changed
+	 * later.
+	 *
+	 * @return the character content of this node.
+	 */
+	public CharSequence getCharSequence() {
+		final String v = value;
+		return v != null ? v : getShared();
+	}
+
 	/**
 	 * This returns the textual content with all surrounding whitespace
 	 * removed.  If only whitespace exists, the empty string is returned.
@@ -171,10 +242,12 @@ public class Text extends Content {
 	 *         by {@link org.jdom2.Verifier#checkCharacterData})
 	 */
 	public Text setText(String str) {
+		checkMutable();
 		String reason;
 
 		if (str == null) {
 			value = EMPTY_STRING;
+			dropShared();
 			return this;
 		}
 
@@ -182,6 +255,7 @@ public class Text extends Content {
 			throw new IllegalDataException(str, "character content", reason);
 		}
 		value = str;
+		dropShared();
 		return this;
 	}
 
@@ -195,6 +269,7 @@ public class Text extends Content {
 	 *         by {@link org.jdom2.Verifier#checkCharacterData})
 	 */
 	public void append(String str) {
+		checkMutable();
 		String reason;
 
 		if (str == null) {
@@ -205,7 +280,8 @@ public class Text extends Content {
 		}
 
 		if (str.length() > 0) {
-			value += str;
+			value = getText() + str;
+			dropShared();
 		}
 	}
 
@@ -216,10 +292,12 @@ public class Text extends Content {
 	 * @param text Text node to append.
 	 */
 	public void append(Text text) {
+		checkMutable();
 		if (text == null) {
 			return;
 		}
-		value += text.getText();
+		value = getText() + text.getText();
+		dropShared();
 	}
 
 	/**
@@ -230,7 +308,7 @@ public class Text extends Content {
 	 */
 	@Override
 	public String getValue() {
-		return value;
+		return getText();
 	}
 
 	/**
@@ -275,4 +353,15 @@ public class Text extends Content {
 		return (Element)super.getParent();
 	}
 
+	/**
+	 * Text backed by a shared buffer is serialized as a normal String.
+	 * 
+	 * @param out the stream to write to.
+	 * @throws IOException if the stream fails.
+	 */
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		getText();
+		out.defaultWriteObject();
+	}
+
 }
@@ -0,0 +1,201 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2;
+
+import java.io.IOException;
+
+import org.jdom2.output.Format.TextMode;
+
+/**
+ * An Appendable that trims or normalizes the text as it is appended to
+ * another Appendable, the same way the {@link TextMode} does for
+ * {@link org.jdom2.output.XMLOutputter}. Whitespace is XML whitespace (see
+ * {@link Verifier#isXMLWhitespace(char)}).
+ * <p>
+ * Whitespace that may be trailing is held back until something that is not
+ * whitespace is appended, so {@link #finish()} is what drops the trailing
+ * whitespace. Only the whitespace is held back, nothing else is copied.
+ * 
+ * @since JDOM2
+ */
+final class TextModeAppender implements Appendable {
+
+	private final Appendable out;
+	private final TextMode mode;
+	/** Whether anything that is not whitespace has been appended */
+	private boolean started = false;
+	/** NORMALIZE: whether a space is pending */
+	private boolean space = false;
+	/** TRIM and TRIM_FULL_WHITE: the whitespace that is held back */
+	private StringBuilder pending = null;
+
+	/**
+	 * Create an appender for a TextMode.
+	 * 
+	 * @param out
+	 *        Where the text goes.
+	 * @param mode
+	 *        How the whitespace is treated (PRESERVE is not useful).
+	 */
+	TextModeAppender(final Appendable out, final TextMode mode) {
+		this.out = out;
+		this.mode = mode;
+	}
+
+	@Override
+	public Appendable append(final CharSequence csq) throws IOException {
+		final CharSequence value = csq == null ? "null" : csq;
+		return append(value, 0, value.length());
+	}
+
+	@Override
+	public Appendable append(final CharSequence csq, final int start,
+			final int end) throws IOException {
+		if (csq == null) {
+			return append("null", start, end);
+		}
+		if (started && mode == TextMode.TRIM_FULL_WHITE) {
+			out.append(csq, start, end);
+			return this;
+		}
+		int i = start;
+		while (i < end) {
+			if (Verifier.isXMLWhitespace(csq.charAt(i))) {
+				final int from = i;
+				while (++i < end && Verifier.isXMLWhitespace(csq.charAt(i))) {
+					// skip the run.
+				}
+				whitespace(csq, from, i);
+			} else {
+				final int from = i;
+				while (++i < end && !Verifier.isXMLWhitespace(csq.charAt(i))) {
+					// skip the run.
+				}
+				release();
+				out.append(csq, from, i);
+				if (mode == TextMode.TRIM_FULL_WHITE) {
+					// everything else is kept as-is.
+					out.append(csq, i, end);
+					return this;
+				}
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Appendable append(final char c) throws IOException {
+		if (started && mode == TextMode.TRIM_FULL_WHITE) {
+			out.append(c);
+		} else if (Verifier.isXMLWhitespace(c)) {
+			whitespace(String.valueOf(c), 0, 1);
+		} else {
+			release();
+			out.append(c);
+		}
+		return this;
+	}
+
+	/**
+	 * Hold back a run of whitespace.
+	 */
+	private void whitespace(final CharSequence csq, final int from,
+			final int to) {
+		switch (mode) {
+			case NORMALIZE:
+				space = started;
+				break;
+			case TRIM:
+				if (!started) {
+					// leading whitespace is dropped.
+					break;
+				}
+				//$FALL-THROUGH$
+			default:
+				if (pending == null) {
+					pending = new StringBuilder();
+				}
+				pending.append(csq, from, to);
+				break;
+		}
+	}
+
+	/**
+	 * Something that is not whitespace is next, so the held back
+	 * whitespace is not trailing.
+	 */
+	private void release() throws IOException {
+		if (space) {
+			out.append(' ');
+			space = false;
+		} else if (pending != null && pending.length() > 0) {
+			out.append(pending);
+			pending.setLength(0);
+		}
+		started = true;
+	}
+
+	/**
+	 * Drop the trailing whitespace (if any) and get ready for new text.
+	 */
+	void finish() {
+		started = false;
+		space = false;
+		if (pending != null) {
+			pending.setLength(0);
+		}
+	}
+
+}
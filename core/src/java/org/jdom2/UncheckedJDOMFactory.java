@@ -329,6 +329,7 @@ public class UncheckedJDOMFactory extends DefaultJDOMFactory {
 			parent.additionalNamespaces = new ArrayList<Namespace>(5); //Element.INITIAL_ARRAY_SIZE
 		}
 		parent.additionalNamespaces.add(additional);
+		parent.scopeChanged();
 	}
 	
 	@Override
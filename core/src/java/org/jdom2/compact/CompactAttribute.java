@@ -0,0 +1,237 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.JDOMFactory;
+import org.jdom2.Namespace;
+
+import static org.jdom2.compact.CompactDocument.*;
+
+/**
+ * A read-only view of an Attribute in a {@link CompactDocument}.
+ * 
+ * @since JDOM2
+ */
+public final class CompactAttribute {
+
+	private final CompactDocument document;
+	private final int element;
+	private final int index;
+
+	/**
+	 * Create a view of an Attribute.
+	 * 
+	 * @param document
+	 *        The document the Attribute is in.
+	 * @param element
+	 *        The node index of the Attribute's Element.
+	 * @param index
+	 *        The index of the Attribute record.
+	 */
+	CompactAttribute(final CompactDocument document, final int element,
+			final int index) {
+		this.document = document;
+		this.element = element;
+		this.index = index;
+	}
+
+	/**
+	 * The document this Attribute is in.
+	 * 
+	 * @return the CompactDocument.
+	 */
+	public CompactDocument getDocument() {
+		return document;
+	}
+
+	/**
+	 * The Element this Attribute belongs to.
+	 * 
+	 * @return the parent Element.
+	 */
+	public CompactElement getParent() {
+		return new CompactElement(document, element);
+	}
+
+	/**
+	 * The local name of the Attribute.
+	 * 
+	 * @return the name.
+	 */
+	public String getName() {
+		return document.string(document.attSlot(index, ATT_NAME));
+	}
+
+	/**
+	 * The Namespace of the Attribute.
+	 * 
+	 * @return the Namespace (never null).
+	 */
+	public Namespace getNamespace() {
+		return document.namespace(document.attSlot(index, ATT_NS));
+	}
+
+	/**
+	 * The Namespace prefix of the Attribute.
+	 * 
+	 * @return the prefix, the empty String if there is none.
+	 */
+	public String getNamespacePrefix() {
+		return getNamespace().getPrefix();
+	}
+
+	/**
+	 * The Namespace URI of the Attribute.
+	 * 
+	 * @return the URI, the empty String if there is none.
+	 */
+	public String getNamespaceURI() {
+		return getNamespace().getURI();
+	}
+
+	/**
+	 * The name of the Attribute including the Namespace prefix, if any.
+	 * 
+	 * @return the qualified name.
+	 */
+	public String getQualifiedName() {
+		final String prefix = getNamespacePrefix();
+		if (prefix.length() == 0) {
+			return getName();
+		}
+		return prefix + ":" + getName();
+	}
+
+	/**
+	 * The value of the Attribute.
+	 * 
+	 * @return the value.
+	 */
+	public String getValue() {
+		return document.string(document.attSlot(index, ATT_VALUE));
+	}
+
+	/**
+	 * The type of the Attribute.
+	 * 
+	 * @return the AttributeType.
+	 */
+	public AttributeType getAttributeType() {
+		return document.attType(index);
+	}
+
+	/**
+	 * Was the Attribute in the XML, or did it come from a DTD default.
+	 * 
+	 * @return true if the Attribute was in the XML.
+	 */
+	public boolean isSpecified() {
+		return (document.attSlot(index, ATT_TYPE) & 1) != 0;
+	}
+
+	/**
+	 * Create a real (detached) JDOM Attribute with the same data as this
+	 * Attribute.
+	 * 
+	 * @return the new Attribute.
+	 */
+	public Attribute toAttribute() {
+		return toAttribute(new DefaultJDOMFactory());
+	}
+
+	/**
+	 * Create a real (detached) JDOM Attribute with the same data as this
+	 * Attribute.
+	 * 
+	 * @param factory
+	 *        The factory to create the Attribute with.
+	 * @return the new Attribute.
+	 */
+	public Attribute toAttribute(final JDOMFactory factory) {
+		final Attribute ret = factory.attribute(getName(), getValue(),
+				getAttributeType(), getNamespace());
+		if (!isSpecified()) {
+			ret.setSpecified(false);
+		}
+		return ret;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj instanceof CompactAttribute) {
+			final CompactAttribute o = (CompactAttribute)obj;
+			return o.index == index && o.document == document;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return document.hashCode() * 31 - index;
+	}
+
+	@Override
+	public String toString() {
+		return "[CompactAttribute: " + getQualifiedName() + "=\"" + getValue()
+				+ "\"]";
+	}
+
+}
@@ -0,0 +1,633 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.Content;
+import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.DocType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMFactory;
+import org.jdom2.Namespace;
+
+/**
+ * A read-only JDOM Document stored in a compact binary form: a string table
+ * and flat arrays of node records, all inside a single {@link ByteBuffer}.
+ * <p>
+ * A regular JDOM Document needs several objects for every node (the Element,
+ * its ContentList, AttributeList, Attributes, Text, and all their Strings),
+ * which makes large documents take many times their XML size in heap. A
+ * CompactDocument keeps everything in the buffer, and stores each distinct
+ * String only once. The buffer can be on the heap (see
+ * {@link #build(Document)}), or it can be written to a file with
+ * {@link #write(Document, OutputStream)} and later memory-mapped with
+ * {@link #map(File)}, in which case the document costs almost no heap at all.
+ * <p>
+ * The content is navigated through light-weight views:
+ * {@link CompactElement}, {@link CompactAttribute} and {@link CompactNode},
+ * which have the same method names as their JDOM counterparts. The views are
+ * created on demand and hold nothing but a reference to the node. XPath
+ * queries can be run against the views with {@link CompactXPath}. When real
+ * JDOM content is needed, {@link CompactNode#toContent()},
+ * {@link CompactElement#toElement()} and {@link #toDocument()} create
+ * detached copies of any part of the tree.
+ * <p>
+ * The format is limited to 2GB (the size of a ByteBuffer). Nodes are stored
+ * in document order, so all the descendants of a node are the records
+ * directly after it. Element and Attribute names and Namespaces are decoded
+ * once, when the CompactDocument is created; all other Strings are decoded
+ * each time they are read.
+ * <p>
+ * A CompactDocument is immutable, and it is safe to read it from multiple
+ * threads at the same time.
+ * 
+ * @since JDOM2
+ */
+public final class CompactDocument {
+
+	/** The first four bytes of the compact format: 'JDMC' */
+	static final int MAGIC = 0x4A444D43;
+	/** The version of the compact format */
+	static final int VERSION = 1;
+	/** The number of ints in the header */
+	static final int HEADER_INTS = 8;
+
+	/* Node types */
+	static final int DOCUMENT = 0;
+	static final int ELEMENT = 1;
+	static final int TEXT = 2;
+	static final int CDATA = 3;
+	static final int COMMENT = 4;
+	static final int PI = 5;
+	static final int ENTITYREF = 6;
+	static final int DOCTYPE = 7;
+	/** The low bits of the TYPE slot are the type, the rest is extra data */
+	static final int TYPE_BITS = 8;
+	private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+	/*
+	 * Node record slots. The meaning of the A-E slots depends on the type:
+	 * DOCUMENT: A=base URI
+	 * ELEMENT: A=name, B=namespace, C=first attribute, D=attribute count,
+	 *          E=first namespace declaration (the count is in TYPE)
+	 * TEXT, CDATA, COMMENT: A=value
+	 * PI: A=target, B=data
+	 * ENTITYREF: A=name, B=public ID, C=system ID
+	 * DOCTYPE: A=element name, B=public ID, C=system ID, D=internal subset
+	 * String slots are -1 for null.
+	 */
+	static final int TYPE = 0;
+	static final int PARENT = 1;
+	static final int NEXT = 2;
+	static final int FIRST = 3;
+	/** The index after the last descendant */
+	static final int END = 4;
+	static final int A = 5;
+	static final int B = 6;
+	static final int C = 7;
+	static final int D = 8;
+	static final int E = 9;
+	static final int NODE_INTS = 10;
+
+	/* Attribute record slots */
+	static final int ATT_NAME = 0;
+	static final int ATT_NS = 1;
+	static final int ATT_VALUE = 2;
+	/** AttributeType ordinal << 1 | 1 if specified */
+	static final int ATT_TYPE = 3;
+	static final int ATT_INTS = 4;
+
+	private static final AttributeType[] ATTTYPES = AttributeType.values();
+
+	/**
+	 * Convert a JDOM Document to a CompactDocument on the heap.
+	 * 
+	 * @param document
+	 *        The Document to convert.
+	 * @return the compact form of the Document.
+	 * @throws IllegalStateException
+	 *         if the Document is too big for the compact format.
+	 */
+	public static final CompactDocument build(final Document document) {
+		return new CompactDocument(ByteBuffer.wrap(
+				new CompactWriter(document).toByteArray()));
+	}
+
+	/**
+	 * Write the compact form of a JDOM Document to a stream. The stream is
+	 * flushed, but not closed.
+	 * 
+	 * @param document
+	 *        The Document to write.
+	 * @param out
+	 *        Where to write it.
+	 * @throws IOException
+	 *         if the stream fails.
+	 * @throws IllegalStateException
+	 *         if the Document is too big for the compact format.
+	 */
+	public static final void write(final Document document,
+			final OutputStream out) throws IOException {
+		new CompactWriter(document).write(out);
+	}
+
+	/**
+	 * Use the compact form in a buffer. The bytes from the buffer's
+	 * position to its limit are used, and the buffer's position, limit and
+	 * content must not be changed afterwards.
+	 * 
+	 * @param buffer
+	 *        The buffer holding the compact form.
+	 * @return the CompactDocument.
+	 * @throws IllegalArgumentException
+	 *         if the buffer does not hold a compact document.
+	 */
+	public static final CompactDocument wrap(final ByteBuffer buffer) {
+		return new CompactDocument(buffer.slice());
+	}
+
+	/**
+	 * Memory-map a file that was created with
+	 * {@link #write(Document, OutputStream)}. The file is mapped read-only
+	 * and closed again; the mapping stays valid until the CompactDocument is
+	 * garbage collected. The file must not be changed while it is mapped.
+	 * 
+	 * @param file
+	 *        The file to map.
+	 * @return the CompactDocument.
+	 * @throws IOException
+	 *         if the file can not be mapped or is not a compact document.
+	 */
+	public static final CompactDocument map(final File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File " + file
+						+ " is too big to be a compact document");
+			}
+			try {
+				return new CompactDocument(
+						channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+			} catch (IllegalArgumentException iae) {
+				final IOException ioe = new IOException("File " + file
+						+ " is not a compact document: " + iae.getMessage());
+				ioe.initCause(iae);
+				throw ioe;
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private final ByteBuffer data;
+	private final int stringcount;
+	private final int nodecount;
+	private final int attcount;
+	private final int offsetpos;
+	private final int nodepos;
+	private final int attpos;
+	private final int declpos;
+	private final int stringpos;
+	/** The decoded names (all strings with an index below names.length) */
+	private final String[] names;
+	private final HashMap<String, Integer> nameindex;
+	private final Namespace[] namespaces;
+
+	private CompactDocument(final ByteBuffer data) {
+		this.data = data;
+		if (data.limit() < HEADER_INTS * 4 || data.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not a compact document");
+		}
+		if (data.getInt(4) != VERSION) {
+			throw new IllegalArgumentException("Unsupported compact version "
+					+ data.getInt(4) + ", expected " + VERSION);
+		}
+		stringcount = data.getInt(8);
+		final int namecount = data.getInt(12);
+		final int nscount = data.getInt(16);
+		nodecount = data.getInt(20);
+		attcount = data.getInt(24);
+		final int declcount = data.getInt(28);
+		if (stringcount < 0 || namecount < 0 || namecount > stringcount
+				|| nscount < 0 || nodecount < 1 || attcount < 0 || declcount < 0) {
+			throw new IllegalArgumentException("Corrupt compact document header");
+		}
+		final long np = HEADER_INTS * 4L + (stringcount + 1) * 4L;
+		final long ndp = np + nscount * 8L;
+		final long ap = ndp + nodecount * (long)NODE_INTS * 4;
+		final long dp = ap + attcount * (long)ATT_INTS * 4;
+		final long sp = dp + declcount * 4L;
+		if (sp > data.limit()
+				|| sp + data.getInt((int)(np - 4)) > data.limit()) {
+			throw new IllegalArgumentException("Truncated compact document: "
+					+ data.limit() + " bytes");
+		}
+		offsetpos = HEADER_INTS * 4;
+		nodepos = (int)ndp;
+		attpos = (int)ap;
+		declpos = (int)dp;
+		stringpos = (int)sp;
+
+		names = new String[namecount];
+		nameindex = new HashMap<String, Integer>(namecount * 2);
+		for (int i = 0; i < namecount; i++) {
+			names[i] = decode(i);
+			nameindex.put(names[i], Integer.valueOf(i));
+		}
+		namespaces = new Namespace[nscount];
+		for (int i = 0; i < nscount; i++) {
+			final int pos = (int)np + i * 8;
+			namespaces[i] = Namespace.getNamespace(string(data.getInt(pos)),
+					string(data.getInt(pos + 4)));
+		}
+		if (type(0) != DOCUMENT) {
+			throw new IllegalArgumentException(
+					"Corrupt compact document: no document node");
+		}
+	}
+
+	/* ********************************************************************
+	 * Raw access to the records, used by the views.
+	 * ******************************************************************** */
+
+	private final String decode(final int index) {
+		final int from = data.getInt(offsetpos + index * 4);
+		final int len = data.getInt(offsetpos + index * 4 + 4) - from;
+		if (len == 0) {
+			return "";
+		}
+		final int pos = stringpos + from;
+		final char[] chars = new char[len];
+		for (int i = 0; i < len; i++) {
+			final byte b = data.get(pos + i);
+			if (b < 0) {
+				// not ASCII.
+				final byte[] bytes = new byte[len];
+				for (int j = 0; j < len; j++) {
+					bytes[j] = data.get(pos + j);
+				}
+				try {
+					return new String(bytes, "UTF-8");
+				} catch (UnsupportedEncodingException e) {
+					throw new IllegalStateException("UTF-8 is not supported", e);
+				}
+			}
+			chars[i] = (char)b;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Get a String from the string table.
+	 * 
+	 * @param index
+	 *        The String's index (-1 for null).
+	 * @return the String.
+	 */
+	final String string(final int index) {
+		if (index < 0) {
+			return null;
+		}
+		if (index < names.length) {
+			return names[index];
+		}
+		return decode(index);
+	}
+
+	/**
+	 * Find the index of a name.
+	 * 
+	 * @param name
+	 *        The name to look for.
+	 * @return the index of the name, or -1 if no node has that name.
+	 */
+	final int nameIndex(final String name) {
+		final Integer idx = nameindex.get(name);
+		return idx == null ? -1 : idx.intValue();
+	}
+
+	final Namespace namespace(final int index) {
+		return namespaces[index];
+	}
+
+	final int type(final int node) {
+		return data.getInt(nodepos + node * (NODE_INTS * 4)) & TYPE_MASK;
+	}
+
+	final int slot(final int node, final int slot) {
+		return data.getInt(nodepos + (node * NODE_INTS + slot) * 4);
+	}
+
+	final int declCount(final int node) {
+		return data.getInt(nodepos + node * (NODE_INTS * 4)) >>> TYPE_BITS;
+	}
+
+	final int decl(final int index) {
+		return data.getInt(declpos + index * 4);
+	}
+
+	final int attSlot(final int att, final int slot) {
+		return data.getInt(attpos + (att * ATT_INTS + slot) * 4);
+	}
+
+	final AttributeType attType(final int att) {
+		return ATTTYPES[attSlot(att, ATT_TYPE) >>> 1];
+	}
+
+	/**
+	 * Create the view of a node.
+	 * 
+	 * @param node
+	 *        The node index.
+	 * @return a CompactElement for Elements, a CompactNode otherwise.
+	 */
+	final CompactNode node(final int node) {
+		if (type(node) == ELEMENT) {
+			return new CompactElement(this, node);
+		}
+		return new CompactNode(this, node);
+	}
+
+	/**
+	 * The views of all the children of a node.
+	 * 
+	 * @param node
+	 *        The parent node.
+	 * @return a new List of the children.
+	 */
+	final List<CompactNode> children(final int node) {
+		final ArrayList<CompactNode> ret = new ArrayList<CompactNode>();
+		for (int kid = slot(node, FIRST); kid >= 0; kid = slot(kid, NEXT)) {
+			ret.add(node(kid));
+		}
+		return ret;
+	}
+
+	/* ********************************************************************
+	 * Public navigation.
+	 * ******************************************************************** */
+
+	/**
+	 * The root Element of the document.
+	 * 
+	 * @return the root Element, or null if the document is empty.
+	 */
+	public CompactElement getRootElement() {
+		for (int kid = slot(0, FIRST); kid >= 0; kid = slot(kid, NEXT)) {
+			if (type(kid) == ELEMENT) {
+				return new CompactElement(this, kid);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The top-level content of the document (DocType, Comments, Processing
+	 * Instructions and the root Element).
+	 * 
+	 * @return a new List of the content.
+	 */
+	public List<CompactNode> getContent() {
+		return children(0);
+	}
+
+	/**
+	 * The base URI the Document had when it was converted.
+	 * 
+	 * @return the base URI, may be null.
+	 */
+	public String getBaseURI() {
+		return string(slot(0, A));
+	}
+
+	/**
+	 * The number of nodes (Elements, Text, Comments, etc.) in the document,
+	 * not counting Attributes, but counting the document itself.
+	 * 
+	 * @return the node count.
+	 */
+	public int getNodeCount() {
+		return nodecount;
+	}
+
+	/**
+	 * The number of Attributes in the document.
+	 * 
+	 * @return the Attribute count.
+	 */
+	public int getAttributeCount() {
+		return attcount;
+	}
+
+	/**
+	 * The size of the compact form, in bytes.
+	 * 
+	 * @return the number of bytes used.
+	 */
+	public int getByteSize() {
+		return stringpos + data.getInt(offsetpos + stringcount * 4);
+	}
+
+	/**
+	 * Create a regular (mutable) JDOM Document with all the content of this
+	 * CompactDocument.
+	 * 
+	 * @return a new Document.
+	 */
+	public Document toDocument() {
+		return toDocument(new DefaultJDOMFactory());
+	}
+
+	/**
+	 * Create a regular (mutable) JDOM Document with all the content of this
+	 * CompactDocument, using a specific JDOMFactory.
+	 * 
+	 * @param factory
+	 *        The factory to create the content with.
+	 * @return a new Document.
+	 */
+	public Document toDocument(final JDOMFactory factory) {
+		final Document doc = factory.document(null);
+		for (int kid = slot(0, FIRST); kid >= 0; kid = slot(kid, NEXT)) {
+			factory.addContent(doc, content(factory, kid));
+		}
+		doc.setBaseURI(getBaseURI());
+		return doc;
+	}
+
+	/* ********************************************************************
+	 * Materialization.
+	 * ******************************************************************** */
+
+	/**
+	 * Create real JDOM content from a node.
+	 * 
+	 * @param factory
+	 *        The factory to create the content with.
+	 * @param node
+	 *        The node index.
+	 * @return the detached content.
+	 */
+	final Content content(final JDOMFactory factory, final int node) {
+		switch (type(node)) {
+			case ELEMENT:
+				return element(factory, node);
+			case TEXT:
+				return factory.text(string(slot(node, A)));
+			case CDATA:
+				return factory.cdata(string(slot(node, A)));
+			case COMMENT:
+				return factory.comment(string(slot(node, A)));
+			case PI:
+				return factory.processingInstruction(string(slot(node, A)),
+						string(slot(node, B)));
+			case ENTITYREF:
+				return factory.entityRef(string(slot(node, A)),
+						string(slot(node, B)), string(slot(node, C)));
+			case DOCTYPE: {
+				final DocType dt = factory.docType(string(slot(node, A)),
+						string(slot(node, B)), string(slot(node, C)));
+				dt.setInternalSubset(string(slot(node, D)));
+				return dt;
+			}
+		}
+		throw new IllegalStateException("Corrupt compact document: node "
+				+ node + " has type " + type(node));
+	}
+
+	/**
+	 * Create a real JDOM Element (and all its content) from a node.
+	 * 
+	 * @param factory
+	 *        The factory to create the content with.
+	 * @param node
+	 *        The Element node index.
+	 * @return the detached Element.
+	 */
+	final Element element(final JDOMFactory factory, final int node) {
+		final Element root = start(factory, node);
+		// the descendants are the nodes that follow this one, in document
+		// order, so the tree is built without recursion.
+		Element parent = root;
+		int parentnode = node;
+		final int end = slot(node, END);
+		for (int kid = node + 1; kid < end; kid++) {
+			final int p = slot(kid, PARENT);
+			while (parentnode != p) {
+				parentnode = slot(parentnode, PARENT);
+				parent = parent.getParentElement();
+			}
+			if (type(kid) == ELEMENT) {
+				final Element element = start(factory, kid);
+				factory.addContent(parent, element);
+				parent = element;
+				parentnode = kid;
+			} else {
+				factory.addContent(parent, content(factory, kid));
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Create a real JDOM Element, with its Attributes and Namespace
+	 * declarations but without its content, from a node.
+	 */
+	private final Element start(final JDOMFactory factory, final int node) {
+		final Element element = factory.element(string(slot(node, A)),
+				namespaces[slot(node, B)]);
+		final int decl = slot(node, E);
+		final int declend = decl + declCount(node);
+		for (int i = decl; i < declend; i++) {
+			element.addNamespaceDeclaration(namespaces[decl(i)]);
+		}
+		final int att = slot(node, C);
+		final int attend = att + slot(node, D);
+		for (int i = att; i < attend; i++) {
+			final Attribute a = factory.attribute(string(attSlot(i, ATT_NAME)),
+					string(attSlot(i, ATT_VALUE)), attType(i),
+					namespaces[attSlot(i, ATT_NS)]);
+			if ((attSlot(i, ATT_TYPE) & 1) == 0) {
+				a.setSpecified(false);
+			}
+			factory.setAttribute(element, a);
+		}
+		return element;
+	}
+
+	@Override
+	public String toString() {
+		final CompactElement root = getRootElement();
+		return "[CompactDocument: " + nodecount + " nodes, " + getByteSize()
+				+ " bytes, root " + (root == null ? "none" : root.getQualifiedName())
+				+ "]";
+	}
+
+}
@@ -0,0 +1,595 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.Element;
+import org.jdom2.JDOMFactory;
+import org.jdom2.Namespace;
+
+import static org.jdom2.compact.CompactDocument.*;
+
+/**
+ * A read-only view of an Element in a {@link CompactDocument}. The methods
+ * behave like the {@link Element} methods of the same name, but the Lists
+ * they return are new, unmodifiable snapshots of views.
+ * <p>
+ * Name lookups compare string table indexes, not Strings, so looking for a
+ * name that does not appear anywhere in the document costs almost nothing.
+ * 
+ * @since JDOM2
+ */
+public final class CompactElement extends CompactNode {
+
+	/**
+	 * Create a view of an Element node.
+	 * 
+	 * @param document
+	 *        The document the node is in.
+	 * @param index
+	 *        The index of the node record.
+	 */
+	CompactElement(final CompactDocument document, final int index) {
+		super(document, index);
+	}
+
+	/**
+	 * The local name of the Element.
+	 * 
+	 * @return the name.
+	 */
+	public String getName() {
+		return document.string(document.slot(index, A));
+	}
+
+	/**
+	 * The Namespace of the Element.
+	 * 
+	 * @return the Namespace (never null).
+	 */
+	public Namespace getNamespace() {
+		return document.namespace(document.slot(index, B));
+	}
+
+	/**
+	 * The Namespace prefix of the Element.
+	 * 
+	 * @return the prefix, the empty String if there is none.
+	 */
+	public String getNamespacePrefix() {
+		return getNamespace().getPrefix();
+	}
+
+	/**
+	 * The Namespace URI of the Element.
+	 * 
+	 * @return the URI, the empty String if there is none.
+	 */
+	public String getNamespaceURI() {
+		return getNamespace().getURI();
+	}
+
+	/**
+	 * The name of the Element including the Namespace prefix, if any.
+	 * 
+	 * @return the qualified name.
+	 */
+	public String getQualifiedName() {
+		final String prefix = getNamespacePrefix();
+		if (prefix.length() == 0) {
+			return getName();
+		}
+		return prefix + ":" + getName();
+	}
+
+	/**
+	 * Is this the root Element of the document.
+	 * 
+	 * @return true if the parent of this Element is the document.
+	 */
+	public boolean isRootElement() {
+		return document.slot(index, PARENT) == 0;
+	}
+
+	/**
+	 * The Namespaces declared on this Element other than the Element's own
+	 * Namespace and the Namespaces of its Attributes.
+	 * 
+	 * @return an unmodifiable List of the additional Namespaces.
+	 */
+	public List<Namespace> getAdditionalNamespaces() {
+		final int cnt = document.declCount(index);
+		if (cnt == 0) {
+			return Collections.emptyList();
+		}
+		final int decl = document.slot(index, E);
+		final ArrayList<Namespace> ret = new ArrayList<Namespace>(cnt);
+		for (int i = 0; i < cnt; i++) {
+			ret.add(document.namespace(document.decl(decl + i)));
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * All the Namespaces in scope on this Element, in the same order as
+	 * {@link Element#getNamespacesInScope()}: the Element's Namespace first,
+	 * then the rest sorted by prefix.
+	 * 
+	 * @return an unmodifiable List of the Namespaces in scope.
+	 */
+	public List<Namespace> getNamespacesInScope() {
+		final TreeMap<String, Namespace> scope = new TreeMap<String, Namespace>();
+		scope.put(Namespace.XML_NAMESPACE.getPrefix(), Namespace.XML_NAMESPACE);
+		int node = index;
+		while (node > 0) {
+			addScope(scope, document.namespace(document.slot(node, B)));
+			final int decl = document.slot(node, E);
+			final int declend = decl + document.declCount(node);
+			for (int i = decl; i < declend; i++) {
+				addScope(scope, document.namespace(document.decl(i)));
+			}
+			final int att = document.slot(node, C);
+			final int attend = att + document.slot(node, D);
+			for (int i = att; i < attend; i++) {
+				addScope(scope, document.namespace(document.attSlot(i, ATT_NS)));
+			}
+			node = document.slot(node, PARENT);
+		}
+		addScope(scope, Namespace.NO_NAMESPACE);
+		final Namespace mine = getNamespace();
+		final ArrayList<Namespace> ret = new ArrayList<Namespace>(scope.size());
+		ret.add(mine);
+		scope.remove(mine.getPrefix());
+		ret.addAll(scope.values());
+		return Collections.unmodifiableList(ret);
+	}
+
+	private static final void addScope(final TreeMap<String, Namespace> scope,
+			final Namespace ns) {
+		if (!scope.containsKey(ns.getPrefix())) {
+			scope.put(ns.getPrefix(), ns);
+		}
+	}
+
+	/* ********************************************************************
+	 * Attributes
+	 * ******************************************************************** */
+
+	/**
+	 * Does this Element have Attributes.
+	 * 
+	 * @return true if there is at least one Attribute.
+	 */
+	public boolean hasAttributes() {
+		return document.slot(index, D) > 0;
+	}
+
+	/**
+	 * The number of Attributes on this Element.
+	 * 
+	 * @return the Attribute count.
+	 */
+	public int getAttributesSize() {
+		return document.slot(index, D);
+	}
+
+	/**
+	 * All the Attributes of this Element.
+	 * 
+	 * @return an unmodifiable List of the Attributes.
+	 */
+	public List<CompactAttribute> getAttributes() {
+		final int cnt = document.slot(index, D);
+		if (cnt == 0) {
+			return Collections.emptyList();
+		}
+		final int att = document.slot(index, C);
+		final ArrayList<CompactAttribute> ret = new ArrayList<CompactAttribute>(cnt);
+		for (int i = 0; i < cnt; i++) {
+			ret.add(new CompactAttribute(document, index, att + i));
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * Get an Attribute that is not in a Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the Attribute.
+	 * @return the Attribute, or null if there is no such Attribute.
+	 */
+	public CompactAttribute getAttribute(final String name) {
+		return getAttribute(name, Namespace.NO_NAMESPACE);
+	}
+
+	/**
+	 * Get an Attribute.
+	 * 
+	 * @param name
+	 *        The local name of the Attribute.
+	 * @param ns
+	 *        The Namespace of the Attribute (only the URI is compared).
+	 * @return the Attribute, or null if there is no such Attribute.
+	 */
+	public CompactAttribute getAttribute(final String name, final Namespace ns) {
+		final int att = findAttribute(name, ns);
+		return att < 0 ? null : new CompactAttribute(document, index, att);
+	}
+
+	/**
+	 * Get the value of an Attribute that is not in a Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the Attribute.
+	 * @return the value, or null if there is no such Attribute.
+	 */
+	public String getAttributeValue(final String name) {
+		return getAttributeValue(name, Namespace.NO_NAMESPACE, null);
+	}
+
+	/**
+	 * Get the value of an Attribute that is not in a Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the Attribute.
+	 * @param def
+	 *        The value to return if there is no such Attribute.
+	 * @return the value, or def if there is no such Attribute.
+	 */
+	public String getAttributeValue(final String name, final String def) {
+		return getAttributeValue(name, Namespace.NO_NAMESPACE, def);
+	}
+
+	/**
+	 * Get the value of an Attribute.
+	 * 
+	 * @param name
+	 *        The local name of the Attribute.
+	 * @param ns
+	 *        The Namespace of the Attribute (only the URI is compared).
+	 * @return the value, or null if there is no such Attribute.
+	 */
+	public String getAttributeValue(final String name, final Namespace ns) {
+		return getAttributeValue(name, ns, null);
+	}
+
+	/**
+	 * Get the value of an Attribute.
+	 * 
+	 * @param name
+	 *        The local name of the Attribute.
+	 * @param ns
+	 *        The Namespace of the Attribute (only the URI is compared).
+	 * @param def
+	 *        The value to return if there is no such Attribute.
+	 * @return the value, or def if there is no such Attribute.
+	 */
+	public String getAttributeValue(final String name, final Namespace ns,
+			final String def) {
+		final int att = findAttribute(name, ns);
+		return att < 0 ? def : document.string(document.attSlot(att, ATT_VALUE));
+	}
+
+	private final int findAttribute(final String name, final Namespace ns) {
+		final int cnt = document.slot(index, D);
+		if (cnt == 0) {
+			return -1;
+		}
+		final int nm = document.nameIndex(name);
+		if (nm < 0) {
+			return -1;
+		}
+		final String uri = ns == null ? "" : ns.getURI();
+		final int att = document.slot(index, C);
+		for (int i = att; i < att + cnt; i++) {
+			if (document.attSlot(i, ATT_NAME) == nm && uri.equals(
+					document.namespace(document.attSlot(i, ATT_NS)).getURI())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/* ********************************************************************
+	 * Content
+	 * ******************************************************************** */
+
+	/**
+	 * The number of child nodes (of all types) of this Element.
+	 * 
+	 * @return the content size.
+	 */
+	public int getContentSize() {
+		int cnt = 0;
+		for (int kid = document.slot(index, FIRST); kid >= 0;
+				kid = document.slot(kid, NEXT)) {
+			cnt++;
+		}
+		return cnt;
+	}
+
+	/**
+	 * All the child nodes of this Element.
+	 * 
+	 * @return an unmodifiable List of the content.
+	 */
+	public List<CompactNode> getContent() {
+		return Collections.unmodifiableList(document.children(index));
+	}
+
+	/**
+	 * All the child Elements of this Element.
+	 * 
+	 * @return an unmodifiable List of the child Elements.
+	 */
+	public List<CompactElement> getChildren() {
+		final ArrayList<CompactElement> ret = new ArrayList<CompactElement>();
+		for (int kid = document.slot(index, FIRST); kid >= 0;
+				kid = document.slot(kid, NEXT)) {
+			if (document.type(kid) == ELEMENT) {
+				ret.add(new CompactElement(document, kid));
+			}
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * The child Elements with a name and no Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the child Elements.
+	 * @return an unmodifiable List of the matching child Elements.
+	 */
+	public List<CompactElement> getChildren(final String name) {
+		return getChildren(name, Namespace.NO_NAMESPACE);
+	}
+
+	/**
+	 * The child Elements with a name and Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the child Elements.
+	 * @param ns
+	 *        The Namespace of the child Elements (only the URI is compared).
+	 * @return an unmodifiable List of the matching child Elements.
+	 */
+	public List<CompactElement> getChildren(final String name, final Namespace ns) {
+		final int nm = document.nameIndex(name);
+		if (nm < 0) {
+			return Collections.emptyList();
+		}
+		final String uri = ns == null ? "" : ns.getURI();
+		final ArrayList<CompactElement> ret = new ArrayList<CompactElement>();
+		for (int kid = document.slot(index, FIRST); kid >= 0;
+				kid = document.slot(kid, NEXT)) {
+			if (matches(kid, nm, uri)) {
+				ret.add(new CompactElement(document, kid));
+			}
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * The first child Element with a name and no Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the child Element.
+	 * @return the first matching child Element, or null if there is none.
+	 */
+	public CompactElement getChild(final String name) {
+		return getChild(name, Namespace.NO_NAMESPACE);
+	}
+
+	/**
+	 * The first child Element with a name and Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the child Element.
+	 * @param ns
+	 *        The Namespace of the child Element (only the URI is compared).
+	 * @return the first matching child Element, or null if there is none.
+	 */
+	public CompactElement getChild(final String name, final Namespace ns) {
+		final int kid = findChild(name, ns);
+		return kid < 0 ? null : new CompactElement(document, kid);
+	}
+
+	private final int findChild(final String name, final Namespace ns) {
+		final int nm = document.nameIndex(name);
+		if (nm < 0) {
+			return -1;
+		}
+		final String uri = ns == null ? "" : ns.getURI();
+		for (int kid = document.slot(index, FIRST); kid >= 0;
+				kid = document.slot(kid, NEXT)) {
+			if (matches(kid, nm, uri)) {
+				return kid;
+			}
+		}
+		return -1;
+	}
+
+	private final boolean matches(final int node, final int name, final String uri) {
+		return document.type(node) == ELEMENT
+				&& document.slot(node, A) == name
+				&& uri.equals(document.namespace(document.slot(node, B)).getURI());
+	}
+
+	/**
+	 * The text of this Element: the Text and CDATA children (not the
+	 * descendants) joined together.
+	 * 
+	 * @return the text, the empty String if there is none.
+	 */
+	public String getText() {
+		String first = null;
+		StringBuilder sb = null;
+		for (int kid = document.slot(index, FIRST); kid >= 0;
+				kid = document.slot(kid, NEXT)) {
+			final int type = document.type(kid);
+			if (type == TEXT || type == CDATA) {
+				final String s = document.string(document.slot(kid, A));
+				if (first == null) {
+					first = s;
+				} else {
+					if (sb == null) {
+						sb = new StringBuilder(first);
+					}
+					sb.append(s);
+				}
+			}
+		}
+		if (sb != null) {
+			return sb.toString();
+		}
+		return first == null ? "" : first;
+	}
+
+	/**
+	 * The text of this Element with whitespace removed from both ends.
+	 * 
+	 * @return the trimmed text.
+	 */
+	public String getTextTrim() {
+		return getText().trim();
+	}
+
+	/**
+	 * The text of a child Element that is not in a Namespace.
+	 * 
+	 * @param name
+	 *        The local name of the child Element.
+	 * @return the text of the first matching child, or null if there is none.
+	 */
+	public String getChildText(final String name) {
+		return getChildText(name, Namespace.NO_NAMESPACE);
+	}
+
+	/**
+	 * The text of a child Element.
+	 * 
+	 * @param name
+	 *        The local name of the child Element.
+	 * @param ns
+	 *        The Namespace of the child Element (only the URI is compared).
+	 * @return the text of the first matching child, or null if there is none.
+	 */
+	public String getChildText(final String name, final Namespace ns) {
+		final int kid = findChild(name, ns);
+		return kid < 0 ? null : new CompactElement(document, kid).getText();
+	}
+
+	/**
+	 * All the descendant text of this Element. Because descendants are
+	 * stored directly after their Element this is a simple scan.
+	 * 
+	 * @return the XPath string value of this Element.
+	 */
+	@Override
+	public String getValue() {
+		final StringBuilder sb = new StringBuilder();
+		final int end = document.slot(index, END);
+		for (int i = index + 1; i < end; i++) {
+			final int type = document.type(i);
+			if (type == TEXT || type == CDATA) {
+				sb.append(document.string(document.slot(i, A)));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Create a real (detached) JDOM Element with the same data as this
+	 * Element, including all its descendants.
+	 * 
+	 * @return the new Element.
+	 */
+	public Element toElement() {
+		return document.element(new DefaultJDOMFactory(), index);
+	}
+
+	/**
+	 * Create a real (detached) JDOM Element with the same data as this
+	 * Element, including all its descendants.
+	 * 
+	 * @param factory
+	 *        The factory to create the content with.
+	 * @return the new Element.
+	 */
+	public Element toElement(final JDOMFactory factory) {
+		return document.element(factory, index);
+	}
+
+	@Override
+	public Element toContent() {
+		return toElement();
+	}
+
+	@Override
+	public Element toContent(final JDOMFactory factory) {
+		return toElement(factory);
+	}
+
+	@Override
+	public String toString() {
+		return "[CompactElement: <" + getQualifiedName() + "/>]";
+	}
+
+}
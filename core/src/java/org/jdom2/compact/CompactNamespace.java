@@ -0,0 +1,124 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import org.jdom2.Namespace;
+
+/**
+ * An XPath namespace node: a Namespace that is in scope on a
+ * {@link CompactElement}. These are only created by {@link CompactXPath}
+ * for the namespace:: axis.
+ * 
+ * @since JDOM2
+ */
+public final class CompactNamespace {
+
+	private final CompactElement element;
+	private final Namespace namespace;
+
+	/**
+	 * Create a namespace node.
+	 * 
+	 * @param element
+	 *        The Element the Namespace is in scope on.
+	 * @param namespace
+	 *        The Namespace.
+	 */
+	CompactNamespace(final CompactElement element, final Namespace namespace) {
+		this.element = element;
+		this.namespace = namespace;
+	}
+
+	/**
+	 * The Namespace.
+	 * 
+	 * @return the Namespace.
+	 */
+	public Namespace getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * The Element the Namespace is in scope on.
+	 * 
+	 * @return the Element.
+	 */
+	public CompactElement getParentElement() {
+		return element;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj instanceof CompactNamespace) {
+			final CompactNamespace o = (CompactNamespace)obj;
+			return o.element.equals(element) && o.namespace == namespace;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return element.hashCode() ^ namespace.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return namespace.getPrefix() + "=" + namespace.getURI();
+	}
+
+}
@@ -0,0 +1,423 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jaxen.DefaultNavigator;
+import org.jaxen.FunctionCallException;
+import org.jaxen.JaxenConstants;
+import org.jaxen.JaxenException;
+import org.jaxen.UnsupportedAxisException;
+import org.jaxen.XPath;
+import org.jaxen.saxpath.SAXPathException;
+import org.jaxen.util.SingleObjectIterator;
+
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.input.SAXBuilder;
+
+import static org.jdom2.compact.CompactDocument.*;
+
+/**
+ * The Jaxen navigator for {@link CompactXPath}, modelled on the JDOM core
+ * navigator.
+ * <p>
+ * Jaxen removes duplicate nodes by identity, but the compact views are
+ * created on demand. The navigator keeps every view it hands out in a small
+ * open-addressing table keyed on the node index, so the same node is always
+ * the same instance until {@link #reset()} is called.
+ * 
+ * @since JDOM2
+ */
+final class CompactNavigator extends DefaultNavigator {
+
+	/**
+	 * Standard JDOM2 Serialization. Default mechanism.
+	 */
+	private static final long serialVersionUID = 200L;
+
+	private transient CompactDocument current = null;
+	private transient int[] keys = null;
+	private transient CompactNode[] views = null;
+	private transient int viewcount = 0;
+
+	/**
+	 * Release all the views handed out so far.
+	 */
+	void reset() {
+		current = null;
+		keys = null;
+		views = null;
+		viewcount = 0;
+	}
+
+	/**
+	 * The single view of a node.
+	 * 
+	 * @param doc
+	 *        The document the node is in.
+	 * @param node
+	 *        The node index.
+	 * @return the view (the document itself for node 0).
+	 */
+	private final Object view(final CompactDocument doc, final int node) {
+		if (node == 0) {
+			return doc;
+		}
+		if (current != doc) {
+			if (current != null) {
+				// a different document (through the document() function):
+				// do not mix the views.
+				return doc.node(node);
+			}
+			current = doc;
+			keys = new int[64];
+			views = new CompactNode[64];
+		}
+		int mask = keys.length - 1;
+		int slot = (node * 0x9E3779B9) >>> 7 & mask;
+		while (views[slot] != null) {
+			if (keys[slot] == node) {
+				return views[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		final CompactNode ret = doc.node(node);
+		if (++viewcount * 2 > keys.length) {
+			final int[] ok = keys;
+			final CompactNode[] ov = views;
+			keys = new int[ok.length * 2];
+			views = new CompactNode[ok.length * 2];
+			mask = keys.length - 1;
+			for (int i = 0; i < ok.length; i++) {
+				if (ov[i] != null) {
+					int s = (ok[i] * 0x9E3779B9) >>> 7 & mask;
+					while (views[s] != null) {
+						s = (s + 1) & mask;
+					}
+					keys[s] = ok[i];
+					views[s] = ov[i];
+				}
+			}
+			slot = (node * 0x9E3779B9) >>> 7 & mask;
+			while (views[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+		}
+		keys[slot] = node;
+		views[slot] = ret;
+		return ret;
+	}
+
+	/**
+	 * Iterates the views of the siblings starting at a node.
+	 */
+	private final class SiblingIterator implements Iterator<Object> {
+		private final CompactDocument doc;
+		private int next;
+
+		SiblingIterator(final CompactDocument doc, final int first) {
+			this.doc = doc;
+			this.next = first;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public Object next() {
+			if (next < 0) {
+				throw new NoSuchElementException();
+			}
+			final int ret = next;
+			next = doc.slot(ret, NEXT);
+			return view(doc, ret);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static final int type(final Object node) {
+		if (node instanceof CompactNode) {
+			final CompactNode cn = (CompactNode)node;
+			return cn.document.type(cn.index);
+		}
+		return -1;
+	}
+
+	private static final CompactNode node(final Object node) {
+		return (CompactNode)node;
+	}
+
+	@Override
+	public XPath parseXPath(final String path) throws SAXPathException {
+		try {
+			return new CompactXPath(path, this);
+		} catch (JaxenException e) {
+			throw new SAXPathException(e);
+		}
+	}
+
+	@Override
+	public Object getDocument(final String url) throws FunctionCallException {
+		try {
+			return CompactDocument.build(new SAXBuilder().build(url));
+		} catch (JDOMException e) {
+			throw new FunctionCallException("Failed to parse " + url, e);
+		} catch (IOException e) {
+			throw new FunctionCallException("Failed to access " + url, e);
+		}
+	}
+
+	@Override
+	public boolean isText(final Object isit) {
+		final int type = type(isit);
+		return type == TEXT || type == CDATA;
+	}
+
+	@Override
+	public boolean isProcessingInstruction(final Object isit) {
+		return type(isit) == PI;
+	}
+
+	@Override
+	public boolean isNamespace(final Object isit) {
+		return isit instanceof CompactNamespace;
+	}
+
+	@Override
+	public boolean isElement(final Object isit) {
+		return isit instanceof CompactElement;
+	}
+
+	@Override
+	public boolean isDocument(final Object isit) {
+		return isit instanceof CompactDocument;
+	}
+
+	@Override
+	public boolean isComment(final Object isit) {
+		return type(isit) == COMMENT;
+	}
+
+	@Override
+	public boolean isAttribute(final Object isit) {
+		return isit instanceof CompactAttribute;
+	}
+
+	@Override
+	public String getTextStringValue(final Object text) {
+		return node(text).getValue();
+	}
+
+	@Override
+	public String getNamespaceStringValue(final Object namespace) {
+		return ((CompactNamespace)namespace).getNamespace().getURI();
+	}
+
+	@Override
+	public String getNamespacePrefix(final Object namespace) {
+		return ((CompactNamespace)namespace).getNamespace().getPrefix();
+	}
+
+	@Override
+	public String getElementStringValue(final Object element) {
+		return ((CompactElement)element).getValue();
+	}
+
+	@Override
+	public String getElementQName(final Object element) {
+		return ((CompactElement)element).getQualifiedName();
+	}
+
+	@Override
+	public String getElementNamespaceUri(final Object element) {
+		return ((CompactElement)element).getNamespaceURI();
+	}
+
+	@Override
+	public String getElementName(final Object element) {
+		return ((CompactElement)element).getName();
+	}
+
+	@Override
+	public String getCommentStringValue(final Object comment) {
+		return node(comment).getValue();
+	}
+
+	@Override
+	public String getAttributeStringValue(final Object attribute) {
+		return ((CompactAttribute)attribute).getValue();
+	}
+
+	@Override
+	public String getAttributeQName(final Object attribute) {
+		return ((CompactAttribute)attribute).getQualifiedName();
+	}
+
+	@Override
+	public String getAttributeNamespaceUri(final Object attribute) {
+		return ((CompactAttribute)attribute).getNamespaceURI();
+	}
+
+	@Override
+	public String getAttributeName(final Object attribute) {
+		return ((CompactAttribute)attribute).getName();
+	}
+
+	@Override
+	public String getProcessingInstructionTarget(final Object pi) {
+		final CompactNode cn = node(pi);
+		return cn.document.string(cn.document.slot(cn.index, A));
+	}
+
+	@Override
+	public String getProcessingInstructionData(final Object pi) {
+		return node(pi).getValue();
+	}
+
+	@Override
+	public Object getDocumentNode(final Object contextNode) {
+		if (contextNode instanceof CompactDocument) {
+			return contextNode;
+		}
+		if (contextNode instanceof CompactNamespace) {
+			return ((CompactNamespace)contextNode).getParentElement().getDocument();
+		}
+		if (contextNode instanceof CompactAttribute) {
+			return ((CompactAttribute)contextNode).getDocument();
+		}
+		return node(contextNode).getDocument();
+	}
+
+	@Override
+	public Object getParentNode(final Object contextNode) throws UnsupportedAxisException {
+		if (contextNode instanceof CompactNode) {
+			final CompactNode cn = node(contextNode);
+			return view(cn.document, cn.document.slot(cn.index, PARENT));
+		}
+		if (contextNode instanceof CompactAttribute) {
+			final CompactElement pnt = ((CompactAttribute)contextNode).getParent();
+			return view(pnt.document, pnt.index);
+		}
+		if (contextNode instanceof CompactNamespace) {
+			final CompactElement pnt = ((CompactNamespace)contextNode).getParentElement();
+			return view(pnt.document, pnt.index);
+		}
+		return null;
+	}
+
+	@Override
+	public Iterator<?> getParentAxisIterator(final Object contextNode) throws UnsupportedAxisException {
+		final Object pnt = getParentNode(contextNode);
+		if (pnt != null) {
+			return new SingleObjectIterator(pnt);
+		}
+		return JaxenConstants.EMPTY_ITERATOR;
+	}
+
+	@Override
+	public Iterator<?> getChildAxisIterator(final Object contextNode) throws UnsupportedAxisException {
+		if (contextNode instanceof CompactDocument) {
+			final CompactDocument doc = (CompactDocument)contextNode;
+			return new SiblingIterator(doc, doc.slot(0, FIRST));
+		}
+		if (contextNode instanceof CompactElement) {
+			final CompactElement emt = (CompactElement)contextNode;
+			return new SiblingIterator(emt.document, emt.document.slot(emt.index, FIRST));
+		}
+		return JaxenConstants.EMPTY_ITERATOR;
+	}
+
+	@Override
+	public Iterator<?> getAttributeAxisIterator(final Object contextNode) throws UnsupportedAxisException {
+		if (contextNode instanceof CompactElement) {
+			return ((CompactElement)contextNode).getAttributes().iterator();
+		}
+		return JaxenConstants.EMPTY_ITERATOR;
+	}
+
+	@Override
+	public Iterator<?> getNamespaceAxisIterator(final Object contextNode) throws UnsupportedAxisException {
+		// The namespace axis applies to Elements only in XPath.
+		if (!(contextNode instanceof CompactElement)) {
+			return JaxenConstants.EMPTY_ITERATOR;
+		}
+		final CompactElement emt = (CompactElement)contextNode;
+		final List<Namespace> scope = emt.getNamespacesInScope();
+		final CompactNamespace[] ret = new CompactNamespace[scope.size()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = new CompactNamespace(emt, scope.get(i));
+		}
+		return Arrays.asList(ret).iterator();
+	}
+
+	private void readObject(final java.io.ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		reset();
+	}
+
+}
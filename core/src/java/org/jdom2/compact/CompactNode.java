@@ -0,0 +1,195 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import org.jdom2.Content;
+import org.jdom2.Content.CType;
+import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.JDOMFactory;
+
+import static org.jdom2.compact.CompactDocument.*;
+
+/**
+ * A read-only view of a node in a {@link CompactDocument}. Elements are
+ * represented by the {@link CompactElement} subclass, all other content
+ * (Text, CDATA, Comment, ProcessingInstruction, EntityRef and DocType) by
+ * CompactNode itself.
+ * <p>
+ * Views are created on demand, so two views of the same node are not
+ * the same instance, but they are {@link #equals(Object) equal}.
+ * 
+ * @since JDOM2
+ */
+public class CompactNode {
+
+	private static final CType[] CTYPES = {null, CType.Element, CType.Text,
+		CType.CDATA, CType.Comment, CType.ProcessingInstruction,
+		CType.EntityRef, CType.DocType};
+
+	/** The document the node is in */
+	final CompactDocument document;
+	/** The index of the node record */
+	final int index;
+
+	/**
+	 * Create a view of a node.
+	 * 
+	 * @param document
+	 *        The document the node is in.
+	 * @param index
+	 *        The index of the node record.
+	 */
+	CompactNode(final CompactDocument document, final int index) {
+		this.document = document;
+		this.index = index;
+	}
+
+	/**
+	 * The document this node is in.
+	 * 
+	 * @return the CompactDocument.
+	 */
+	public final CompactDocument getDocument() {
+		return document;
+	}
+
+	/**
+	 * The type of JDOM content this node represents.
+	 * 
+	 * @return the content type.
+	 */
+	public final CType getCType() {
+		return CTYPES[document.type(index)];
+	}
+
+	/**
+	 * The Element containing this node.
+	 * 
+	 * @return the parent Element, or null if this node is at the top level
+	 *         of the document.
+	 */
+	public final CompactElement getParentElement() {
+		final int parent = document.slot(index, PARENT);
+		return parent > 0 ? new CompactElement(document, parent) : null;
+	}
+
+	/**
+	 * The XPath 1.0 string value of this node, which is the same as
+	 * {@link Content#getValue()}: the text of Text and CDATA, the text of a
+	 * Comment, the data of a ProcessingInstruction, all the descendant text
+	 * of an Element, and the empty String for an EntityRef and a DocType.
+	 * 
+	 * @return the value.
+	 */
+	public String getValue() {
+		switch (document.type(index)) {
+			case TEXT:
+			case CDATA:
+			case COMMENT:
+				return document.string(document.slot(index, A));
+			case PI: {
+				final String data = document.string(document.slot(index, B));
+				return data == null ? "" : data;
+			}
+			default:
+				return "";
+		}
+	}
+
+	/**
+	 * Create real (detached) JDOM content with the same data as this node,
+	 * including all descendants if this is an Element.
+	 * 
+	 * @return the new content.
+	 */
+	public Content toContent() {
+		return document.content(new DefaultJDOMFactory(), index);
+	}
+
+	/**
+	 * Create real (detached) JDOM content with the same data as this node,
+	 * including all descendants if this is an Element.
+	 * 
+	 * @param factory
+	 *        The factory to create the content with.
+	 * @return the new content.
+	 */
+	public Content toContent(final JDOMFactory factory) {
+		return document.content(factory, index);
+	}
+
+	@Override
+	public final boolean equals(final Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj instanceof CompactNode) {
+			final CompactNode o = (CompactNode)obj;
+			return o.index == index && o.document == document;
+		}
+		return false;
+	}
+
+	@Override
+	public final int hashCode() {
+		return document.hashCode() * 31 + index;
+	}
+
+	@Override
+	public String toString() {
+		return "[Compact" + getCType() + ": " + getValue() + "]";
+	}
+
+}
@@ -0,0 +1,560 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.jdom2.Attribute;
+import org.jdom2.Content;
+import org.jdom2.DocType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.EntityRef;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.internal.ArrayCopy;
+
+import static org.jdom2.compact.CompactDocument.*;
+
+/**
+ * Flattens a JDOM Document in to the records of the compact format described
+ * in {@link CompactDocument}.
+ * <p>
+ * The tree is walked twice. The first walk collects all the names (Element,
+ * Attribute, Processing Instruction target, Namespace prefix and URI) so that
+ * they get the lowest string indexes, and the second walk creates the node,
+ * attribute and namespace declaration records. Strings are only stored once,
+ * no matter how often they are used.
+ * 
+ * @since JDOM2
+ */
+final class CompactWriter {
+
+	private final HashMap<String, Integer> stringindex =
+			new HashMap<String, Integer>();
+	private final ArrayList<String> strings = new ArrayList<String>();
+	/* Namespace.equals() only compares the URI, but Namespaces are unique */
+	private final IdentityHashMap<Namespace, Integer> nsindex =
+			new IdentityHashMap<Namespace, Integer>();
+	private final ArrayList<Namespace> namespaces = new ArrayList<Namespace>();
+	private final int namecount;
+
+	private int[] nodes = new int[NODE_INTS * 64];
+	private int nodecount = 0;
+	private int[] atts = new int[ATT_INTS * 16];
+	private int attcount = 0;
+	private int[] decls = new int[16];
+	private int declcount = 0;
+
+	/**
+	 * Flatten a Document.
+	 * 
+	 * @param doc
+	 *        The Document to flatten.
+	 */
+	CompactWriter(final Document doc) {
+		namespace(Namespace.NO_NAMESPACE);
+		final List<Content> content = doc.getContent();
+		names(content);
+		namecount = strings.size();
+
+		final int me = node(DOCUMENT, -1);
+		nodes[me * NODE_INTS + A] = string(doc.getBaseURI());
+		children(me, content);
+	}
+
+	private final int string(final String value) {
+		if (value == null) {
+			return -1;
+		}
+		final Integer idx = stringindex.get(value);
+		if (idx != null) {
+			return idx.intValue();
+		}
+		final int ret = strings.size();
+		strings.add(value);
+		stringindex.put(value, Integer.valueOf(ret));
+		return ret;
+	}
+
+	private final int namespace(final Namespace ns) {
+		final Integer idx = nsindex.get(ns);
+		if (idx != null) {
+			return idx.intValue();
+		}
+		string(ns.getPrefix());
+		string(ns.getURI());
+		final int ret = namespaces.size();
+		namespaces.add(ns);
+		nsindex.put(ns, Integer.valueOf(ret));
+		return ret;
+	}
+
+	/**
+	 * Collect the names of some content and all its descendants, in
+	 * document order. The walk does not recurse, so deep Documents are no
+	 * problem.
+	 */
+	private final void names(final List<Content> top) {
+		final ArrayList<Content> pending = new ArrayList<Content>();
+		for (int i = top.size() - 1; i >= 0; i--) {
+			pending.add(top.get(i));
+		}
+		while (!pending.isEmpty()) {
+			final Content content = pending.remove(pending.size() - 1);
+			switch (content.getCType()) {
+				case Element: {
+					final Element element = (Element)content;
+					string(element.getName());
+					namespace(element.getNamespace());
+					if (element.hasAdditionalNamespaces()) {
+						for (final Namespace ns : element.getAdditionalNamespaces()) {
+							namespace(ns);
+						}
+					}
+					if (element.hasAttributes()) {
+						for (final Attribute att : element.getAttributes()) {
+							string(att.getName());
+							namespace(att.getNamespace());
+						}
+					}
+					// the last child is pushed first, to be done last.
+					final List<Content> kids = element.getContent();
+					for (int i = kids.size() - 1; i >= 0; i--) {
+						pending.add(kids.get(i));
+					}
+					break;
+				}
+				case ProcessingInstruction:
+					string(((ProcessingInstruction)content).getTarget());
+					break;
+				case EntityRef:
+					string(((EntityRef)content).getName());
+					break;
+				case DocType:
+					string(((DocType)content).getElementName());
+					break;
+				default:
+					// Text, CDATA and Comment have no names.
+					break;
+			}
+		}
+	}
+
+	private final int node(final int type, final int parent) {
+		if (nodecount == Integer.MAX_VALUE / (NODE_INTS * 4)) {
+			throw new IllegalStateException(
+					"The Document has too many nodes for the compact format");
+		}
+		final int me = nodecount++;
+		final int pos = me * NODE_INTS;
+		if (pos + NODE_INTS > nodes.length) {
+			nodes = ArrayCopy.copyOf(nodes, nodes.length * 2);
+		}
+		nodes[pos + TYPE] = type;
+		nodes[pos + PARENT] = parent;
+		nodes[pos + NEXT] = -1;
+		nodes[pos + FIRST] = -1;
+		nodes[pos + END] = nodecount;
+		for (int i = A; i < NODE_INTS; i++) {
+			nodes[pos + i] = -1;
+		}
+		return me;
+	}
+
+	/**
+	 * Create the records of some content and all its descendants, in
+	 * document order. The walk does not recurse: each open Element has its
+	 * content on the stack, and its node, the index of its next child and
+	 * its last child node in <code>open</code>.
+	 */
+	private final void children(final int parent, final List<Content> top) {
+		final ArrayList<List<Content>> stack = new ArrayList<List<Content>>();
+		int[] open = new int[3 * 16];
+		stack.add(top);
+		open[0] = parent;
+		open[1] = 0;
+		open[2] = -1;
+		while (!stack.isEmpty()) {
+			final int depth = stack.size() - 1;
+			final int o = depth * 3;
+			final List<Content> content = stack.get(depth);
+			if (open[o + 1] == content.size()) {
+				// all the content is done.
+				nodes[open[o] * NODE_INTS + END] = nodecount;
+				stack.remove(depth);
+				continue;
+			}
+			final Content c = content.get(open[o + 1]++);
+			final int kid = content(open[o], c);
+			if (open[o + 2] < 0) {
+				nodes[open[o] * NODE_INTS + FIRST] = kid;
+			} else {
+				nodes[open[o + 2] * NODE_INTS + NEXT] = kid;
+			}
+			open[o + 2] = kid;
+			if (c instanceof Element) {
+				if (o + 6 > open.length) {
+					open = ArrayCopy.copyOf(open, open.length * 2);
+				}
+				stack.add(((Element)c).getContent());
+				open[o + 3] = kid;
+				open[o + 4] = 0;
+				open[o + 5] = -1;
+			}
+		}
+	}
+
+	private final int content(final int parent, final Content content) {
+		switch (content.getCType()) {
+			case Element:
+				return element(parent, (Element)content);
+			case Text: {
+				final int me = node(TEXT, parent);
+				nodes[me * NODE_INTS + A] = string(content.getValue());
+				return me;
+			}
+			case CDATA: {
+				final int me = node(CDATA, parent);
+				nodes[me * NODE_INTS + A] = string(content.getValue());
+				return me;
+			}
+			case Comment: {
+				final int me = node(COMMENT, parent);
+				nodes[me * NODE_INTS + A] = string(content.getValue());
+				return me;
+			}
+			case ProcessingInstruction: {
+				final ProcessingInstruction pi = (ProcessingInstruction)content;
+				final int me = node(PI, parent);
+				nodes[me * NODE_INTS + A] = string(pi.getTarget());
+				nodes[me * NODE_INTS + B] = string(pi.getData());
+				return me;
+			}
+			case EntityRef: {
+				final EntityRef er = (EntityRef)content;
+				final int me = node(ENTITYREF, parent);
+				nodes[me * NODE_INTS + A] = string(er.getName());
+				nodes[me * NODE_INTS + B] = string(er.getPublicID());
+				nodes[me * NODE_INTS + C] = string(er.getSystemID());
+				return me;
+			}
+			case DocType: {
+				final DocType dt = (DocType)content;
+				final int me = node(DOCTYPE, parent);
+				nodes[me * NODE_INTS + A] = string(dt.getElementName());
+				nodes[me * NODE_INTS + B] = string(dt.getPublicID());
+				nodes[me * NODE_INTS + C] = string(dt.getSystemID());
+				nodes[me * NODE_INTS + D] = string(dt.getInternalSubset());
+				return me;
+			}
+		}
+		throw new IllegalStateException("Unknown content " + content);
+	}
+
+	/**
+	 * Create the record of an Element, and of its Attributes and Namespace
+	 * declarations, but not of its content.
+	 */
+	private final int element(final int parent, final Element element) {
+		final int me = node(ELEMENT, parent);
+		final int pos = me * NODE_INTS;
+		nodes[pos + A] = string(element.getName());
+		nodes[pos + B] = namespace(element.getNamespace());
+		nodes[pos + C] = attcount;
+		nodes[pos + E] = declcount;
+		if (element.hasAttributes()) {
+			final List<Attribute> list = element.getAttributes();
+			for (int i = 0; i < list.size(); i++) {
+				final Attribute att = list.get(i);
+				if ((attcount + 1) * ATT_INTS > atts.length) {
+					atts = ArrayCopy.copyOf(atts, atts.length * 2);
+				}
+				final int apos = attcount++ * ATT_INTS;
+				atts[apos + ATT_NAME] = string(att.getName());
+				atts[apos + ATT_NS] = namespace(att.getNamespace());
+				atts[apos + ATT_VALUE] = string(att.getValue());
+				atts[apos + ATT_TYPE] = (att.getAttributeType().ordinal() << 1)
+						| (att.isSpecified() ? 1 : 0);
+			}
+		}
+		nodes[pos + D] = attcount - nodes[pos + C];
+		if (element.hasAdditionalNamespaces()) {
+			final List<Namespace> list = element.getAdditionalNamespaces();
+			for (int i = 0; i < list.size(); i++) {
+				if (declcount == decls.length) {
+					decls = ArrayCopy.copyOf(decls, decls.length * 2);
+				}
+				decls[declcount++] = namespace(list.get(i));
+			}
+			nodes[pos + TYPE] |= (declcount - nodes[pos + E]) << TYPE_BITS;
+		}
+		return me;
+	}
+
+	/**
+	 * The number of bytes a String takes in the string table. Unpaired
+	 * surrogates are stored as '?', the same as String.getBytes("UTF-8").
+	 * 
+	 * @param value
+	 *        The String to measure.
+	 * @return the number of UTF-8 bytes.
+	 */
+	private static final int utf8Length(final String value) {
+		final int len = value.length();
+		int ret = len;
+		for (int i = 0; i < len; i++) {
+			final char ch = value.charAt(i);
+			if (ch < 0x80) {
+				continue;
+			}
+			if (ch < 0x800) {
+				ret += 1;
+			} else if (Character.isHighSurrogate(ch) && i + 1 < len
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				// 4 bytes for two chars.
+				ret += 2;
+				i++;
+			} else if (!Character.isHighSurrogate(ch) && !Character.isLowSurrogate(ch)) {
+				ret += 2;
+			}
+		}
+		return ret;
+	}
+
+	private static final int utf8Encode(final String value, final byte[] buf) {
+		final int len = value.length();
+		int b = 0;
+		for (int i = 0; i < len; i++) {
+			final char ch = value.charAt(i);
+			if (ch < 0x80) {
+				buf[b++] = (byte)ch;
+			} else if (ch < 0x800) {
+				buf[b++] = (byte)(0xC0 | (ch >> 6));
+				buf[b++] = (byte)(0x80 | (ch & 0x3F));
+			} else if (Character.isHighSurrogate(ch) && i + 1 < len
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				final int cp = Character.toCodePoint(ch, value.charAt(++i));
+				buf[b++] = (byte)(0xF0 | (cp >> 18));
+				buf[b++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+				buf[b++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+				buf[b++] = (byte)(0x80 | (cp & 0x3F));
+			} else if (Character.isHighSurrogate(ch) || Character.isLowSurrogate(ch)) {
+				buf[b++] = (byte)'?';
+			} else {
+				buf[b++] = (byte)(0xE0 | (ch >> 12));
+				buf[b++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+				buf[b++] = (byte)(0x80 | (ch & 0x3F));
+			}
+		}
+		return b;
+	}
+
+	/**
+	 * Calculate where each String starts in the string table.
+	 * 
+	 * @return the offset of each String, and the total size as the last
+	 *         member.
+	 */
+	private final int[] offsets() {
+		final int[] offsets = new int[strings.size() + 1];
+		long pos = 0;
+		for (int i = 0; i < strings.size(); i++) {
+			offsets[i] = (int)pos;
+			pos += utf8Length(strings.get(i));
+			if (pos > Integer.MAX_VALUE) {
+				throw new IllegalStateException(
+						"The Document has too much text for the compact format");
+			}
+		}
+		offsets[strings.size()] = (int)pos;
+		return offsets;
+	}
+
+	/**
+	 * The number of bytes in the compact form of the Document.
+	 * 
+	 * @param offsets
+	 *        The string offsets.
+	 * @return the total size.
+	 */
+	private final long size(final int[] offsets) {
+		return HEADER_INTS * 4L + offsets.length * 4L
+				+ namespaces.size() * 8L + nodecount * NODE_INTS * 4L
+				+ attcount * ATT_INTS * 4L + declcount * 4L
+				+ offsets[offsets.length - 1];
+	}
+
+	/**
+	 * Build the compact form in memory.
+	 * 
+	 * @return the bytes of the compact form.
+	 */
+	byte[] toByteArray() {
+		final int[] offsets = offsets();
+		final long size = size(offsets);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException(
+					"The Document is too big for the compact format");
+		}
+		final SizedOutputStream baos = new SizedOutputStream((int)size);
+		try {
+			write(baos, offsets);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to write to memory", e);
+		}
+		return baos.getBytes();
+	}
+
+	/**
+	 * Write the compact form to a stream. The stream is flushed but not
+	 * closed.
+	 * 
+	 * @param out
+	 *        The stream to write to.
+	 * @throws IOException
+	 *         if the stream fails.
+	 */
+	void write(final OutputStream out) throws IOException {
+		final int[] offsets = offsets();
+		if (size(offsets) > Integer.MAX_VALUE) {
+			throw new IllegalStateException(
+					"The Document is too big for the compact format");
+		}
+		write(out, offsets);
+	}
+
+	private final void write(final OutputStream out, final int[] offsets)
+			throws IOException {
+		final DataOutputStream dos = new DataOutputStream(
+				new BufferedOutputStream(out, 8192));
+		dos.writeInt(MAGIC);
+		dos.writeInt(VERSION);
+		dos.writeInt(strings.size());
+		dos.writeInt(namecount);
+		dos.writeInt(namespaces.size());
+		dos.writeInt(nodecount);
+		dos.writeInt(attcount);
+		dos.writeInt(declcount);
+		for (int i = 0; i < offsets.length; i++) {
+			dos.writeInt(offsets[i]);
+		}
+		for (final Namespace ns : namespaces) {
+			dos.writeInt(stringindex.get(ns.getPrefix()).intValue());
+			dos.writeInt(stringindex.get(ns.getURI()).intValue());
+		}
+		final int nlen = nodecount * NODE_INTS;
+		for (int i = 0; i < nlen; i++) {
+			dos.writeInt(nodes[i]);
+		}
+		final int alen = attcount * ATT_INTS;
+		for (int i = 0; i < alen; i++) {
+			dos.writeInt(atts[i]);
+		}
+		for (int i = 0; i < declcount; i++) {
+			dos.writeInt(decls[i]);
+		}
+		byte[] buf = new byte[1024];
+		for (int i = 0; i < strings.size(); i++) {
+			final String s = strings.get(i);
+			final int need = offsets[i + 1] - offsets[i];
+			if (need > buf.length) {
+				buf = new byte[need];
+			}
+			dos.write(buf, 0, utf8Encode(s, buf));
+		}
+		dos.flush();
+	}
+
+	/**
+	 * A ByteArrayOutputStream that can hand over its buffer when it is
+	 * exactly full, instead of copying it.
+	 */
+	private static final class SizedOutputStream extends OutputStream {
+		private final byte[] buf;
+		private int pos = 0;
+
+		SizedOutputStream(final int size) {
+			buf = new byte[size];
+		}
+
+		@Override
+		public void write(final int b) {
+			buf[pos++] = (byte)b;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			System.arraycopy(b, off, buf, pos, len);
+			pos += len;
+		}
+
+		byte[] getBytes() {
+			if (pos != buf.length) {
+				throw new IllegalStateException("Expected " + buf.length
+						+ " bytes but wrote " + pos);
+			}
+			return buf;
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.compact;
+
+import org.jaxen.BaseXPath;
+import org.jaxen.Context;
+import org.jaxen.JaxenException;
+
+/**
+ * A Jaxen XPath expression that can be evaluated against a
+ * {@link CompactDocument}. The context can be the CompactDocument itself, a
+ * {@link CompactNode} or a {@link CompactElement}, and the nodes in the
+ * results are CompactDocument, CompactNode, CompactElement,
+ * {@link CompactAttribute} and {@link CompactNamespace} instances.
+ * <p>
+ * For example:
+ * <pre>
+ *   CompactDocument doc = CompactDocument.map(file);
+ *   CompactXPath xp = new CompactXPath("//record[@id = '42']/title");
+ *   List&lt;?&gt; titles = xp.selectNodes(doc);
+ * </pre>
+ * Namespace prefixes, variables and functions are set up the same way as
+ * for any other Jaxen {@link BaseXPath}.
+ * <p>
+ * Jaxen compares nodes by identity, so while an expression is evaluated
+ * each node is represented by a single view instance. Those instances are
+ * released at the start of the next evaluation. As with other Jaxen
+ * expressions, a CompactXPath should not be evaluated by multiple threads
+ * at the same time.
+ * 
+ * @since JDOM2
+ */
+public final class CompactXPath extends BaseXPath {
+
+	/**
+	 * Standard JDOM2 Serialization. Default mechanism.
+	 */
+	private static final long serialVersionUID = 200L;
+
+	/**
+	 * Compile an XPath expression.
+	 * 
+	 * @param xpathExpr
+	 *        The XPath expression.
+	 * @throws JaxenException
+	 *         if the expression is not valid.
+	 */
+	public CompactXPath(final String xpathExpr) throws JaxenException {
+		this(xpathExpr, new CompactNavigator());
+	}
+
+	/**
+	 * Compile an XPath expression for an existing navigator.
+	 * 
+	 * @param xpathExpr
+	 *        The XPath expression.
+	 * @param navigator
+	 *        The navigator.
+	 * @throws JaxenException
+	 *         if the expression is not valid.
+	 */
+	CompactXPath(final String xpathExpr, final CompactNavigator navigator)
+			throws JaxenException {
+		super(xpathExpr, navigator);
+	}
+
+	@Override
+	protected Context getContext(final Object node) {
+		((CompactNavigator)getNavigator()).reset();
+		return super.getContext(node);
+	}
+
+}
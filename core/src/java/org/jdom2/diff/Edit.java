@@ -0,0 +1,280 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.diff;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import org.jdom2.Attribute;
+import org.jdom2.Content;
+import org.jdom2.Namespace;
+import org.jdom2.internal.ArrayCopy;
+
+/**
+ * One step of an {@link EditScript}.
+ * <p>
+ * Every Edit targets a Parent that is located by its path: the content index
+ * of each step down from the Document (or Element) the script is applied to.
+ * An empty path targets the Document (or Element) itself. The indexes are
+ * those of the content when the Edit is applied, so the Edits of a script
+ * have to be applied in order.
+ * <p>
+ * Edits are immutable. The content of an INSERT Edit is detached, and it is
+ * cloned again each time the Edit is applied.
+ * 
+ * @since JDOM2
+ */
+public final class Edit implements Serializable {
+
+	/**
+	 * JDOM2 serialization
+	 */
+	private static final long serialVersionUID = 200L;
+
+	/**
+	 * The kinds of Edit.
+	 */
+	public static enum Type {
+		/**
+		 * Remove a range of content from the target Parent.
+		 */
+		REMOVE,
+		/**
+		 * Insert content in to the target Parent.
+		 */
+		INSERT,
+		/**
+		 * Change the name and Namespace of the target Element.
+		 */
+		RENAME,
+		/**
+		 * Add an Attribute to the target Element, or change its value.
+		 */
+		SET_ATTRIBUTE,
+		/**
+		 * Remove an Attribute from the target Element.
+		 */
+		REMOVE_ATTRIBUTE
+	}
+
+	private final Type type;
+	private final int[] path;
+	private final int index;
+	private final int count;
+	private final List<Content> content;
+	private final String name;
+	private final Namespace namespace;
+	private final Attribute attribute;
+
+	private Edit(final Type type, final int[] path, final int index,
+			final int count, final List<Content> content, final String name,
+			final Namespace namespace, final Attribute attribute) {
+		this.type = type;
+		this.path = path;
+		this.index = index;
+		this.count = count;
+		this.content = content;
+		this.name = name;
+		this.namespace = namespace;
+		this.attribute = attribute;
+	}
+
+	static Edit remove(final int[] path, final int index, final int count) {
+		return new Edit(Type.REMOVE, path, index, count, null, null, null, null);
+	}
+
+	static Edit insert(final int[] path, final int index,
+			final List<Content> content) {
+		return new Edit(Type.INSERT, path, index, content.size(),
+				Collections.unmodifiableList(content), null, null, null);
+	}
+
+	static Edit rename(final int[] path, final String name,
+			final Namespace namespace) {
+		return new Edit(Type.RENAME, path, -1, 0, null, name, namespace, null);
+	}
+
+	static Edit setAttribute(final int[] path, final Attribute attribute) {
+		return new Edit(Type.SET_ATTRIBUTE, path, -1, 0, null,
+				attribute.getName(), attribute.getNamespace(), attribute);
+	}
+
+	static Edit removeAttribute(final int[] path, final String name,
+			final Namespace namespace) {
+		return new Edit(Type.REMOVE_ATTRIBUTE, path, -1, 0, null, name,
+				namespace, null);
+	}
+
+	/**
+	 * The kind of Edit.
+	 * 
+	 * @return the Edit's type.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * The content indexes that lead to the target Parent.
+	 * 
+	 * @return a copy of the path, empty for the root of the script.
+	 */
+	public int[] getPath() {
+		return ArrayCopy.copyOf(path, path.length);
+	}
+
+	/**
+	 * The depth of the target Parent below the root of the script.
+	 * 
+	 * @return the length of the path.
+	 */
+	public int getDepth() {
+		return path.length;
+	}
+
+	/**
+	 * The content index a REMOVE or INSERT Edit starts at.
+	 * 
+	 * @return the index, or -1 for the other types.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * The amount of content a REMOVE or INSERT Edit affects.
+	 * 
+	 * @return the count, or 0 for the other types.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * The (detached) content an INSERT Edit adds.
+	 * 
+	 * @return an unmodifiable List, or null for the other types.
+	 */
+	public List<Content> getContent() {
+		return content;
+	}
+
+	/**
+	 * The new Element name of a RENAME Edit, or the Attribute name of the
+	 * SET_ATTRIBUTE and REMOVE_ATTRIBUTE Edits.
+	 * 
+	 * @return the name, or null for the other types.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * The new Element Namespace of a RENAME Edit, or the Attribute Namespace
+	 * of the SET_ATTRIBUTE and REMOVE_ATTRIBUTE Edits.
+	 * 
+	 * @return the Namespace, or null for the other types.
+	 */
+	public Namespace getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * The (detached) Attribute a SET_ATTRIBUTE Edit sets.
+	 * 
+	 * @return the Attribute, or null for the other types.
+	 */
+	public Attribute getAttribute() {
+		return attribute;
+	}
+
+	/**
+	 * The internal path, for the EditScript.
+	 * 
+	 * @return the path, not a copy.
+	 */
+	int[] path() {
+		return path;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("[Edit: ");
+		sb.append(type).append(" /");
+		for (int i = 0; i < path.length; i++) {
+			if (i > 0) {
+				sb.append('/');
+			}
+			sb.append(path[i]);
+		}
+		switch (type) {
+			case REMOVE:
+			case INSERT:
+				sb.append(" index=").append(index);
+				sb.append(" count=").append(count);
+				break;
+			default:
+				sb.append(" name=").append(namespace.getPrefix().length() == 0
+						? name : namespace.getPrefix() + ":" + name);
+				if (attribute != null) {
+					sb.append(" value=\"").append(attribute.getValue()).append('"');
+				}
+				break;
+		}
+		return sb.append(']').toString();
+	}
+
+}
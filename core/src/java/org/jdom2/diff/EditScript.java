@@ -0,0 +1,263 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.diff;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jdom2.Content;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Parent;
+
+/**
+ * The ordered {@link Edit}s that turn one version of a Document (or Element)
+ * in to another. EditScripts are created by {@link JDOMDiff}, and are
+ * Serializable so they can be sent to the systems that hold a copy of the
+ * original version.
+ * <p>
+ * Applying the script to (a copy of) the original version changes it in
+ * place to be equivalent to the new version (see
+ * {@link org.jdom2.JDOMEquivalence}). Ranges of content are removed and
+ * inserted with a single operation on the content List each.
+ * 
+ * @since JDOM2
+ */
+public final class EditScript implements Iterable<Edit>, Serializable {
+
+	/**
+	 * JDOM2 serialization
+	 */
+	private static final long serialVersionUID = 200L;
+
+	private final List<Edit> edits;
+
+	EditScript(final List<Edit> edits) {
+		this.edits = Collections.unmodifiableList(edits);
+	}
+
+	/**
+	 * The number of Edits in the script.
+	 * 
+	 * @return the size of the script.
+	 */
+	public int size() {
+		return edits.size();
+	}
+
+	/**
+	 * Whether the two versions were equivalent.
+	 * 
+	 * @return true if there is nothing to change.
+	 */
+	public boolean isEmpty() {
+		return edits.isEmpty();
+	}
+
+	/**
+	 * Get an Edit of the script.
+	 * 
+	 * @param index
+	 *        the position of the Edit.
+	 * @return the Edit at that position.
+	 */
+	public Edit get(final int index) {
+		return edits.get(index);
+	}
+
+	/**
+	 * All the Edits, in the order they must be applied.
+	 * 
+	 * @return an unmodifiable List of the Edits.
+	 */
+	public List<Edit> getEdits() {
+		return edits;
+	}
+
+	@Override
+	public Iterator<Edit> iterator() {
+		return edits.iterator();
+	}
+
+	/**
+	 * Apply the script to a Document that is equivalent to the version the
+	 * script was created from.
+	 * 
+	 * @param document
+	 *        the Document to change.
+	 * @return the same Document, for chaining.
+	 * @throws IllegalArgumentException
+	 *         if the script does not fit the Document.
+	 */
+	public Document apply(final Document document) {
+		applyTo(document);
+		return document;
+	}
+
+	/**
+	 * Apply the script to an Element that is equivalent to the version the
+	 * script was created from.
+	 * 
+	 * @param element
+	 *        the Element to change.
+	 * @return the same Element, for chaining.
+	 * @throws IllegalArgumentException
+	 *         if the script does not fit the Element.
+	 */
+	public Element apply(final Element element) {
+		applyTo(element);
+		return element;
+	}
+
+	private void applyTo(final Parent root) {
+		int[] lastpath = null;
+		Parent target = root;
+		for (final Edit edit : edits) {
+			final int[] path = edit.path();
+			if (path != lastpath) {
+				target = locate(root, path);
+				lastpath = path;
+			}
+			switch (edit.getType()) {
+				case REMOVE:
+					checkRange(edit, target, edit.getIndex() + edit.getCount());
+					remove(target, edit.getIndex(), edit.getCount());
+					break;
+				case INSERT:
+					checkRange(edit, target, edit.getIndex());
+					final List<Content> content = edit.getContent();
+					final ArrayList<Content> copies =
+							new ArrayList<Content>(content.size());
+					for (final Content c : content) {
+						copies.add(c.clone());
+					}
+					target.addContent(edit.getIndex(), copies);
+					break;
+				case RENAME:
+					element(edit, target).setName(edit.getName())
+							.setNamespace(edit.getNamespace());
+					break;
+				case SET_ATTRIBUTE:
+					element(edit, target).setAttribute(
+							edit.getAttribute().clone());
+					break;
+				case REMOVE_ATTRIBUTE:
+					if (!element(edit, target).removeAttribute(edit.getName(),
+							edit.getNamespace())) {
+						throw new IllegalArgumentException(
+								"There is no Attribute to remove for " + edit);
+					}
+					break;
+			}
+		}
+	}
+
+	private static Parent locate(final Parent root, final int[] path) {
+		Parent p = root;
+		for (final int index : path) {
+			if (index >= p.getContentSize()) {
+				throw new IllegalArgumentException(
+						"The path of the Edit does not exist: index " + index
+						+ " of " + p.getContentSize());
+			}
+			final Content c = p.getContent(index);
+			if (!(c instanceof Element)) {
+				throw new IllegalArgumentException(
+						"The path of the Edit leads to a " + c.getCType()
+						+ ", not an Element.");
+			}
+			p = (Element) c;
+		}
+		return p;
+	}
+
+	private static void remove(final Parent target, final int index,
+			final int count) {
+		if (target instanceof Element) {
+			((Element) target).getContent().subList(index, index + count).clear();
+		} else {
+			// a Document has little content, and may be without its root
+			// Element between the Edits.
+			for (int i = index + count - 1; i >= index; i--) {
+				target.removeContent(i);
+			}
+		}
+	}
+
+	private static void checkRange(final Edit edit, final Parent target,
+			final int end) {
+		if (end > target.getContentSize()) {
+			throw new IllegalArgumentException("The content of the target ("
+					+ target.getContentSize() + ") is too short for " + edit);
+		}
+	}
+
+	private static Element element(final Edit edit, final Parent target) {
+		if (!(target instanceof Element)) {
+			throw new IllegalArgumentException(
+					"The target of " + edit + " is not an Element.");
+		}
+		return (Element) target;
+	}
+
+	@Override
+	public String toString() {
+		return "[EditScript: " + edits.size() + " edits]";
+	}
+
+}
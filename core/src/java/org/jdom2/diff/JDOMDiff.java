@@ -0,0 +1,447 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.diff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.Content;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMConstants;
+import org.jdom2.JDOMEquivalence;
+import org.jdom2.Parent;
+import org.jdom2.internal.ArrayCopy;
+
+/**
+ * Compute the {@link EditScript} that turns one version of a Document (or
+ * Element) in to another.
+ * <p>
+ * The content of each pair of matched Parents is aligned in two passes:
+ * <ol>
+ * <li>Content that is unchanged is found by its digest (see
+ * {@link JDOMEquivalence}), and the match is confirmed with a full
+ * comparison. Unchanged content is never visited again.
+ * <li>The remaining Elements are matched by their name, Namespace URI, and
+ * ID (an Attribute of type ID, or an <code>id</code> or <code>xml:id</code>
+ * Attribute), in document order.
+ * </ol>
+ * The largest set of matches that keep their relative order is kept, all
+ * other content is removed and inserted in as few ranges as possible, and
+ * the Elements matched in the second pass are compared in turn. With the
+ * digests cached on the Elements the whole diff takes time close to linear in
+ * the size of the two versions.
+ * <p>
+ * The result is equivalent, not identical: the namespace prefixes of
+ * unchanged content, and the additional namespace declarations of all
+ * Elements, are not part of the script.
+ * <p>
+ * A JDOMDiff is thread-safe if its JDOMEquivalence is. Note that caching
+ * digests (the default) stores them on the Elements of both versions.
+ * 
+ * @since JDOM2
+ */
+public final class JDOMDiff {
+
+	private static final int[] ROOTPATH = new int[0];
+
+	/**
+	 * A pair of matched Elements still to be compared.
+	 */
+	private static final class Pending {
+		private final Element from;
+		private final Element to;
+		private final int[] path;
+
+		private Pending(final Element from, final Element to, final int[] path) {
+			this.from = from;
+			this.to = to;
+			this.path = path;
+		}
+	}
+
+	private final JDOMEquivalence equivalence;
+
+	/**
+	 * Create a JDOMDiff that caches the digests on the Elements.
+	 */
+	public JDOMDiff() {
+		this(new JDOMEquivalence());
+	}
+
+	/**
+	 * Create a JDOMDiff that uses the given JDOMEquivalence to find unchanged
+	 * content.
+	 * 
+	 * @param equivalence
+	 *        the JDOMEquivalence to use.
+	 */
+	public JDOMDiff(final JDOMEquivalence equivalence) {
+		if (equivalence == null) {
+			throw new NullPointerException("Cannot use a null JDOMEquivalence");
+		}
+		this.equivalence = equivalence;
+	}
+
+	/**
+	 * The JDOMEquivalence used to find unchanged content.
+	 * 
+	 * @return the JDOMEquivalence.
+	 */
+	public JDOMEquivalence getEquivalence() {
+		return equivalence;
+	}
+
+	/**
+	 * Compute the Edits that turn one version of a Document in to the other.
+	 * Neither Document is changed (other than caching digests).
+	 * 
+	 * @param from
+	 *        the original version.
+	 * @param to
+	 *        the new version.
+	 * @return the Edits to apply to the original version.
+	 */
+	public EditScript diff(final Document from, final Document to) {
+		final List<Edit> edits = new ArrayList<Edit>();
+		final ArrayList<Pending> stack = new ArrayList<Pending>();
+		alignContent(from, to, ROOTPATH, edits, stack);
+		run(edits, stack);
+		return new EditScript(edits);
+	}
+
+	/**
+	 * Compute the Edits that turn one version of an Element in to the other.
+	 * Neither Element is changed (other than caching digests).
+	 * 
+	 * @param from
+	 *        the original version.
+	 * @param to
+	 *        the new version.
+	 * @return the Edits to apply to the original version.
+	 */
+	public EditScript diff(final Element from, final Element to) {
+		final List<Edit> edits = new ArrayList<Edit>();
+		final ArrayList<Pending> stack = new ArrayList<Pending>();
+		stack.add(new Pending(from, to, ROOTPATH));
+		run(edits, stack);
+		return new EditScript(edits);
+	}
+
+	private void run(final List<Edit> edits, final ArrayList<Pending> stack) {
+		// iterative, the documents can be deep.
+		while (!stack.isEmpty()) {
+			final Pending p = stack.remove(stack.size() - 1);
+			diffElement(p.from, p.to, p.path, edits);
+			alignContent(p.from, p.to, p.path, edits, stack);
+		}
+	}
+
+	private static void diffElement(final Element from, final Element to,
+			final int[] path, final List<Edit> edits) {
+		// remove the old Attributes first, they may use a prefix the new
+		// Namespace of the Element needs.
+		if (from.hasAttributes()) {
+			for (final Attribute a : from.getAttributes()) {
+				if (to.getAttribute(a.getName(), a.getNamespace()) == null) {
+					edits.add(Edit.removeAttribute(path, a.getName(),
+							a.getNamespace()));
+				}
+			}
+		}
+		if (!from.getName().equals(to.getName())
+				|| !from.getNamespaceURI().equals(to.getNamespaceURI())
+				|| !from.getNamespacePrefix().equals(to.getNamespacePrefix())) {
+			edits.add(Edit.rename(path, to.getName(), to.getNamespace()));
+		}
+		if (to.hasAttributes()) {
+			for (final Attribute b : to.getAttributes()) {
+				final Attribute a = from.getAttribute(b.getName(),
+						b.getNamespace());
+				if (a == null || !a.getValue().equals(b.getValue())
+						|| a.getAttributeType() != b.getAttributeType()
+						|| !a.getNamespacePrefix().equals(b.getNamespacePrefix())) {
+					edits.add(Edit.setAttribute(path, b.clone()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Chains of content indexes that share a key, in document order.
+	 */
+	private static final class Chains<K> {
+		private final HashMap<K, int[]> heads = new HashMap<K, int[]>();
+		private final int[] next;
+
+		private Chains(final int size) {
+			next = new int[size];
+		}
+
+		/**
+		 * Add the indexes in reverse order so the chains end up in order.
+		 */
+		private void push(final K key, final int index) {
+			final int[] head = heads.get(key);
+			if (head == null) {
+				heads.put(key, new int[] {index});
+				next[index] = -1;
+			} else {
+				next[index] = head[0];
+				head[0] = index;
+			}
+		}
+
+		private int[] head(final K key) {
+			return heads.get(key);
+		}
+
+		private int next(final int index) {
+			return next[index];
+		}
+	}
+
+	private void alignContent(final Parent from, final Parent to,
+			final int[] path, final List<Edit> edits,
+			final ArrayList<Pending> stack) {
+		final int fsize = from.getContentSize();
+		final int tsize = to.getContentSize();
+		if (fsize == 0 && tsize == 0) {
+			return;
+		}
+
+		// match[i] is the index in 'to' of content i in 'from', or -1.
+		final int[] match = new int[fsize];
+		final boolean[] exact = new boolean[fsize];
+		final boolean[] taken = new boolean[tsize];
+		int matched = 0;
+
+		if (fsize > 0 && tsize > 0) {
+			// pass 1: unchanged content, by digest.
+			final Chains<Long> digests = new Chains<Long>(tsize);
+			for (int j = tsize - 1; j >= 0; j--) {
+				digests.push(Long.valueOf(equivalence.digest(to.getContent(j))), j);
+			}
+			for (int i = 0; i < fsize; i++) {
+				match[i] = -1;
+				final Content fc = from.getContent(i);
+				final int[] head = digests.head(
+						Long.valueOf(equivalence.digest(fc)));
+				if (head == null) {
+					continue;
+				}
+				// skip the taken heads, they will never be free again.
+				while (head[0] >= 0 && taken[head[0]]) {
+					head[0] = digests.next(head[0]);
+				}
+				for (int j = head[0]; j >= 0; j = digests.next(j)) {
+					if (taken[j]) {
+						continue;
+					}
+					final Content tc = to.getContent(j);
+					if (fc.getCType() == tc.getCType()
+							&& equivalence.equivalent(fc, tc)) {
+						match[i] = j;
+						exact[i] = true;
+						taken[j] = true;
+						matched++;
+						break;
+					}
+				}
+			}
+
+			// pass 2: the remaining Elements, by name and ID.
+			if (matched < fsize && matched < tsize) {
+				final Chains<String> keys = new Chains<String>(tsize);
+				for (int j = tsize - 1; j >= 0; j--) {
+					final Content tc = to.getContent(j);
+					if (!taken[j] && tc instanceof Element) {
+						keys.push(key((Element) tc), j);
+					}
+				}
+				for (int i = 0; i < fsize; i++) {
+					final Content fc = from.getContent(i);
+					if (match[i] >= 0 || !(fc instanceof Element)) {
+						continue;
+					}
+					final int[] head = keys.head(key((Element) fc));
+					if (head != null && head[0] >= 0) {
+						match[i] = head[0];
+						taken[head[0]] = true;
+						head[0] = keys.next(head[0]);
+						matched++;
+					}
+				}
+			}
+
+			if (matched > 1) {
+				keepOrdered(match, taken);
+			}
+		} else {
+			for (int i = 0; i < fsize; i++) {
+				match[i] = -1;
+			}
+		}
+
+		// removes from the end, so the indexes are those of 'from'.
+		int i = fsize;
+		while (i > 0) {
+			if (match[--i] >= 0) {
+				continue;
+			}
+			final int end = i + 1;
+			while (i > 0 && match[i - 1] < 0) {
+				i--;
+			}
+			edits.add(Edit.remove(path, i, end - i));
+		}
+
+		// inserts from the start, so the indexes are those of 'to'.
+		int j = 0;
+		while (j < tsize) {
+			if (taken[j]) {
+				j++;
+				continue;
+			}
+			final int start = j;
+			final ArrayList<Content> content = new ArrayList<Content>();
+			while (j < tsize && !taken[j]) {
+				content.add(to.getContent(j++).clone());
+			}
+			edits.add(Edit.insert(path, start, content));
+		}
+
+		// the Elements that were matched, but changed. Pushed in reverse so
+		// they are compared in document order.
+		for (i = fsize - 1; i >= 0; i--) {
+			if (match[i] >= 0 && !exact[i]) {
+				final int[] kidpath = ArrayCopy.copyOf(path, path.length + 1);
+				kidpath[path.length] = match[i];
+				stack.add(new Pending((Element) from.getContent(i),
+						(Element) to.getContent(match[i]), kidpath));
+			}
+		}
+	}
+
+	/**
+	 * Release the fewest matches so the rest are in the same relative order
+	 * in both versions: keep the longest increasing subsequence of the
+	 * matched 'to' indexes.
+	 */
+	private static void keepOrdered(final int[] match, final boolean[] taken) {
+		final int fsize = match.length;
+		// tails[k] is the 'from' index that ends the best run of length k+1.
+		final int[] tails = new int[fsize];
+		final int[] prev = new int[fsize];
+		int len = 0;
+		for (int i = 0; i < fsize; i++) {
+			final int m = match[i];
+			if (m < 0) {
+				continue;
+			}
+			int lo = 0;
+			int hi = len;
+			while (lo < hi) {
+				final int mid = (lo + hi) >>> 1;
+				if (match[tails[mid]] < m) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			prev[i] = lo > 0 ? tails[lo - 1] : -1;
+			tails[lo] = i;
+			if (lo == len) {
+				len++;
+			}
+		}
+		final boolean[] keep = new boolean[fsize];
+		for (int i = len > 0 ? tails[len - 1] : -1; i >= 0; i = prev[i]) {
+			keep[i] = true;
+		}
+		for (int i = 0; i < fsize; i++) {
+			if (match[i] >= 0 && !keep[i]) {
+				taken[match[i]] = false;
+				match[i] = -1;
+			}
+		}
+	}
+
+	/**
+	 * The key Elements are matched by when they have changed: the Namespace
+	 * URI and name in Clark notation, and the ID (if any).
+	 */
+	private static String key(final Element element) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append('{').append(element.getNamespaceURI()).append('}')
+				.append(element.getName());
+		if (element.hasAttributes()) {
+			for (final Attribute a : element.getAttributes()) {
+				if (a.getAttributeType() == AttributeType.ID
+						|| ("id".equals(a.getName())
+						&& (a.getNamespaceURI().length() == 0
+						|| JDOMConstants.NS_URI_XML.equals(a.getNamespaceURI())))) {
+					sb.append('#').append(a.getValue());
+					break;
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+}
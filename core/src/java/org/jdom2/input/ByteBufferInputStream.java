@@ -0,0 +1,166 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An InputStream over a sequence of ByteBuffers (typically the segments of a
+ * memory-mapped file). Bytes are copied directly from the buffers into the
+ * caller's array, so there is no need for (and no point in) a
+ * BufferedInputStream.
+ * <p>
+ * The buffers are read from their position to their limit, and their
+ * positions are advanced as they are read. Closing the stream does nothing.
+ * 
+ * @since JDOM2
+ */
+final class ByteBufferInputStream extends InputStream {
+
+	/** The largest segment we map. Mappings are limited to 2GB. */
+	private static final long SEGMENT = 1L << 30;
+
+	/**
+	 * Memory-map a region of a file, in as many segments as it needs.
+	 * 
+	 * @param channel
+	 *        The file to map
+	 * @param from
+	 *        The first byte to map
+	 * @param to
+	 *        The byte after the last byte to map.
+	 * @return the mapped segments.
+	 * @throws IOException
+	 *         if the file cannot be mapped.
+	 */
+	static final ByteBuffer[] map(final FileChannel channel, final long from,
+			final long to) throws IOException {
+		final int count = (int)((to - from + SEGMENT - 1) / SEGMENT);
+		final ByteBuffer[] ret = new ByteBuffer[count];
+		long pos = from;
+		for (int i = 0; i < count; i++) {
+			final long size = Math.min(SEGMENT, to - pos);
+			ret[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+			pos += size;
+		}
+		return ret;
+	}
+
+	private final ByteBuffer[] buffers;
+	private int current = 0;
+
+	/**
+	 * Create an InputStream that reads the remaining bytes of each of the
+	 * buffers in turn.
+	 * 
+	 * @param buffers
+	 *        The buffers to read.
+	 */
+	ByteBufferInputStream(final ByteBuffer... buffers) {
+		this.buffers = buffers;
+	}
+
+	@Override
+	public int read() {
+		while (current < buffers.length) {
+			if (buffers[current].hasRemaining()) {
+				return buffers[current].get() & 0xFF;
+			}
+			current++;
+		}
+		return -1;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) {
+		if (len == 0) {
+			return 0;
+		}
+		while (current < buffers.length) {
+			final ByteBuffer bb = buffers[current];
+			if (bb.hasRemaining()) {
+				final int cnt = Math.min(len, bb.remaining());
+				bb.get(b, off, cnt);
+				return cnt;
+			}
+			current++;
+		}
+		return -1;
+	}
+
+	@Override
+	public long skip(final long n) {
+		long skipped = 0L;
+		while (skipped < n && current < buffers.length) {
+			final ByteBuffer bb = buffers[current];
+			final int cnt = (int)Math.min(n - skipped, bb.remaining());
+			bb.position(bb.position() + cnt);
+			skipped += cnt;
+			if (!bb.hasRemaining()) {
+				current++;
+			}
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return current < buffers.length ? buffers[current].remaining() : 0;
+	}
+
+}
@@ -0,0 +1,505 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.DocType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.JDOMFactory;
+import org.jdom2.Namespace;
+import org.jdom2.Parent;
+import org.jdom2.UncheckedJDOMFactory;
+import org.jdom2.internal.ArrayCopy;
+import org.jdom2.internal.BinaryFormat;
+
+/**
+ * Builds a Document or Element from the binary form written by
+ * {@link org.jdom2.output.JDOMBinaryOutputter}.
+ * <p>
+ * The binary form was written from content that JDOM had already checked,
+ * so by default the content is rebuilt with an {@link UncheckedJDOMFactory}:
+ * names and text are not verified again, and the content is added to its
+ * parent without the usual checks. That makes this builder several times
+ * faster than parsing XML, but it also means the input must be trusted.
+ * Use {@link #setFactory(JDOMFactory)} with a
+ * {@link org.jdom2.DefaultJDOMFactory} to check the content of untrusted
+ * input.
+ * <p>
+ * The tree is rebuilt without recursion. The builder reads the stream
+ * through its own buffer, but the binary form is written in blocks that
+ * each start with their length, so the builder never reads past the end of
+ * the binary form: the stream is left at the first byte after it, and more
+ * Documents (or anything else) can be read from the same stream.
+ * <p>
+ * A JDOMBinaryBuilder can be used by multiple threads at the same time if
+ * its JDOMFactory can (the standard factories can).
+ * 
+ * @since JDOM2
+ */
+public final class JDOMBinaryBuilder {
+
+	/** The size of the internal buffer */
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final AttributeType[] ATTTYPES = AttributeType.values();
+
+	private JDOMFactory factory;
+
+	/**
+	 * Create a JDOMBinaryBuilder that uses an {@link UncheckedJDOMFactory}.
+	 */
+	public JDOMBinaryBuilder() {
+		this(new UncheckedJDOMFactory());
+	}
+
+	/**
+	 * Create a JDOMBinaryBuilder that uses a specific JDOMFactory.
+	 * 
+	 * @param factory
+	 *        The factory to build the content with.
+	 */
+	public JDOMBinaryBuilder(final JDOMFactory factory) {
+		setFactory(factory);
+	}
+
+	/**
+	 * The factory used to build the content.
+	 * 
+	 * @return the current JDOMFactory.
+	 */
+	public JDOMFactory getFactory() {
+		return factory;
+	}
+
+	/**
+	 * Set the factory used to build the content.
+	 * 
+	 * @param factory
+	 *        The factory to use.
+	 */
+	public void setFactory(final JDOMFactory factory) {
+		if (factory == null) {
+			throw new NullPointerException("Cannot use a null JDOMFactory");
+		}
+		this.factory = factory;
+	}
+
+	/**
+	 * Build a Document from a stream. The stream is not closed.
+	 * 
+	 * @param in
+	 *        The stream to read.
+	 * @return the new Document.
+	 * @throws IOException
+	 *         if the stream fails or ends too soon.
+	 * @throws JDOMException
+	 *         if the stream does not hold a binary Document.
+	 */
+	public Document build(final InputStream in) throws IOException, JDOMException {
+		final Decoder dec = new Decoder(factory, in);
+		dec.header(BinaryFormat.KIND_DOCUMENT);
+		final Document doc = factory.document(null);
+		doc.setBaseURI(dec.nullable());
+		int token = dec.token();
+		while (token != BinaryFormat.END) {
+			if (token == BinaryFormat.ELEMENT) {
+				factory.addContent(doc, dec.tree());
+			} else if (token == BinaryFormat.DOCTYPE) {
+				final DocType dt = factory.docType(dec.name(), dec.nullable(),
+						dec.nullable());
+				dt.setInternalSubset(dec.nullable());
+				factory.addContent(doc, dt);
+			} else {
+				dec.content(doc, token);
+			}
+			token = dec.token();
+		}
+		return doc;
+	}
+
+	/**
+	 * Build a Document from a byte array.
+	 * 
+	 * @param data
+	 *        The binary form of the Document.
+	 * @return the new Document.
+	 * @throws JDOMException
+	 *         if the data is not a binary Document.
+	 */
+	public Document build(final byte[] data) throws JDOMException {
+		try {
+			return build(new ByteArrayInputStream(data));
+		} catch (IOException e) {
+			throw new JDOMException("Truncated binary Document", e);
+		}
+	}
+
+	/**
+	 * Build a (detached) Element from a stream. The stream is not closed.
+	 * 
+	 * @param in
+	 *        The stream to read.
+	 * @return the new Element.
+	 * @throws IOException
+	 *         if the stream fails or ends too soon.
+	 * @throws JDOMException
+	 *         if the stream does not hold a binary Element.
+	 */
+	public Element buildElement(final InputStream in)
+			throws IOException, JDOMException {
+		final Decoder dec = new Decoder(factory, in);
+		dec.header(BinaryFormat.KIND_ELEMENT);
+		if (dec.token() != BinaryFormat.ELEMENT) {
+			throw new JDOMException("Corrupt binary Element: no Element");
+		}
+		return dec.tree();
+	}
+
+	/**
+	 * Build a (detached) Element from a byte array.
+	 * 
+	 * @param data
+	 *        The binary form of the Element.
+	 * @return the new Element.
+	 * @throws JDOMException
+	 *         if the data is not a binary Element.
+	 */
+	public Element buildElement(final byte[] data) throws JDOMException {
+		try {
+			return buildElement(new ByteArrayInputStream(data));
+		} catch (IOException e) {
+			throw new JDOMException("Truncated binary Element", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "[JDOMBinaryBuilder: " + factory.getClass().getName() + "]";
+	}
+
+	/**
+	 * The state of reading one stream: the buffer and the name and Namespace
+	 * tables.
+	 */
+	private static final class Decoder {
+		private final JDOMFactory factory;
+		private final InputStream in;
+		private final byte[] buf = new byte[BUFFER_SIZE];
+		private int pos = 0;
+		private int limit = 0;
+		/* the bytes of the current block that are not in buf yet */
+		private int remaining = 0;
+		private String[] names = new String[32];
+		private int namecount = 0;
+		private Namespace[] namespaces = new Namespace[8];
+		private int nscount = 0;
+
+		Decoder(final JDOMFactory factory, final InputStream in) {
+			this.factory = factory;
+			this.in = in;
+			namespaces[nscount++] = Namespace.NO_NAMESPACE;
+			namespaces[nscount++] = Namespace.XML_NAMESPACE;
+		}
+
+		/**
+		 * Read one byte straight from the stream, unsigned.
+		 */
+		private final int raw() throws IOException {
+			final int b = in.read();
+			if (b < 0) {
+				throw new EOFException("Unexpected end of binary JDOM data");
+			}
+			return b;
+		}
+
+		private final int read() throws IOException {
+			if (pos == limit) {
+				while (remaining == 0) {
+					remaining = (raw() << 8) | raw();
+				}
+				limit = in.read(buf, 0, Math.min(remaining, buf.length));
+				pos = 0;
+				if (limit <= 0) {
+					limit = 0;
+					throw new EOFException("Unexpected end of binary JDOM data");
+				}
+				remaining -= limit;
+			}
+			return buf[pos++];
+		}
+
+		void header(final int kind) throws IOException, JDOMException {
+			// the header is not in a block.
+			for (final byte b : BinaryFormat.MAGIC) {
+				if (raw() != b) {
+					throw new JDOMException("Not binary JDOM data");
+				}
+			}
+			final int version = raw();
+			if (version != BinaryFormat.VERSION) {
+				throw new JDOMException("Unsupported binary JDOM version "
+						+ version + ", expected " + BinaryFormat.VERSION);
+			}
+			final int actual = raw();
+			if (actual != kind) {
+				throw new JDOMException("Expected binary JDOM "
+						+ (kind == BinaryFormat.KIND_DOCUMENT ? "Document" : "Element")
+						+ " but the data holds kind '" + (char)actual + "'");
+			}
+		}
+
+		int token() throws IOException {
+			return read();
+		}
+
+		private final int varint() throws IOException, JDOMException {
+			int ret = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				final int b = read();
+				ret |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return ret;
+				}
+			}
+			throw new JDOMException("Corrupt binary JDOM data: varint too long");
+		}
+
+		private final String chars(final int len) throws IOException, JDOMException {
+			if (len == 0) {
+				return "";
+			}
+			if (len < 0) {
+				throw new JDOMException("Corrupt binary JDOM data: string of "
+						+ len + " chars");
+			}
+			final char[] chars = new char[len];
+			int i = 0;
+			while (i < len) {
+				// fast path: plain ASCII already in the buffer.
+				final int end = Math.min(len, i + limit - pos);
+				while (i < end && buf[pos] >= 0) {
+					chars[i++] = (char)buf[pos++];
+				}
+				if (i == len) {
+					break;
+				}
+				final int b = read();
+				if (b >= 0) {
+					chars[i++] = (char)b;
+				} else if ((b & 0xE0) == 0xC0) {
+					chars[i++] = (char)(((b & 0x1F) << 6) | (read() & 0x3F));
+				} else {
+					final int b2 = read();
+					chars[i++] = (char)(((b & 0x0F) << 12) | ((b2 & 0x3F) << 6)
+							| (read() & 0x3F));
+				}
+			}
+			return new String(chars);
+		}
+
+		private final String string() throws IOException, JDOMException {
+			return chars(varint());
+		}
+
+		String nullable() throws IOException, JDOMException {
+			final int len = varint();
+			return len == 0 ? null : chars(len - 1);
+		}
+
+		String name() throws IOException, JDOMException {
+			final int ref = varint();
+			if (ref != 0) {
+				if (ref > namecount) {
+					throw new JDOMException("Corrupt binary JDOM data: name "
+							+ ref + " of " + namecount);
+				}
+				return names[ref - 1];
+			}
+			final String name = string();
+			if (namecount == names.length) {
+				names = ArrayCopy.copyOf(names, namecount * 2);
+			}
+			names[namecount++] = name;
+			return name;
+		}
+
+		private final Namespace namespace() throws IOException, JDOMException {
+			final int ref = varint();
+			if (ref != 0) {
+				if (ref > nscount) {
+					throw new JDOMException("Corrupt binary JDOM data: namespace "
+							+ ref + " of " + nscount);
+				}
+				return namespaces[ref - 1];
+			}
+			final Namespace ns = Namespace.getNamespace(name(), name());
+			if (nscount == namespaces.length) {
+				namespaces = ArrayCopy.copyOf(namespaces, nscount * 2);
+			}
+			namespaces[nscount++] = ns;
+			return ns;
+		}
+
+		private final Element start() throws IOException, JDOMException {
+			final Element element = factory.element(name(), namespace());
+			final int atts = varint();
+			for (int i = 0; i < atts; i++) {
+				final String name = name();
+				final Namespace ns = namespace();
+				final int type = varint();
+				if ((type >>> 1) >= ATTTYPES.length) {
+					throw new JDOMException("Corrupt binary JDOM data: "
+							+ "attribute type " + (type >>> 1));
+				}
+				final Attribute a = factory.attribute(name, string(),
+						ATTTYPES[type >>> 1], ns);
+				if ((type & 1) == 0) {
+					a.setSpecified(false);
+				}
+				factory.setAttribute(element, a);
+			}
+			final int decls = varint();
+			for (int i = 0; i < decls; i++) {
+				factory.addNamespaceDeclaration(element, namespace());
+			}
+			return element;
+		}
+
+		/**
+		 * Read an Element (the ELEMENT token has been read) and all its
+		 * descendants, without recursion.
+		 * 
+		 * @return the Element.
+		 * @throws IOException
+		 *         if the stream fails.
+		 * @throws JDOMException
+		 *         if the data is corrupt.
+		 */
+		Element tree() throws IOException, JDOMException {
+			final Element root = start();
+			Element[] stack = new Element[16];
+			int depth = 0;
+			stack[0] = root;
+			while (depth >= 0) {
+				final int token = read();
+				if (token == BinaryFormat.ELEMENT) {
+					final Element e = start();
+					factory.addContent(stack[depth], e);
+					if (++depth == stack.length) {
+						stack = ArrayCopy.copyOf(stack, depth * 2);
+					}
+					stack[depth] = e;
+				} else if (token == BinaryFormat.ELEMENT_END) {
+					stack[depth--] = null;
+				} else {
+					content(stack[depth], token);
+				}
+			}
+			return root;
+		}
+
+		/**
+		 * Read content that is not an Element and add it to a parent.
+		 * 
+		 * @param parent
+		 *        The parent to add the content to.
+		 * @param token
+		 *        The token that was read.
+		 * @throws IOException
+		 *         if the stream fails.
+		 * @throws JDOMException
+		 *         if the data is corrupt.
+		 */
+		void content(final Parent parent, final int token)
+				throws IOException, JDOMException {
+			switch (token) {
+				case BinaryFormat.TEXT:
+					factory.addContent(parent, factory.text(string()));
+					break;
+				case BinaryFormat.CDATA:
+					factory.addContent(parent, factory.cdata(string()));
+					break;
+				case BinaryFormat.COMMENT:
+					factory.addContent(parent, factory.comment(string()));
+					break;
+				case BinaryFormat.PI: {
+					final String target = name();
+					factory.addContent(parent,
+							factory.processingInstruction(target, nullable()));
+					break;
+				}
+				case BinaryFormat.ENTITYREF: {
+					final String name = name();
+					final String pub = nullable();
+					factory.addContent(parent,
+							factory.entityRef(name, pub, nullable()));
+					break;
+				}
+				default:
+					throw new JDOMException("Corrupt binary JDOM data: token "
+							+ token + " is not valid here");
+			}
+		}
+	}
+
+}
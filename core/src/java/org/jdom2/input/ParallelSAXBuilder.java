@@ -0,0 +1,618 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.xml.sax.InputSource;
+
+import org.jdom2.Content;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.sax.SAXEngine;
+
+/**
+ * Builds record-oriented documents (a root Element with many independent
+ * child 'record' Elements) by parsing parts of the document concurrently.
+ * <p>
+ * The input is scanned (as bytes, without being parsed) to find the end of
+ * the root Element's start tag, the root's end tag, and the positions of the
+ * root's child Elements. The root's content is split into chunks of about
+ * {@link #getChunkSize()} bytes, always immediately before a child Element.
+ * Each chunk is wrapped in the original prolog (XML declaration, DocType,
+ * and root start tag) and a root end tag, and parsed with a
+ * {@link SAXEngine} from the template {@link SAXBuilder}'s
+ * {@link SAXBuilder#getEnginePool() engine pool}. The content of
+ * the chunks is then joined, in order, in the first chunk's Document. The
+ * result is the same as a sequential parse with the template SAXBuilder.
+ * <p>
+ * Things to know:
+ * <ul>
+ * <li>The byte scan only works for encodings where the XML markup is ASCII
+ * (UTF-8, ISO-8859-*, US-ASCII, etc.). Documents in other encodings (for
+ * example UTF-16), and documents that are too small to split, are parsed
+ * sequentially with the template SAXBuilder.
+ * <li>The template's {@link org.jdom2.JDOMFactory} is used by all the
+ * chunks concurrently, so it has to be thread-safe. The default factories
+ * are; a {@link org.jdom2.SlimJDOMFactory} is only thread-safe when it uses
+ * a shared {@link org.jdom2.StringInterner}. A template with an XMLFilter
+ * cannot be used.
+ * <li>Line and column numbers (in parse errors, or from a located
+ * JDOMFactory) are relative to the chunk, not the input.
+ * <li>The DTD (if any) is processed for each chunk, and validation is
+ * done chunk by chunk.
+ * </ul>
+ * <p>
+ * The template SAXBuilder must not be reconfigured while a build is in
+ * progress. Other than that, ParallelSAXBuilder instances can be used by
+ * multiple threads at once.
+ * 
+ * @since JDOM2
+ */
+public final class ParallelSAXBuilder {
+
+	/** The default size of the chunks that are parsed concurrently */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/**
+	 * The threads we create (when there's no ExecutorService) should not stop
+	 * the JVM from exiting.
+	 */
+	private static final ThreadFactory DAEMONS = new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread t = new Thread(r, "JDOM ParallelSAXBuilder");
+			t.setDaemon(true);
+			return t;
+		}
+	};
+
+	private final SAXBuilder template;
+	private final ExecutorService executor;
+	private int chunksize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Create a ParallelSAXBuilder that parses with engines from a template
+	 * SAXBuilder, on a new thread pool (one thread per processor) for each
+	 * build.
+	 * 
+	 * @param template
+	 *        The SAXBuilder to parse the chunks with.
+	 */
+	public ParallelSAXBuilder(final SAXBuilder template) {
+		this(template, null);
+	}
+
+	/**
+	 * Create a ParallelSAXBuilder that parses with engines from a template
+	 * SAXBuilder, on the threads of an ExecutorService.
+	 * 
+	 * @param template
+	 *        The SAXBuilder to parse the chunks with.
+	 * @param executor
+	 *        The ExecutorService to parse the chunks with. If null, a new
+	 *        thread pool (one thread per processor) is created (and shut
+	 *        down) for each build.
+	 */
+	public ParallelSAXBuilder(final SAXBuilder template,
+			final ExecutorService executor) {
+		if (template == null) {
+			throw new NullPointerException("Null template SAXBuilder");
+		}
+		this.template = template;
+		this.executor = executor;
+	}
+
+	/**
+	 * Get the template SAXBuilder.
+	 * 
+	 * @return the SAXBuilder the chunks are parsed with.
+	 */
+	public SAXBuilder getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Get the approximate size (in bytes) of the chunks that are parsed
+	 * concurrently.
+	 * 
+	 * @return the chunk size.
+	 */
+	public int getChunkSize() {
+		return chunksize;
+	}
+
+	/**
+	 * Set the approximate size (in bytes) of the chunks that are parsed
+	 * concurrently. Chunks end before the first record that starts at least
+	 * this many bytes in to the chunk.
+	 * 
+	 * @param chunksize
+	 *        the chunk size.
+	 */
+	public void setChunkSize(final int chunksize) {
+		if (chunksize <= 0) {
+			throw new IllegalArgumentException(
+					"Chunk size must be positive, not " + chunksize);
+		}
+		this.chunksize = chunksize;
+	}
+
+	/**
+	 * Build a Document from a file. The file is memory-mapped, not read into
+	 * the heap. Files larger than 1GB are parsed sequentially (but still
+	 * memory-mapped).
+	 * 
+	 * @param file
+	 *        The file to parse.
+	 * @return The parsed Document.
+	 * @throws JDOMException
+	 *         if there is a problem parsing the document.
+	 * @throws IOException
+	 *         if the file cannot be read.
+	 */
+	public Document build(final File file) throws JDOMException, IOException {
+		final FileInputStream fis = new FileInputStream(file);
+		try {
+			final FileChannel channel = fis.getChannel();
+			final ByteBuffer[] mapped = 
+					ByteBufferInputStream.map(channel, 0, channel.size());
+			final String systemId = file.toURI().toString();
+			if (mapped.length != 1) {
+				// too big (or small) to scan with int positions.
+				return sequential(systemId, mapped);
+			}
+			return build(mapped[0], systemId);
+		} finally {
+			fis.close();
+		}
+	}
+
+	/**
+	 * Build a Document from an array of bytes.
+	 * 
+	 * @param data
+	 *        The bytes to parse.
+	 * @return The parsed Document.
+	 * @throws JDOMException
+	 *         if there is a problem parsing the document.
+	 * @throws IOException
+	 *         if there is a problem resolving external entities.
+	 */
+	public Document build(final byte[] data) throws JDOMException, IOException {
+		return build(ByteBuffer.wrap(data), null);
+	}
+
+	/**
+	 * Build a Document from the remaining bytes in a ByteBuffer (typically a
+	 * MappedByteBuffer). The ByteBuffer's position is not changed.
+	 * 
+	 * @param data
+	 *        The bytes to parse.
+	 * @param systemId
+	 *        The system ID of the document (used to resolve relative URIs,
+	 *        may be null).
+	 * @return The parsed Document.
+	 * @throws JDOMException
+	 *         if there is a problem parsing the document.
+	 * @throws IOException
+	 *         if there is a problem resolving external entities.
+	 */
+	public Document build(final ByteBuffer data, final String systemId)
+			throws JDOMException, IOException {
+		final ByteBuffer buf = data.slice();
+		final int[] bounds = scanProlog(buf);
+		if (bounds == null) {
+			return sequential(systemId, buf);
+		}
+		final int rootstart = bounds[0];
+		final int bodystart = bounds[1];
+		final List<Integer> splits = new ArrayList<Integer>();
+		final int rootend = scanBody(buf, bodystart, splits);
+		if (rootend < 0 || splits.isEmpty()) {
+			return sequential(systemId, buf);
+		}
+
+		// the root end tag for the synthetic chunks.
+		final int namestart = rootstart + 1;
+		int nameend = namestart;
+		while (nameend < bodystart && !isNameEnd(buf.get(nameend))) {
+			nameend++;
+		}
+		final byte[] endtag = new byte[nameend - namestart + 3];
+		endtag[0] = '<';
+		endtag[1] = '/';
+		for (int i = namestart; i < nameend; i++) {
+			endtag[i - namestart + 2] = buf.get(i);
+		}
+		endtag[endtag.length - 1] = '>';
+
+		final ByteBuffer prolog = range(buf, 0, bodystart);
+		final ByteBuffer tail = range(buf, rootend, buf.limit());
+		final ByteBuffer end = ByteBuffer.wrap(endtag);
+
+		// the first chunk gets the real end of the document.
+		final int chunks = splits.size() + 1;
+		final List<ByteBuffer[]> inputs = new ArrayList<ByteBuffer[]>(chunks);
+		int from = bodystart;
+		for (int c = 0; c < chunks; c++) {
+			final int to = c < splits.size() ? splits.get(c).intValue() : rootend;
+			inputs.add(new ByteBuffer[] { prolog.duplicate(), range(buf, from, to),
+					c == 0 ? tail : end.duplicate() });
+			from = to;
+		}
+
+		final ExecutorService exec = executor != null ? executor 
+				: Executors.newFixedThreadPool(Math.min(chunks, 
+						Runtime.getRuntime().availableProcessors()), DAEMONS);
+		try {
+			return parse(exec, inputs, systemId);
+		} finally {
+			if (exec != executor) {
+				exec.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Parse the chunks concurrently and join them.
+	 */
+	private final Document parse(final ExecutorService exec,
+			final List<ByteBuffer[]> inputs, final String systemId)
+			throws JDOMException, IOException {
+		final List<Future<Document>> results = 
+				new ArrayList<Future<Document>>(inputs.size());
+		try {
+			final SAXEngine engine = template.getEnginePool();
+			for (final ByteBuffer[] input : inputs) {
+				results.add(exec.submit(new Callable<Document>() {
+					@Override
+					public Document call() throws Exception {
+						final InputSource source = new InputSource(
+								new ByteBufferInputStream(input));
+						source.setSystemId(systemId);
+						return engine.build(source);
+					}
+				}));
+			}
+			final Document doc = get(results.get(0));
+			final Element root = doc.getRootElement();
+			for (int i = 1; i < results.size(); i++) {
+				final List<Content> content = 
+						get(results.get(i)).getRootElement().removeContent();
+				root.addContent(content);
+			}
+			return doc;
+		} finally {
+			for (final Future<Document> f : results) {
+				f.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Wait for a chunk's Document, and unwrap the exceptions.
+	 */
+	private static final Document get(final Future<Document> future)
+			throws JDOMException, IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JDOMException("Interrupted while parsing", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof JDOMException) {
+				throw (JDOMException)cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new JDOMException("Unable to parse chunk", cause);
+		}
+	}
+
+	private final Document sequential(final String systemId,
+			final ByteBuffer... bufs) throws JDOMException, IOException {
+		final ByteBuffer[] dups = new ByteBuffer[bufs.length];
+		for (int i = 0; i < bufs.length; i++) {
+			dups[i] = bufs[i].duplicate();
+		}
+		final InputSource source = new InputSource(
+				new ByteBufferInputStream(dups));
+		source.setSystemId(systemId);
+		return template.getEnginePool().build(source);
+	}
+
+	private static final ByteBuffer range(final ByteBuffer buf, final int from,
+			final int to) {
+		final ByteBuffer ret = buf.duplicate();
+		ret.limit(to);
+		ret.position(from);
+		return ret;
+	}
+
+	private static final boolean isNameEnd(final byte b) {
+		return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n'
+				|| b == '\r';
+	}
+
+	private static final boolean startsWith(final ByteBuffer buf, final int pos,
+			final String prefix) {
+		if (pos + prefix.length() > buf.limit()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (buf.get(pos + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the position after the end of the next occurrence of 'end' at
+	 *         or after pos, or the limit if there is none.
+	 */
+	private static final int skipPast(final ByteBuffer buf, final int pos,
+			final String end) {
+		final int limit = buf.limit() - end.length();
+		final byte first = (byte)end.charAt(0);
+		for (int p = pos; p <= limit; p++) {
+			if (buf.get(p) == first && startsWith(buf, p, end)) {
+				return p + end.length();
+			}
+		}
+		return buf.limit();
+	}
+
+	/**
+	 * @return the position after the '&gt;' that ends the tag starting at
+	 *         pos, skipping quoted values, or the limit if there is none.
+	 */
+	private static final int skipTag(final ByteBuffer buf, final int pos) {
+		final int limit = buf.limit();
+		byte quote = 0;
+		for (int p = pos; p < limit; p++) {
+			final byte b = buf.get(p);
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return p + 1;
+			}
+		}
+		return limit;
+	}
+
+	/**
+	 * Find the root Element's start tag.
+	 * 
+	 * @return null if the input cannot be split, otherwise the position of
+	 *         the root start tag, and the position after it.
+	 */
+	private static final int[] scanProlog(final ByteBuffer buf) {
+		final int limit = buf.limit();
+		if (limit < 4) {
+			return null;
+		}
+		int p = 0;
+		final int b0 = buf.get(0) & 0xFF;
+		final int b1 = buf.get(1) & 0xFF;
+		if (b0 == 0xEF && b1 == 0xBB && (buf.get(2) & 0xFF) == 0xBF) {
+			// UTF-8 BOM
+			p = 3;
+		} else if (b0 == 0 || b1 == 0 || b0 == 0xFE || b0 == 0xFF) {
+			// UTF-16/32 (or something we can't scan as bytes)
+			return null;
+		}
+		if (startsWith(buf, p, "<?xml")) {
+			final int declend = skipPast(buf, p, "?>");
+			// only ASCII-compatible encodings.
+			final StringBuilder sb = new StringBuilder(declend - p);
+			for (int i = p; i < declend; i++) {
+				sb.append((char)(buf.get(i) & 0xFF));
+			}
+			final String decl = sb.toString().toUpperCase();
+			if (decl.indexOf("UTF-16") >= 0 || decl.indexOf("UTF-32") >= 0
+					|| decl.indexOf("UCS") >= 0 || decl.indexOf("EBCDIC") >= 0
+					|| decl.indexOf("IBM0") >= 0 || decl.indexOf("CP037") >= 0) {
+				return null;
+			}
+		}
+		while (p < limit) {
+			final byte b = buf.get(p);
+			if (b != '<') {
+				p++;
+			} else if (startsWith(buf, p, "<?")) {
+				p = skipPast(buf, p, "?>");
+			} else if (startsWith(buf, p, "<!--")) {
+				p = skipPast(buf, p, "-->");
+			} else if (startsWith(buf, p, "<!")) {
+				p = skipDocType(buf, p);
+			} else {
+				final int end = skipTag(buf, p);
+				if (end >= limit || buf.get(end - 2) == '/') {
+					// no content in the root.
+					return null;
+				}
+				return new int[] { p, end };
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the position after the DOCTYPE declaration starting at pos.
+	 */
+	private static final int skipDocType(final ByteBuffer buf, final int pos) {
+		final int limit = buf.limit();
+		byte quote = 0;
+		int p = pos + 2;
+		while (p < limit) {
+			final byte b = buf.get(p);
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+				p++;
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+				p++;
+			} else if (b == '[') {
+				// internal subset
+				p++;
+				while (p < limit && buf.get(p) != ']') {
+					final byte c = buf.get(p);
+					if (c == '"' || c == '\'') {
+						final byte q = c;
+						p++;
+						while (p < limit && buf.get(p) != q) {
+							p++;
+						}
+						p++;
+					} else if (startsWith(buf, p, "<!--")) {
+						p = skipPast(buf, p, "-->");
+					} else if (startsWith(buf, p, "<?")) {
+						p = skipPast(buf, p, "?>");
+					} else {
+						p++;
+					}
+				}
+				p++;
+			} else if (b == '>') {
+				return p + 1;
+			} else {
+				p++;
+			}
+		}
+		return limit;
+	}
+
+	/**
+	 * Scan the root Element's content, recording the positions to split the
+	 * content at, and find the root's end tag.
+	 * 
+	 * @return the position of the root's end tag, or -1 if there is none.
+	 */
+	private final int scanBody(final ByteBuffer buf, final int start,
+			final List<Integer> splits) {
+		final int limit = buf.limit();
+		int depth = 0;
+		int chunkstart = start;
+		int p = start;
+		while (p < limit) {
+			if (buf.get(p) != '<') {
+				p++;
+				continue;
+			}
+			if (p + 1 >= limit) {
+				return -1;
+			}
+			final byte next = buf.get(p + 1);
+			if (next == '/') {
+				if (depth == 0) {
+					return p;
+				}
+				depth--;
+				p = skipTag(buf, p);
+			} else if (next == '!') {
+				if (startsWith(buf, p, "<!--")) {
+					p = skipPast(buf, p, "-->");
+				} else if (startsWith(buf, p, "<![CDATA[")) {
+					p = skipPast(buf, p, "]]>");
+				} else {
+					p = skipTag(buf, p);
+				}
+			} else if (next == '?') {
+				p = skipPast(buf, p, "?>");
+			} else {
+				if (depth == 0 && p - chunkstart >= chunksize) {
+					splits.add(Integer.valueOf(p));
+					chunkstart = p;
+				}
+				final int end = skipTag(buf, p);
+				if (buf.get(end - 2) != '/') {
+					depth++;
+				}
+				p = end;
+			}
+		}
+		return -1;
+	}
+
+}
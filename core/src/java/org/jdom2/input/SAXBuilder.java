@@ -60,11 +60,15 @@ import static org.jdom2.JDOMConstants.SAX_PROPERTY_LEXICAL_HANDLER;
 import static org.jdom2.JDOMConstants.SAX_PROPERTY_LEXICAL_HANDLER_ALT;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -87,6 +91,7 @@ import org.jdom2.JDOMFactory;
 import org.jdom2.Verifier;
 import org.jdom2.input.sax.BuilderErrorHandler;
 import org.jdom2.input.sax.DefaultSAXHandlerFactory;
+import org.jdom2.input.sax.DeferredSAXHandlerFactory;
 import org.jdom2.input.sax.SAXBuilderEngine;
 import org.jdom2.input.sax.SAXEngine;
 import org.jdom2.input.sax.SAXHandler;
@@ -121,7 +126,9 @@ import org.jdom2.input.sax.XMLReaders;
  * Neither SAXBuilder nor anything derived from SAXBuilder is thread-safe. You
  * must ensure that SAXBuilder is used in a single thread, or that sufficient
  * locking is in place to ensure that SAXBuilder is not concurrently accessed.
- * See the special note on {@link #buildEngine()}. 
+ * See the special note on {@link #buildEngine()}. For concurrent parsing,
+ * configure a SAXBuilder and build with its thread-safe
+ * {@link #getEnginePool()}.
  * <p>
  * Known issues:
  * <ul>
@@ -201,12 +208,18 @@ public class SAXBuilder implements SAXEngine {
 	/** Whether to ignore all whitespace content */
 	private boolean ignoringBoundaryWhite = false;
 
+	/** Whether Text content is a slice of a shared buffer */
+	private boolean sharedText = false;
+
 	/** Whether parser reuse is allowed. */
 	private boolean reuseParser = true;
 
 	/** The current SAX parser, if parser reuse has been activated. */
 	private SAXEngine engine = null;
 
+	/** The shared pool of SAX parsers for concurrent builds. */
+	private SAXEnginePool pool = null;
+
 	/**
 	 * Creates a new JAXP-based SAXBuilder. The underlying parser will not
 	 * validate.
@@ -408,6 +421,7 @@ public class SAXBuilder implements SAXEngine {
 	public void setJDOMFactory(final JDOMFactory factory) {
 		this.jdomfac = factory;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -431,6 +445,7 @@ public class SAXBuilder implements SAXEngine {
 				? XMLReaders.NONVALIDATING
 				: rfac;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -452,6 +467,43 @@ public class SAXBuilder implements SAXEngine {
 	public void setSAXHandlerFactory(final SAXHandlerFactory factory) {
 		this.handlerfac = factory == null ? DEFAULTSAXHANDLERFAC : factory;
 		engine = null;
+		pool = null;
+	}
+
+	/**
+	 * Returns whether the content inside the root Element is built only when
+	 * it is accessed. The default is false.
+	 * 
+	 * @return true if this builder defers building the content.
+	 * @see #setDeferredBuild(boolean)
+	 */
+	public boolean isDeferredBuild() {
+		return handlerfac instanceof DeferredSAXHandlerFactory;
+	}
+
+	/**
+	 * Specifies whether the content inside the root Element is built only when
+	 * it is accessed. When deferred, the content of each Element is recorded
+	 * compactly during the parse, and is built (by the JDOMFactory) the first
+	 * time the Element's content is accessed. This uses less memory and time
+	 * for large documents of which only parts are read.
+	 * <p>
+	 * This is a shortcut for setting a {@link DeferredSAXHandlerFactory} as
+	 * the SAXHandlerFactory, so it replaces any custom SAXHandlerFactory.
+	 * Turning it off restores the default SAXHandlerFactory.
+	 * <p>
+	 * <strong>Note</strong>: building the deferred content modifies the
+	 * Document, so deferred Documents are not safe for concurrent (even
+	 * read-only) access by multiple threads.
+	 * 
+	 * @param deferred
+	 *        Whether to defer building the content.
+	 * @see org.jdom2.DeferredContent
+	 */
+	public void setDeferredBuild(final boolean deferred) {
+		if (deferred != isDeferredBuild()) {
+			setSAXHandlerFactory(deferred ? new DeferredSAXHandlerFactory() : null);
+		}
 	}
 
 	/**
@@ -543,6 +595,7 @@ public class SAXBuilder implements SAXEngine {
 	public void setErrorHandler(final ErrorHandler errorHandler) {
 		saxErrorHandler = errorHandler;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -564,6 +617,7 @@ public class SAXBuilder implements SAXEngine {
 	public void setEntityResolver(final EntityResolver entityResolver) {
 		saxEntityResolver = entityResolver;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -588,6 +642,7 @@ public class SAXBuilder implements SAXEngine {
 	public void setDTDHandler(final DTDHandler dtdHandler) {
 		saxDTDHandler = dtdHandler;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -617,6 +672,7 @@ public class SAXBuilder implements SAXEngine {
 	public void setXMLFilter(final XMLFilter xmlFilter) {
 		saxXMLFilter = xmlFilter;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -645,6 +701,7 @@ public class SAXBuilder implements SAXEngine {
 	public void setIgnoringElementContentWhitespace(final boolean ignoringWhite) {
 		this.ignoringWhite = ignoringWhite;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -680,6 +737,55 @@ public class SAXBuilder implements SAXEngine {
 	public void setIgnoringBoundaryWhitespace(final boolean ignoringBoundaryWhite) {
 		this.ignoringBoundaryWhite = ignoringBoundaryWhite;
 		engine = null;
+		pool = null;
+	}
+
+	/**
+	 * Returns whether the content of the Text and CDATA that are built is a
+	 * slice of a shared buffer.
+	 * 
+	 * @return <code>boolean</code> - whether Text content is shared.
+	 * @see #setSharedText(boolean)
+	 */
+	public boolean isSharedText() {
+		return sharedText;
+	}
+
+	/**
+	 * Specifies whether the content of Text and CDATA is kept as a slice of a
+	 * buffer that is shared by all the Text in a Document, instead of a
+	 * String for each Text. The String is only created when
+	 * {@link org.jdom2.Text#getText()} is called, and
+	 * {@link org.jdom2.output.XMLOutputter} writes the slice directly, so
+	 * Documents that are mostly output again (or only partly read) are built
+	 * with fewer copies and less memory. The default is <code>false</code>.
+	 * <p>
+	 * <strong>Note:</strong> the shared buffer is only released when all the
+	 * Text that came from it are released. See
+	 * {@link org.jdom2.SharedTextBuffer}. Deferred content (see
+	 * {@link #setDeferredBuild(boolean)}) does not use the shared buffer.
+	 * <p>
+	 * The shared Text and CDATA are created by the builder, not by the
+	 * {@link JDOMFactory}, so the text is only shared when the factory makes
+	 * plain Text and CDATA (not, for example, with a
+	 * {@link org.jdom2.located.LocatedJDOMFactory}). Their content is not
+	 * checked again by the {@link org.jdom2.Verifier} (as with the
+	 * {@link org.jdom2.UncheckedJDOMFactory}), it comes from the parser.
+	 * <p>
+	 * The protected {@link org.jdom2.Text#value} field of shared Text is null
+	 * until the String is created, so Text subclasses must use
+	 * {@link org.jdom2.Text#getText()}. Creating the String writes the Text,
+	 * so like any other Document that is not frozen these Documents must not
+	 * be read concurrently. {@link org.jdom2.Document#freeze()} creates all
+	 * the Strings (and releases the shared buffer).
+	 * 
+	 * @param sharedText
+	 *        Whether to share the Text content.
+	 */
+	public void setSharedText(final boolean sharedText) {
+		this.sharedText = sharedText;
+		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -719,6 +825,7 @@ public class SAXBuilder implements SAXEngine {
 	public void setExpandEntities(final boolean expand) {
 		this.expand = expand;
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -798,6 +905,7 @@ public class SAXBuilder implements SAXEngine {
 		// Save the specified feature for later.
 		features.put(name, value ? Boolean.TRUE : Boolean.FALSE);
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -825,6 +933,7 @@ public class SAXBuilder implements SAXEngine {
 		// Save the specified property for later.
 		properties.put(name, value);
 		engine = null;
+		pool = null;
 	}
 
 	/**
@@ -850,6 +959,7 @@ public class SAXBuilder implements SAXEngine {
 		contentHandler.setExpandEntities(expand);
 		contentHandler.setIgnoringElementContentWhitespace(ignoringWhite);
 		contentHandler.setIgnoringBoundaryWhitespace(ignoringBoundaryWhite);
+		contentHandler.setSharedText(sharedText);
 
 		final XMLReader parser = createParser();
 		// Configure parser
@@ -859,6 +969,47 @@ public class SAXBuilder implements SAXEngine {
 		return new SAXBuilderEngine(parser, contentHandler, valid);
 	}
 
+	/**
+	 * Get a thread-safe {@link SAXEnginePool} of SAXEngines that represent the
+	 * current SAXBuilder settings. The same pool is returned until this
+	 * SAXBuilder is reconfigured (after which a new pool is returned), so all
+	 * threads that call this method share the pooled SAXEngines.
+	 * <p>
+	 * This is the way to parse concurrently with a single SAXBuilder:
+	 * configure the SAXBuilder, and then have all threads build with
+	 * <code>getEnginePool().build(...)</code>. The pool keeps up to
+	 * {@link SAXEnginePool#DEFAULT_CAPACITY} idle SAXEngines. Use
+	 * {@link #buildEnginePool(int)} for a pool of a different size.
+	 * <p>
+	 * This method is synchronized, but the SAXBuilder must not be
+	 * reconfigured while it, or a pool from it, is in use.
+	 * 
+	 * @return the shared SAXEnginePool for the current settings.
+	 * @throws IllegalStateException
+	 *         if an XMLFilter is set (it cannot be shared by pooled engines).
+	 */
+	public synchronized SAXEnginePool getEnginePool() {
+		if (pool == null) {
+			pool = buildEnginePool(SAXEnginePool.DEFAULT_CAPACITY);
+		}
+		return pool;
+	}
+
+	/**
+	 * Build a new thread-safe {@link SAXEnginePool} of SAXEngines that
+	 * represent the current SAXBuilder settings.
+	 * 
+	 * @param capacity
+	 *        The maximum number of idle SAXEngines the pool keeps.
+	 * @return a new SAXEnginePool for the current settings.
+	 * @throws IllegalStateException
+	 *         if an XMLFilter is set (it cannot be shared by pooled engines).
+	 * @see #getEnginePool()
+	 */
+	public SAXEnginePool buildEnginePool(final int capacity) {
+		return new SAXEnginePool(this, capacity);
+	}
+
 	/**
 	 * Allow overriding classes access to the Parser before it is used in a
 	 * SAXBuilderEngine.
@@ -1173,6 +1324,86 @@ public class SAXBuilder implements SAXEngine {
 		}
 	}
 
+	/**
+	 * This builds a document from the remaining bytes in a ByteBuffer (for
+	 * example a MappedByteBuffer). The parser reads directly from the
+	 * ByteBuffer, and the ByteBuffer's position is not changed.
+	 * 
+	 * @param buffer
+	 *        <code>ByteBuffer</code> to read from
+	 * @param systemId
+	 *        base for resolving relative URIs (may be null)
+	 * @return <code>Document</code> resultant Document object
+	 * @throws JDOMException
+	 *         when errors occur in parsing
+	 * @throws IOException
+	 *         when an I/O error prevents a document from being fully parsed
+	 */
+	public Document build(final ByteBuffer buffer, final String systemId)
+			throws JDOMException, IOException {
+		return build(new ByteBufferInputStream(buffer.duplicate()), systemId);
+	}
+
+	/**
+	 * This builds a document from the remaining bytes in a (blocking)
+	 * ReadableByteChannel. The parser reads directly from the channel into
+	 * its own buffer, without an intermediate BufferedInputStream.
+	 * <p>
+	 * If the channel is a FileChannel, the rest of the file (from the
+	 * channel's position) is memory-mapped and parsed from memory, and the
+	 * channel's position is moved to the end of the file. Files of any size
+	 * can be mapped.
+	 * <p>
+	 * The channel is not closed.
+	 * 
+	 * @param channel
+	 *        <code>ReadableByteChannel</code> to read from
+	 * @param systemId
+	 *        base for resolving relative URIs (may be null)
+	 * @return <code>Document</code> resultant Document object
+	 * @throws JDOMException
+	 *         when errors occur in parsing
+	 * @throws IOException
+	 *         when an I/O error prevents a document from being fully parsed
+	 */
+	public Document build(final ReadableByteChannel channel,
+			final String systemId) throws JDOMException, IOException {
+		if (channel instanceof FileChannel) {
+			final FileChannel fc = (FileChannel)channel;
+			final long end = fc.size();
+			final ByteBuffer[] mapped = 
+					ByteBufferInputStream.map(fc, fc.position(), end);
+			final Document doc = build(new ByteBufferInputStream(mapped), systemId);
+			fc.position(end);
+			return doc;
+		}
+		return build(new ChannelInputStream(channel), systemId);
+	}
+
+	/**
+	 * This builds a document from a memory-mapped file. This is typically
+	 * faster than {@link #build(File)} for large files because the parser
+	 * reads directly from the mapped file, and there is no copy through an
+	 * intermediate buffer.
+	 * 
+	 * @param file
+	 *        <code>File</code> to read from
+	 * @return <code>Document</code> resultant Document object
+	 * @throws JDOMException
+	 *         when errors occur in parsing
+	 * @throws IOException
+	 *         when an I/O error prevents a document from being fully parsed
+	 */
+	public Document buildMapped(final File file)
+			throws JDOMException, IOException {
+		final FileInputStream fis = new FileInputStream(file);
+		try {
+			return build(fis.getChannel(), file.toURI().toString());
+		} finally {
+			fis.close();
+		}
+	}
+
 	/**
 	 * <p>
 	 * This builds a document from the supplied Reader. It's the programmer's
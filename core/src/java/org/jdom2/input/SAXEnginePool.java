@@ -0,0 +1,420 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.JDOMFactory;
+import org.jdom2.input.sax.SAXEngine;
+
+/**
+ * A thread-safe {@link SAXEngine} that parses with a pool of SAXEngines
+ * built by a {@link SAXBuilder}.
+ * <p>
+ * Each build borrows an idle SAXEngine from the pool (or builds a new one if
+ * none are idle), parses with it, and returns it to the pool. Creating a
+ * SAXEngine (an XMLReader and a SAXHandler) is expensive compared to parsing
+ * a small document, so services that parse many small documents on many
+ * threads should share one pool rather than use a SAXBuilder per thread, or a
+ * SAXBuilder with external locking.
+ * <p>
+ * The number of SAXEngines in use at once is not limited (builds never wait
+ * for an engine), but at most {@link #getCapacity()} idle engines are kept
+ * for reuse; the rest are discarded when they are returned. Engines that
+ * fail with an unexpected RuntimeException or Error are discarded too.
+ * <p>
+ * New SAXEngines are built from the SAXBuilder's configuration at the time
+ * they are needed, and the configuration getters of the pool read through to
+ * the SAXBuilder, so the SAXBuilder must not be reconfigured while the pool
+ * is in use. {@link SAXBuilder#getEnginePool()} returns a new pool after the
+ * SAXBuilder is reconfigured. The SAXBuilder's {@link JDOMFactory} (and
+ * SAXHandlerFactory and XMLReaderJDOMFactory) are shared by all the
+ * SAXEngines, and must be thread-safe. A SAXBuilder with an
+ * {@link org.xml.sax.XMLFilter} cannot be pooled because the filter would be
+ * shared by all the SAXEngines.
+ * 
+ * @since JDOM2
+ */
+public final class SAXEnginePool implements SAXEngine {
+
+	/** The default number of idle SAXEngines to keep. */
+	public static final int DEFAULT_CAPACITY = 
+			Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * One of the build calls, to make on a borrowed SAXEngine.
+	 */
+	private interface Parse {
+		Document parse(SAXEngine engine) throws JDOMException, IOException;
+	}
+
+	private final SAXBuilder builder;
+	private final int capacity;
+	private final ConcurrentLinkedQueue<SAXEngine> idle = 
+			new ConcurrentLinkedQueue<SAXEngine>();
+	private final AtomicInteger idlecount = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicLong builds = new AtomicLong();
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+
+	/**
+	 * Create a pool of SAXEngines built by a SAXBuilder.
+	 * 
+	 * @param builder
+	 *        The SAXBuilder to build the SAXEngines with.
+	 * @param capacity
+	 *        The maximum number of idle SAXEngines to keep.
+	 * @throws IllegalArgumentException
+	 *         if the capacity is negative.
+	 * @throws IllegalStateException
+	 *         if the SAXBuilder has an XMLFilter.
+	 * @see SAXBuilder#getEnginePool()
+	 */
+	public SAXEnginePool(final SAXBuilder builder, final int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException(
+					"Capacity must not be negative, not " + capacity);
+		}
+		if (builder.getXMLFilter() != null) {
+			throw new IllegalStateException(
+					"Unable to pool SAXEngines that share an XMLFilter");
+		}
+		this.builder = builder;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Get an idle SAXEngine, or build a new one.
+	 */
+	private final SAXEngine borrow() throws JDOMException {
+		builds.incrementAndGet();
+		active.incrementAndGet();
+		final SAXEngine engine = idle.poll();
+		if (engine != null) {
+			idlecount.decrementAndGet();
+			return engine;
+		}
+		try {
+			// neither SAXBuilder nor JAXP factories are thread-safe.
+			synchronized (builder) {
+				final SAXEngine ret = builder.buildEngine();
+				created.incrementAndGet();
+				return ret;
+			}
+		} catch (JDOMException e) {
+			active.decrementAndGet();
+			throw e;
+		} catch (RuntimeException e) {
+			active.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Return a SAXEngine to the pool, or discard it.
+	 */
+	private final void release(final SAXEngine engine, final boolean reusable) {
+		active.decrementAndGet();
+		if (reusable && idlecount.incrementAndGet() <= capacity) {
+			idle.offer(engine);
+			return;
+		}
+		if (reusable) {
+			idlecount.decrementAndGet();
+		}
+		discarded.incrementAndGet();
+	}
+
+	/**
+	 * Parse with a borrowed SAXEngine. The SAXEngine is reused after it
+	 * builds a Document, or fails with a JDOMException or IOException (bad
+	 * input); any other failure may have left it in a bad state.
+	 */
+	private final Document pooled(final Parse parse)
+			throws JDOMException, IOException {
+		final SAXEngine engine = borrow();
+		boolean reusable = false;
+		try {
+			final Document doc = parse.parse(engine);
+			reusable = true;
+			return doc;
+		} catch (JDOMException e) {
+			reusable = true;
+			throw e;
+		} catch (IOException e) {
+			reusable = true;
+			throw e;
+		} finally {
+			release(engine, reusable);
+		}
+	}
+
+	/**
+	 * The maximum number of idle SAXEngines kept in the pool.
+	 * 
+	 * @return the capacity of the pool.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The number of SAXEngines currently idle in the pool.
+	 * 
+	 * @return the idle count.
+	 */
+	public int getIdleCount() {
+		return idlecount.get();
+	}
+
+	/**
+	 * The number of SAXEngines currently parsing.
+	 * 
+	 * @return the active count.
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	/**
+	 * The number of builds started with this pool.
+	 * 
+	 * @return the build count.
+	 */
+	public long getBuildCount() {
+		return builds.get();
+	}
+
+	/**
+	 * The number of SAXEngines built for this pool. The difference between
+	 * this and {@link #getBuildCount()} is the number of builds that reused
+	 * an idle SAXEngine.
+	 * 
+	 * @return the created count.
+	 */
+	public long getCreatedCount() {
+		return created.get();
+	}
+
+	/**
+	 * The number of SAXEngines discarded because the pool was full, or
+	 * because they failed unexpectedly.
+	 * 
+	 * @return the discarded count.
+	 */
+	public long getDiscardedCount() {
+		return discarded.get();
+	}
+
+	/**
+	 * Discard all the idle SAXEngines.
+	 */
+	public void clear() {
+		while (idle.poll() != null) {
+			idlecount.decrementAndGet();
+			discarded.incrementAndGet();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "[SAXEnginePool capacity=" + capacity + " idle=" + getIdleCount()
+				+ " active=" + getActiveCount() + " builds=" + getBuildCount()
+				+ " created=" + getCreatedCount() + " discarded="
+				+ getDiscardedCount() + "]";
+	}
+
+	@Override
+	public JDOMFactory getJDOMFactory() {
+		synchronized (builder) {
+			return builder.getJDOMFactory();
+		}
+	}
+
+	@Override
+	public boolean isValidating() {
+		synchronized (builder) {
+			return builder.isValidating();
+		}
+	}
+
+	@Override
+	public ErrorHandler getErrorHandler() {
+		synchronized (builder) {
+			return builder.getErrorHandler();
+		}
+	}
+
+	@Override
+	public EntityResolver getEntityResolver() {
+		synchronized (builder) {
+			return builder.getEntityResolver();
+		}
+	}
+
+	@Override
+	public DTDHandler getDTDHandler() {
+		synchronized (builder) {
+			return builder.getDTDHandler();
+		}
+	}
+
+	@Override
+	public boolean getIgnoringElementContentWhitespace() {
+		synchronized (builder) {
+			return builder.getIgnoringElementContentWhitespace();
+		}
+	}
+
+	@Override
+	public boolean getIgnoringBoundaryWhitespace() {
+		synchronized (builder) {
+			return builder.getIgnoringBoundaryWhitespace();
+		}
+	}
+
+	@Override
+	public boolean getExpandEntities() {
+		synchronized (builder) {
+			return builder.getExpandEntities();
+		}
+	}
+
+	@Override
+	public Document build(final InputSource in) 
+			throws JDOMException, IOException {
+		return pooled(new Parse() {
+			@Override
+			public Document parse(final SAXEngine engine)
+					throws JDOMException, IOException {
+				return engine.build(in);
+			}
+		});
+	}
+
+	@Override
+	public Document build(final InputStream in) 
+			throws JDOMException, IOException {
+		return build(new InputSource(in));
+	}
+
+	@Override
+	public Document build(final File file) 
+			throws JDOMException, IOException {
+		return pooled(new Parse() {
+			@Override
+			public Document parse(final SAXEngine engine)
+					throws JDOMException, IOException {
+				return engine.build(file);
+			}
+		});
+	}
+
+	@Override
+	public Document build(final URL url) 
+			throws JDOMException, IOException {
+		return pooled(new Parse() {
+			@Override
+			public Document parse(final SAXEngine engine)
+					throws JDOMException, IOException {
+				return engine.build(url);
+			}
+		});
+	}
+
+	@Override
+	public Document build(final InputStream in, final String systemId)
+			throws JDOMException, IOException {
+		final InputSource src = new InputSource(in);
+		src.setSystemId(systemId);
+		return build(src);
+	}
+
+	@Override
+	public Document build(final Reader characterStream) 
+			throws JDOMException, IOException {
+		return build(new InputSource(characterStream));
+	}
+
+	@Override
+	public Document build(final Reader characterStream, final String systemId)
+			throws JDOMException, IOException {
+		final InputSource src = new InputSource(characterStream);
+		src.setSystemId(systemId);
+		return build(src);
+	}
+
+	@Override
+	public Document build(final String systemId) 
+			throws JDOMException, IOException {
+		return build(new InputSource(systemId));
+	}
+
+}
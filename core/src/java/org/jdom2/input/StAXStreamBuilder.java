@@ -57,7 +57,9 @@ package org.jdom2.input;
 import static javax.xml.stream.XMLStreamConstants.*;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
@@ -66,6 +68,7 @@ import javax.xml.stream.XMLStreamReader;
 import org.jdom2.AttributeType;
 import org.jdom2.Content;
 import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.DeferredContent;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -113,12 +116,14 @@ public class StAXStreamBuilder {
 	 * Create a Document from an XMLStreamReader
 	 * @param factory The {@link JDOMFactory} to use
 	 * @param stream The XMLStreamReader to read from
+	 * @param deferred Whether to defer building the root Element's content
 	 * @return the parsed Document
 	 * @throws JDOMException if there is any issue
 	 * 				(XMLStreamExceptions are wrapped).
 	 */
 	private static final Document process(final JDOMFactory factory, 
-			final XMLStreamReader stream) throws JDOMException {
+			final XMLStreamReader stream, final boolean deferred) 
+					throws JDOMException {
 		try {
 
 			int state = stream.getEventType();
@@ -150,7 +155,9 @@ public class StAXStreamBuilder {
 						break;
 
 					case START_ELEMENT:
-						document.setRootElement(processElementFragment(factory, stream));
+						document.setRootElement(deferred
+								? processDeferredElement(factory, stream)
+								: processElementFragment(factory, stream));
 						break;
 
 					case END_ELEMENT:
@@ -283,6 +290,89 @@ public class StAXStreamBuilder {
 	}
 
 	
+	/**
+	 * Iterate over the Elements that match a StAXFilter, building one at a time
+	 * as the XMLStreamReader is read.
+	 */
+	private static final class ElementIterator implements Iterator<Element> {
+		private final JDOMFactory factory;
+		private final XMLStreamReader reader;
+		private final StAXFilter filter;
+		private int depth = 0;
+		private Element next = null;
+		private boolean done = false;
+
+		private ElementIterator(final JDOMFactory factory, 
+				final XMLStreamReader reader, final StAXFilter filter) {
+			this.factory = factory;
+			this.reader = reader;
+			this.filter = filter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next != null) {
+				return true;
+			}
+			if (done) {
+				return false;
+			}
+			try {
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+						case START_ELEMENT:
+							final QName qn = reader.getName();
+							if (filter.includeElement(depth, qn.getLocalPart(), 
+									Namespace.getNamespace(
+											qn.getPrefix(), qn.getNamespaceURI()))) {
+								// leaves the reader at the matching END_ELEMENT
+								next = processPrunableElement(factory, reader, 
+										depth, filter);
+								return true;
+							}
+							depth++;
+							break;
+						case END_ELEMENT:
+							depth--;
+							break;
+						case END_DOCUMENT:
+							done = true;
+							return false;
+						default:
+							// content outside of the included Elements.
+							break;
+					}
+				}
+			} catch (XMLStreamException e) {
+				done = true;
+				throw new IllegalStateException(
+						"Unable to process Elements from XMLStreamReader.", e);
+			} catch (JDOMException e) {
+				done = true;
+				throw new IllegalStateException(
+						"Unable to process Elements from XMLStreamReader.", e);
+			}
+			done = true;
+			return false;
+		}
+
+		@Override
+		public Element next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more Elements");
+			}
+			final Element ret = next;
+			next = null;
+			return ret;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException(
+					"Cannot remove Elements from an XMLStreamReader");
+		}
+	}
+
 	private static final Element processPrunableElement(final JDOMFactory factory, 
 			final XMLStreamReader reader, final int topdepth, StAXFilter filter) 
 					throws XMLStreamException, JDOMException {
@@ -491,6 +581,82 @@ public class StAXStreamBuilder {
 		return fragment;
 	}
 
+	/**
+	 * Build an Element, and record its content in a DeferredContent so that
+	 * it is only built when it is accessed.
+	 * @param factory The {@link JDOMFactory} to use
+	 * @param reader The XMLStreamReader, at the START_ELEMENT
+	 * @return the Element with deferred content
+	 * @throws XMLStreamException if there is a parse issue
+	 * @throws JDOMException if there is an unexpected event
+	 */
+	private static final Element processDeferredElement(final JDOMFactory factory, 
+			final XMLStreamReader reader) throws XMLStreamException, JDOMException {
+
+		final Element element = processElement(factory, reader);
+		final DeferredContent content = new DeferredContent(factory);
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			switch(reader.next()) {
+				case START_ELEMENT:
+					content.startElement(-1, -1, reader.getLocalName(),
+							Namespace.getNamespace(reader.getPrefix(), 
+									reader.getNamespaceURI()));
+					for (int i=0, len=reader.getAttributeCount(); i<len; i++) {
+						content.addAttribute(
+								reader.getAttributeLocalName(i),
+								Namespace.getNamespace(reader.getAttributePrefix(i),
+										reader.getAttributeNamespace(i)),
+								reader.getAttributeValue(i), 
+								AttributeType.getAttributeType(reader.getAttributeType(i)),
+								true);
+					}
+					for (int i = 0, len = reader.getNamespaceCount(); i < len; i++) {
+						content.addNamespaceDeclaration(Namespace.getNamespace(
+								reader.getNamespacePrefix(i), reader.getNamespaceURI(i)));
+					}
+					depth++;
+					break;
+				case END_ELEMENT:
+					if (--depth > 0) {
+						content.endElement();
+					}
+					break;
+				case CDATA:
+					content.cdata(-1, -1, reader.getTextCharacters(),
+							reader.getTextStart(), reader.getTextLength());
+					break;
+
+				case SPACE:
+				case CHARACTERS:
+					content.text(-1, -1, reader.getTextCharacters(),
+							reader.getTextStart(), reader.getTextLength());
+					break;
+
+				case COMMENT:
+					content.comment(-1, -1, reader.getText());
+					break;
+
+				case ENTITY_REFERENCE:
+					content.entityRef(-1, -1, reader.getLocalName(), null, null);
+					break;
+
+				case PROCESSING_INSTRUCTION:
+					content.processingInstruction(-1, -1,
+							reader.getPITarget(), reader.getPIData());
+					break;
+
+				default:
+					throw new JDOMException("Unexpected XMLStream event " + reader.getEventType());
+			}
+		}
+		if (depth > 0) {
+			throw new JDOMException("Unexpected end-of-XMLStreamReader");
+		}
+		content.defer(element);
+		return element;
+	}
+
 	private static final Element processElement(final JDOMFactory factory, 
 			final XMLStreamReader reader) {
 
@@ -521,6 +687,9 @@ public class StAXStreamBuilder {
 	/** The factory to use for parsing */
 	private JDOMFactory builderfactory = new DefaultJDOMFactory();
 
+	/** Whether to defer building the root Element's content */
+	private boolean deferred = false;
+
 	/**
 	 * Returns the current {@link org.jdom2.JDOMFactory} in use.
 	 * @return the factory in use
@@ -539,6 +708,26 @@ public class StAXStreamBuilder {
 		this.builderfactory = factory;
 	}
 
+	/**
+	 * Returns whether the content inside the root Element is built only when
+	 * it is accessed. The default is false.
+	 * @return true if this builder defers building the content.
+	 */
+	public boolean isDeferredBuild() {
+		return deferred;
+	}
+
+	/**
+	 * Specifies whether the content inside the root Element is built only when
+	 * it is accessed. See {@link SAXBuilder#setDeferredBuild(boolean)}. This
+	 * only affects {@link #build(XMLStreamReader)}.
+	 * @param deferred Whether to defer building the content.
+	 * @see org.jdom2.DeferredContent
+	 */
+	public void setDeferredBuild(boolean deferred) {
+		this.deferred = deferred;
+	}
+
 	/**
 	 * This builds a document from the supplied
 	 * XMLStreamReader.
@@ -550,7 +739,7 @@ public class StAXStreamBuilder {
 	 * @throws JDOMException when errors occur in parsing
 	 */
 	public Document build(XMLStreamReader reader) throws JDOMException {
-		return process(builderfactory, reader);
+		return process(builderfactory, reader, deferred);
 	}
 	
 	/**
@@ -566,6 +755,41 @@ public class StAXStreamBuilder {
 	}
 
 	
+	/**
+	 * Read the XMLStreamReader incrementally, and build each Element that is
+	 * included by the supplied StAXFilter only when the Iterator reaches it.
+	 * Each Element is a complete JDOM fragment (with its content pruned by the
+	 * StAXFilter's prune* methods) that has no parent, and is not referenced
+	 * by the Iterator once it is returned, so large documents of many
+	 * 'records' can be processed in constant memory.
+	 * <p>
+	 * Unlike {@link #buildFragments(XMLStreamReader, StAXFilter)}, the content
+	 * of an Element that is <strong>not</strong> included is searched for
+	 * included Elements. For example, a filter that includes Elements at
+	 * depth 1 that are called 'record' will return every
+	 * <code>/feed/record</code> Element. Content other than Elements is
+	 * ignored unless it is inside an included Element.
+	 * <p>
+	 * The XMLStreamReader is read as the Iterator is advanced, and it must not
+	 * be used, or closed, until the Iterator is done. Problems reading the
+	 * XMLStreamReader while iterating are thrown as IllegalStateExceptions
+	 * with the XMLStreamException (or JDOMException) as the cause.
+	 * The Iterator does not support remove().
+	 * 
+	 * @param reader The XMLStreamReader to parse, at the START_DOCUMENT state.
+	 * @param filter The Filter that selects (and prunes) the Elements.
+	 * @return an Iterator that builds the included Elements as it reaches them.
+	 * @throws JDOMException if the XMLStreamReader is not at START_DOCUMENT.
+	 */
+	public Iterator<Element> buildElementIterator(XMLStreamReader reader, 
+			StAXFilter filter) throws JDOMException {
+		if (START_DOCUMENT != reader.getEventType()) {
+			throw new JDOMException("JDOM requires that XMLStreamReaders " +
+					"are at their beginning when being processed.");
+		}
+		return new ElementIterator(builderfactory, reader, filter);
+	}
+
 	/**
 	 * Read the current XML Fragment from the XMLStreamReader.
 	 * The XMLStreamReader must be at some 'content' state, it cannot be
@@ -0,0 +1,279 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.input.sax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+import org.jdom2.AttributeType;
+import org.jdom2.DeferredContent;
+import org.jdom2.Element;
+import org.jdom2.JDOMFactory;
+import org.jdom2.Namespace;
+
+/**
+ * A SAXHandler that defers the building of the content of the root Element.
+ * The prolog, the DocType, and the root Element itself (with its Attributes)
+ * are built as normal, but the content inside the root Element is recorded
+ * in a {@link DeferredContent}, and each Element's content is only built
+ * when it is first accessed.
+ * <p>
+ * SAXHandler handles the SAX events (text, whitespace, CDATA and entities)
+ * and this class only overrides the methods that emit the content, so a
+ * fully-accessed deferred Document is the same as one built by SAXHandler.
+ * The deferred content keeps its own copy of the text, so
+ * {@link #setSharedText(boolean)} has no effect.
+ * 
+ * @see DeferredSAXHandlerFactory
+ * @see DeferredContent
+ * @since JDOM2
+ */
+public class DeferredSAXHandler extends SAXHandler {
+
+	/*
+	 * None of the fields are initialized in their declaration, they are set
+	 * in resetSubCLass() which is called by the SAXHandler constructor.
+	 */
+
+	/** The recorded content, a new one for each document */
+	private DeferredContent deferred;
+
+	/** The root Element (when the parse is inside it) */
+	private Element root;
+
+	/** Element depth, 1 for the root Element */
+	private int depth;
+
+	/** The Namespaces in scope, innermost last */
+	private List<Namespace> scope;
+
+	/** The size of scope at each depth */
+	private int[] scopemarks;
+
+	/**
+	 * Create a DeferredSAXHandler that builds content with the specified
+	 * JDOMFactory.
+	 * 
+	 * @param factory
+	 *        The JDOMFactory to build content with (null for the default).
+	 */
+	public DeferredSAXHandler(final JDOMFactory factory) {
+		super(factory);
+	}
+
+	@Override
+	protected void resetSubCLass() {
+		deferred = null;
+		root = null;
+		depth = 0;
+		if (scope == null) {
+			scope = new ArrayList<Namespace>();
+			scopemarks = new int[16];
+		} else {
+			scope.clear();
+		}
+	}
+
+	@Override
+	public void setSharedText(final boolean sharedText) {
+		// the deferred content keeps its own copy of the text.
+	}
+
+	private final int line() {
+		final Locator loc = getDocumentLocator();
+		return loc == null ? -1 : loc.getLineNumber();
+	}
+
+	private final int column() {
+		final Locator loc = getDocumentLocator();
+		return loc == null ? -1 : loc.getColumnNumber();
+	}
+
+	@Override
+	protected void emitStartElement(final String name,
+			final Namespace namespace) throws SAXException {
+		if (depth == 0) {
+			super.emitStartElement(name, namespace);
+			root = getCurrentElement();
+			deferred = new DeferredContent(getFactory());
+			depth = 1;
+			return;
+		}
+		if (scope.isEmpty()) {
+			// the root Element has all its Namespace declarations now.
+			scope.addAll(root.getNamespacesInScope());
+			// getNamespacesInScope is innermost first.
+			Collections.reverse(scope);
+		}
+		deferred.startElement(line(), column(), name, namespace);
+		if (depth == scopemarks.length) {
+			final int[] tmp = new int[depth * 2];
+			System.arraycopy(scopemarks, 0, tmp, 0, depth);
+			scopemarks = tmp;
+		}
+		scopemarks[depth++] = scope.size();
+		scope.add(namespace);
+	}
+
+	@Override
+	protected void emitNamespaceDeclaration(final Namespace namespace)
+			throws SAXException {
+		if (depth == 1) {
+			super.emitNamespaceDeclaration(namespace);
+			return;
+		}
+		deferred.addNamespaceDeclaration(namespace);
+		scope.add(namespace);
+	}
+
+	@Override
+	protected void emitAttribute(final String name, final Namespace namespace,
+			final String value, final AttributeType type,
+			final boolean specified) throws SAXException {
+		if (depth == 1) {
+			super.emitAttribute(name, namespace, value, type, specified);
+			return;
+		}
+		deferred.addAttribute(name, namespace, value, type, specified);
+	}
+
+	@Override
+	protected List<Namespace> getNamespacesInScope() throws SAXException {
+		if (depth == 1) {
+			return super.getNamespacesInScope();
+		}
+		// innermost first, and only the innermost Namespace of each prefix.
+		final ArrayList<Namespace> ret = new ArrayList<Namespace>();
+		final HashSet<String> seen = new HashSet<String>();
+		for (int i = scope.size() - 1; i >= 0; i--) {
+			final Namespace ns = scope.get(i);
+			if (seen.add(ns.getPrefix())) {
+				ret.add(ns);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	protected void emitEndElement(final String name) throws SAXException {
+		if (depth <= 1) {
+			if (depth == 1) {
+				deferred.defer(root);
+				deferred = null;
+				root = null;
+				depth = 0;
+				scope.clear();
+			}
+			super.emitEndElement(name);
+			return;
+		}
+		deferred.endElement();
+		final int mark = scopemarks[--depth];
+		while (scope.size() > mark) {
+			scope.remove(scope.size() - 1);
+		}
+	}
+
+	@Override
+	protected void emitText(final String text, final boolean cdata,
+			final int line, final int col) throws SAXException {
+		if (depth == 0) {
+			super.emitText(text, cdata, line, col);
+			return;
+		}
+		final int l = getDocumentLocator() == null ? -1 : line;
+		final int c = getDocumentLocator() == null ? -1 : col;
+		if (cdata) {
+			deferred.cdata(l, c, text);
+		} else {
+			deferred.text(l, c, text);
+		}
+	}
+
+	@Override
+	protected void emitComment(final String text) throws SAXException {
+		if (depth == 0) {
+			super.emitComment(text);
+			return;
+		}
+		deferred.comment(line(), column(), text);
+	}
+
+	@Override
+	protected void emitProcessingInstruction(final String target,
+			final String data) throws SAXException {
+		if (depth == 0) {
+			super.emitProcessingInstruction(target, data);
+			return;
+		}
+		deferred.processingInstruction(line(), column(), target, data);
+	}
+
+	@Override
+	protected void emitEntityRef(final String name, final String publicID,
+			final String systemID) throws SAXException {
+		if (depth == 0) {
+			super.emitEntityRef(name, publicID, systemID);
+			return;
+		}
+		deferred.entityRef(line(), column(), name, publicID, systemID);
+	}
+
+}
@@ -83,6 +83,7 @@ import org.jdom2.JDOMFactory;
 import org.jdom2.Namespace;
 import org.jdom2.Parent;
 import org.jdom2.ProcessingInstruction;
+import org.jdom2.SharedTextBuffer;
 import org.jdom2.Text;
 import org.jdom2.input.SAXBuilder;
 
@@ -183,6 +184,21 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 
 	/** Whether to ignore text containing all whitespace */
 	private boolean ignoringBoundaryWhite = false;
+
+	/** Whether Text content is a slice of a shared buffer */
+	private boolean sharedText = false;
+
+	/**
+	 * Whether the factory makes plain Text and CDATA, which can be replaced
+	 * by the Text that share the buffer.
+	 */
+	private final boolean plainText;
+
+	/**
+	 * The shared buffer for Text content, one for each Document - must be
+	 * cleared on reset()
+	 */
+	private SharedTextBuffer sharedBuffer = null;
 	
 	private int lastline = 0, lastcol = 0;
 
@@ -205,6 +221,8 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 	 */
 	public SAXHandler(final JDOMFactory factory) {
 		this.factory = factory != null ? factory : new DefaultJDOMFactory();
+		this.plainText = this.factory.text("").getClass() == Text.class
+				&& this.factory.cdata("").getClass() == CDATA.class;
 		reset();
 	}
 
@@ -238,6 +256,7 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 		declaredNamespaces.clear();
 		internalSubset.setLength(0);
 		textBuffer.clear();
+		sharedBuffer = null;
 		externalEntities.clear();
 		ignoringWhite = false;
 		ignoringBoundaryWhite = false;
@@ -348,6 +367,38 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 		return ignoringBoundaryWhite;
 	}
 
+	/**
+	 * Specifies whether the content of Text and CDATA is kept as a slice of
+	 * a buffer that is shared by all the Text in the Document, instead of a
+	 * String for each Text. See {@link SharedTextBuffer}, and
+	 * {@link SAXBuilder#setSharedText(boolean)}. Unlike the other settings
+	 * this one is not cleared by {@link #reset()}.
+	 * <p>
+	 * <strong>Note:</strong> when the text is shared the
+	 * {@link #flushCharacters(String)} method is not called, and the Text and
+	 * CDATA are created by the shared buffer, not by the JDOMFactory. So the
+	 * text is only shared if the JDOMFactory makes plain Text and CDATA (the
+	 * {@link DefaultJDOMFactory} does, the
+	 * {@link org.jdom2.located.LocatedJDOMFactory} does not).
+	 * 
+	 * @param sharedText
+	 *        Whether to share the Text content.
+	 */
+	public void setSharedText(final boolean sharedText) {
+		this.sharedText = sharedText;
+	}
+
+	/**
+	 * Returns whether the content of Text and CDATA is a slice of a shared
+	 * buffer.
+	 * 
+	 * @return <code>boolean</code> - whether Text content is shared.
+	 * @see #setSharedText(boolean)
+	 */
+	public boolean getSharedText() {
+		return sharedText;
+	}
+
 	/**
 	 * Returns whether or not the parser will elminate whitespace in element
 	 * content (sometimes known as "ignorable whitespace") when building the
@@ -492,16 +543,7 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 
 		flushCharacters();
 
-		final ProcessingInstruction pi = (currentLocator == null) ? factory
-				.processingInstruction(target, data) : factory
-				.processingInstruction(currentLocator.getLineNumber(),
-						currentLocator.getColumnNumber(), target, data);
-
-		if (atRoot) {
-			factory.addContent(currentDocument, pi);
-		} else {
-			factory.addContent(getCurrentElement(), pi);
-		}
+		emitProcessingInstruction(target, data);
 	}
 
 	/**
@@ -522,11 +564,7 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 
 		flushCharacters();
 
-		final EntityRef er = currentLocator == null ? factory.entityRef(name)
-				: factory.entityRef(currentLocator.getLineNumber(),
-						currentLocator.getColumnNumber(), name);
-
-		factory.addContent(getCurrentElement(), er);
+		emitEntityRef(name, null, null);
 	}
 
 	/**
@@ -595,27 +633,21 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 
 		final Namespace namespace = Namespace
 				.getNamespace(prefix, namespaceURI);
-		final Element element = currentLocator == null ? factory.element(
-				localName, namespace) : factory.element(
-				currentLocator.getLineNumber(),
-				currentLocator.getColumnNumber(), localName, namespace);
+
+		flushCharacters();
+
+		emitStartElement(localName, namespace);
 
 		// Take leftover declared namespaces and add them to this element's
 		// map of namespaces
 		if (declaredNamespaces.size() > 0) {
-			transferNamespaces(element);
-		}
-
-		flushCharacters();
-
-		if (atRoot) {
-			factory.setRoot(currentDocument, element); // Yes, use a factory
-			// call...
-			atRoot = false;
-		} else {
-			factory.addContent(getCurrentElement(), element);
+			for (final Namespace ns : declaredNamespaces) {
+				if (ns != namespace) {
+					emitNamespaceDeclaration(ns);
+				}
+			}
+			declaredNamespaces.clear();
 		}
-		currentElement = element;
 
 		// Handle attributes
 		for (int i = 0, len = atts.getLength(); i < len; i++) {
@@ -679,7 +711,7 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 				// <xs:attribute name="attname" form="qualified" ... />
 				// or the schema sets attributeFormDefault="qualified"
 				final HashMap<String, Namespace> tmpmap = new HashMap<String, Namespace>();
-				for (final Namespace nss : element.getNamespacesInScope()) {
+				for (final Namespace nss : getNamespacesInScope()) {
 					if (nss.getPrefix().length() > 0
 							&& nss.getURI().equals(attURI)) {
 						attPrefix = nss.getPrefix();
@@ -712,31 +744,218 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 			}
 			final Namespace attNs = Namespace.getNamespace(attPrefix, attURI);
 
-			final Attribute attribute = factory.attribute(attLocalName,
-					attValue, attType, attNs);
-			if (!specified) {
-				// it is a DTD defaulted value.
-				attribute.setSpecified(false);
-			}
-			factory.setAttribute(element, attribute);
+			emitAttribute(attLocalName, attNs, attValue, attType, specified);
+		}
+
+	}
+
+	/*
+	 * The emit methods below are where the SAX events, once the names,
+	 * Namespaces, text, CDATA and entities are sorted out, become content.
+	 * Subclasses can override them to do something else with the content (as
+	 * DeferredSAXHandler does) without repeating the SAX bookkeeping.
+	 */
+
+	/**
+	 * Start an Element. It becomes the current Element, and its Namespace
+	 * declarations and Attributes are emitted next.
+	 * 
+	 * @param name
+	 *        The local name of the Element.
+	 * @param namespace
+	 *        The Namespace of the Element.
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected void emitStartElement(final String name,
+			final Namespace namespace) throws SAXException {
+		final Element element = currentLocator == null ? factory.element(
+				name, namespace) : factory.element(
+				currentLocator.getLineNumber(),
+				currentLocator.getColumnNumber(), name, namespace);
+
+		if (atRoot) {
+			factory.setRoot(currentDocument, element); // Yes, use a factory
+			// call...
+			atRoot = false;
+		} else {
+			factory.addContent(getCurrentElement(), element);
+		}
+		currentElement = element;
+	}
+
+	/**
+	 * Add a Namespace declaration to the Element that was just started.
+	 * 
+	 * @param namespace
+	 *        The declared Namespace (not the Element's own Namespace).
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected void emitNamespaceDeclaration(final Namespace namespace)
+			throws SAXException {
+		getCurrentElement().addNamespaceDeclaration(namespace);
+	}
+
+	/**
+	 * Add an Attribute to the Element that was just started.
+	 * 
+	 * @param name
+	 *        The local name of the Attribute.
+	 * @param namespace
+	 *        The Namespace of the Attribute.
+	 * @param value
+	 *        The value of the Attribute.
+	 * @param type
+	 *        The type of the Attribute.
+	 * @param specified
+	 *        false if the value is a DTD default.
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected void emitAttribute(final String name, final Namespace namespace,
+			final String value, final AttributeType type,
+			final boolean specified) throws SAXException {
+		final Attribute attribute = factory.attribute(name, value, type,
+				namespace);
+		if (!specified) {
+			// it is a DTD defaulted value.
+			attribute.setSpecified(false);
 		}
+		factory.setAttribute(getCurrentElement(), attribute);
+	}
 
+	/**
+	 * The Namespaces in scope on the Element that was just started, used to
+	 * find a prefix for a (Schema defaulted) Attribute that has a Namespace
+	 * URI but no prefix.
+	 * 
+	 * @return the Namespaces in scope, innermost first, with one Namespace
+	 *         for each prefix.
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected List<Namespace> getNamespacesInScope() throws SAXException {
+		return getCurrentElement().getNamespacesInScope();
 	}
 
 	/**
-	 * This will take the supplied <code>{@link Element}</code> and transfer its
-	 * namespaces to the global namespace storage.
+	 * End the current Element. Its parent becomes the current Element.
 	 * 
-	 * @param element
-	 *        <code>Element</code> to read namespaces from.
+	 * @param name
+	 *        The local name of the Element (for error messages).
+	 * @throws SAXException
+	 *         if there is no current Element.
 	 */
-	private void transferNamespaces(final Element element) {
-		for (final Namespace ns : declaredNamespaces) {
-			if (ns != element.getNamespace()) {
-				element.addNamespaceDeclaration(ns);
+	protected void emitEndElement(final String name) throws SAXException {
+		if (!atRoot) {
+			final Parent p = currentElement.getParent();
+			if (p instanceof Document) {
+				atRoot = true;
+			} else {
+				currentElement = (Element) p;
 			}
+		} else {
+			throw new SAXException(
+					"Ill-formed XML document (missing opening tag for "
+							+ name + ")");
 		}
-		declaredNamespaces.clear();
+	}
+
+	/**
+	 * Add Text or CDATA to the current Element.
+	 * 
+	 * @param text
+	 *        The text.
+	 * @param cdata
+	 *        true for CDATA.
+	 * @param line
+	 *        The line the text ends on.
+	 * @param col
+	 *        The column the text ends on.
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected void emitText(final String text, final boolean cdata,
+			final int line, final int col) throws SAXException {
+		if (cdata) {
+			final CDATA c = currentLocator == null ? factory.cdata(text)
+					: factory.cdata(line, col, text);
+			factory.addContent(getCurrentElement(), c);
+		} else {
+			final Text t = currentLocator == null ? factory.text(text)
+					: factory.text(line, col, text);
+			factory.addContent(getCurrentElement(), t);
+		}
+	}
+
+	/**
+	 * Add a Comment to the current Element, or to the Document if it is
+	 * outside the root Element.
+	 * 
+	 * @param text
+	 *        The Comment text.
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected void emitComment(final String text) throws SAXException {
+		final Comment comment = currentLocator == null ? factory
+				.comment(text) : factory.comment(
+				currentLocator.getLineNumber(),
+				currentLocator.getColumnNumber(), text);
+		if (atRoot) {
+			factory.addContent(currentDocument, comment);
+		} else {
+			factory.addContent(getCurrentElement(), comment);
+		}
+	}
+
+	/**
+	 * Add a ProcessingInstruction to the current Element, or to the Document
+	 * if it is outside the root Element.
+	 * 
+	 * @param target
+	 *        The ProcessingInstruction target.
+	 * @param data
+	 *        The ProcessingInstruction data.
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected void emitProcessingInstruction(final String target,
+			final String data) throws SAXException {
+		final ProcessingInstruction pi = (currentLocator == null) ? factory
+				.processingInstruction(target, data) : factory
+				.processingInstruction(currentLocator.getLineNumber(),
+						currentLocator.getColumnNumber(), target, data);
+
+		if (atRoot) {
+			factory.addContent(currentDocument, pi);
+		} else {
+			factory.addContent(getCurrentElement(), pi);
+		}
+	}
+
+	/**
+	 * Add an EntityRef (an entity that is not expanded) to the current
+	 * Element.
+	 * 
+	 * @param name
+	 *        The entity name.
+	 * @param publicID
+	 *        The public ID of an external entity (may be null).
+	 * @param systemID
+	 *        The system ID of an external entity (may be null).
+	 * @throws SAXException
+	 *         if the state of the handler does not allow this.
+	 */
+	protected void emitEntityRef(final String name, final String publicID,
+			final String systemID) throws SAXException {
+		final EntityRef er = currentLocator == null ? factory.entityRef(name,
+				publicID, systemID) : factory.entityRef(
+				currentLocator.getLineNumber(),
+				currentLocator.getColumnNumber(), name, publicID, systemID);
+
+		factory.addContent(getCurrentElement(), er);
 	}
 
 	/**
@@ -760,7 +979,14 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 			flushCharacters();
 		}
 
-		textBuffer.append(ch, start, length);
+		if (sharedText && plainText) {
+			if (sharedBuffer == null) {
+				sharedBuffer = new SharedTextBuffer();
+			}
+			sharedBuffer.append(ch, start, length);
+		} else {
+			textBuffer.append(ch, start, length);
+		}
 		
 		if (currentLocator != null) {
 			lastline = currentLocator.getLineNumber();
@@ -798,6 +1024,10 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 	 *         when things go wrong
 	 */
 	protected void flushCharacters() throws SAXException {
+		if (sharedText && plainText) {
+			flushSharedCharacters();
+			return;
+		}
 		if (ignoringBoundaryWhite) {
 			if (!textBuffer.isAllWhitespace()) {
 				flushCharacters(textBuffer.toString());
@@ -808,6 +1038,31 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 		textBuffer.clear();
 	}
 
+	/**
+	 * Flush the pending characters in the shared buffer to a Text (or CDATA)
+	 * that is a slice of the buffer.
+	 * 
+	 * @throws SAXException
+	 *         when things go wrong
+	 */
+	private void flushSharedCharacters() throws SAXException {
+		if (sharedBuffer == null || sharedBuffer.length() == 0) {
+			// empty CDATA sections are kept, nothing else is.
+			flushCharacters("");
+			return;
+		}
+		if (ignoringBoundaryWhite && sharedBuffer.isAllWhitespace()) {
+			sharedBuffer.clear();
+			return;
+		}
+		if (previousCDATA) {
+			factory.addContent(getCurrentElement(), sharedBuffer.cdata());
+		} else {
+			factory.addContent(getCurrentElement(), sharedBuffer.text());
+		}
+		previousCDATA = inCDATA;
+	}
+
 	/**
 	 * Flush the given string into the document. This is a protected method so
 	 * subclassers can control text handling without knowledge of the internals
@@ -831,15 +1086,7 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 		 * getCurrentElement().addContent(factory.text(data)); }
 		 */
 
-		if (previousCDATA) {
-			final CDATA cdata = currentLocator == null ? factory.cdata(data)
-					: factory.cdata(lastline, lastcol, data);
-			factory.addContent(getCurrentElement(), cdata);
-		} else {
-			final Text text = currentLocator == null ? factory.text(data)
-					: factory.text(lastline, lastcol, data);
-			factory.addContent(getCurrentElement(), text);
-		}
+		emitText(data, previousCDATA, lastline, lastcol);
 
 		previousCDATA = inCDATA;
 	}
@@ -868,18 +1115,7 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 
 		flushCharacters();
 
-		if (!atRoot) {
-			final Parent p = currentElement.getParent();
-			if (p instanceof Document) {
-				atRoot = true;
-			} else {
-				currentElement = (Element) p;
-			}
-		} else {
-			throw new SAXException(
-					"Ill-formed XML document (missing opening tag for "
-							+ localName + ")");
-		}
+		emitEndElement(localName);
 	}
 
 	/**
@@ -959,14 +1195,9 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 				 */
 				if (!atRoot) {
 					flushCharacters();
-					final EntityRef entity = currentLocator == null ? factory
-							.entityRef(name, pub, sys) : factory.entityRef(
-							currentLocator.getLineNumber(),
-							currentLocator.getColumnNumber(), name, pub, sys);
-
 					// no way to tell if the entity was from an attribute or
 					// element so just assume element
-					factory.addContent(getCurrentElement(), entity);
+					emitEntityRef(name, pub, sys);
 				}
 				suppress = true;
 			}
@@ -1040,15 +1271,7 @@ public class SAXHandler extends DefaultHandler implements LexicalHandler,
 			return;
 		}
 		if ((!inDTD) && (!commentText.equals(""))) {
-			final Comment comment = currentLocator == null ? factory
-					.comment(commentText) : factory.comment(
-					currentLocator.getLineNumber(),
-					currentLocator.getColumnNumber(), commentText);
-			if (atRoot) {
-				factory.addContent(currentDocument, comment);
-			} else {
-				factory.addContent(getCurrentElement(), comment);
-			}
+			emitComment(commentText);
 		}
 	}
 
@@ -114,6 +114,25 @@ final class TextBuffer {
 		arraySize = 0;
 	}
 
+	/**
+	 * The number of characters in the buffer.
+	 * 
+	 * @return the buffer length.
+	 */
+	int length() {
+		return arraySize;
+	}
+
+	/**
+	 * Direct access to the buffered characters, only the first
+	 * {@link #length()} characters are valid.
+	 * 
+	 * @return the array backing this buffer.
+	 */
+	char[] getArray() {
+		return array;
+	}
+
 	/**
 	 * Inspects the character data for non-whitespace
 	 * 
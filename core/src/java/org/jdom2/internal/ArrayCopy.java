@@ -127,6 +127,18 @@ public final class ArrayCopy {
 		return dest;
 	}
 
+	/**
+	 * Arrays.copyOf(...) is a Java6 thing. This is a replacement.
+	 * @param source the source array.
+	 * @param len the length of the new array copy.
+	 * @return a new array that has the same elements as the source.
+	 */
+	public static final long[] copyOf(final long[] source, final int len) {
+		final long[] dest = new long[len];
+		System.arraycopy(source, 0, dest, 0, len < source.length ? len : source.length);
+		return dest;
+	}
+
 	/**
 	 * Arrays.copyOf(...) is a Java6 thing. This is a replacement.
 	 * @param source the source array.
@@ -0,0 +1,127 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.internal;
+
+/**
+ * The constants of the binary format shared by
+ * {@link org.jdom2.output.JDOMBinaryOutputter} and
+ * {@link org.jdom2.input.JDOMBinaryBuilder}.
+ * <p>
+ * A stream starts with the {@link #MAGIC} bytes, the {@link #VERSION} and
+ * the kind ({@link #KIND_DOCUMENT} or {@link #KIND_ELEMENT}). The rest is
+ * written in blocks of at most 65535 bytes, each after its
+ * length in 2 bytes (big-endian), so a reader can stop at the end of the
+ * last block without reading any further from the stream. A Document is
+ * followed by its (nullable) base URI, then its content tokens, then
+ * {@link #END}. An Element is a single {@link #ELEMENT} token, its content,
+ * and the matching {@link #ELEMENT_END}.
+ * <p>
+ * Numbers are unsigned LEB128 varints. Strings are a varint char count and
+ * then each char on its own in 1, 2 or 3 bytes (the UTF-8 bit patterns, but
+ * surrogates are encoded individually, so any Java String survives).
+ * Nullable strings store count + 1, with 0 for null.
+ * <p>
+ * Names (Element, Attribute, Processing Instruction target, EntityRef,
+ * DocType element name, Namespace prefix and URI) and Namespaces are only
+ * written once per stream. A name reference is 0 followed by the name the
+ * first time, and index + 1 after that. Namespace references work the same
+ * way (a new Namespace is its prefix and URI name references), and the
+ * Namespace table starts with NO_NAMESPACE and XML_NAMESPACE.
+ * 
+ * @since JDOM2
+ */
+public final class BinaryFormat {
+
+	private BinaryFormat() {
+		// inaccessible constructor.
+	}
+
+	/** The first bytes of a stream: 'J', 'D', 'B' */
+	public static final byte[] MAGIC = {'J', 'D', 'B'};
+	/** The format version */
+	public static final int VERSION = 2;
+
+	/** The stream holds a Document */
+	public static final int KIND_DOCUMENT = 'D';
+	/** The stream holds an Element */
+	public static final int KIND_ELEMENT = 'E';
+
+	/** The end of the Document content */
+	public static final int END = 0;
+	/**
+	 * An Element: name, namespace, attribute count, then for each Attribute
+	 * the name, namespace, type (ordinal &lt;&lt; 1 | specified) and value,
+	 * then the count and namespace references of the additional namespaces.
+	 */
+	public static final int ELEMENT = 1;
+	/** The end of an Element's content */
+	public static final int ELEMENT_END = 2;
+	/** Text: the text */
+	public static final int TEXT = 3;
+	/** CDATA: the text */
+	public static final int CDATA = 4;
+	/** Comment: the text */
+	public static final int COMMENT = 5;
+	/** ProcessingInstruction: target name, nullable data */
+	public static final int PI = 6;
+	/** EntityRef: name, nullable public ID, nullable system ID */
+	public static final int ENTITYREF = 7;
+	/**
+	 * DocType: element name, nullable public ID, nullable system ID, nullable
+	 * internal subset.
+	 */
+	public static final int DOCTYPE = 8;
+
+}
@@ -0,0 +1,146 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.internal;
+
+import org.jdom2.Element;
+
+/**
+ * Access to the serialized output that output processors cache on Elements
+ * (see {@link org.jdom2.output.Format#setCacheElements(boolean)}). This is
+ * not part of the JDOM API, the cache is owned by the output processors in
+ * org.jdom2.output.support.
+ * <p>
+ * The cache is discarded when an Element, its Attributes or Namespace
+ * declarations, or any of its descendants change, so a non-null value is
+ * always the output of the current state of the Element.
+ * 
+ * @since JDOM2
+ */
+public abstract class OutputCache {
+
+	/** The access installed by Element */
+	private static volatile OutputCache access = null;
+
+	/**
+	 * Install the access to the cache. Only Element does this, when it is
+	 * initialized.
+	 * 
+	 * @param cache
+	 *        the access to the cache.
+	 * @throws IllegalStateException
+	 *         if the access is already installed.
+	 */
+	public static final synchronized void install(final OutputCache cache) {
+		if (access != null) {
+			throw new IllegalStateException("The OutputCache is already installed.");
+		}
+		access = cache;
+	}
+
+	/**
+	 * Get the output cached on an Element.
+	 * 
+	 * @param element
+	 *        the Element.
+	 * @return the cached output, or null if there is none.
+	 */
+	public static final Object get(final Element element) {
+		return access.getCache(element);
+	}
+
+	/**
+	 * Cache the serialized output of an Element. The value is opaque to
+	 * JDOM, it is owned by the output processor that set it, and it should
+	 * be immutable.
+	 * <p>
+	 * Changes are tracked by walking up from the changed Element to the first
+	 * Element without a cache, so a cache can only be set if all the child
+	 * Elements of the Element already have one. Output processors serialize
+	 * the child Elements first, so this is normally the case. The cache can
+	 * be set on a frozen Element (it is not part of the content).
+	 * 
+	 * @param element
+	 *        the Element.
+	 * @param cache
+	 *        the output to cache, null to discard the cache of the Element
+	 *        (and of its ancestors).
+	 * @return true if the cache was set, false if a child Element has no
+	 *         cache.
+	 */
+	public static final boolean set(final Element element, final Object cache) {
+		return access.setCache(element, cache);
+	}
+
+	/**
+	 * Get the output cached on an Element.
+	 * 
+	 * @param element
+	 *        the Element.
+	 * @return the cached output, or null if there is none.
+	 */
+	protected abstract Object getCache(Element element);
+
+	/**
+	 * Cache the serialized output of an Element.
+	 * 
+	 * @param element
+	 *        the Element.
+	 * @param cache
+	 *        the output to cache, null to discard it.
+	 * @return true if the cache was set.
+	 */
+	protected abstract boolean setCache(Element element, Object cache);
+
+}
@@ -54,8 +54,11 @@
 
 package org.jdom2.output;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jdom2.IllegalDataException;
 import org.jdom2.Verifier;
@@ -156,27 +159,89 @@ public class Format implements Cloneable {
 	};
 	
 	/**
-	 * Handles Charsets.
+	 * Handles Charsets. Whether a char can be encoded is looked up in a
+	 * table that is built once per Charset (CharsetEncoder is slow, and
+	 * not thread-safe, so it is only used to build the table).
 	 */
 	private final static class DefaultCharsetEscapeStrategy implements EscapeStrategy {
 		
-		private final CharsetEncoder encoder;
+		private final long[] escapes;
 
-		public DefaultCharsetEscapeStrategy(CharsetEncoder cse) {
-			encoder = cse;
+		public DefaultCharsetEscapeStrategy(final Charset charset) {
+			escapes = getCharsetEscapes(charset);
 		}
 
 		@Override
 		public boolean shouldEscape(final char ch) {
-			
-			if (Verifier.isHighSurrogate(ch)) {
-				return true;  // Safer this way per http://unicode.org/faq/utf_bom.html#utf8-4
-			}
-
-			return !encoder.canEncode(ch);
+			return (escapes[ch >>> 6] & (1L << ch)) != 0L;
 		}
 		
 	}
+
+	/**
+	 * The escape tables for Charsets, by Charset name. The tables are bit-sets
+	 * of the chars that should be escaped.
+	 */
+	private static final ConcurrentHashMap<String, long[]> CHARSETESCAPES =
+			new ConcurrentHashMap<String, long[]>();
+
+	/**
+	 * Get (and build if needed) the escape table for a Charset.
+	 * 
+	 * @param charset
+	 *        The charset to get the table for.
+	 * @return the bit-set of chars that must be escaped in the charset.
+	 */
+	private static final long[] getCharsetEscapes(final Charset charset) {
+		final long[] cached = CHARSETESCAPES.get(charset.name());
+		if (cached != null) {
+			return cached;
+		}
+		final CharsetEncoder encoder = charset.newEncoder();
+		final long[] escapes = new long[1024];
+		for (int i = 0; i <= Character.MAX_VALUE; i++) {
+			final char ch = (char)i;
+			// Escaping high surrogates is safer this way per
+			// http://unicode.org/faq/utf_bom.html#utf8-4
+			if (Verifier.isHighSurrogate(ch) || !encoder.canEncode(ch)) {
+				escapes[i >>> 6] |= 1L << i;
+			}
+		}
+		final long[] raced = CHARSETESCAPES.putIfAbsent(charset.name(), escapes);
+		return raced == null ? escapes : raced;
+	}
+
+	/**
+	 * Whether a strategy is one of the built-in strategies that never escape
+	 * ASCII characters (with the ASCII markup chars handled separately, this
+	 * lets the escape loops skip the strategy for ASCII).
+	 * 
+	 * @param strategy
+	 *        The strategy to check
+	 * @return true if the strategy never escapes an ASCII char.
+	 */
+	private static final boolean isASCIISafe(final EscapeStrategy strategy) {
+		return strategy == UTFEscapeStrategy || strategy == Bits8EscapeStrategy
+				|| strategy == Bits7EscapeStrategy
+				|| strategy == DefaultEscapeStrategy;
+	}
+
+	/** The ASCII chars that are always escaped in text, indexed by char */
+	private static final boolean[] TEXTMARKUP = new boolean[128];
+	/** The ASCII chars that are always escaped in attributes, indexed by char */
+	private static final boolean[] ATTRIBUTEMARKUP = new boolean[128];
+	static {
+		TEXTMARKUP['<'] = true;
+		TEXTMARKUP['>'] = true;
+		TEXTMARKUP['&'] = true;
+		TEXTMARKUP['\r'] = true;
+		TEXTMARKUP['\n'] = true;
+		System.arraycopy(TEXTMARKUP, 0, ATTRIBUTEMARKUP, 0, 128);
+		ATTRIBUTEMARKUP['"'] = true;
+		ATTRIBUTEMARKUP['\t'] = true;
+	}
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
 	
 	/**
 	 * Returns a new Format object that performs no whitespace changes, uses
@@ -327,45 +392,104 @@ public class Format implements Cloneable {
 
 	
 	/**
-	 * This will take the three pre-defined entities in XML 1.0 ('&lt;', '&gt;',
-	 * and '&amp;' - used specifically in XML elements) as well as CR/NL, tabs,
-	 * and Quote characters which require escaping inside Attribute values and
-	 * converts their character representation to the appropriate entity
-	 * reference suitable for XML attribute content. Further, some special
-	 * characters (e.g. characters that are not valid in the current encoding)
-	 * are converted to escaped representations.
-	 * <p>
-	 * @param strategy 
+	 * Find the first char in the value that needs escaping.
+	 * 
+	 * @param strategy
 	 *        The EscapeStrategy to query.
 	 * @param value
-	 *        <code>String</code> Attribute value to escape.
-	 * @return The value appropriately escaped.
-	 * @throws IllegalDataException
-	 *         if an entity can not be escaped
+	 *        The value to scan.
+	 * @param markup
+	 *        The ASCII markup table (text or attribute).
+	 * @return the index of the first char to escape, or the value length if
+	 *         there is nothing to escape.
 	 */
-	public static final String escapeAttribute(final EscapeStrategy strategy, 
-			final String value) {
+	private static final int firstEscape(final EscapeStrategy strategy,
+			final CharSequence value, final boolean[] markup) {
+		final boolean asciisafe = isASCIISafe(strategy);
 		final int len = value.length();
 		int idx = 0;
-		
-		checkloop: while (idx < len) {
+		while (idx < len) {
 			final char ch = value.charAt(idx);
-			if (ch == '<' || ch == '>' || ch == '&' || ch == '\r' || ch == '\n'
-					|| ch == '"' || ch == '\t' || strategy.shouldEscape(ch)) {
-				break checkloop;
+			if (ch < 128) {
+				if (markup[ch] || (!asciisafe && strategy.shouldEscape(ch))) {
+					return idx;
+				}
+			} else if (strategy.shouldEscape(ch)) {
+				return idx;
 			}
 			idx++;
 		}
-		
-		if (idx == len) {
-			return value;
+		return len;
+	}
+
+	/**
+	 * Append a run of unchanged characters to the destination. Writers are
+	 * given Strings directly because Writer.append(CharSequence, int, int)
+	 * creates a new String for the run.
+	 */
+	private static final void appendRun(final Appendable out,
+			final CharSequence value, final int start, final int end)
+			throws IOException {
+		if (start == end) {
+			return;
 		}
-		
+		if (value instanceof String && out instanceof Writer) {
+			((Writer)out).write((String)value, start, end - start);
+		} else {
+			out.append(value, start, end);
+		}
+	}
+
+	/**
+	 * Append a hexadecimal character reference like &amp;#x1f600; to the
+	 * destination.
+	 */
+	private static final void appendCharRef(final Appendable out, final int cp)
+			throws IOException {
+		out.append('&').append('#').append('x');
+		int shift = 20;
+		while (shift > 0 && (cp >>> shift) == 0) {
+			shift -= 4;
+		}
+		while (shift >= 0) {
+			out.append(HEX[(cp >>> shift) & 0xf]);
+			shift -= 4;
+		}
+		out.append(';');
+	}
+
+	/**
+	 * The escape loop shared by the text and attribute variants. Runs of
+	 * chars that do not need escaping are appended to the destination
+	 * directly.
+	 * 
+	 * @param strategy
+	 *        The EscapeStrategy to query.
+	 * @param eol
+	 *        The End-Of-Line sequence for text (may be null).
+	 * @param value
+	 *        The value to escape.
+	 * @param from
+	 *        The index of the first char that may need escaping.
+	 * @param attribute
+	 *        Whether to escape as an attribute value.
+	 * @param out
+	 *        The destination.
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private static final void escape(final EscapeStrategy strategy,
+			final String eol, final CharSequence value, final int from,
+			final boolean attribute, final Appendable out) throws IOException {
+		final boolean asciisafe = isASCIISafe(strategy);
+		final boolean[] markup = attribute ? ATTRIBUTEMARKUP : TEXTMARKUP;
+		final int len = value.length();
+		appendRun(out, value, 0, from);
+		// run is the start of the unchanged chars not yet appended.
+		int run = from;
 		char highsurrogate = 0;
-		final StringBuilder sb = new StringBuilder(len + 5);
-		sb.append(value, 0, idx);
-		while (idx < len) {
-			final char ch = value.charAt(idx++);
+		for (int idx = from; idx < len; idx++) {
+			final char ch = value.charAt(idx);
 			if (highsurrogate > 0) {
 				if (!Verifier.isLowSurrogate(ch)) {
 					throw new IllegalDataException(
@@ -373,64 +497,138 @@ public class Format implements Cloneable {
 									Integer.toHexString(highsurrogate) + " / 0x"
 									+ Integer.toHexString(ch));
 				}
-				int chp = Verifier.decodeSurrogatePair(highsurrogate, ch);
-				sb.append("&#x");
-				sb.append(Integer.toHexString(chp));
-				sb.append(';');
+				appendCharRef(out, Verifier.decodeSurrogatePair(highsurrogate, ch));
 				highsurrogate = 0;
+				run = idx + 1;
+				continue;
+			}
+			final boolean strategic;
+			if (ch < 128) {
+				if (markup[ch]) {
+					strategic = false;
+				} else if (!asciisafe && strategy.shouldEscape(ch)) {
+					strategic = true;
+				} else {
+					continue;
+				}
+			} else if (strategy.shouldEscape(ch)) {
+				strategic = true;
+			} else {
+				continue;
+			}
+
+			appendRun(out, value, run, idx);
+			run = idx + 1;
+
+			if (strategic) {
+				// make sure what we are escaping is not the
+				// beginning of a multi-byte character.
+				if (Verifier.isHighSurrogate(ch)) {
+					// this is a the high of a surrogate pair
+					highsurrogate = ch;
+				} else {
+					appendCharRef(out, ch);
+				}
 				continue;
 			}
 			switch (ch) {
 				case '<':
-					sb.append("&lt;");
+					out.append("&lt;");
 					break;
 				case '>':
-					sb.append("&gt;");
+					out.append("&gt;");
 					break;
 				case '&':
-					sb.append("&amp;");
+					out.append("&amp;");
 					break;
 				case '\r':
-					sb.append("&#xD;");
+					out.append("&#xD;");
 					break;
 				case '"':
-					sb.append("&quot;");
+					out.append("&quot;");
 					break;
 				case '\t':
-					sb.append("&#x9;");
+					out.append("&#x9;");
 					break;
 				case '\n':
-					sb.append("&#xA;");
-					break;
-				default:
-
-					if (strategy.shouldEscape(ch)) {
-						// make sure what we are escaping is not the
-						// beginning of a multi-byte character.
-						if (Verifier.isHighSurrogate(ch)) {
-							// this is a the high of a surrogate pair
-							highsurrogate = ch;
-						} else {
-							sb.append("&#x");
-							sb.append(Integer.toHexString(ch));
-							sb.append(';');
-						}
+					if (attribute) {
+						out.append("&#xA;");
+					} else if (eol != null) {
+						out.append(eol);
 					} else {
-						sb.append(ch);
+						out.append('\n');
 					}
 					break;
+				default:
+					break;
 			}
 		}
 		if (highsurrogate > 0) {
 			throw new IllegalDataException("Surrogate pair 0x" +
 					Integer.toHexString(highsurrogate) + "truncated");
 		}
+		appendRun(out, value, run, len);
+	}
 
+	/**
+	 * This will take the three pre-defined entities in XML 1.0 ('&lt;', '&gt;',
+	 * and '&amp;' - used specifically in XML elements) as well as CR/NL, tabs,
+	 * and Quote characters which require escaping inside Attribute values and
+	 * converts their character representation to the appropriate entity
+	 * reference suitable for XML attribute content. Further, some special
+	 * characters (e.g. characters that are not valid in the current encoding)
+	 * are converted to escaped representations.
+	 * <p>
+	 * @param strategy 
+	 *        The EscapeStrategy to query.
+	 * @param value
+	 *        <code>String</code> Attribute value to escape.
+	 * @return The value appropriately escaped.
+	 * @throws IllegalDataException
+	 *         if an entity can not be escaped
+	 */
+	public static final String escapeAttribute(final EscapeStrategy strategy, 
+			final String value) {
+		final int len = value.length();
+		final int idx = firstEscape(strategy, value, ATTRIBUTEMARKUP);
+		
+		if (idx == len) {
+			return value;
+		}
+		
+		final StringBuilder sb = new StringBuilder(len + 5);
+		try {
+			escape(strategy, null, value, idx, true, sb);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOException.
+			throw new IllegalStateException("Impossible IOException", e);
+		}
 		return sb.toString();
 	}
 
-	
-	
+	/**
+	 * Escape an attribute value in the same way as
+	 * {@link #escapeAttribute(EscapeStrategy, String)}, but append the result
+	 * to a destination instead of building a new String. Runs of characters
+	 * that do not need escaping are appended directly from the input value.
+	 * 
+	 * @param strategy
+	 *        The EscapeStrategy to query.
+	 * @param value
+	 *        Attribute value to escape.
+	 * @param out
+	 *        The destination to append the escaped value to.
+	 * @throws IOException
+	 *         if the destination fails.
+	 * @throws IllegalDataException
+	 *         if an entity can not be escaped
+	 * @since JDOM2
+	 */
+	public static final void escapeAttribute(final EscapeStrategy strategy,
+			final CharSequence value, final Appendable out) throws IOException {
+		escape(strategy, null, value,
+				firstEscape(strategy, value, ATTRIBUTEMARKUP), true, out);
+	}
 	
 	/**
 	 * This will take the three pre-defined entities in XML 1.0 ('&lt;', '&gt;',
@@ -455,85 +653,51 @@ public class Format implements Cloneable {
 	public static final String escapeText(final EscapeStrategy strategy,
 			final String eol, final String value) {
 		final int right = value.length();
-		int idx = 0;
-		checkloop: while (idx < right) {
-			final char ch = value.charAt(idx);
-			if (ch == '<' || ch == '>' || ch == '&' || ch == '\r' || ch == '\n'
-					|| strategy.shouldEscape(ch)) {
-				break checkloop;
-			}
-			idx++;
-		}
+		final int idx = firstEscape(strategy, value, TEXTMARKUP);
 		
 		if (idx == right) {
 			// no escape needed.
 			return value;
 		}
 		
-		StringBuilder sb = new StringBuilder();
-		if (idx > 0) {
-			sb.append(value, 0, idx);
-		}
-		char highsurrogate = 0;
-		while (idx < right) {
-			final char ch = value.charAt(idx++);
-			if (highsurrogate > 0) {
-				if (!Verifier.isLowSurrogate(ch)) {
-					throw new IllegalDataException(
-							"Could not decode surrogate pair 0x" +
-									Integer.toHexString(highsurrogate) + " / 0x"
-									+ Integer.toHexString(ch));
-				}
-				int chp = Verifier.decodeSurrogatePair(highsurrogate, ch);
-				sb.append("&#x" + Integer.toHexString(chp) + ";");
-				highsurrogate = 0;
-				continue;
-			}
-			switch (ch) {
-				case '<':
-					sb.append("&lt;");
-					break;
-				case '>':
-					sb.append("&gt;");
-					break;
-				case '&':
-					sb.append("&amp;");
-					break;
-				case '\r':
-					sb.append("&#xD;");
-					break;
-				case '\n':
-					if (eol != null) {
-						sb.append(eol);
-					} else {
-						sb.append('\n');
-					}
-					break;
-				default:
-
-					if (strategy.shouldEscape(ch)) {
-						// make sure what we are escaping is not the
-						// beginning of a multi-byte character.
-						if (Verifier.isHighSurrogate(ch)) {
-							// this is a the high of a surrogate pair
-							highsurrogate = ch;
-						} else {
-							sb.append("&#x" + Integer.toHexString(ch) + ";");
-						}
-					} else {
-						sb.append(ch);
-					}
-					break;
-			}
-		}
-		if (highsurrogate > 0) {
-			throw new IllegalDataException("Surrogate pair 0x" +
-					Integer.toHexString(highsurrogate) + "truncated");
+		final StringBuilder sb = new StringBuilder(right + 16);
+		try {
+			escape(strategy, eol, value, idx, false, sb);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOException.
+			throw new IllegalStateException("Impossible IOException", e);
 		}
-		
 		return sb.toString();
 
 	}
+
+	/**
+	 * Escape a text value in the same way as
+	 * {@link #escapeText(EscapeStrategy, String, String)}, but append the
+	 * result to a destination instead of building a new String. Runs of
+	 * characters that do not need escaping are appended directly from the
+	 * input value.
+	 * 
+	 * @param strategy
+	 *        The EscapeStrategy
+	 * @param eol
+	 *        The End-Of-Line sequence to be used (may be null).
+	 * @param value
+	 *        The text to escape
+	 * @param out
+	 *        The destination to append the escaped value to.
+	 * @throws IOException
+	 *         if the destination fails.
+	 * @throws IllegalDataException
+	 *         if an entity can not be escaped
+	 * @since JDOM2
+	 */
+	public static final void escapeText(final EscapeStrategy strategy,
+			final String eol, final CharSequence value, final Appendable out)
+			throws IOException {
+		escape(strategy, eol, value,
+				firstEscape(strategy, value, TEXTMARKUP), false, out);
+	}
 	
 	
 	private static final EscapeStrategy chooseStrategy(String encoding) {
@@ -553,8 +717,10 @@ public class Format implements Cloneable {
 		}
 
 		try {
-			final CharsetEncoder cse = Charset.forName(encoding).newEncoder();
-			return new DefaultCharsetEscapeStrategy(cse);
+			final Charset cs = Charset.forName(encoding);
+			if (cs.canEncode()) {
+				return new DefaultCharsetEscapeStrategy(cs);
+			}
 		} catch (Exception e) {
 			// swallow that... and assume false.
 		}
@@ -607,6 +773,9 @@ public class Format implements Cloneable {
 	/** entity escape logic */
 	EscapeStrategy escapeStrategy = DefaultEscapeStrategy;
 
+	/** Whether the output of Elements is cached on the Elements */
+	boolean cacheElements = false;
+
 	/**
 	 * Creates a new Format instance with default (raw) behavior.
 	 */
@@ -928,6 +1097,39 @@ public class Format implements Cloneable {
 		this.specifiedAttributesOnly = specifiedAttributesOnly;
 	}
 
+	/**
+	 * Will the serialized output of Elements be cached on the Elements.
+	 * @return true if the output of Elements is cached.
+	 * @see #setCacheElements(boolean)
+	 */
+	public boolean isCacheElements() {
+		return cacheElements;
+	}
+
+	/**
+	 * Set whether the serialized output of Elements should be cached on the
+	 * Elements. The default is false.
+	 * <p>
+	 * When the same Document is output repeatedly with small changes in
+	 * between, the Elements that did not change are copied from the cache
+	 * instead of being serialized again, so the cost of the output is mostly
+	 * in the changed Elements and their ancestors. The cached output is only
+	 * used when it was produced by the same output processor, with the same
+	 * Format settings and the same Namespaces in scope.
+	 * <p>
+	 * The cache costs memory (roughly the size of the serialized output for
+	 * each level of Elements that is cached), and only the Elements with
+	 * small outputs keep their text, large Elements are assembled from the
+	 * cached output of their children.
+	 * 
+	 * @param cacheElements true to cache the output of the Elements.
+	 * @return a pointer to this Format for chaining
+	 */
+	public Format setCacheElements(boolean cacheElements) {
+		this.cacheElements = cacheElements;
+		return this;
+	}
+
 	@Override
 	public Format clone() {
 		Format format = null;
@@ -0,0 +1,434 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.jdom2.Attribute;
+import org.jdom2.Content;
+import org.jdom2.DocType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.EntityRef;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.internal.ArrayCopy;
+import org.jdom2.internal.BinaryFormat;
+
+/**
+ * Writes a Document or Element in a compact binary form that can be read
+ * back with {@link org.jdom2.input.JDOMBinaryBuilder}. This is intended for
+ * caching parsed documents and for passing them between JVMs: it is much
+ * smaller and faster than both XML and Java serialization.
+ * <p>
+ * Each name and Namespace is written only once per stream, lengths are
+ * varints, and the tree is walked without recursion, so very deep documents
+ * are no problem. See {@link BinaryFormat} for the details of the format.
+ * The binary form is not a replacement for XML as an exchange format: it is
+ * only meant to be read by the same (or a later) version of JDOM.
+ * <p>
+ * A JDOMBinaryOutputter has no state, and can be used by multiple threads
+ * at the same time. The <code>output(...)</code> methods flush the
+ * OutputStream before returning, but do not close it.
+ * 
+ * @since JDOM2
+ */
+public final class JDOMBinaryOutputter {
+
+	/** The size of the internal buffer */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Create a JDOMBinaryOutputter.
+	 */
+	public JDOMBinaryOutputter() {
+		// nothing to configure.
+	}
+
+	/**
+	 * Write a Document.
+	 * 
+	 * @param doc
+	 *        The Document to write.
+	 * @param out
+	 *        Where to write it.
+	 * @throws IOException
+	 *         if the stream fails.
+	 */
+	public void output(final Document doc, final OutputStream out)
+			throws IOException {
+		final Encoder enc = new Encoder(out);
+		enc.header(BinaryFormat.KIND_DOCUMENT);
+		enc.nullable(doc.getBaseURI());
+		final List<Content> content = doc.getContent();
+		for (int i = 0; i < content.size(); i++) {
+			final Content c = content.get(i);
+			if (c instanceof Element) {
+				enc.tree((Element)c);
+			} else {
+				enc.content(c);
+			}
+		}
+		enc.token(BinaryFormat.END);
+		enc.flush();
+	}
+
+	/**
+	 * Write an Element and all its content. The Element is written as if it
+	 * was detached: the Namespaces that are declared on its ancestors are
+	 * not included, they are declared again where they are used.
+	 * 
+	 * @param element
+	 *        The Element to write.
+	 * @param out
+	 *        Where to write it.
+	 * @throws IOException
+	 *         if the stream fails.
+	 */
+	public void output(final Element element, final OutputStream out)
+			throws IOException {
+		final Encoder enc = new Encoder(out);
+		enc.header(BinaryFormat.KIND_ELEMENT);
+		enc.tree(element);
+		enc.flush();
+	}
+
+	/**
+	 * Write a Document to a byte array.
+	 * 
+	 * @param doc
+	 *        The Document to write.
+	 * @return the binary form of the Document.
+	 */
+	public byte[] outputBytes(final Document doc) {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try {
+			output(doc, baos);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to write to memory", e);
+		}
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Write an Element to a byte array.
+	 * 
+	 * @param element
+	 *        The Element to write.
+	 * @return the binary form of the Element.
+	 */
+	public byte[] outputBytes(final Element element) {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try {
+			output(element, baos);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to write to memory", e);
+		}
+		return baos.toByteArray();
+	}
+
+	@Override
+	public String toString() {
+		return "[JDOMBinaryOutputter: version " + BinaryFormat.VERSION + "]";
+	}
+
+	/**
+	 * The state of writing one stream: the buffer and the name and Namespace
+	 * tables.
+	 */
+	private static final class Encoder {
+		private final OutputStream out;
+		/* the first 2 bytes are for the length of the block */
+		private final byte[] buf = new byte[BUFFER_SIZE];
+		private int pos = 2;
+		private final HashMap<String, Integer> names =
+				new HashMap<String, Integer>();
+		/* Namespace.equals() only compares the URI, but Namespaces are unique */
+		private final IdentityHashMap<Namespace, Integer> namespaces =
+				new IdentityHashMap<Namespace, Integer>();
+
+		Encoder(final OutputStream out) {
+			this.out = out;
+			namespaces.put(Namespace.NO_NAMESPACE, Integer.valueOf(0));
+			namespaces.put(Namespace.XML_NAMESPACE, Integer.valueOf(1));
+		}
+
+		private final void block() throws IOException {
+			if (pos > 2) {
+				final int len = pos - 2;
+				buf[0] = (byte)(len >>> 8);
+				buf[1] = (byte)len;
+				out.write(buf, 0, pos);
+				pos = 2;
+			}
+		}
+
+		void flush() throws IOException {
+			block();
+			out.flush();
+		}
+
+		private final void ensure(final int len) throws IOException {
+			if (pos + len > buf.length) {
+				block();
+			}
+		}
+
+		void header(final int kind) throws IOException {
+			// the header is not in a block.
+			out.write(BinaryFormat.MAGIC);
+			out.write(BinaryFormat.VERSION);
+			out.write(kind);
+		}
+
+		void token(final int token) throws IOException {
+			ensure(1);
+			buf[pos++] = (byte)token;
+		}
+
+		private final void varint(final int value) throws IOException {
+			ensure(5);
+			int v = value;
+			while ((v & ~0x7F) != 0) {
+				buf[pos++] = (byte)((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			buf[pos++] = (byte)v;
+		}
+
+		private final void chars(final String value) throws IOException {
+			final int len = value.length();
+			int i = 0;
+			while (i < len) {
+				ensure(3);
+				final int end = Math.min(len, i + (buf.length - pos) / 3);
+				for (; i < end; i++) {
+					final char ch = value.charAt(i);
+					if (ch < 0x80) {
+						buf[pos++] = (byte)ch;
+					} else if (ch < 0x800) {
+						buf[pos++] = (byte)(0xC0 | (ch >> 6));
+						buf[pos++] = (byte)(0x80 | (ch & 0x3F));
+					} else {
+						buf[pos++] = (byte)(0xE0 | (ch >> 12));
+						buf[pos++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+						buf[pos++] = (byte)(0x80 | (ch & 0x3F));
+					}
+				}
+			}
+		}
+
+		private final void string(final String value) throws IOException {
+			varint(value.length());
+			chars(value);
+		}
+
+		void nullable(final String value) throws IOException {
+			if (value == null) {
+				varint(0);
+			} else {
+				varint(value.length() + 1);
+				chars(value);
+			}
+		}
+
+		private final void name(final String name) throws IOException {
+			final Integer idx = names.get(name);
+			if (idx != null) {
+				varint(idx.intValue() + 1);
+			} else {
+				names.put(name, Integer.valueOf(names.size()));
+				varint(0);
+				string(name);
+			}
+		}
+
+		private final void namespace(final Namespace ns) throws IOException {
+			final Integer idx = namespaces.get(ns);
+			if (idx != null) {
+				varint(idx.intValue() + 1);
+			} else {
+				namespaces.put(ns, Integer.valueOf(namespaces.size()));
+				varint(0);
+				name(ns.getPrefix());
+				name(ns.getURI());
+			}
+		}
+
+		private final void start(final Element element) throws IOException {
+			token(BinaryFormat.ELEMENT);
+			name(element.getName());
+			namespace(element.getNamespace());
+			if (element.hasAttributes()) {
+				final List<Attribute> atts = element.getAttributes();
+				varint(atts.size());
+				for (int i = 0; i < atts.size(); i++) {
+					final Attribute att = atts.get(i);
+					name(att.getName());
+					namespace(att.getNamespace());
+					varint((att.getAttributeType().ordinal() << 1)
+							| (att.isSpecified() ? 1 : 0));
+					string(att.getValue());
+				}
+			} else {
+				varint(0);
+			}
+			if (element.hasAdditionalNamespaces()) {
+				final List<Namespace> decls = element.getAdditionalNamespaces();
+				varint(decls.size());
+				for (int i = 0; i < decls.size(); i++) {
+					namespace(decls.get(i));
+				}
+			} else {
+				varint(0);
+			}
+		}
+
+		/**
+		 * Write an Element and all its descendants, without recursion.
+		 * 
+		 * @param root
+		 *        The Element to write.
+		 * @throws IOException
+		 *         if the stream fails.
+		 */
+		void tree(final Element root) throws IOException {
+			final ArrayList<List<Content>> stack = new ArrayList<List<Content>>();
+			int[] index = new int[16];
+			int depth = 0;
+			start(root);
+			stack.add(root.getContent());
+			index[0] = 0;
+			while (depth >= 0) {
+				final List<Content> content = stack.get(depth);
+				if (index[depth] == content.size()) {
+					token(BinaryFormat.ELEMENT_END);
+					stack.remove(depth--);
+					continue;
+				}
+				final Content c = content.get(index[depth]++);
+				if (c instanceof Element) {
+					final Element e = (Element)c;
+					start(e);
+					if (++depth == index.length) {
+						index = ArrayCopy.copyOf(index, depth * 2);
+					}
+					stack.add(e.getContent());
+					index[depth] = 0;
+				} else {
+					content(c);
+				}
+			}
+		}
+
+		/**
+		 * Write content that is not an Element.
+		 * 
+		 * @param content
+		 *        The content to write.
+		 * @throws IOException
+		 *         if the stream fails.
+		 */
+		void content(final Content content) throws IOException {
+			switch (content.getCType()) {
+				case Text:
+					token(BinaryFormat.TEXT);
+					string(content.getValue());
+					break;
+				case CDATA:
+					token(BinaryFormat.CDATA);
+					string(content.getValue());
+					break;
+				case Comment:
+					token(BinaryFormat.COMMENT);
+					string(content.getValue());
+					break;
+				case ProcessingInstruction: {
+					final ProcessingInstruction pi = (ProcessingInstruction)content;
+					token(BinaryFormat.PI);
+					name(pi.getTarget());
+					nullable(pi.getData());
+					break;
+				}
+				case EntityRef: {
+					final EntityRef er = (EntityRef)content;
+					token(BinaryFormat.ENTITYREF);
+					name(er.getName());
+					nullable(er.getPublicID());
+					nullable(er.getSystemID());
+					break;
+				}
+				case DocType: {
+					final DocType dt = (DocType)content;
+					token(BinaryFormat.DOCTYPE);
+					name(dt.getElementName());
+					nullable(dt.getPublicID());
+					nullable(dt.getSystemID());
+					nullable(dt.getInternalSubset());
+					break;
+				}
+				default:
+					throw new IllegalStateException("Unexpected content " + content);
+			}
+		}
+	}
+
+}
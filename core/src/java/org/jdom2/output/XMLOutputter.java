@@ -61,6 +61,8 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import org.jdom2.Attribute;
@@ -74,6 +76,7 @@ import org.jdom2.EntityRef;
 import org.jdom2.ProcessingInstruction;
 import org.jdom2.Text;
 import org.jdom2.output.support.AbstractXMLOutputProcessor;
+import org.jdom2.output.support.EncodingByteWriter;
 import org.jdom2.output.support.FormatStack;
 import org.jdom2.output.support.XMLOutputProcessor;
 
@@ -156,7 +159,9 @@ public final class XMLOutputter implements Cloneable {
 	 */
 
 	/**
-	 * Get an OutputStreamWriter, use specified encoding.
+	 * Get a Writer for the OutputStream, use specified encoding. The common
+	 * UTF-8, US-ASCII, and ISO-8859-1 encodings are handled by an
+	 * {@link EncodingByteWriter}, other encodings use an OutputStreamWriter.
 	 * 
 	 * @param out
 	 *        The OutputStream to wrap in the writer
@@ -168,8 +173,38 @@ public final class XMLOutputter implements Cloneable {
 	private static final Writer makeWriter(final OutputStream out,
 			final Format format)
 			throws java.io.UnsupportedEncodingException {
+		final String encoding = format.getEncoding();
+		if (EncodingByteWriter.isSupported(encoding)) {
+			return new EncodingByteWriter(out, encoding);
+		}
 		return new BufferedWriter(new OutputStreamWriter(
-				new BufferedOutputStream(out), format.getEncoding()));
+				new BufferedOutputStream(out), encoding));
+	}
+
+	/**
+	 * Get a Writer for the WritableByteChannel, use specified encoding.
+	 * 
+	 * @param out
+	 *        The WritableByteChannel to wrap in the writer
+	 * @param format
+	 *        The format is used to obtain the Character Encoding.
+	 * @return An Writer (Buffered) that delegates to the specified channel
+	 * @throws java.io.UnsupportedEncodingException
+	 */
+	private static final Writer makeWriter(final WritableByteChannel out,
+			final Format format)
+			throws java.io.UnsupportedEncodingException {
+		final String encoding = format.getEncoding();
+		if (EncodingByteWriter.isSupported(encoding)) {
+			return new EncodingByteWriter(out, encoding);
+		}
+		try {
+			return new BufferedWriter(Channels.newWriter(out, encoding));
+		} catch (java.nio.charset.UnsupportedCharsetException e) {
+			throw new java.io.UnsupportedEncodingException(encoding);
+		} catch (java.nio.charset.IllegalCharsetNameException e) {
+			throw new java.io.UnsupportedEncodingException(encoding);
+		}
 	}
 
 	/**
@@ -220,6 +255,47 @@ public final class XMLOutputter implements Cloneable {
 					format.getLineSeparator(), str);
 		}
 
+		/**
+		 * Escape the attribute value straight in to the Writer, without
+		 * building the escaped String first. When writing to an
+		 * {@link EncodingByteWriter} the value is escaped and encoded in one
+		 * pass.
+		 */
+		@Override
+		protected void attributeEscapedEntitiesFilter(final Writer out,
+				final FormatStack fstack, final String value)
+				throws IOException {
+			if (!fstack.getEscapeOutput()) {
+				super.attributeEscapedEntitiesFilter(out, fstack, value);
+			} else if (out instanceof EncodingByteWriter) {
+				((EncodingByteWriter)out).writeEscapedAttribute(
+						fstack.getEscapeStrategy(), value);
+			} else {
+				Format.escapeAttribute(fstack.getEscapeStrategy(), value, out);
+			}
+		}
+
+		/**
+		 * Escape the text straight in to the Writer, without building the
+		 * escaped String first. When writing to an {@link EncodingByteWriter}
+		 * the text is escaped and encoded in one pass. Text that is a slice of
+		 * a shared buffer is written without creating its String.
+		 */
+		@Override
+		protected void printText(final Writer out, final FormatStack fstack,
+				final Text text) throws IOException {
+			if (!fstack.getEscapeOutput()) {
+				super.printText(out, fstack, text);
+			} else if (out instanceof EncodingByteWriter) {
+				((EncodingByteWriter)out).writeEscapedText(
+						fstack.getEscapeStrategy(), fstack.getLineSeparator(),
+						text.getCharSequence());
+			} else {
+				Format.escapeText(fstack.getEscapeStrategy(),
+						fstack.getLineSeparator(), text.getCharSequence(), out);
+			}
+		}
+
 	}
 
 	/**
@@ -559,6 +635,57 @@ public final class XMLOutputter implements Cloneable {
 		output(entity, makeWriter(out, myFormat)); // output() flushes
 	}
 
+	/*
+	 * =======================================================================
+	 * API - Output to CHANNEL Methods ... All methods defer to the WRITER
+	 * equivalents
+	 * =======================================================================
+	 */
+
+	/**
+	 * This will print the <code>{@link Document}</code> to the given
+	 * WritableByteChannel. The characters are printed using the encoding
+	 * specified in the constructor, or a default of UTF-8.
+	 * <p>
+	 * The channel is expected to be in blocking mode, and it is not closed.
+	 * 
+	 * @param doc
+	 *        <code>Document</code> to format.
+	 * @param out
+	 *        <code>WritableByteChannel</code> to use.
+	 * @throws IOException
+	 *         if there's any problem writing.
+	 * @throws NullPointerException
+	 *         if the specified content is null.
+	 * @since JDOM2
+	 */
+	public final void output(Document doc, WritableByteChannel out)
+			throws IOException {
+		output(doc, makeWriter(out, myFormat));
+	}
+
+	/**
+	 * Print out an <code>{@link Element}</code>, including its
+	 * <code>{@link Attribute}</code>s, and all contained (child) elements, etc.
+	 * to the given WritableByteChannel.
+	 * <p>
+	 * The channel is expected to be in blocking mode, and it is not closed.
+	 * 
+	 * @param element
+	 *        <code>Element</code> to output.
+	 * @param out
+	 *        <code>WritableByteChannel</code> to use.
+	 * @throws IOException
+	 *         if there's any problem writing.
+	 * @throws NullPointerException
+	 *         if the specified content is null.
+	 * @since JDOM2
+	 */
+	public final void output(Element element, WritableByteChannel out)
+			throws IOException {
+		output(element, makeWriter(out, myFormat));
+	}
+
 	/*
 	 * =======================================================================
 	 * API - Output to STRING Methods ... All methods defer to the WRITER
@@ -776,6 +776,11 @@ public abstract class AbstractXMLOutputProcessor extends AbstractOutputProcessor
 	 * <p>
 	 * This method arranges for outputting the Element infrastructure including
 	 * Namespace Declarations and Attributes.
+	 * <p>
+	 * If the Format caches Elements ({@link Format#isCacheElements()}) the
+	 * output of an Element that has not changed since it was last output in
+	 * the same context is copied from the Element's cache, and the output of
+	 * the other Elements is cached on them.
 	 * 
 	 * @param out
 	 *        <code>Writer</code> to use.
@@ -791,6 +796,36 @@ public abstract class AbstractXMLOutputProcessor extends AbstractOutputProcessor
 	protected void printElement(final Writer out, final FormatStack fstack,
 			final NamespaceStack nstack, final Element element) throws IOException {
 
+		if (!fstack.isCacheElements()) {
+			printElementDirect(out, fstack, nstack, element);
+			return;
+		}
+
+		final CachingWriter cw = out instanceof CachingWriter
+				? (CachingWriter)out : new CachingWriter(out);
+		final String cached = CachedElement.get(element, this, fstack, nstack);
+		if (cached != null) {
+			// the output has already been through the write methods.
+			cw.write(cached);
+			return;
+		}
+		String text = null;
+		cw.begin();
+		try {
+			printElementDirect(cw, fstack, nstack, element);
+		} finally {
+			text = cw.end();
+		}
+		CachedElement.put(element, this, fstack, nstack, cw.scope(nstack), text);
+	}
+
+	/**
+	 * Output an Element, without using or setting the cached output.
+	 */
+	private final void printElementDirect(final Writer out,
+			final FormatStack fstack, final NamespaceStack nstack,
+			final Element element) throws IOException {
+
 		nstack.push(element);
 		try {
 			final List<Content> content = element.getContent();
@@ -0,0 +1,255 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.output.support;
+
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.internal.OutputCache;
+import org.jdom2.output.EscapeStrategy;
+import org.jdom2.output.Format;
+import org.jdom2.output.Format.TextMode;
+import org.jdom2.util.NamespaceStack;
+
+/**
+ * The serialized output of an Element, cached on the Element by
+ * {@link AbstractXMLOutputProcessor} when {@link Format#isCacheElements()}
+ * is set.
+ * <p>
+ * The output of an Element depends on more than the Element: the output
+ * processor, the Format, the state of the FormatStack (indenting and text
+ * mode inherited from the ancestors), and the Namespaces already declared
+ * by the ancestors. All of those are recorded with the output, and the
+ * output is only reused in the same context. An Element keeps the output
+ * of a few different contexts, most recent first.
+ * <p>
+ * The text of Elements with large outputs is not kept (the output of their
+ * children is), the entry only records that the Element and so all its
+ * descendants have a cache (see {@link OutputCache#set(Element, Object)}).
+ * <p>
+ * Instances are immutable.
+ * 
+ * @since JDOM2
+ */
+final class CachedElement {
+
+	/** The most contexts an Element keeps the output for */
+	private static final int MAXCONTEXTS = 4;
+
+	/** The output processor that produced the output */
+	private final Object processor;
+	/** The Format details from the FormatStack */
+	private final String indent;
+	private final String lineSeparator;
+	private final EscapeStrategy escapeStrategy;
+	private final TextMode defaultMode;
+	private final boolean expandEmptyElements;
+	private final boolean specifiedAttributesOnly;
+	/** The FormatStack state the Element was output at */
+	private final int depth;
+	private final String levelIndent;
+	private final String levelEOL;
+	private final TextMode mode;
+	private final boolean escapeOutput;
+	private final boolean ignoreTrAXEscapingPIs;
+	/** The Namespaces in scope before the Element */
+	private final Namespace[] scope;
+	/** The output, null if it is too large to keep */
+	private final String text;
+	/** The output of the same Element in a different context */
+	private final CachedElement next;
+
+	private CachedElement(final Object processor, final FormatStack fstack,
+			final Namespace[] scope, final String text, final CachedElement next) {
+		this.processor = processor;
+		this.indent = fstack.getIndent();
+		this.lineSeparator = fstack.getLineSeparator();
+		this.escapeStrategy = fstack.getEscapeStrategy();
+		this.defaultMode = fstack.getDefaultMode();
+		this.expandEmptyElements = fstack.isExpandEmptyElements();
+		this.specifiedAttributesOnly = fstack.isSpecifiedAttributesOnly();
+		this.depth = fstack.getDepth();
+		this.levelIndent = fstack.getLevelIndent();
+		this.levelEOL = fstack.getLevelEOL();
+		this.mode = fstack.getTextMode();
+		this.escapeOutput = fstack.getEscapeOutput();
+		this.ignoreTrAXEscapingPIs = fstack.isIgnoreTrAXEscapingPIs();
+		this.scope = scope;
+		this.text = text;
+		this.next = next;
+	}
+
+	/**
+	 * Copy an entry on to a different chain.
+	 */
+	private CachedElement(final CachedElement from, final CachedElement next) {
+		this.processor = from.processor;
+		this.indent = from.indent;
+		this.lineSeparator = from.lineSeparator;
+		this.escapeStrategy = from.escapeStrategy;
+		this.defaultMode = from.defaultMode;
+		this.expandEmptyElements = from.expandEmptyElements;
+		this.specifiedAttributesOnly = from.specifiedAttributesOnly;
+		this.depth = from.depth;
+		this.levelIndent = from.levelIndent;
+		this.levelEOL = from.levelEOL;
+		this.mode = from.mode;
+		this.escapeOutput = from.escapeOutput;
+		this.ignoreTrAXEscapingPIs = from.ignoreTrAXEscapingPIs;
+		this.scope = from.scope;
+		this.text = from.text;
+		this.next = next;
+	}
+
+	/**
+	 * Compare two Strings that may be null.
+	 */
+	private static final boolean same(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Is this output from the same context.
+	 */
+	private final boolean matches(final Object proc, final FormatStack fstack,
+			final NamespaceStack nstack) {
+		return processor == proc
+				&& depth == fstack.getDepth()
+				&& mode == fstack.getTextMode()
+				&& escapeOutput == fstack.getEscapeOutput()
+				&& ignoreTrAXEscapingPIs == fstack.isIgnoreTrAXEscapingPIs()
+				&& escapeStrategy == fstack.getEscapeStrategy()
+				&& defaultMode == fstack.getDefaultMode()
+				&& expandEmptyElements == fstack.isExpandEmptyElements()
+				&& specifiedAttributesOnly == fstack.isSpecifiedAttributesOnly()
+				&& same(levelIndent, fstack.getLevelIndent())
+				&& same(levelEOL, fstack.getLevelEOL())
+				&& same(indent, fstack.getIndent())
+				&& same(lineSeparator, fstack.getLineSeparator())
+				&& nstack.isScope(scope);
+	}
+
+	/**
+	 * Get the cached output of an Element in the current context.
+	 * 
+	 * @param element
+	 *        The Element about to be output.
+	 * @param processor
+	 *        The output processor.
+	 * @param fstack
+	 *        The current FormatStack.
+	 * @param nstack
+	 *        The current NamespaceStack (before the Element is pushed).
+	 * @return the cached output, or null if there is none (or it is too
+	 *         large to be kept).
+	 */
+	static final String get(final Element element, final Object processor,
+			final FormatStack fstack, final NamespaceStack nstack) {
+		final Object cache = OutputCache.get(element);
+		if (!(cache instanceof CachedElement)) {
+			return null;
+		}
+		CachedElement ce = (CachedElement)cache;
+		while (ce != null) {
+			if (ce.matches(processor, fstack, nstack)) {
+				return ce.text;
+			}
+			ce = ce.next;
+		}
+		return null;
+	}
+
+	/**
+	 * Cache the output of an Element in the current context, in place of
+	 * any previous output in the same context.
+	 * 
+	 * @param element
+	 *        The Element that was output.
+	 * @param processor
+	 *        The output processor.
+	 * @param fstack
+	 *        The current FormatStack.
+	 * @param nstack
+	 *        The current NamespaceStack (after the Element is popped).
+	 * @param scope
+	 *        The Namespaces in the current scope, a (shared) copy of the
+	 *        NamespaceStack scope.
+	 * @param text
+	 *        The output, null if it is too large to keep.
+	 */
+	static final void put(final Element element, final Object processor,
+			final FormatStack fstack, final NamespaceStack nstack,
+			final Namespace[] scope, final String text) {
+		final Object cache = OutputCache.get(element);
+		final CachedElement[] keep = new CachedElement[MAXCONTEXTS - 1];
+		int cnt = 0;
+		if (cache instanceof CachedElement) {
+			CachedElement ce = (CachedElement)cache;
+			while (ce != null && cnt < keep.length) {
+				if (!ce.matches(processor, fstack, nstack)) {
+					keep[cnt++] = ce;
+				}
+				ce = ce.next;
+			}
+		}
+		CachedElement chain = null;
+		while (--cnt >= 0) {
+			final CachedElement ce = keep[cnt];
+			chain = new CachedElement(ce, chain);
+		}
+		OutputCache.set(element,
+				new CachedElement(processor, fstack, scope, text, chain));
+	}
+
+}
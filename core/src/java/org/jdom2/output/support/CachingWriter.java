@@ -0,0 +1,207 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.output.support;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.jdom2.Namespace;
+import org.jdom2.internal.ArrayCopy;
+import org.jdom2.util.NamespaceStack;
+
+/**
+ * A Writer that passes everything through to the actual output, and also
+ * keeps the output of the Elements being written, so it can be cached on
+ * them (see {@link CachedElement}).
+ * <p>
+ * Elements are nested, so only the output since the start of the innermost
+ * open Element is kept. Once that is larger than {@link #MAXCACHED} all the
+ * open Elements are too large to keep, and the kept output is discarded.
+ * 
+ * @since JDOM2
+ */
+final class CachingWriter extends Writer {
+
+	/** The largest output (in chars) that is kept for an Element */
+	static final int MAXCACHED = 16 * 1024;
+
+	/** The actual output */
+	private final Writer out;
+	/** The output since base */
+	private final StringBuilder buffer = new StringBuilder();
+	/** The output position of the start of the buffer */
+	private long base = 0L;
+	/** The output position at the start of each open Element */
+	private long[] starts = new long[16];
+	/** The number of open Elements */
+	private int depth = 0;
+	/** The most recent copy of a Namespace scope */
+	private Namespace[] scope = null;
+
+	/**
+	 * Keep the output of Elements written to the specified Writer.
+	 * 
+	 * @param out
+	 *        The actual output.
+	 */
+	CachingWriter(final Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Mark the start of the output of an Element.
+	 */
+	void begin() {
+		if (depth == starts.length) {
+			starts = ArrayCopy.copyOf(starts, depth * 2);
+		}
+		starts[depth++] = base + buffer.length();
+	}
+
+	/**
+	 * Mark the end of the output of the Element most recently begun.
+	 * 
+	 * @return the output of the Element, or null if it is too large to keep.
+	 */
+	String end() {
+		final long start = starts[--depth];
+		final String text = start < base ? null
+				: buffer.substring((int)(start - base));
+		if (depth == 0) {
+			base += buffer.length();
+			buffer.setLength(0);
+		}
+		return text;
+	}
+
+	/**
+	 * Get a copy of the current Namespace scope. Consecutive Elements
+	 * usually have the same scope, and share the same copy.
+	 * 
+	 * @param nstack
+	 *        The NamespaceStack to copy the scope of.
+	 * @return a copy of the current scope, which must not be modified.
+	 */
+	Namespace[] scope(final NamespaceStack nstack) {
+		if (scope == null || !nstack.isScope(scope)) {
+			scope = nstack.getScope();
+		}
+		return scope;
+	}
+
+	/**
+	 * Prepare to keep len more chars of output, discard what is kept if
+	 * the innermost open Element becomes too large.
+	 * 
+	 * @return true if the chars should be kept.
+	 */
+	private final boolean keep(final int len) {
+		final long end = base + buffer.length() + len;
+		if (depth == 0 || end - starts[depth - 1] > MAXCACHED) {
+			base = end;
+			buffer.setLength(0);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void write(final int c) throws IOException {
+		out.write(c);
+		if (keep(1)) {
+			buffer.append((char)c);
+		}
+	}
+
+	@Override
+	public void write(final char[] cbuf, final int off, final int len)
+			throws IOException {
+		out.write(cbuf, off, len);
+		if (keep(len)) {
+			buffer.append(cbuf, off, len);
+		}
+	}
+
+	@Override
+	public void write(final String str) throws IOException {
+		out.write(str);
+		if (keep(str.length())) {
+			buffer.append(str);
+		}
+	}
+
+	@Override
+	public void write(final String str, final int off, final int len)
+			throws IOException {
+		out.write(str, off, len);
+		if (keep(len)) {
+			buffer.append(str, off, off + len);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * The actual output is not closed, it belongs to the caller.
+	 */
+	@Override
+	public void close() throws IOException {
+		out.flush();
+	}
+
+}
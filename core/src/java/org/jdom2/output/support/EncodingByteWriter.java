@@ -0,0 +1,694 @@
+/*--
+
+ Copyright (C) 2000-2012 Jason Hunter & Brett McLaughlin.
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1. Redistributions of source code must retain the above copyright
+    notice, this list of conditions, and the following disclaimer.
+
+ 2. Redistributions in binary form must reproduce the above copyright
+    notice, this list of conditions, and the disclaimer that follows
+    these conditions in the documentation and/or other materials
+    provided with the distribution.
+
+ 3. The name "JDOM" must not be used to endorse or promote products
+    derived from this software without prior written permission.  For
+    written permission, please contact <request_AT_jdom_DOT_org>.
+
+ 4. Products derived from this software may not be called "JDOM", nor
+    may "JDOM" appear in their name, without prior written permission
+    from the JDOM Project Management <request_AT_jdom_DOT_org>.
+
+ In addition, we request (but do not require) that you include in the
+ end-user documentation provided with the redistribution and/or in the
+ software itself an acknowledgement equivalent to the following:
+     "This product includes software developed by the
+      JDOM Project (http://www.jdom.org/)."
+ Alternatively, the acknowledgment may be graphical using the logos
+ available at http://www.jdom.org/images/logos.
+
+ THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED.  IN NO EVENT SHALL THE JDOM AUTHORS OR THE PROJECT
+ CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ This software consists of voluntary contributions made by many
+ individuals on behalf of the JDOM Project and was originally
+ created by Jason Hunter <jhunter_AT_jdom_DOT_org> and
+ Brett McLaughlin <brett_AT_jdom_DOT_org>.  For more information
+ on the JDOM Project, please see <http://www.jdom.org/>.
+
+ */
+
+package org.jdom2.output.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+import org.jdom2.IllegalDataException;
+import org.jdom2.Verifier;
+import org.jdom2.output.EscapeStrategy;
+import org.jdom2.output.Format;
+
+/**
+ * A Writer that encodes characters directly in to a reusable byte buffer, and
+ * flushes the buffer in large chunks to an OutputStream or a
+ * WritableByteChannel. Only the UTF-8, US-ASCII and ISO-8859-1 encodings are
+ * supported, use {@link #isSupported(String)} to check an encoding before
+ * constructing an instance.
+ * <p>
+ * This replaces the BufferedWriter/OutputStreamWriter/BufferedOutputStream
+ * chain that is otherwise needed to output characters to a byte destination,
+ * and, more importantly, it can escape XML text and attribute values at the
+ * same time as it encodes them (see {@link #writeEscapedText(EscapeStrategy,
+ * String, String)} and {@link #writeEscapedAttribute(EscapeStrategy, String)}
+ * ), so the escaped values are never built as intermediate Strings.
+ * <p>
+ * Characters that cannot be represented in the encoding (and unpaired
+ * surrogates) are written as '?', which is what an OutputStreamWriter would
+ * do. The escape methods will of course escape those characters if the
+ * EscapeStrategy requires it.
+ * <p>
+ * Like other Writers this class is not thread-safe. Closing the Writer closes
+ * the destination too. When the destination is a WritableByteChannel it is
+ * expected to be in blocking mode.
+ * 
+ * @since JDOM2
+ */
+public final class EncodingByteWriter extends Writer {
+
+	/** The default number of bytes buffered before they are written out */
+	public static final int DEFAULT_BUFFER_SIZE = 16384;
+
+	private static final int UTF8 = 0;
+	private static final int LATIN1 = 1;
+	private static final int ASCII = 2;
+
+	private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7',
+		'8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+	/**
+	 * Identify which of the supported encodings (if any) the encoding name
+	 * refers to.
+	 * 
+	 * @param encoding
+	 *        The encoding name (or alias).
+	 * @return the internal encoding identifier or -1 if not supported.
+	 */
+	private static final int getEncodingType(final String encoding) {
+		if (encoding == null) {
+			return -1;
+		}
+		final String name;
+		try {
+			name = Charset.forName(encoding).name();
+		} catch (Exception e) {
+			// illegal and unsupported charset names are not supported here.
+			return -1;
+		}
+		if ("UTF-8".equals(name)) {
+			return UTF8;
+		}
+		if ("ISO-8859-1".equals(name)) {
+			return LATIN1;
+		}
+		if ("US-ASCII".equals(name)) {
+			return ASCII;
+		}
+		return -1;
+	}
+
+	/**
+	 * Check whether an EncodingByteWriter can be created for the specified
+	 * encoding. Aliases of the supported encodings (like "UTF8", "ASCII", or
+	 * "Latin1") are recognised.
+	 * 
+	 * @param encoding
+	 *        The encoding to check.
+	 * @return true if the encoding is UTF-8, US-ASCII or ISO-8859-1.
+	 */
+	public static final boolean isSupported(final String encoding) {
+		return getEncodingType(encoding) >= 0;
+	}
+
+	private final OutputStream stream;
+	private final WritableByteChannel channel;
+	private final ByteBuffer channelbuffer;
+	private final int type;
+	private final byte[] buffer;
+	private int pos = 0;
+	// a high surrogate from the previous write, waiting for its low surrogate.
+	private char pending = 0;
+	private boolean closed = false;
+
+	// escape lookup tables for the ASCII range, for the last-used strategy.
+	private EscapeStrategy escapestrategy = null;
+	private final boolean[] textescape = new boolean[128];
+	private final boolean[] attributeescape = new boolean[128];
+
+	private EncodingByteWriter(final OutputStream stream,
+			final WritableByteChannel channel, final String encoding,
+			final int buffersize) throws java.io.UnsupportedEncodingException {
+		super();
+		type = getEncodingType(encoding);
+		if (type < 0) {
+			throw new java.io.UnsupportedEncodingException(
+					"EncodingByteWriter does not support encoding " + encoding);
+		}
+		if (buffersize < 16) {
+			throw new IllegalArgumentException(
+					"Buffer size must be at least 16, not " + buffersize);
+		}
+		this.stream = stream;
+		this.channel = channel;
+		this.buffer = new byte[buffersize];
+		this.channelbuffer = channel == null ? null : ByteBuffer.wrap(buffer);
+	}
+
+	/**
+	 * Create an EncodingByteWriter that writes to an OutputStream.
+	 * 
+	 * @param out
+	 *        The destination OutputStream.
+	 * @param encoding
+	 *        The encoding to use.
+	 * @throws java.io.UnsupportedEncodingException
+	 *         if the encoding is not supported.
+	 * @throws NullPointerException
+	 *         if out is null.
+	 */
+	public EncodingByteWriter(final OutputStream out, final String encoding)
+			throws java.io.UnsupportedEncodingException {
+		this(nonNull(out), null, encoding, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create an EncodingByteWriter that writes to a WritableByteChannel.
+	 * 
+	 * @param out
+	 *        The destination channel (in blocking mode).
+	 * @param encoding
+	 *        The encoding to use.
+	 * @throws java.io.UnsupportedEncodingException
+	 *         if the encoding is not supported.
+	 * @throws NullPointerException
+	 *         if out is null.
+	 */
+	public EncodingByteWriter(final WritableByteChannel out,
+			final String encoding)
+			throws java.io.UnsupportedEncodingException {
+		this(null, nonNull(out), encoding, DEFAULT_BUFFER_SIZE);
+	}
+
+	private static final <T> T nonNull(final T out) {
+		if (out == null) {
+			throw new NullPointerException("Cannot write to a null destination");
+		}
+		return out;
+	}
+
+	/*
+	 * =======================================================================
+	 * Buffer management.
+	 * =======================================================================
+	 */
+
+	private final void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("EncodingByteWriter is closed");
+		}
+	}
+
+	/**
+	 * Write all buffered bytes to the destination.
+	 * 
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private final void drain() throws IOException {
+		if (pos == 0) {
+			return;
+		}
+		if (stream != null) {
+			stream.write(buffer, 0, pos);
+		} else {
+			channelbuffer.clear();
+			channelbuffer.limit(pos);
+			while (channelbuffer.hasRemaining()) {
+				channel.write(channelbuffer);
+			}
+		}
+		pos = 0;
+	}
+
+	/**
+	 * Make sure there is space for (at least) need bytes in the buffer.
+	 * 
+	 * @param need
+	 *        The number of bytes needed (never more than 16).
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private final void ensure(final int need) throws IOException {
+		if (pos + need > buffer.length) {
+			drain();
+		}
+	}
+
+	/*
+	 * =======================================================================
+	 * Encoding.
+	 * =======================================================================
+	 */
+
+	/**
+	 * Encode a code point that is known to be above the ASCII range.
+	 * 
+	 * @param cp
+	 *        The Unicode code point.
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private final void encodeNonASCII(final int cp) throws IOException {
+		ensure(4);
+		switch (type) {
+			case UTF8:
+				if (cp < 0x800) {
+					buffer[pos++] = (byte) (0xc0 | (cp >> 6));
+					buffer[pos++] = (byte) (0x80 | (cp & 0x3f));
+				} else if (cp < 0x10000) {
+					buffer[pos++] = (byte) (0xe0 | (cp >> 12));
+					buffer[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+					buffer[pos++] = (byte) (0x80 | (cp & 0x3f));
+				} else {
+					buffer[pos++] = (byte) (0xf0 | (cp >> 18));
+					buffer[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+					buffer[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+					buffer[pos++] = (byte) (0x80 | (cp & 0x3f));
+				}
+				break;
+			case LATIN1:
+				buffer[pos++] = cp <= 0xff ? (byte) cp : (byte) '?';
+				break;
+			default:
+				buffer[pos++] = (byte) '?';
+				break;
+		}
+	}
+
+	/**
+	 * Encode a single char, taking care of surrogate pairs that may be split
+	 * across calls.
+	 * 
+	 * @param ch
+	 *        The char to encode.
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private final void encode(final char ch) throws IOException {
+		if (pending != 0) {
+			final char high = pending;
+			pending = 0;
+			if (Verifier.isLowSurrogate(ch)) {
+				encodeNonASCII(Verifier.decodeSurrogatePair(high, ch));
+				return;
+			}
+			// unpaired high surrogate.
+			ensure(1);
+			buffer[pos++] = (byte) '?';
+		}
+		if (ch < 0x80) {
+			ensure(1);
+			buffer[pos++] = (byte) ch;
+		} else if (Verifier.isHighSurrogate(ch)) {
+			pending = ch;
+		} else if (Verifier.isLowSurrogate(ch)) {
+			// unpaired low surrogate.
+			ensure(1);
+			buffer[pos++] = (byte) '?';
+		} else {
+			encodeNonASCII(ch);
+		}
+	}
+
+	/**
+	 * Write a run of characters that is known to contain only ASCII
+	 * characters (entities, hex escapes, etc.)
+	 * 
+	 * @param ascii
+	 *        The characters to write.
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private final void writeASCII(final String ascii) throws IOException {
+		final int len = ascii.length();
+		ensure(len);
+		for (int i = 0; i < len; i++) {
+			buffer[pos++] = (byte) ascii.charAt(i);
+		}
+	}
+
+	/**
+	 * Write a hexadecimal character reference like <code>&amp;#x1f600;</code>.
+	 * 
+	 * @param cp
+	 *        The code point to reference.
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private final void writeCharRef(final int cp) throws IOException {
+		ensure(10);
+		buffer[pos++] = '&';
+		buffer[pos++] = '#';
+		buffer[pos++] = 'x';
+		int shift = 20;
+		while (shift > 0 && (cp >>> shift) == 0) {
+			shift -= 4;
+		}
+		while (shift >= 0) {
+			buffer[pos++] = HEX[(cp >>> shift) & 0xf];
+			shift -= 4;
+		}
+		buffer[pos++] = ';';
+	}
+
+	/*
+	 * =======================================================================
+	 * Writer methods.
+	 * =======================================================================
+	 */
+
+	@Override
+	public void write(final int c) throws IOException {
+		checkOpen();
+		encode((char) c);
+	}
+
+	@Override
+	public void write(final char[] cbuf, final int off, final int len)
+			throws IOException {
+		checkOpen();
+		if (off < 0 || len < 0 || off + len > cbuf.length) {
+			throw new IndexOutOfBoundsException("Illegal offset " + off
+					+ " and length " + len + " for char[] of length "
+					+ cbuf.length);
+		}
+		final int end = off + len;
+		int i = off;
+		while (i < end) {
+			// copy runs of ASCII directly.
+			if (pending == 0) {
+				if (pos == buffer.length) {
+					drain();
+				}
+				final int lim = Math.min(end, i + buffer.length - pos);
+				while (i < lim && cbuf[i] < 0x80) {
+					buffer[pos++] = (byte) cbuf[i++];
+				}
+				if (i == lim) {
+					continue;
+				}
+			}
+			encode(cbuf[i++]);
+		}
+	}
+
+	@Override
+	public void write(final String str, final int off, final int len)
+			throws IOException {
+		checkOpen();
+		final int end = off + len;
+		if (off < 0 || len < 0 || end > str.length()) {
+			throw new IndexOutOfBoundsException("Illegal offset " + off
+					+ " and length " + len + " for String of length "
+					+ str.length());
+		}
+		int i = off;
+		while (i < end) {
+			// copy runs of ASCII directly.
+			if (pending == 0) {
+				if (pos == buffer.length) {
+					drain();
+				}
+				final int lim = Math.min(end, i + buffer.length - pos);
+				char ch = 0;
+				while (i < lim && (ch = str.charAt(i)) < 0x80) {
+					buffer[pos++] = (byte) ch;
+					i++;
+				}
+				if (i == lim) {
+					continue;
+				}
+			}
+			encode(str.charAt(i++));
+		}
+	}
+
+	@Override
+	public void write(final String str) throws IOException {
+		write(str, 0, str.length());
+	}
+
+	@Override
+	public Writer append(final CharSequence csq) throws IOException {
+		if (csq == null) {
+			write("null");
+		} else {
+			write(csq.toString());
+		}
+		return this;
+	}
+
+	@Override
+	public Writer append(final CharSequence csq, final int start,
+			final int end) throws IOException {
+		final CharSequence cs = csq == null ? "null" : csq;
+		write(cs.subSequence(start, end).toString());
+		return this;
+	}
+
+	/**
+	 * Write all buffered bytes to the destination, and flush the destination
+	 * if it is an OutputStream. A high surrogate at the end of the written
+	 * characters remains buffered until its low surrogate is written.
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		drain();
+		if (stream != null) {
+			stream.flush();
+		}
+	}
+
+	/**
+	 * Write all buffered bytes to the destination, and close it. Subsequent
+	 * calls have no effect.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			if (pending != 0) {
+				// unpaired high surrogate.
+				pending = 0;
+				ensure(1);
+				buffer[pos++] = (byte) '?';
+			}
+			drain();
+		} finally {
+			closed = true;
+			if (stream != null) {
+				stream.close();
+			} else {
+				channel.close();
+			}
+		}
+	}
+
+	/*
+	 * =======================================================================
+	 * Escaping.
+	 * =======================================================================
+	 */
+
+	/**
+	 * Set up the ASCII lookup tables for the specified strategy. The tables
+	 * are only rebuilt when the strategy changes.
+	 * 
+	 * @param strategy
+	 *        The strategy to build the tables for.
+	 */
+	private final void setStrategy(final EscapeStrategy strategy) {
+		if (strategy == escapestrategy) {
+			return;
+		}
+		for (char ch = 0; ch < 128; ch++) {
+			final boolean esc = strategy.shouldEscape(ch);
+			textescape[ch] = esc || ch == '<' || ch == '>' || ch == '&'
+					|| ch == '\r' || ch == '\n';
+			attributeescape[ch] = textescape[ch] || ch == '"' || ch == '\t';
+		}
+		escapestrategy = strategy;
+	}
+
+	/**
+	 * Escape and encode a value in a single pass.
+	 * 
+	 * @param strategy
+	 *        The EscapeStrategy for characters that are not markup.
+	 * @param eol
+	 *        The end-of-line replacement for '\n' in text (may be null).
+	 * @param value
+	 *        The value to escape.
+	 * @param attribute
+	 *        true if value is an attribute value, false for text.
+	 * @throws IOException
+	 *         if the destination fails.
+	 */
+	private final void escape(final EscapeStrategy strategy, final String eol,
+			final CharSequence value, final boolean attribute) throws IOException {
+		checkOpen();
+		setStrategy(strategy);
+		final boolean[] table = attribute ? attributeescape : textescape;
+		final int len = value.length();
+		char highsurrogate = 0;
+		int i = 0;
+		while (i < len) {
+			if (highsurrogate == 0 && pending == 0) {
+				// copy runs of un-escaped ASCII directly.
+				if (pos == buffer.length) {
+					drain();
+				}
+				final int lim = Math.min(len, i + buffer.length - pos);
+				char ch = 0;
+				while (i < lim && (ch = value.charAt(i)) < 0x80 && !table[ch]) {
+					buffer[pos++] = (byte) ch;
+					i++;
+				}
+				if (i == lim) {
+					continue;
+				}
+			}
+			final char ch = value.charAt(i++);
+			if (highsurrogate != 0) {
+				if (!Verifier.isLowSurrogate(ch)) {
+					throw new IllegalDataException(
+							"Could not decode surrogate pair 0x" +
+									Integer.toHexString(highsurrogate) + " / 0x"
+									+ Integer.toHexString(ch));
+				}
+				writeCharRef(Verifier.decodeSurrogatePair(highsurrogate, ch));
+				highsurrogate = 0;
+				continue;
+			}
+			switch (ch) {
+				case '<':
+					writeASCII("&lt;");
+					break;
+				case '>':
+					writeASCII("&gt;");
+					break;
+				case '&':
+					writeASCII("&amp;");
+					break;
+				case '\r':
+					writeASCII("&#xD;");
+					break;
+				case '\n':
+					if (attribute) {
+						writeASCII("&#xA;");
+					} else if (eol != null) {
+						write(eol);
+					} else {
+						encode(ch);
+					}
+					break;
+				case '"':
+				case '\t':
+					if (attribute) {
+						writeASCII(ch == '"' ? "&quot;" : "&#x9;");
+						break;
+					}
+					// not markup in text, so it is up to the strategy.
+					//$FALL-THROUGH$
+				default:
+					if (ch < 0x80 ? table[ch] : strategy.shouldEscape(ch)) {
+						// make sure what we are escaping is not the
+						// beginning of a multi-byte character.
+						if (Verifier.isHighSurrogate(ch)) {
+							highsurrogate = ch;
+						} else {
+							writeCharRef(ch);
+						}
+					} else {
+						encode(ch);
+					}
+					break;
+			}
+		}
+		if (highsurrogate != 0) {
+			throw new IllegalDataException("Surrogate pair 0x" +
+					Integer.toHexString(highsurrogate) + "truncated");
+		}
+	}
+
+	/**
+	 * Escape a text value and encode it in a single pass. The output is the
+	 * same as writing the result of
+	 * {@link Format#escapeText(EscapeStrategy, String, String)}.
+	 * 
+	 * @param strategy
+	 *        The EscapeStrategy to query.
+	 * @param eol
+	 *        The End-Of-Line sequence to be used (may be null).
+	 * @param value
+	 *        The text to escape (see {@link org.jdom2.Text#getCharSequence()}).
+	 * @throws IOException
+	 *         if the destination fails.
+	 * @throws IllegalDataException
+	 *         if an entity can not be escaped
+	 */
+	public void writeEscapedText(final EscapeStrategy strategy,
+			final String eol, final CharSequence value) throws IOException {
+		escape(strategy, eol, value, false);
+	}
+
+	/**
+	 * Escape an attribute value and encode it in a single pass. The output is
+	 * the same as writing the result of
+	 * {@link Format#escapeAttribute(EscapeStrategy, String)}.
+	 * 
+	 * @param strategy
+	 *        The EscapeStrategy to query.
+	 * @param value
+	 *        The attribute value to escape.
+	 * @throws IOException
+	 *         if the destination fails.
+	 * @throws IllegalDataException
+	 *         if an entity can not be escaped
+	 */
+	public void writeEscapedAttribute(final EscapeStrategy strategy,
+			final String value) throws IOException {
+		escape(strategy, null, value, true);
+	}
+
+}
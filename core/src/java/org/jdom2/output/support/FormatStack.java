@@ -124,6 +124,9 @@ public final class FormatStack {
 	/** entity escape logic */
 	private final EscapeStrategy escapeStrategy;
 
+	/** Whether the output of Elements is cached on the Elements */
+	private final boolean cacheElements;
+
 	/*
 	 * ====================================================================
 	 * The following values can be changed mid-way through the output, hence
@@ -172,6 +175,7 @@ public final class FormatStack {
 		escapeStrategy = format.getEscapeStrategy();
 		defaultMode = format.getTextMode();
 		specifiedAttributesOnly = format.isSpecifiedAttributesOnly();
+		cacheElements = format.isCacheElements();
 
 		levelIndent[depth] = format.getIndent() == null
 				? null : "";
@@ -258,6 +262,20 @@ public final class FormatStack {
 		return escapeStrategy;
 	}
 
+	/**
+	 * @return the original {@link Format#isCacheElements()}
+	 */
+	public boolean isCacheElements() {
+		return cacheElements;
+	}
+
+	/**
+	 * @return the current depth of the stack, 0 at the start of the output.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
 	/**
 	 * @return the current depth's {@link Format#getIgnoreTrAXEscapingPIs()}
 	 */
@@ -634,6 +634,30 @@ public final class NamespaceStack implements Iterable<Namespace> {
 		return ArrayCopy.copyOf(scope[depth], scope[depth].length);
 	}
 
+	/**
+	 * Inspect the current scope and return true if it contains exactly the
+	 * same Namespace instances, in the same order, as the specified array
+	 * (typically one previously returned by {@link #getScope()}). This
+	 * does not create a copy of the scope.
+	 * @param namespaces The Namespaces to compare against.
+	 * @return true if the current scope is the same as the specified one.
+	 */
+	public boolean isScope(final Namespace[] namespaces) {
+		final Namespace[] current = scope[depth];
+		if (current == namespaces) {
+			return true;
+		}
+		if (namespaces == null || current.length != namespaces.length) {
+			return false;
+		}
+		for (int i = current.length - 1; i >= 0; i--) {
+			if (current[i] != namespaces[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Inspect the current scope and return true if the specified namespace is
 	 * in scope.
@@ -164,22 +164,10 @@ class JDOMCoreNavigator extends DefaultNavigator {
 		return ((NamespaceContainer)namespace).getNamespace().getPrefix();
 	}
 
-	private final void recurseElementText(Element element, StringBuilder sb) {
-		for (Iterator<?> it = element.getContent().iterator(); it.hasNext(); ) {
-			Content c = (Content)it.next();
-			if (c instanceof Element) {
-				recurseElementText((Element)c, sb);
-			} else if (c instanceof Text) {
-				sb.append(((Text)c).getText());
-			}
-		}
-	}
-
 	@Override
 	public final String getElementStringValue(Object element) {
-		StringBuilder sb = new StringBuilder();
-		recurseElementText((Element)element, sb);
-		return sb.toString();
+		// Element.getValue() does not recurse, and only makes one String.
+		return ((Element)element).getValue();
 	}
 
 	@Override
@@ -254,6 +242,19 @@ class JDOMCoreNavigator extends DefaultNavigator {
 		return ((Content)contextNode).getDocument();
 	}
 
+	/**
+	 * Supports the XPath <code>id()</code> function, using the ID index of
+	 * the Document when it has one.
+	 * 
+	 * @see Document#getElementById(String)
+	 */
+	@Override
+	public final Object getElementById(Object contextNode, String elementId) {
+		final Object doc = getDocumentNode(contextNode);
+		return doc instanceof Document
+				? ((Document)doc).getElementById(elementId) : null;
+	}
+
 	@Override
 	public final Object getParentNode(Object contextNode) throws UnsupportedAxisException {
 		if (contextNode instanceof Document) {
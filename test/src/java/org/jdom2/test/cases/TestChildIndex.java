@@ -0,0 +1,216 @@
+package org.jdom2.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.Text;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestChildIndex {
+	
+	private static final Namespace NS = Namespace.getNamespace("x", "urn:x");
+
+	/**
+	 * Build an Element with a mix of children, indexed or not.
+	 */
+	private static final Element build(final boolean indexed) {
+		final Element root = new Element("root");
+		root.setChildIndexed(indexed);
+		for (int i = 0; i < 20; i++) {
+			root.addContent(new Text(" "));
+			root.addContent(new Element("a").setAttribute("n", "" + i));
+			if (i % 3 == 0) {
+				root.addContent(new Element("b").setAttribute("n", "" + i));
+			}
+			if (i % 4 == 0) {
+				root.addContent(new Element("a", NS).setAttribute("n", "" + i));
+			}
+		}
+		return root;
+	}
+	
+	/**
+	 * Check that the indexed lookups give the same results as the scans.
+	 */
+	private static final void check(final Element root) {
+		assertTrue(root.isChildIndexed());
+		for (final String name : new String[] {"a", "b", "c"}) {
+			for (final Namespace ns : new Namespace[] {Namespace.NO_NAMESPACE, NS}) {
+				final List<Element> expect = root.getChildren();
+				int cnt = 0;
+				Element first = null;
+				for (final Element e : expect) {
+					if (e.getName().equals(name) && e.getNamespace() == ns) {
+						if (first == null) {
+							first = e;
+						}
+						cnt++;
+					}
+				}
+				final List<Element> actual = root.getChildren(name, ns);
+				assertEquals(cnt, actual.size());
+				assertSame(first, root.getChild(name, ns));
+				int pos = -1;
+				for (int i = 0; i < actual.size(); i++) {
+					final Element e = actual.get(i);
+					assertEquals(name, e.getName());
+					assertSame(ns, e.getNamespace());
+					final int at = root.indexOf(e);
+					assertTrue(at > pos);
+					pos = at;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDefaultNotIndexed() {
+		final Element root = new Element("root");
+		assertFalse(root.isChildIndexed());
+		assertSame(root, root.setChildIndexed(true));
+		assertTrue(root.isChildIndexed());
+		root.setChildIndexed(false);
+		assertFalse(root.isChildIndexed());
+	}
+
+	@Test
+	public void testLookups() {
+		final Element root = build(true);
+		check(root);
+		assertEquals("0", root.getChild("a").getAttributeValue("n"));
+		assertEquals("3", root.getChildren("b").get(1).getAttributeValue("n"));
+		assertEquals("8", root.getChildren("a", NS).get(2).getAttributeValue("n"));
+		assertNull(root.getChild("c"));
+		assertNull(root.getChild("b", NS));
+		assertTrue(root.getChildren("c").isEmpty());
+	}
+
+	@Test
+	public void testIndexExistingContent() {
+		final Element root = build(false);
+		root.setChildIndexed(true);
+		check(root);
+	}
+
+	@Test
+	public void testInsertRemoveSet() {
+		final Element root = build(true);
+		final Element front = new Element("a");
+		root.addContent(0, front);
+		check(root);
+		assertSame(front, root.getChild("a"));
+		root.addContent(5, new Element("c"));
+		check(root);
+		root.removeContent(3);
+		check(root);
+		root.setContent(0, new Element("b"));
+		check(root);
+		assertFalse(root.getChild("a") == front);
+		root.setContent(1, new Text("x"));
+		check(root);
+		assertTrue(root.removeContent(root.getChild("a", NS)));
+		check(root);
+	}
+
+	@Test
+	public void testRemoveChild() {
+		final Element root = build(true);
+		final Element first = root.getChild("b");
+		assertTrue(root.removeChild("b"));
+		assertNull(first.getParent());
+		assertFalse(root.getChild("b") == first);
+		check(root);
+		while (root.removeChild("b")) {
+			check(root);
+		}
+		assertNull(root.getChild("b"));
+		assertFalse(root.removeChild("c"));
+		assertTrue(root.removeChildren("a", NS));
+		check(root);
+	}
+
+	@Test
+	public void testRename() {
+		final Element root = build(true);
+		final Element a = root.getChildren("a").get(3);
+		a.setName("c");
+		check(root);
+		assertSame(a, root.getChild("c"));
+		a.setNamespace(NS);
+		check(root);
+		assertNull(root.getChild("c"));
+		assertSame(a, root.getChild("c", NS));
+		a.setName("a");
+		check(root);
+		assertSame(a, root.getChildren("a", NS).get(1));
+	}
+
+	@Test
+	public void testLiveList() {
+		final Element root = build(true);
+		final List<Element> bs = root.getChildren("b");
+		final int size = bs.size();
+		final Element added = new Element("b");
+		bs.add(1, added);
+		assertEquals(size + 1, bs.size());
+		assertSame(added, bs.get(1));
+		root.addContent(new Element("b"));
+		assertEquals(size + 2, bs.size());
+		bs.remove(0);
+		assertSame(added, root.getChild("b"));
+		check(root);
+		bs.clear();
+		assertNull(root.getChild("b"));
+		check(root);
+	}
+
+	@Test
+	public void testClearAndSetContent() {
+		final Element root = build(true);
+		final List<Content> content = root.cloneContent();
+		root.removeContent();
+		assertNull(root.getChild("a"));
+		check(root);
+		root.setContent(content);
+		check(root);
+		assertEquals("0", root.getChild("a").getAttributeValue("n"));
+	}
+
+	@Test
+	public void testSort() {
+		final Element root = build(true);
+		root.sortChildren(new Comparator<Element>() {
+			@Override
+			public int compare(final Element o1, final Element o2) {
+				final int n1 = Integer.parseInt(o1.getAttributeValue("n"));
+				final int n2 = Integer.parseInt(o2.getAttributeValue("n"));
+				return n2 - n1;
+			}
+		});
+		check(root);
+		assertEquals("19", root.getChild("a").getAttributeValue("n"));
+		assertEquals("18", root.getChild("b").getAttributeValue("n"));
+	}
+
+	@Test
+	public void testClone() {
+		final Element root = build(true);
+		final Element clone = root.clone();
+		assertTrue(clone.isChildIndexed());
+		check(clone);
+		assertFalse(root.getChild("a") == clone.getChild("a"));
+		assertSame(clone, clone.getChild("a").getParent());
+		assertFalse(build(false).clone().isChildIndexed());
+	}
+
+}
@@ -2,9 +2,12 @@ package org.jdom2.test.cases;
 
 import static org.jdom2.test.util.UnitTestUtil.checkException;
 import static org.jdom2.test.util.UnitTestUtil.failNoException;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -12,6 +15,8 @@ import java.util.List;
 import org.jdom2.Content;
 import org.jdom2.DocType;
 import org.jdom2.Element;
+import org.jdom2.IllegalAddException;
+import org.jdom2.Text;
 import org.jdom2.internal.ArrayCopy;
 import org.jdom2.test.util.AbstractTestList;
 
@@ -147,4 +152,75 @@ public class TestContentList extends AbstractTestList<Content> {
 		assertTrue(content[1] == it.next());
 	}
 	
+	@Test
+	public void testRemoveRange() {
+		final Element root = new Element("root");
+		final List<Content> content = root.getContent();
+		final Content[] kids = buildSampleContent();
+		content.addAll(Arrays.asList(kids));
+		content.subList(2, 5).clear();
+		assertEquals(4, content.size());
+		assertTrue(kids[0] == content.get(0));
+		assertTrue(kids[1] == content.get(1));
+		assertTrue(kids[5] == content.get(2));
+		assertTrue(kids[6] == content.get(3));
+		for (int i = 2; i < 5; i++) {
+			assertNull(kids[i].getParent());
+		}
+		assertTrue(root == kids[5].getParent());
+		content.subList(1, 1).clear();
+		assertEquals(4, content.size());
+		content.subList(0, 4).clear();
+		assertEquals(0, content.size());
+		assertNull(kids[6].getParent());
+	}
+
+	@Test
+	public void testRemoveRangeIndexed() {
+		final Element root = new Element("root");
+		final Content[] kids = buildSampleContent();
+		root.addContent(Arrays.asList(kids));
+		root.setChildIndexed(true);
+		root.getContent().subList(0, 3).clear();
+		assertNull(root.getChild("zero"));
+		assertTrue(kids[3] == root.getChild("three"));
+		assertEquals(0, root.indexOf(kids[3]));
+	}
+
+	@Test
+	public void testAddAllBulk() {
+		final Element root = new Element("root");
+		root.addContent("a").addContent("b");
+		final Content[] kids = buildSampleContent();
+		root.addContent(1, Arrays.asList(kids));
+		assertEquals(kids.length + 2, root.getContentSize());
+		for (int i = 0; i < kids.length; i++) {
+			assertTrue(kids[i] == root.getContent(i + 1));
+			assertTrue(root == kids[i].getParent());
+		}
+		assertEquals("b", root.getContent(kids.length + 1).getValue());
+	}
+
+	@Test
+	public void testAddAllBulkFailure() {
+		final Element root = new Element("root");
+		final Element other = new Element("other");
+		final Element taken = new Element("taken");
+		other.addContent(taken);
+		final List<Content> toadd = new ArrayList<Content>();
+		toadd.add(new Text("x"));
+		toadd.add(new Element("y"));
+		toadd.add(taken);
+		try {
+			root.addContent(toadd);
+			failNoException(IllegalAddException.class);
+		} catch (Exception e) {
+			checkException(IllegalAddException.class, e);
+		}
+		assertEquals(0, root.getContentSize());
+		assertNull(toadd.get(0).getParent());
+		assertNull(toadd.get(1).getParent());
+		assertTrue(other == taken.getParent());
+	}
+
 }
@@ -0,0 +1,231 @@
+package org.jdom2.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.ContentSplitter;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.filter.Filter;
+import org.jdom2.filter.Filters;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.test.util.FidoFetch;
+
+@SuppressWarnings("javadoc")
+public class TestContentSplitter {
+
+	private static final Element buildFeed(final int records) {
+		final Element root = new Element("feed");
+		root.addContent(new Comment("records"));
+		for (int i = 0; i < records; i++) {
+			final Element record = new Element("record");
+			record.setAttribute("id", "r" + i);
+			record.addContent("\n  ");
+			record.addContent(new Element("title").setText("title " + i));
+			final Element meta = new Element("meta");
+			for (int t = 0; t <= i % 5; t++) {
+				meta.addContent(new Element("tag").setText("t" + t));
+			}
+			record.addContent(meta);
+			root.addContent(record);
+			root.addContent("\n");
+		}
+		return root;
+	}
+
+	private static final <F extends Content> List<F> list(final Iterable<F> it) {
+		final List<F> ret = new ArrayList<F>();
+		for (F c : it) {
+			ret.add(c);
+		}
+		return ret;
+	}
+
+	private static final <F extends Content> List<F> join(
+			final List<ContentSplitter<F>> parts) {
+		final List<F> ret = new ArrayList<F>();
+		for (ContentSplitter<F> part : parts) {
+			ret.addAll(list(part));
+		}
+		return ret;
+	}
+
+	private static final <F extends Content> void checkSplits(
+			final Element root, final Filter<F> filter) {
+		final List<F> expect = list(root.getDescendants(filter));
+		final long size = root.getDescendantSplitter(filter).estimateSize();
+		for (int parts = 1; parts <= 40; parts++) {
+			final List<ContentSplitter<F>> split =
+					root.getDescendantSplitter(filter).split(parts);
+			assertTrue(split.size() <= parts);
+			long total = 0;
+			for (ContentSplitter<F> part : split) {
+				total += part.estimateSize();
+			}
+			assertEquals(size, total);
+			assertEquals("parts " + parts, expect, join(split));
+		}
+	}
+
+	@Test
+	public void testDescendantSplits() {
+		final Element root = buildFeed(50);
+		checkSplits(root, Filters.content());
+		checkSplits(root, Filters.element());
+		checkSplits(root, Filters.element("tag"));
+		checkSplits(root, Filters.text());
+		checkSplits(new Element("empty"), Filters.content());
+	}
+
+	@Test
+	public void testDescendantSplitsDocument() throws Exception {
+		final Document doc = new SAXBuilder().build(
+				FidoFetch.getFido().getURL("/complex.xml"));
+		checkSplits(doc.getRootElement(), Filters.content());
+		checkSplits(doc.getRootElement(), Filters.element());
+	}
+
+	@Test
+	public void testSizes() {
+		final Element root = buildFeed(10);
+		int all = 0;
+		int elements = 0;
+		for (Content c : root.getDescendants()) {
+			all++;
+			if (c instanceof Element) {
+				elements++;
+			}
+		}
+		assertEquals(all, root.getDescendantSplitter(Filters.content())
+				.estimateSize());
+		assertEquals(elements, root.getDescendantSplitter(Filters.element())
+				.estimateSize());
+		assertEquals(root.getContentSize(), root.getChildSplitter()
+				.estimateSize());
+	}
+
+	@Test
+	public void testSplitInsideSubtree() {
+		// one child, with all the content inside it.
+		final Element wrapper = new Element("wrapper").addContent(buildFeed(20));
+		final ContentSplitter<Content> splitter =
+				wrapper.getDescendantSplitter(Filters.content());
+		final long size = splitter.estimateSize();
+		final ContentSplitter<Content> prefix = splitter.trySplit();
+		assertNotNull(prefix);
+		assertEquals(size, prefix.estimateSize() + splitter.estimateSize());
+		// the split is about half-way, not just the feed element.
+		assertTrue(prefix.estimateSize() > size / 4);
+		assertTrue(splitter.estimateSize() > size / 4);
+		final List<Content> joined = list(prefix);
+		joined.addAll(list(splitter));
+		assertEquals(list(wrapper.getDescendants()), joined);
+	}
+
+	@Test
+	public void testNoSplit() {
+		final Element leaf = new Element("leaf").addContent("text");
+		assertNull(leaf.getDescendantSplitter(Filters.content()).trySplit());
+		assertEquals(1, leaf.getChildSplitter().split(8).size());
+		final Element nested = new Element("a").addContent(new Element("b"));
+		final ContentSplitter<Content> cs = nested.getDescendantSplitter(
+				Filters.content());
+		assertNull(cs.trySplit());
+		assertEquals(1, list(cs).size());
+	}
+
+	@Test
+	public void testChildSplits() {
+		final Element root = buildFeed(30);
+		for (int parts = 1; parts < 70; parts++) {
+			final List<ContentSplitter<Content>> split =
+					root.getChildSplitter().split(parts);
+			assertEquals(Math.min(parts, root.getContentSize()), split.size());
+			assertEquals(root.getContent(), join(split));
+		}
+	}
+
+	@Test
+	public void testStarted() {
+		final ContentSplitter<Content> cs = buildFeed(5).getDescendantSplitter(
+				Filters.content());
+		final Iterator<Content> it = cs.iterator();
+		it.next();
+		try {
+			cs.trySplit();
+			fail("Should not be able to split after iteration starts");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+		try {
+			it.remove();
+			fail("Should not be able to remove content");
+		} catch (UnsupportedOperationException uoe) {
+			// good
+		}
+	}
+
+	@Test
+	public void testNullFilter() {
+		try {
+			new Element("x").getDescendantSplitter(null);
+			fail("Should not be able to split with a null filter");
+		} catch (NullPointerException npe) {
+			// good
+		}
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		final Document doc = new Document(buildFeed(500));
+		doc.freeze();
+		final Element root = doc.getRootElement();
+		int expect = 0;
+		for (Element tag : root.getDescendants(Filters.element("tag"))) {
+			expect += tag.getText().length();
+		}
+		final ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (final ContentSplitter<Element> part :
+					root.getDescendantSplitter(Filters.element("tag")).split(8)) {
+				results.add(exec.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						int cnt = 0;
+						for (Element tag : part) {
+							cnt += tag.getText().length();
+						}
+						return Integer.valueOf(cnt);
+					}
+				}));
+			}
+			assertEquals(8, results.size());
+			int total = 0;
+			for (Future<Integer> f : results) {
+				total += f.get().intValue();
+			}
+			assertEquals(expect, total);
+		} finally {
+			exec.shutdown();
+		}
+		assertFalse(root.getContent().isEmpty());
+	}
+
+}
@@ -0,0 +1,182 @@
+package org.jdom2.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.CDATA;
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.DeferredContent;
+import org.jdom2.Element;
+import org.jdom2.EntityRef;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.Text;
+import org.jdom2.output.XMLOutputter;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestDeferredContent {
+	
+	private static final Namespace NS = Namespace.getNamespace("x", "urn:x");
+	
+	private static final DeferredContent record() {
+		final DeferredContent dc = new DeferredContent(null);
+		final char[] chars = "  some text ".toCharArray();
+		dc.text(-1, -1, chars, 1, 10);
+		dc.startElement(-1, -1, "child", NS);
+		dc.addNamespaceDeclaration(Namespace.getNamespace("y", "urn:y"));
+		dc.addAttribute("att", Namespace.NO_NAMESPACE, "val", AttributeType.CDATA, true);
+		dc.addAttribute("def", NS, "dflt", null, false);
+		dc.startElement(-1, -1, "leaf", Namespace.NO_NAMESPACE);
+		dc.endElement();
+		dc.cdata(-1, -1, chars, 0, chars.length);
+		dc.endElement();
+		dc.comment(-1, -1, "comment");
+		dc.processingInstruction(-1, -1, "target", "data");
+		dc.entityRef(-1, -1, "ent", null, "ent.xml");
+		dc.startElement(-1, -1, "empty", null);
+		dc.endElement();
+		return dc;
+	}
+
+	@Test
+	public void testExpand() {
+		final DeferredContent dc = record();
+		assertTrue(dc.getFactory() instanceof DefaultJDOMFactory);
+		assertEquals(0, dc.getDepth());
+		final Element root = new Element("root");
+		assertFalse(DeferredContent.isDeferred(root));
+		dc.defer(root);
+		assertTrue(DeferredContent.isDeferred(root));
+		
+		final List<Content> content = root.getContent();
+		assertEquals(6, content.size());
+		assertFalse(DeferredContent.isDeferred(root));
+		assertEquals(" some text", ((Text)content.get(0)).getText());
+		final Element child = (Element)content.get(1);
+		assertSame(root, child.getParent());
+		assertEquals("child", child.getName());
+		assertSame(NS, child.getNamespace());
+		assertEquals(1, child.getAdditionalNamespaces().size());
+		assertEquals("val", child.getAttributeValue("att"));
+		assertEquals(AttributeType.CDATA, child.getAttribute("att").getAttributeType());
+		final Attribute def = child.getAttribute("def", NS);
+		assertEquals("dflt", def.getValue());
+		assertEquals(AttributeType.UNDECLARED, def.getAttributeType());
+		assertFalse(def.isSpecified());
+		assertTrue(DeferredContent.isDeferred(child));
+		assertEquals(2, child.getContentSize());
+		assertEquals("leaf", child.getChildren().get(0).getName());
+		assertFalse(DeferredContent.isDeferred(child.getChildren().get(0)));
+		assertEquals("  some text ", ((CDATA)child.getContent(1)).getText());
+		assertEquals("comment", ((Comment)content.get(2)).getText());
+		assertEquals("target", ((ProcessingInstruction)content.get(3)).getTarget());
+		assertEquals("data", ((ProcessingInstruction)content.get(3)).getData());
+		final EntityRef er = (EntityRef)content.get(4);
+		assertEquals("ent", er.getName());
+		assertNull(er.getPublicID());
+		assertEquals("ent.xml", er.getSystemID());
+		assertEquals(0, ((Element)content.get(5)).getContentSize());
+		assertFalse(DeferredContent.isDeferred((Element)content.get(5)));
+	}
+
+	@Test
+	public void testSameAsClone() {
+		final Element root = new Element("root");
+		record().defer(root);
+		final Element clone = root.clone();
+		assertTrue(DeferredContent.isDeferred(root));
+		final XMLOutputter out = new XMLOutputter();
+		final String expect = out.outputString(root);
+		assertEquals(expect, out.outputString(clone));
+		assertFalse(root.getChild("child", NS) == clone.getChild("child", NS));
+	}
+
+	@Test
+	public void testDeferSequence() {
+		final DeferredContent dc = new DeferredContent(null);
+		final Element a = new Element("a");
+		final Element b = new Element("b");
+		final Element c = new Element("c");
+		dc.comment(-1, -1, "a");
+		dc.defer(a);
+		dc.defer(b);
+		dc.comment(-1, -1, "c");
+		dc.defer(c);
+		assertTrue(DeferredContent.isDeferred(a));
+		assertFalse(DeferredContent.isDeferred(b));
+		assertTrue(DeferredContent.isDeferred(c));
+		assertEquals("c", ((Comment)c.getContent(0)).getText());
+		assertEquals("a", ((Comment)a.getContent(0)).getText());
+		assertEquals(0, b.getContentSize());
+	}
+
+	@Test
+	public void testMutateDeferred() {
+		final Element root = new Element("root");
+		record().defer(root);
+		root.addContent(0, new Element("first"));
+		assertEquals(7, root.getContentSize());
+		assertEquals("first", root.getChildren().get(0).getName());
+		
+		final Element other = new Element("root");
+		record().defer(other);
+		other.setContent(new Element("only"));
+		assertEquals(1, other.getContentSize());
+		
+		final Element idx = new Element("root");
+		record().defer(idx);
+		idx.setChildIndexed(true);
+		assertEquals("child", idx.getChild("child", NS).getName());
+	}
+
+	@Test
+	public void testIllegalStates() {
+		final DeferredContent dc = new DeferredContent(null);
+		try {
+			dc.addAttribute("a", null, "b", null, true);
+			fail("Should not be able to add an attribute outside a start tag");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+		try {
+			dc.endElement();
+			fail("Should not be able to end an unstarted Element");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+		dc.startElement(-1, -1, "a", null);
+		assertEquals(1, dc.getDepth());
+		dc.comment(-1, -1, "text");
+		try {
+			dc.addNamespaceDeclaration(NS);
+			fail("Should not be able to declare a Namespace after content");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+		try {
+			dc.defer(new Element("root"));
+			fail("Should not be able to defer an unfinished Element");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+		dc.endElement();
+		try {
+			dc.defer(new Element("root").addContent("text"));
+			fail("Should not be able to defer to an Element with content");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+	}
+
+}
@@ -7,14 +7,19 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import org.junit.Test;
 
+import org.jdom2.Comment;
 import org.jdom2.Content;
 import org.jdom2.Document;
 import org.jdom2.Element;
+import org.jdom2.Text;
+import org.jdom2.filter.ElementFilter;
+import org.jdom2.filter.Filters;
 import org.jdom2.test.util.UnitTestUtil;
 import org.jdom2.util.IteratorIterable;
 
@@ -231,4 +236,105 @@ public class TestDescendantIterator {
 	
 	
 
+	private static final String names(final Iterator<? extends Content> it) {
+		final StringBuilder sb = new StringBuilder();
+		while (it.hasNext()) {
+			final Content c = it.next();
+			sb.append(c instanceof Element ? ((Element)c).getName() : c.getValue());
+			sb.append(',');
+		}
+		return sb.toString();
+	}
+
+	private static final Element buildMixedDoc() {
+		final Element root = buildTestDoc();
+		for (Element e : root.getDescendants(Filters.element())) {
+			e.addContent(0, new Text("t-" + e.getName()));
+			e.addContent(new Comment("c-" + e.getName()));
+		}
+		return root;
+	}
+
+	@Test
+	public void testPrune() {
+		final Element root = buildMixedDoc();
+		// legolas is returned, but not its descendants.
+		assertEquals("frodo,sam,pippin,merry,legolas,gandalf,", names(
+				root.getDescendants(Filters.element(), Filters.element("legolas"))));
+		assertEquals("frodo,t-frodo,sam,t-sam,c-sam,pippin,t-pippin,c-pippin,"
+				+ "merry,t-merry,c-merry,legolas,gandalf,t-gandalf,c-gandalf,"
+				+ "c-frodo,", names(
+				root.getDescendants(Filters.content(), Filters.element("legolas"))));
+		// pruning everything only leaves the children.
+		assertEquals("frodo,", names(root.getDescendants(Filters.element(),
+				Filters.element())));
+		// null prunes nothing.
+		assertEquals(names(root.getDescendants(Filters.content())),
+				names(root.getDescendants(Filters.content(), null)));
+		final Document doc = new Document(root);
+		assertEquals("root,", names(doc.getDescendants(Filters.element(),
+				Filters.element("root"))));
+	}
+
+	@Test
+	public void testElementsOnly() {
+		final Element root = buildMixedDoc();
+		final StringBuilder sb = new StringBuilder();
+		for (Content c : root.getDescendants()) {
+			if (c instanceof Element) {
+				sb.append(((Element)c).getName()).append(',');
+			}
+		}
+		final String expect = sb.toString();
+		assertEquals(expect, names(root.getDescendants(Filters.element())));
+		assertEquals(expect, names(root.getDescendants(new ElementFilter())));
+		assertEquals("gimli,", names(root.getDescendants(
+				Filters.element("gimli"))));
+		assertEquals("", names(new Element("x").addContent("text")
+				.getDescendants(Filters.element())));
+	}
+
+	@Test
+	public void testRemoveAfterHasNext() {
+		final Element root = buildTestDoc();
+		final Iterator<Content> it = root.getDescendants();
+		// frodo, sam
+		it.next();
+		it.next();
+		assertTrue(it.hasNext());
+		// remove legolas after hasNext() has looked in to it.
+		while (!"legolas".equals(((Element)it.next()).getName())) {
+			// skip
+		}
+		assertTrue(it.hasNext());
+		it.remove();
+		assertEquals("gandalf,", names(it));
+		assertEquals("frodo,sam,pippin,merry,gandalf,", names(root.getDescendants()));
+
+		// remove the last thing after hasNext() has moved up.
+		final Iterator<Content> eit = root.getDescendants();
+		Content last = null;
+		while (eit.hasNext()) {
+			last = eit.next();
+		}
+		eit.remove();
+		assertEquals("gandalf", ((Element)last).getName());
+		assertEquals("frodo,sam,pippin,merry,", names(root.getDescendants()));
+	}
+
+	@Test
+	public void testConcurrentModification() {
+		final Element root = buildTestDoc();
+		final Iterator<Content> it = root.getDescendants();
+		it.next();
+		it.next();
+		((Element)root.getContent(0)).addContent(new Element("extra"));
+		try {
+			it.next();
+			fail("Should not be able to iterate after a concurrent change");
+		} catch (ConcurrentModificationException cme) {
+			// good
+		}
+	}
+
 }
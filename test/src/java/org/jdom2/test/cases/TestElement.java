@@ -74,6 +74,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -3285,4 +3286,89 @@ public final class TestElement {
 		}
 	}
 
+	private static final Element textTree() {
+		final Element root = new Element("root");
+		root.addContent("  \t lead ");
+		root.addContent(new Element("a").addContent(" in  a ")
+				.addContent(new Element("b").setText("b\n\n")));
+		root.addContent(new Comment("not text"));
+		root.addContent(new CDATA("  cd  "));
+		root.addContent(new EntityRef("ent"));
+		root.addContent(new Element("c"));
+		root.addContent(" trail \r\n");
+		return root;
+	}
+
+	@Test
+	public void testAppendValue() throws IOException {
+		final Element root = textTree();
+		final String value = "  \t lead  in  a b\n\n  cd   trail \r\n";
+		assertEquals(value, root.getValue());
+		assertEquals(value, root.appendValue(new StringBuilder()).toString());
+		final StringBuilder sb = new StringBuilder("x");
+		assertTrue(sb == root.appendValue(sb));
+		assertEquals("x" + value, sb.toString());
+		final StringWriter sw = new StringWriter();
+		root.appendValue(sw, Format.TextMode.PRESERVE);
+		assertEquals(value, sw.toString());
+		assertEquals("", new Element("empty").appendValue(new StringBuilder())
+				.toString());
+	}
+
+	@Test
+	public void testAppendValueTextMode() throws IOException {
+		final Element root = textTree();
+		final String value = root.getValue();
+		assertEquals(Format.trimBoth(value), root.appendValue(
+				new StringBuilder(), Format.TextMode.TRIM).toString());
+		assertEquals(Format.compact(value), root.appendValue(
+				new StringBuilder(), Format.TextMode.NORMALIZE).toString());
+		assertEquals(value, root.appendValue(
+				new StringBuilder(), Format.TextMode.TRIM_FULL_WHITE).toString());
+		final Element white = new Element("white").addContent(" \n")
+				.addContent(new Element("w").setText("\t"));
+		for (Format.TextMode mode : Format.TextMode.values()) {
+			final String expect = mode == Format.TextMode.PRESERVE ? " \n\t" : "";
+			assertEquals(mode.toString(), expect, 
+					white.appendValue(new StringBuilder(), mode).toString());
+		}
+	}
+
+	@Test
+	public void testAppendText() throws IOException {
+		final Element root = textTree();
+		final String text = "  \t lead   cd   trail \r\n";
+		assertEquals(text, root.getText());
+		assertEquals(text, root.appendText(new StringBuilder()).toString());
+		assertEquals(Format.trimBoth(text), root.appendText(
+				new StringBuilder(), Format.TextMode.TRIM).toString());
+		assertEquals(root.getTextNormalize(), root.appendText(
+				new StringBuilder(), Format.TextMode.NORMALIZE).toString());
+		assertEquals(text, root.appendText(new StringBuilder(), null).toString());
+	}
+
+	@Test
+	public void testAppendValueCharBuffer() throws IOException {
+		final Element root = textTree();
+		final CharBuffer cb = CharBuffer.allocate(100);
+		root.appendValue(cb, Format.TextMode.NORMALIZE);
+		cb.flip();
+		assertEquals(Format.compact(root.getValue()), cb.toString());
+	}
+
+	@Test
+	public void testAppendValueDeep() {
+		// deeper than a recursive walk can go on a default thread stack.
+		// (built from the bottom up, adding to the top is slow when deep)
+		Element root = new Element("e").setText("end");
+		for (int i = 99999; i >= 0; i--) {
+			root = new Element("e").addContent(String.valueOf(i % 10))
+					.addContent(root);
+		}
+		final String value = root.getValue();
+		assertEquals(100003, value.length());
+		assertTrue(value.startsWith("0123456789"));
+		assertTrue(value.endsWith("9end"));
+	}
+
 }
@@ -1338,4 +1338,93 @@ public final class TestFilterList {
     	assertTrue(c == size);
     }
     
+    @Test
+    public void testSharedPositions() {
+    	// every getChildren() call is a new view, they share the positions.
+    	Element root = new Element("root");
+    	final int size = 50;
+    	for (int i = 0; i < size; i++) {
+    		root.addContent(new Text(" "));
+    		root.addContent(new Element(i % 2 == 0 ? "even" : "odd"));
+    	}
+    	for (int i = 0; i < root.getChildren().size(); i++) {
+    		assertTrue(root.getContent(i * 2 + 1) == root.getChildren().get(i));
+    	}
+    	assertEquals(size, root.getChildren().size());
+    	assertEquals(size / 2, root.getChildren("even").size());
+    	assertEquals(size, root.getContent(org.jdom2.filter.Filters.text()).size());
+
+    	// a view holding the shared positions stays live.
+    	List<Element> kids = root.getChildren();
+    	List<Element> evens = root.getChildren("even");
+    	assertEquals(size, kids.size());
+    	Element first = new Element("first");
+    	root.addContent(0, first);
+    	assertTrue(first == kids.get(0));
+    	assertTrue(first == root.getChildren().get(0));
+    	assertEquals(size + 1, root.getChildren().size());
+    	kids.add(1, new Element("even"));
+    	assertEquals(size / 2 + 1, root.getChildren("even").size());
+    	assertEquals(size / 2 + 1, evens.size());
+    	kids.remove(0);
+    	assertEquals(size + 1, root.getChildren().size());
+    	assertEquals("even", root.getChildren().get(0).getName());
+
+    	// renaming changes what the named views match.
+    	root.getChildren().get(0).setName("odd");
+    	assertEquals(size / 2, root.getChildren("even").size());
+    	assertEquals(size / 2 + 1, root.getChildren("odd").size());
+    	root.getChildren("odd").get(0).setName("even");
+    	assertEquals(size / 2 + 1, root.getChildren("even").size());
+
+    	// the root of a Document too.
+    	Document doc = new Document(new Element("a"));
+    	assertEquals(1, doc.getContent(new org.jdom2.filter.ElementFilter("a")).size());
+    	doc.getRootElement().setName("b");
+    	assertEquals(0, doc.getContent(new org.jdom2.filter.ElementFilter("a")).size());
+    	assertEquals(1, doc.getContent(new org.jdom2.filter.ElementFilter("b")).size());
+
+    	// filters on the values of the content are not shared.
+    	final org.jdom2.filter.Filter<Text> xtext = new org.jdom2.filter.AbstractFilter<Text>() {
+    		private static final long serialVersionUID = 1L;
+    		@Override
+    		public Text filter(Object content) {
+    			return content instanceof Text && "x".equals(((Text)content).getText())
+    					? (Text)content : null;
+    		}
+    		@Override
+    		public boolean equals(Object obj) {
+    			return obj != null && obj.getClass() == getClass();
+    		}
+    		@Override
+    		public int hashCode() {
+    			return 0;
+    		}
+    	};
+    	assertEquals(0, root.getContent(xtext).size());
+    	((Text)root.getContent(0)).setText("x");
+    	assertEquals(1, root.getContent(xtext).size());
+    }
+
+    @Test
+    public void testSharedPositionsFrozen() {
+    	Element root = new Element("root");
+    	for (int i = 0; i < 10; i++) {
+    		root.addContent(new Element("kid"));
+    		root.addContent(new Element("other"));
+    	}
+    	new Document(root).freeze();
+    	assertEquals(10, root.getChildren("kid").size());
+    	assertEquals(10, root.getChildren("kid").size());
+    	assertEquals("kid", root.getChildren("kid").get(9).getName());
+    	assertEquals(20, root.getChildren().size());
+    	try {
+    		root.getChildren("kid").add(new Element("kid"));
+    		fail("Should not be able to add to a frozen list");
+    	} catch (UnsupportedOperationException uoe) {
+    		// good
+    	}
+    	assertEquals(10, root.getChildren("kid").size());
+    }
+
 }
@@ -0,0 +1,513 @@
+package org.jdom2.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jdom2.Attribute;
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.DeferredContent;
+import org.jdom2.DocType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.EntityRef;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.Text;
+import org.jdom2.filter.Filters;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.test.util.FidoFetch;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestFrozenDocument {
+
+	private static final String XML = "<!DOCTYPE root [<!ENTITY ent 'x'>]>"
+			+ "<root xmlns:a='urn:a' att='v'>text<child a:att='w'>more"
+			+ "<![CDATA[cdata]]></child><!-- comment --><?pi data?>"
+			+ "<child/><other/></root>";
+
+	private static final Document build(final String xml) throws Exception {
+		final SAXBuilder sb = new SAXBuilder();
+		sb.setExpandEntities(false);
+		return sb.build(new StringReader(xml));
+	}
+
+	private static abstract class Change {
+		abstract void change();
+	}
+
+	private static final void checkFrozen(final Change change) {
+		try {
+			change.change();
+			fail("Should not be able to modify a frozen Document");
+		} catch (UnsupportedOperationException uoe) {
+			// good
+		}
+	}
+
+	@Test
+	public void testFreeze() throws Exception {
+		final Document doc = build(XML);
+		final String before = new XMLOutputter().outputString(doc);
+		assertFalse(doc.isFrozen());
+		assertFalse(doc.getRootElement().isFrozen());
+		assertSame(doc, doc.freeze());
+		assertSame(doc, doc.freeze());
+		assertTrue(doc.isFrozen());
+		assertTrue(doc.getRootElement().isFrozen());
+		assertTrue(doc.getDocType().isFrozen());
+		assertTrue(doc.getRootElement().getAttribute("att").isFrozen());
+		assertTrue(doc.getRootElement().getContent(0).isFrozen());
+		assertEquals(before, new XMLOutputter().outputString(doc));
+	}
+
+	@Test
+	public void testDetachedNotFrozen() {
+		assertFalse(new Element("e").isFrozen());
+		assertFalse(new Text("t").isFrozen());
+		assertFalse(new Attribute("a", "v").isFrozen());
+		assertFalse(new Document().isFrozen());
+	}
+
+	@Test
+	public void testRejectStructure() throws Exception {
+		final Document doc = build(XML).freeze();
+		final Element root = doc.getRootElement();
+		final Element child = root.getChild("child");
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.addContent(new Element("new"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.addContent(0, new Comment("new"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.removeContent(0);
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.removeContent();
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				child.detach();
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.setText("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.setContent(1, new Text("new"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.getChildren().remove(0);
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				final Iterator<Content> it = root.getContent().iterator();
+				it.next();
+				it.remove();
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.sortChildren(new Comparator<Element>() {
+					@Override
+					public int compare(Element o1, Element o2) {
+						return o1.getName().compareTo(o2.getName());
+					}
+				});
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.setChildIndexed(true);
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				doc.setRootElement(new Element("new"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				doc.addContent(new Comment("new"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				doc.setDocType(null);
+			}
+		});
+		// the failures did not change anything.
+		assertEquals(build(XML).getRootElement().getContentSize(),
+				root.getContentSize());
+		assertSame(root, child.getParent());
+	}
+
+	@Test
+	public void testRejectAttributes() throws Exception {
+		final Document doc = build(XML).freeze();
+		final Element root = doc.getRootElement();
+		final Element bare = root.getChild("other");
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.setAttribute("att", "new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.setAttribute("new", "new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.removeAttribute("att");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.getAttributes().clear();
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				bare.getAttributes().add(new Attribute("new", "new"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				bare.setAttribute("new", "new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.getAttribute("att").setValue("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.getAttribute("att").setName("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.getAttribute("att").setAttributeType(
+						Attribute.CDATA_TYPE);
+			}
+		});
+		assertEquals(0, bare.getAttributesSize());
+		assertFalse(bare.hasAttributes());
+		assertEquals("v", root.getAttributeValue("att"));
+	}
+
+	@Test
+	public void testRejectValues() throws Exception {
+		final Document doc = build(XML).freeze();
+		final Element root = doc.getRootElement();
+		final Element child = root.getChild("child");
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.setName("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.setNamespace(Namespace.getNamespace("urn:new"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.addNamespaceDeclaration(Namespace.getNamespace("b", "urn:b"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.removeNamespaceDeclaration(root.getNamespace("a"));
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				((Text)root.getContent(0)).setText("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				((Text)root.getContent(0)).append("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				((Text)child.getContent(1)).setText("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.getDescendants(Filters.comment()).next().setText("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				root.getDescendants(Filters.processinginstruction()).next()
+						.setData("new");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				doc.getDocType().setInternalSubset("");
+			}
+		});
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				doc.setBaseURI("new");
+			}
+		});
+		assertEquals("root", root.getName());
+		assertEquals("text", root.getContent(0).getValue());
+	}
+
+	@Test
+	public void testEntityRef() throws Exception {
+		final Document doc = build("<!DOCTYPE root [<!ENTITY ent 'x'>]>"
+				+ "<root>&ent;</root>").freeze();
+		final EntityRef ref = (EntityRef)doc.getRootElement().getContent(0);
+		checkFrozen(new Change() {
+			@Override
+			void change() {
+				ref.setName("new");
+			}
+		});
+		final ProcessingInstruction pi = new ProcessingInstruction("pi", "data");
+		pi.setData("ok");
+		assertEquals("ok", pi.getData());
+	}
+
+	@Test
+	public void testCloneNotFrozen() throws Exception {
+		final Document doc = build(XML).freeze();
+		final Document copy = doc.clone();
+		assertFalse(copy.isFrozen());
+		copy.getRootElement().addContent(new Element("new"));
+		copy.getRootElement().getAttribute("att").setValue("new");
+		assertEquals("v", doc.getRootElement().getAttributeValue("att"));
+		final Element ecopy = doc.getRootElement().clone();
+		assertFalse(ecopy.isFrozen());
+		ecopy.setName("new");
+		ecopy.getChild("child").setText("new");
+	}
+
+	@Test
+	public void testCloneCopyOnAccess() throws Exception {
+		final Document template = new SAXBuilder().build(
+				FidoFetch.getFido().getStream("/complex.xml")).freeze();
+		final XMLOutputter out = new XMLOutputter();
+		final String expect = out.outputString(template);
+
+		final Document copy = template.clone();
+		final Element root = copy.getRootElement();
+		assertTrue(DeferredContent.isDeferred(root));
+		assertEquals(template.getRootElement().getAttributes().size(),
+				root.getAttributes().size());
+		// accessing the root's content copies only the root's children.
+		final List<Element> kids = root.getChildren();
+		assertFalse(DeferredContent.isDeferred(root));
+		int deferred = 0;
+		for (final Element kid : kids) {
+			assertFalse(kid.isFrozen());
+			if (DeferredContent.isDeferred(kid)) {
+				deferred++;
+			}
+		}
+		assertTrue(deferred > 0);
+		// a clone of a pending clone shares the pending copy.
+		final Element pending = kids.get(kids.size() - 1).clone();
+
+		final Element first = kids.get(0);
+		first.setAttribute("changed", "yes");
+		first.addContent(new Element("added"));
+		assertEquals("yes", first.getAttributeValue("changed"));
+		assertTrue(template.getRootElement().getChildren().get(0)
+				.getAttribute("changed") == null);
+		assertEquals(expect, out.outputString(template));
+
+		final Element orig = template.getRootElement().getChildren().get(
+				kids.size() - 1);
+		assertEquals(out.outputString(orig), out.outputString(pending));
+
+		// the unchanged copy is the same as the template.
+		assertEquals(expect, out.outputString(template.clone()));
+	}
+
+	@Test
+	public void testCloneCopyModify() throws Exception {
+		final Document template = build(XML).freeze();
+		final Document copy = template.clone();
+		final Element child = copy.getRootElement().getChild("child");
+		child.setText("new");
+		child.getAttributes().get(0).setValue("new");
+		assertEquals("new", child.getText());
+		assertEquals("morecdata", template.getRootElement().getChild("child")
+				.getText());
+		assertEquals("w", template.getRootElement().getChild("child")
+				.getAttributes().get(0).getValue());
+		assertEquals(template.getRootElement().getContentSize(),
+				copy.getRootElement().getContentSize());
+		copy.freeze();
+		assertTrue(copy.clone().getRootElement().getChild("child")
+				.getText().equals("new"));
+	}
+
+	@Test
+	public void testFrozenChildren() throws Exception {
+		final Document doc = new SAXBuilder().build(
+				FidoFetch.getFido().getStream("/complex.xml"));
+		final List<List<Element>> expect = new ArrayList<List<Element>>();
+		for (final Element e : doc.getDescendants(Filters.element())) {
+			expect.add(new ArrayList<Element>(e.getChildren()));
+		}
+		doc.freeze();
+		int i = 0;
+		for (final Element e : doc.getDescendants(Filters.element())) {
+			final List<Element> kids = e.getChildren();
+			assertEquals(expect.get(i), kids);
+			assertEquals(expect.get(i).size(), kids.size());
+			assertEquals(expect.get(i).isEmpty(), kids.isEmpty());
+			for (int k = kids.size() - 1; k >= 0; k--) {
+				assertSame(expect.get(i).get(k), kids.get(k));
+				assertEquals(k, kids.indexOf(kids.get(k)));
+			}
+			final List<Element> rev = new ArrayList<Element>(kids);
+			Collections.reverse(rev);
+			final List<Element> back = new ArrayList<Element>();
+			for (java.util.ListIterator<Element> it = kids.listIterator(kids.size());
+					it.hasPrevious();) {
+				back.add(it.previous());
+			}
+			assertEquals(rev, back);
+			i++;
+		}
+		assertEquals(expect.size(), i);
+	}
+
+	@Test
+	public void testFreezeDeferred() throws Exception {
+		final SAXBuilder sb = new SAXBuilder();
+		sb.setDeferredBuild(true);
+		final Document doc = sb.build(FidoFetch.getFido().getStream("/complex.xml"));
+		final String expect = new XMLOutputter().outputString(new SAXBuilder()
+				.build(FidoFetch.getFido().getStream("/complex.xml")));
+		doc.freeze();
+		assertEquals(expect, new XMLOutputter().outputString(doc));
+	}
+
+	@Test
+	public void testFreezeIndexed() throws Exception {
+		final Document doc = build(XML);
+		doc.getRootElement().setChildIndexed(true);
+		doc.freeze();
+		assertTrue(doc.getRootElement().isChildIndexed());
+		assertEquals(2, doc.getRootElement().getChildren("child").size());
+		assertEquals("morecdata", doc.getRootElement().getChild("child").getText());
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		final Document doc = new SAXBuilder().build(
+				FidoFetch.getFido().getStream("/complex.xml")).freeze();
+		// count the scopes in a separate copy, so the threads below race to
+		// build the Namespace scopes of the frozen Document.
+		int scopes = 0;
+		for (final Element e : new SAXBuilder().build(FidoFetch.getFido()
+				.getStream("/complex.xml")).getDescendants(Filters.element())) {
+			scopes += e.getNamespacesInScope().size();
+		}
+		final String expect = scopes + new XMLOutputter().outputString(doc);
+		final ExecutorService exec = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 64; i++) {
+				results.add(exec.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						int cnt = 0;
+						int inscope = 0;
+						for (final Element e : doc.getDescendants(Filters.element())) {
+							cnt += e.getChildren().size() + e.getAttributes().size();
+							inscope += e.getNamespacesInScope().size();
+						}
+						assertTrue(cnt > 0);
+						return inscope + new XMLOutputter().outputString(doc);
+					}
+				}));
+			}
+			for (final Future<String> f : results) {
+				assertEquals(expect, f.get());
+			}
+		} finally {
+			exec.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,317 @@
+package org.jdom2.test.cases;
+
+import static org.jdom2.test.util.UnitTestUtil.checkException;
+import static org.jdom2.test.util.UnitTestUtil.failNoException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.filter.Filters;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.xpath.XPathExpression;
+import org.jdom2.xpath.jaxen.JaxenXPathFactory;
+
+@SuppressWarnings("javadoc")
+public class TestIdIndex {
+
+	private static final Attribute id(final String value) {
+		return new Attribute("ref", value, AttributeType.ID);
+	}
+
+	private static final Document buildCatalog(final int items) {
+		final Element root = new Element("catalog");
+		for (int i = 0; i < items; i++) {
+			final Element item = new Element("item");
+			item.setAttribute(id("i" + i));
+			item.setAttribute("category", "c" + (i % 3));
+			item.addContent(new Element("part").setAttribute(
+					new Attribute("id", "p" + i, Namespace.XML_NAMESPACE)));
+			root.addContent(item);
+		}
+		return new Document(root);
+	}
+
+	@Test
+	public void testScan() {
+		final Document doc = buildCatalog(10);
+		assertFalse(doc.isIdIndexed());
+		assertTrue(doc.getRootElement().getChildren().get(4) == doc.getElementById("i4"));
+		assertTrue(doc.getRootElement().getChildren().get(7).getChild("part")
+				== doc.getElementById("p7"));
+		assertNull(doc.getElementById("c1"));
+		assertNull(doc.getElementById(null));
+		assertNull(new Document().getElementById("i1"));
+	}
+
+	@Test
+	public void testIndexed() {
+		final Document doc = buildCatalog(10).setIdIndexed(true);
+		assertTrue(doc.isIdIndexed());
+		final Element root = doc.getRootElement();
+		assertTrue(root.getChildren().get(4) == doc.getElementById("i4"));
+		assertTrue(root.getChildren().get(7).getChild("part") == doc.getElementById("p7"));
+		assertNull(doc.getElementById("c1"));
+		doc.setIdIndexed(false);
+		assertFalse(doc.isIdIndexed());
+		assertTrue(root.getChildren().get(4) == doc.getElementById("i4"));
+	}
+
+	@Test
+	public void testMoveBetweenDocuments() {
+		final Document indexed = buildCatalog(5).setIdIndexed(true);
+		final Document other = buildCatalog(0);
+		final Element item = indexed.getRootElement().getChildren().get(2);
+		other.getRootElement().addContent(item.detach());
+		assertNull(indexed.getElementById("i2"));
+		assertNull(indexed.getElementById("p2"));
+		assertTrue(item == other.getElementById("i2"));
+		// changes in the unindexed Document do not reach the index.
+		item.getChild("part").setAttribute(id("moved"));
+		assertNull(indexed.getElementById("moved"));
+
+		final Document second = buildCatalog(0).setIdIndexed(true);
+		second.getRootElement().addContent(item.detach());
+		assertTrue(item.getChild("part") == second.getElementById("moved"));
+		assertNull(indexed.getElementById("moved"));
+
+		// once the index is dropped, the Elements no longer update it.
+		second.setIdIndexed(false);
+		item.getChild("part").setAttribute(id("again"));
+		assertTrue(item.getChild("part") == second.getElementById("again"));
+		second.setIdIndexed(true);
+		assertTrue(item.getChild("part") == second.getElementById("again"));
+		item.detach();
+		assertNull(second.getElementById("again"));
+	}
+
+	@Test
+	public void testContentChanges() {
+		final Document doc = buildCatalog(10).setIdIndexed(true);
+		final Element root = doc.getRootElement();
+		final Element item = root.getChildren().get(3);
+		item.detach();
+		assertNull(doc.getElementById("i3"));
+		assertNull(doc.getElementById("p3"));
+
+		// a detached tree is built, then attached deep in the Document.
+		item.getChild("part").addContent(new Element("sub").setAttribute(id("s1")));
+		assertNull(doc.getElementById("s1"));
+		root.getChildren().get(0).getChild("part").addContent(item);
+		assertTrue(item == doc.getElementById("i3"));
+		assertTrue(item.getChild("part").getChild("sub") == doc.getElementById("s1"));
+
+		root.getChildren().get(0).removeContent();
+		assertNull(doc.getElementById("i3"));
+		assertNull(doc.getElementById("p0"));
+
+		root.getContent().subList(0, 2).clear();
+		assertNull(doc.getElementById("i1"));
+		root.addContent(0, buildCatalog(2).getRootElement().removeContent());
+		assertTrue(root.getChildren().get(1) == doc.getElementById("i1"));
+
+		final Element newroot = new Element("catalog").setAttribute(id("root"));
+		doc.setRootElement(newroot);
+		assertNull(doc.getElementById("i5"));
+		assertTrue(newroot == doc.getElementById("root"));
+	}
+
+	@Test
+	public void testAttributeChanges() {
+		final Document doc = buildCatalog(5).setIdIndexed(true);
+		final Element item = doc.getRootElement().getChildren().get(2);
+		final Attribute ref = item.getAttribute("ref");
+
+		ref.setValue("changed");
+		assertNull(doc.getElementById("i2"));
+		assertTrue(item == doc.getElementById("changed"));
+
+		ref.setAttributeType(AttributeType.CDATA);
+		assertNull(doc.getElementById("changed"));
+		ref.setAttributeType(AttributeType.ID);
+		assertTrue(item == doc.getElementById("changed"));
+
+		item.removeAttribute("ref");
+		assertNull(doc.getElementById("changed"));
+		item.setAttribute(ref);
+		assertTrue(item == doc.getElementById("changed"));
+
+		// replace the Attribute with one of the same name.
+		item.setAttribute(id("replaced"));
+		assertNull(doc.getElementById("changed"));
+		assertTrue(item == doc.getElementById("replaced"));
+
+		final Attribute xmlid = item.getChild("part").getAttribute("id",
+				Namespace.XML_NAMESPACE);
+		xmlid.setNamespace(Namespace.NO_NAMESPACE);
+		assertNull(doc.getElementById("p2"));
+		xmlid.setNamespace(Namespace.XML_NAMESPACE);
+		assertTrue(item.getChild("part") == doc.getElementById("p2"));
+
+		item.setAttributes(null);
+		assertNull(doc.getElementById("replaced"));
+	}
+
+	@Test
+	public void testDuplicates() {
+		final Document doc = buildCatalog(3).setIdIndexed(true);
+		final Element root = doc.getRootElement();
+		final Element dup = new Element("item").setAttribute(id("i1"));
+		root.addContent(dup);
+		final Element first = root.getChildren().get(1);
+		assertTrue(first == doc.getElementById("i1"));
+		first.detach();
+		assertTrue(dup == doc.getElementById("i1"));
+		dup.detach();
+		assertNull(doc.getElementById("i1"));
+	}
+
+	@Test
+	public void testDocumentOrder() {
+		final Document doc = buildCatalog(6);
+		final Element root = doc.getRootElement();
+		final List<Element> items = new ArrayList<Element>(root.getChildren());
+		items.get(2).setAttribute(id("i4"));
+		items.get(5).addContent(new Element("part").setAttribute(id("i4")));
+		final Element scanned = doc.getElementById("i4");
+		assertTrue(items.get(2) == scanned);
+		doc.setIdIndexed(true);
+		assertTrue(scanned == doc.getElementById("i4"));
+		doc.declareKey("bycat", "item", "category");
+		List<Element> c1 = doc.getElementsByKey("bycat", "c1");
+		assertEquals(2, c1.size());
+		assertTrue(items.get(1) == c1.get(0));
+		assertTrue(items.get(4) == c1.get(1));
+
+		// Elements attached later are still looked up in document order.
+		final Element early = new Element("item").setAttribute(id("i4"));
+		early.setAttribute("category", "c1");
+		root.addContent(0, new Element("wrap").addContent(early));
+		items.get(3).setAttribute("category", "c1");
+		assertTrue(early == doc.getElementById("i4"));
+		c1 = doc.getElementsByKey("bycat", "c1");
+		assertEquals(4, c1.size());
+		assertTrue(early == c1.get(0));
+		assertTrue(items.get(1) == c1.get(1));
+		assertTrue(items.get(3) == c1.get(2));
+		assertTrue(items.get(4) == c1.get(3));
+		early.getParentElement().detach();
+		assertTrue(items.get(2) == doc.getElementById("i4"));
+		doc.setIdIndexed(false);
+		assertTrue(items.get(2) == doc.getElementById("i4"));
+	}
+
+	@Test
+	public void testKeys() {
+		final Document doc = buildCatalog(9);
+		doc.declareKey("bycat", "item", "category");
+		assertTrue(doc.isIdIndexed());
+		final Element root = doc.getRootElement();
+		List<Element> c1 = doc.getElementsByKey("bycat", "c1");
+		assertEquals(3, c1.size());
+		for (final Element e : c1) {
+			assertEquals("c1", e.getAttributeValue("category"));
+		}
+		assertTrue(doc.getElementsByKey("bycat", "none").isEmpty());
+
+		root.getChildren().get(1).setAttribute("category", "c2");
+		assertEquals(2, doc.getElementsByKey("bycat", "c1").size());
+		assertEquals(4, doc.getElementsByKey("bycat", "c2").size());
+
+		// renamed Elements no longer match the key.
+		root.getChildren().get(2).setName("other");
+		assertEquals(3, doc.getElementsByKey("bycat", "c2").size());
+		root.getChild("other").setName("item");
+		assertEquals(4, doc.getElementsByKey("bycat", "c2").size());
+
+		// a key on all Elements.
+		doc.declareKey("any", null, "category");
+		root.setAttribute("category", "c0");
+		assertEquals(4, doc.getElementsByKey("any", "c0").size());
+
+		assertTrue(doc.removeKey("any"));
+		assertFalse(doc.removeKey("any"));
+		try {
+			doc.getElementsByKey("any", "c0");
+			failNoException(IllegalArgumentException.class);
+		} catch (Exception e) {
+			checkException(IllegalArgumentException.class, e);
+		}
+		try {
+			doc.declareKey(null, "item", "category");
+			failNoException(NullPointerException.class);
+		} catch (Exception e) {
+			checkException(NullPointerException.class, e);
+		}
+	}
+
+	@Test
+	public void testClone() {
+		final Document doc = buildCatalog(5);
+		doc.declareKey("bycat", "item", "category");
+		final Document copy = doc.clone();
+		assertTrue(copy.isIdIndexed());
+		final Element item = copy.getElementById("i2");
+		assertTrue(copy.getRootElement().getChildren().get(2) == item);
+		assertEquals(2, copy.getElementsByKey("bycat", "c1").size());
+		// the indexes are independent.
+		item.detach();
+		assertNull(copy.getElementById("i2"));
+		assertTrue(doc.getRootElement().getChildren().get(2) == doc.getElementById("i2"));
+	}
+
+	@Test
+	public void testFrozen() {
+		final Document doc = buildCatalog(5).setIdIndexed(true).freeze();
+		assertTrue(doc.getRootElement().getChildren().get(3) == doc.getElementById("i3"));
+		final Document copy = doc.clone();
+		assertTrue(copy.getRootElement().getChildren().get(3) == copy.getElementById("i3"));
+	}
+
+	@Test
+	public void testParsedDeferred() throws Exception {
+		final String xml = "<!DOCTYPE root [<!ATTLIST item key ID #IMPLIED>]>"
+				+ "<root><group><item key='a'/><item key='b'><item key='c'/>"
+				+ "</item></group></root>";
+		final SAXBuilder builder = new SAXBuilder();
+		builder.setDeferredBuild(true);
+		final Document doc = builder.build(new StringReader(xml));
+		doc.setIdIndexed(true);
+		final Element b = doc.getElementById("b");
+		assertEquals("b", b.getAttributeValue("key"));
+		assertTrue(b == doc.getElementById("c").getParentElement());
+		b.detach();
+		assertNull(doc.getElementById("c"));
+		assertEquals("a", doc.getElementById("a").getAttributeValue("key"));
+	}
+
+	@Test
+	public void testXPathId() {
+		final JaxenXPathFactory factory = new JaxenXPathFactory();
+		final XPathExpression<Element> xp = factory.compile("id('i2 p4')/@category/..",
+				Filters.element());
+		final XPathExpression<Element> all = factory.compile("id('i2 p4')",
+				Filters.element());
+		for (final boolean indexed : new boolean[] {false, true}) {
+			final Document doc = buildCatalog(5).setIdIndexed(indexed);
+			final List<Element> got = all.evaluate(doc);
+			assertEquals(2, got.size());
+			assertTrue(got.contains(doc.getElementById("i2")));
+			assertTrue(got.contains(doc.getElementById("p4")));
+			assertEquals(1, xp.evaluate(doc.getRootElement()).size());
+			assertTrue(all.evaluate(new Element("detached")).isEmpty());
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.jdom2.test.cases;
+
+import java.util.List;
+
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.test.util.AbstractTestList;
+import org.junit.Before;
+
+@SuppressWarnings("javadoc")
+public class TestIndexedElementFilterList extends AbstractTestList<Element> {
+	
+	private static final Namespace ns = Namespace.getNamespace("urn:item");
+	private static final Element base = new Element("dummy").setChildIndexed(true);
+	private static final Element parent = new Element("parent").addContent(base);
+
+
+	public TestIndexedElementFilterList() {
+		super(Element.class, false);
+	}
+	
+	@Override
+	public List<Element> buildEmptyList() {
+		base.getContent().clear();
+		// non-matching content shifts the positions of the indexed Elements.
+		base.addContent("text");
+		base.addContent(new Element("item"));
+		base.addContent(new Element("other", ns));
+		return base.getChildren("item", ns);
+	}
+
+	@Override
+	public Element[] buildSampleContent() {
+		return new Element[]{ new Element("item", ns), 
+				new Element("item", ns), new Element("item", ns), 
+				new Element("item", ns), new Element("item", ns),
+				new Element("item", ns), new Element("item", ns)};
+	}
+
+	@Override
+	public Element[] buildAdditionalContent() {
+		return new Element[]{ new Element("item", ns), 
+				new Element("item", ns)};
+	}
+
+	@Override
+	public Object[] buildIllegalClassContent() {
+		Object[] ret = new Object[] {};
+		return ret;
+	}
+	
+	@Override
+	public Element[] buildIllegalArgumentContent() {
+		return new Element[]{base, parent};
+	}
+	
+	@Before
+	public void detatchAll () {
+		// make sure all content is detatched before each test.
+		for (Content c : buildSampleContent()) {
+			c.detach();
+		}
+	}
+	
+}
@@ -0,0 +1,252 @@
+package org.jdom2.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.jdom2.Attribute;
+import org.jdom2.CDATA;
+import org.jdom2.Comment;
+import org.jdom2.DocType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.EntityRef;
+import org.jdom2.JDOMEquivalence;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.Text;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.test.util.FidoFetch;
+
+@SuppressWarnings("javadoc")
+public class TestJDOMEquivalence {
+
+	private static final JDOMEquivalence[] ALL = {
+		new JDOMEquivalence(),
+		new JDOMEquivalence(false, false),
+		new JDOMEquivalence(true, true),
+		new JDOMEquivalence(false, true)
+	};
+
+	private static final Document parse() throws Exception {
+		return new SAXBuilder().build(FidoFetch.getFido().getURL("/complex.xml"));
+	}
+
+	private static final Element buildRecord() {
+		final Namespace ns = Namespace.getNamespace("m", "urn:meta");
+		final Element record = new Element("record", ns);
+		record.setAttribute("id", "r1");
+		record.setAttribute("lang", "en", Namespace.XML_NAMESPACE);
+		record.addContent("text ");
+		record.addContent(new Element("title").setText("title"));
+		record.addContent(new Comment("comment"));
+		record.addContent(new ProcessingInstruction("pi", "data"));
+		record.addContent(new EntityRef("ent", "pub", "sys"));
+		record.addContent(new Element("tag", ns).setText("music"));
+		return record;
+	}
+
+	private static final void checkSame(final Object a, final Object b) {
+		for (JDOMEquivalence eq : ALL) {
+			if (a instanceof Document) {
+				assertTrue(eq.equivalent((Document)a, (Document)b));
+				assertEquals(eq.digest((Document)a), eq.digest((Document)b));
+			} else {
+				assertTrue(eq.equivalent((org.jdom2.Content)a, (org.jdom2.Content)b));
+				assertTrue(eq.equivalent((org.jdom2.Content)b, (org.jdom2.Content)a));
+				assertEquals(eq.digest((org.jdom2.Content)a),
+						eq.digest((org.jdom2.Content)b));
+			}
+		}
+	}
+
+	private static final void checkDifferent(final Object a, final Object b) {
+		for (JDOMEquivalence eq : ALL) {
+			if (a instanceof Document) {
+				assertFalse(eq.equivalent((Document)a, (Document)b));
+				assertTrue(eq.digest((Document)a) != eq.digest((Document)b));
+			} else {
+				assertFalse(eq.equivalent((org.jdom2.Content)a, (org.jdom2.Content)b));
+				assertFalse(eq.equivalent((org.jdom2.Content)b, (org.jdom2.Content)a));
+				assertTrue(eq.digest((org.jdom2.Content)a)
+						!= eq.digest((org.jdom2.Content)b));
+			}
+		}
+	}
+
+	@Test
+	public void testParsedDocuments() throws Exception {
+		final Document a = parse();
+		final Document b = parse();
+		checkSame(a, a);
+		checkSame(a, b);
+		checkSame(a, b.clone());
+		checkSame(a.getRootElement(), b.getRootElement());
+		b.getRootElement().addContent(new Element("extra"));
+		checkDifferent(a, b);
+	}
+
+	@Test
+	public void testElements() {
+		checkSame(buildRecord(), buildRecord());
+		Element b = buildRecord();
+		b.setName("other");
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		b.setNamespace(Namespace.getNamespace("m", "urn:other"));
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		b.setAttribute("id", "r2");
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		b.removeAttribute("id");
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		b.getChild("title").setText("other");
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		((Comment)b.getContent(2)).setText("other");
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		((ProcessingInstruction)b.getContent(3)).setData("other");
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		((EntityRef)b.getContent(4)).setSystemID("other");
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		b.addContent(new Comment("comment"));
+		checkDifferent(buildRecord(), b);
+		b = buildRecord();
+		b.removeContent(0);
+		checkDifferent(buildRecord(), b);
+	}
+
+	@Test
+	public void testInsignificant() {
+		final Element a = buildRecord();
+		final Element b = new Element("record", Namespace.getNamespace("x", "urn:meta"));
+		// different prefix, attribute order, attribute type, and additional
+		// namespaces do not matter.
+		b.addNamespaceDeclaration(Namespace.getNamespace("y", "urn:y"));
+		b.setAttribute(new Attribute("lang", "en", Namespace.XML_NAMESPACE));
+		b.setAttribute(new Attribute("id", "r1", org.jdom2.AttributeType.ID));
+		// text is joined, and CDATA is text.
+		b.addContent(new Text(""));
+		b.addContent(new CDATA("te"));
+		b.addContent("xt ");
+		b.addContent(new Element("title").addContent("ti").addContent(new CDATA("tle")));
+		b.addContent(new Text(""));
+		b.addContent(new Comment("comment"));
+		b.addContent(new ProcessingInstruction("pi", "data"));
+		b.addContent(new EntityRef("ent", "pub", "sys"));
+		b.addContent(new Element("tag", Namespace.getNamespace("urn:meta")).setText("music"));
+		b.addContent(new Text(""));
+		checkSame(a, b);
+		checkSame(new Text("abc"), new CDATA("abc"));
+		checkDifferent(new Text("abc"), new Comment("abc"));
+		checkSame(new Element("e"), new Element("e").addContent(""));
+	}
+
+	@Test
+	public void testDocuments() {
+		final Document a = new Document(new Element("root"),
+				new DocType("root", "pub", "sys"));
+		a.addContent(new Comment("after"));
+		final Document b = a.clone();
+		b.setBaseURI("http://example.com/");
+		checkSame(a, b);
+		b.getDocType().setInternalSubset("<!ENTITY x 'y'>");
+		checkDifferent(a, b);
+		final Document c = a.clone();
+		c.removeContent(2);
+		checkDifferent(a, c);
+	}
+
+	@Test
+	public void testCacheInvalidation() throws Exception {
+		final JDOMEquivalence eq = new JDOMEquivalence();
+		final JDOMEquivalence fresh = new JDOMEquivalence(false, false);
+		final Document doc = parse();
+		final Element root = doc.getRootElement();
+		final long orig = eq.digest(root);
+		assertEquals(orig, eq.digest(root));
+
+		// find a deep text node, change it, and change it back.
+		Element deep = root;
+		while (!deep.getChildren().isEmpty()) {
+			deep = deep.getChildren().get(0);
+		}
+		final String text = deep.getText();
+		deep.setText(text + "x");
+		final long changed = eq.digest(root);
+		assertTrue(orig != changed);
+		assertEquals(fresh.digest(root), changed);
+		deep.setText(text);
+		assertEquals(orig, eq.digest(root));
+
+		// attributes
+		final Attribute att = new Attribute("added", "val");
+		deep.setAttribute(att);
+		assertTrue(orig != eq.digest(root));
+		assertEquals(fresh.digest(root), eq.digest(root));
+		att.setValue("other");
+		assertEquals(fresh.digest(root), eq.digest(root));
+		att.setNamespace(Namespace.getNamespace("p", "urn:p"));
+		assertEquals(fresh.digest(root), eq.digest(root));
+		deep.removeAttribute(att);
+		assertEquals(orig, eq.digest(root));
+
+		// rename, and move.
+		deep.setName(deep.getName() + "x");
+		assertEquals(fresh.digest(root), eq.digest(root));
+		deep.setName(deep.getName().substring(0, deep.getName().length() - 1));
+		assertEquals(orig, eq.digest(root));
+		final Element parent = deep.getParentElement();
+		final int index = parent.indexOf(deep);
+		deep.detach();
+		assertEquals(fresh.digest(root), eq.digest(root));
+		assertTrue(orig != eq.digest(root));
+		parent.addContent(index, deep);
+		assertEquals(orig, eq.digest(root));
+
+		// comparisons after changes.
+		final Document other = parse();
+		assertTrue(eq.equivalent(doc, other));
+		((Text)deep.getContent(0)).append("y");
+		assertFalse(eq.equivalent(doc, other));
+		assertFalse(fresh.equivalent(doc, other));
+	}
+
+	@Test
+	public void testFrozen() throws Exception {
+		final JDOMEquivalence eq = new JDOMEquivalence();
+		final Document doc = parse().freeze();
+		final Document copy = doc.clone();
+		checkSame(doc, copy);
+		assertTrue(eq.equivalent(doc, copy));
+		assertEquals(eq.digest(doc), eq.digest(copy));
+		copy.getRootElement().addContent("x");
+		assertFalse(eq.equivalent(doc, copy));
+	}
+
+	@Test
+	public void testDeep() {
+		// nothing is recursive
+		Element a = new Element("leaf").setText("x");
+		Element b = new Element("leaf").setText("x");
+		for (int i = 0; i < 100000; i++) {
+			a = new Element("node").addContent(a);
+			b = new Element("node").addContent(b);
+		}
+		checkSame(a, b);
+		Element leaf = b;
+		while (leaf.getContentSize() > 0 && leaf.getContent(0) instanceof Element) {
+			leaf = (Element)leaf.getContent(0);
+		}
+		leaf.setText("y");
+		checkDifferent(a, b);
+	}
+
+}
@@ -0,0 +1,124 @@
+package org.jdom2.test.cases;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.Element;
+import org.jdom2.IllegalDataException;
+import org.jdom2.IllegalNameException;
+import org.jdom2.JDOMFactory;
+import org.jdom2.NameCachingJDOMFactory;
+import org.jdom2.Namespace;
+
+@SuppressWarnings("javadoc")
+public class TestNameCachingJDOMFactory extends AbstractTestJDOMFactory {
+
+	public TestNameCachingJDOMFactory() {
+		super(false);
+	}
+
+	@Override
+	protected JDOMFactory buildFactory() {
+		return new NameCachingJDOMFactory();
+	}
+
+	@Test
+	public void testRemembered() {
+		NameCachingJDOMFactory fac = new NameCachingJDOMFactory();
+		Namespace ns = Namespace.getNamespace("pfx", "nsuri");
+		assertEquals(0, fac.getElementNameCount());
+		for (int i = 0; i < 3; i++) {
+			Element emt = fac.element("emt", ns);
+			assertEquals("emt", emt.getName());
+			assertTrue(ns == emt.getNamespace());
+			Attribute att = fac.attribute("att", "val", AttributeType.CDATA, ns);
+			assertEquals("att", att.getName());
+			assertEquals("val", att.getValue());
+			assertEquals(AttributeType.CDATA, att.getAttributeType());
+			assertTrue(ns == att.getNamespace());
+			assertTrue(att.isSpecified());
+		}
+		assertEquals(1, fac.getElementNameCount());
+		assertEquals(1, fac.getAttributeNameCount());
+		// an element name is not (yet) a valid attribute name.
+		assertEquals(AttributeType.UNDECLARED, fac.attribute("emt", "v").getAttributeType());
+		assertEquals(2, fac.getAttributeNameCount());
+		assertEquals(Namespace.NO_NAMESPACE, fac.element("emt").getNamespace());
+		assertEquals("uri", fac.element("emt", "uri").getNamespaceURI());
+		assertEquals("p", fac.element("emt", "p", "uri").getNamespacePrefix());
+		assertEquals(1, fac.getElementNameCount());
+		fac.clearCache();
+		assertEquals(0, fac.getElementNameCount());
+		assertEquals(0, fac.getAttributeNameCount());
+	}
+
+	@Test
+	public void testStillRejects() {
+		NameCachingJDOMFactory fac = new NameCachingJDOMFactory();
+		for (int i = 0; i < 2; i++) {
+			try {
+				fac.element("bad name");
+				fail("Should reject a bad element name");
+			} catch (IllegalNameException ine) {
+				// good
+			}
+			try {
+				fac.attribute("xmlns", "val");
+				fail("Should reject xmlns as an attribute name");
+			} catch (IllegalNameException ine) {
+				// good
+			}
+		}
+		assertEquals(0, fac.getElementNameCount());
+		assertEquals(0, fac.getAttributeNameCount());
+
+		// a remembered name still gets its value and namespace checked.
+		fac.attribute("att", "val");
+		assertEquals(1, fac.getAttributeNameCount());
+		try {
+			fac.attribute("att", "bad\u0000value");
+			fail("Should reject a bad attribute value");
+		} catch (IllegalDataException ide) {
+			// good
+		}
+		try {
+			fac.attribute("att", "val", Namespace.getNamespace("nsuri"));
+			fail("Should reject an attribute in a default namespace");
+		} catch (IllegalNameException ine) {
+			// good
+		}
+		try {
+			fac.attribute("att", null);
+			fail("Should reject a null attribute value");
+		} catch (NullPointerException npe) {
+			// good
+		}
+		try {
+			fac.element(null);
+			fail("Should reject a null element name");
+		} catch (IllegalNameException ine) {
+			// good
+		}
+	}
+
+	@Test
+	public void testBounded() {
+		NameCachingJDOMFactory fac = new NameCachingJDOMFactory(2);
+		fac.element("a");
+		fac.element("b");
+		fac.element("c");
+		fac.element("a");
+		assertEquals(2, fac.getElementNameCount());
+		assertEquals("c", fac.element("c").getName());
+		assertEquals(0, new NameCachingJDOMFactory(0).element("a").getContentSize());
+		try {
+			new NameCachingJDOMFactory(-1);
+			fail("Should not allow a negative size");
+		} catch (IllegalArgumentException iae) {
+			// good
+		}
+	}
+
+}
@@ -8,6 +8,11 @@ import org.jdom2.Text;
 import org.jdom2.test.util.UnitTestUtil;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 @SuppressWarnings("javadoc")
 public class TestNamespaceAware {
 
@@ -167,4 +172,151 @@ public class TestNamespaceAware {
 		
 	}
 	
+	@Test
+	public void testNamespacesScopeChanges() {
+		// the scope is cached, make sure every change is seen.
+		Namespace pfx = Namespace.getNamespace("pfx", "nsuri");
+		Namespace kfx = Namespace.getNamespace("kfx", "nskid");
+		Namespace afx = Namespace.getNamespace("afx", "nsatt");
+		Element emt = new Element("root", pfx);
+		Element kid = new Element("kid", pfx);
+		Element gkid = new Element("gkid", pfx);
+		emt.addContent(kid);
+		kid.addContent(gkid);
+
+		UnitTestUtil.testNamespaceScope(gkid, pfx, Namespace.NO_NAMESPACE, Namespace.XML_NAMESPACE);
+		UnitTestUtil.testNamespaceIntro(gkid);
+		assertNull(gkid.getNamespace(""));
+		assertNull(gkid.getNamespace("kfx"));
+
+		emt.addNamespaceDeclaration(kfx);
+		UnitTestUtil.testNamespaceScope(gkid, pfx, Namespace.NO_NAMESPACE, kfx, Namespace.XML_NAMESPACE);
+		UnitTestUtil.testNamespaceIntro(emt, pfx, kfx);
+		assertSame(kfx, gkid.getNamespace("kfx"));
+
+		emt.removeNamespaceDeclaration(kfx);
+		UnitTestUtil.testNamespaceScope(gkid, pfx, Namespace.NO_NAMESPACE, Namespace.XML_NAMESPACE);
+		assertNull(gkid.getNamespace("kfx"));
+
+		kid.setAttribute("att", "val", afx);
+		UnitTestUtil.testNamespaceScope(gkid, pfx, Namespace.NO_NAMESPACE, afx, Namespace.XML_NAMESPACE);
+		UnitTestUtil.testNamespaceIntro(kid, afx);
+		assertSame(afx, gkid.getNamespace("afx"));
+
+		kid.getAttribute("att", afx).setNamespace(kfx);
+		UnitTestUtil.testNamespaceScope(gkid, pfx, Namespace.NO_NAMESPACE, kfx, Namespace.XML_NAMESPACE);
+		assertNull(gkid.getNamespace("afx"));
+		assertSame(kfx, gkid.getNamespace("kfx"));
+
+		kid.removeAttribute("att", kfx);
+		UnitTestUtil.testNamespaceScope(gkid, pfx, Namespace.NO_NAMESPACE, Namespace.XML_NAMESPACE);
+
+		// a no-namespace attribute binds the default prefix
+		kid.setAttribute("att", "val");
+		assertSame(Namespace.NO_NAMESPACE, gkid.getNamespace(""));
+		// ... but it is the same as the (implicit) one on the root.
+		UnitTestUtil.testNamespaceIntro(kid);
+		kid.removeAttribute("att");
+		assertNull(gkid.getNamespace(""));
+
+		Namespace dfl = Namespace.getNamespace("nsdefault");
+		kid.setNamespace(dfl);
+		assertSame(dfl, gkid.getNamespace(""));
+		UnitTestUtil.testNamespaceScope(gkid, pfx, dfl, Namespace.XML_NAMESPACE);
+		UnitTestUtil.testNamespaceIntro(gkid);
+		UnitTestUtil.testNamespaceIntro(kid, dfl);
+
+		// move the grand-kid.
+		gkid.detach();
+		assertNull(gkid.getNamespace(""));
+		UnitTestUtil.testNamespaceScope(gkid, pfx, Namespace.NO_NAMESPACE, Namespace.XML_NAMESPACE);
+		UnitTestUtil.testNamespaceIntro(gkid, pfx);
+		emt.addContent(gkid);
+		UnitTestUtil.testNamespaceIntro(gkid);
+		kid.addContent(gkid.detach());
+		assertSame(dfl, gkid.getNamespace(""));
+
+		// move the kid (and grand-kid) under a new root
+		Element other = new Element("other", kfx);
+		other.addContent(kid.detach());
+		assertSame(kfx, gkid.getNamespace("kfx"));
+		assertNull(gkid.getNamespace("afx"));
+		UnitTestUtil.testNamespaceScope(gkid, pfx, dfl, kfx, Namespace.XML_NAMESPACE);
+		UnitTestUtil.testNamespaceIntro(kid, dfl);
+		UnitTestUtil.testNamespaceIntro(gkid, pfx);
+	}
+
+	@Test
+	public void testNamespacesScopeDeepMoves() {
+		// changes discard the cached scopes at every depth.
+		Namespace kfx = Namespace.getNamespace("kfx", "nskid");
+		Element root = new Element("root");
+		Element leaf = root;
+		for (int i = 0; i < 20000; i++) {
+			Element kid = new Element("kid");
+			leaf.addContent(kid);
+			leaf = kid;
+		}
+		assertNull(leaf.getNamespace("kfx"));
+		root.addNamespaceDeclaration(kfx);
+		assertSame(kfx, leaf.getNamespace("kfx"));
+		Element mid = root.getChild("kid").getChild("kid");
+		mid.detach();
+		assertNull(leaf.getNamespace("kfx"));
+		root.addContent(mid);
+		assertSame(kfx, leaf.getNamespace("kfx"));
+		root.removeNamespaceDeclaration(kfx);
+		assertNull(leaf.getNamespace("kfx"));
+	}
+
+	@Test
+	public void testNamespacesScopeShared() {
+		Namespace pfx = Namespace.getNamespace("pfx", "nsuri");
+		Element emt = new Element("root", pfx);
+		Element kid = new Element("kid", pfx);
+		Element gkid = new Element("gkid", pfx);
+		emt.addContent(kid);
+		kid.addContent(gkid);
+		assertSame(emt.getNamespacesInScope(), gkid.getNamespacesInScope());
+		assertTrue(gkid.getNamespacesIntroduced().isEmpty());
+		assertEquals(emt.getNamespacesInScope(), gkid.getNamespacesInherited());
+	}
+
+	@Test
+	public void testNamespacesScopeFrozen() {
+		Namespace pfx = Namespace.getNamespace("pfx", "nsuri");
+		Namespace kfx = Namespace.getNamespace("kfx", "nskid");
+		Element emt = new Element("root", pfx);
+		Element kid = new Element("kid");
+		kid.addNamespaceDeclaration(kfx);
+		emt.addContent(kid);
+		// cache it, then freeze it.
+		UnitTestUtil.testNamespaceScope(kid, Namespace.NO_NAMESPACE, kfx, pfx, Namespace.XML_NAMESPACE);
+		new Document(emt).freeze();
+		UnitTestUtil.testNamespaceScope(kid, Namespace.NO_NAMESPACE, kfx, pfx, Namespace.XML_NAMESPACE);
+		UnitTestUtil.testNamespaceIntro(kid, kfx);
+		assertSame(kfx, kid.getNamespace("kfx"));
+		assertSame(pfx, kid.getNamespace("pfx"));
+		// a clone is not frozen, and has its own scope.
+		Element clone = kid.clone();
+		UnitTestUtil.testNamespaceScope(clone, Namespace.NO_NAMESPACE, kfx, Namespace.XML_NAMESPACE);
+		assertNull(clone.getNamespace("pfx"));
+	}
+
+	@Test
+	public void testNamespacesScopeDeep() {
+		// the scope is not built recursively
+		Namespace pfx = Namespace.getNamespace("pfx", "nsuri");
+		Element leaf = new Element("leaf", pfx);
+		Element top = leaf;
+		for (int i = 0; i < 100000; i++) {
+			top = new Element("node", pfx).addContent(top);
+		}
+		top.addNamespaceDeclaration(Namespace.getNamespace("top", "nstop"));
+		assertEquals("nstop", leaf.getNamespace("top").getURI());
+		UnitTestUtil.testNamespaceIntro(leaf);
+		top.removeNamespaceDeclaration(top.getNamespace("top"));
+		assertNull(leaf.getNamespace("top"));
+	}
+
 }
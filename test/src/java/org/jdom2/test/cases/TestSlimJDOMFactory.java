@@ -4,7 +4,9 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import org.jdom2.JDOMFactory;
+import org.jdom2.Element;
 import org.jdom2.SlimJDOMFactory;
+import org.jdom2.StringInterner;
 import org.jdom2.Text;
 
 @SuppressWarnings("javadoc")
@@ -44,4 +46,26 @@ public class TestSlimJDOMFactory extends AbstractTestJDOMFactory {
 		
 		assertTrue(hi.equals(tc.getText()));
 	}
+
+	@Test
+	public void testSharedInterner() {
+		StringInterner si = new StringInterner();
+		SlimJDOMFactory faca = new SlimJDOMFactory(si, false);
+		SlimJDOMFactory facb = new SlimJDOMFactory(si, false);
+		assertTrue(si == faca.getInterner());
+		assertTrue(null == new SlimJDOMFactory().getInterner());
+		
+		Element ea = faca.element(new String("root"));
+		Element eb = facb.element(new String("root"));
+		assertTrue(ea.getName() == eb.getName());
+		
+		// text is not cached.
+		String txt = new String("hi");
+		assertTrue(txt == faca.text(txt).getText());
+		assertEquals(1, si.size());
+		assertEquals(1L, si.getHitCount());
+		
+		facb.clearCache();
+		assertEquals(0, si.size());
+	}
 }
@@ -0,0 +1,152 @@
+package org.jdom2.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jdom2.StringInterner;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestStringInterner {
+
+	@Test
+	public void testReuse() {
+		final StringInterner si = new StringInterner();
+		final String a = new String("abc");
+		final String b = new String("abc");
+		assertSame(a, si.reuse(a));
+		assertSame(a, si.reuse(b));
+		assertNull(si.reuse(null));
+		assertEquals(1, si.size());
+		assertEquals(1L, si.getHitCount());
+		assertEquals(1L, si.getMissCount());
+		assertEquals(0L, si.getEvictionCount());
+		assertEquals(0, si.getMaxSize());
+		assertTrue(si.toString().contains("hits=1"));
+	}
+
+	@Test
+	public void testClear() {
+		final StringInterner si = new StringInterner();
+		final String a = new String("abc");
+		final String b = new String("abc");
+		si.reuse(a);
+		si.clear();
+		assertEquals(0, si.size());
+		assertSame(b, si.reuse(b));
+		assertEquals(2L, si.getMissCount());
+		si.resetStatistics();
+		assertEquals(0L, si.getMissCount());
+		assertEquals(1, si.size());
+	}
+
+	@Test
+	public void testUnbounded() {
+		final StringInterner si = new StringInterner();
+		for (int i = 0; i < 10000; i++) {
+			si.reuse("v" + i);
+		}
+		assertEquals(10000, si.size());
+		assertEquals(0L, si.getEvictionCount());
+	}
+
+	@Test
+	public void testBounded() {
+		final StringInterner si = new StringInterner(100, 4);
+		assertEquals(100, si.getMaxSize());
+		for (int i = 0; i < 10000; i++) {
+			si.reuse("v" + i);
+		}
+		assertTrue(si.size() <= 100);
+		assertEquals(10000L, si.getMissCount());
+		assertEquals(10000L - si.size(), si.getEvictionCount());
+	}
+
+	@Test
+	public void testBoundedLRU() {
+		// one segment, so the eviction order is exact.
+		final StringInterner si = new StringInterner(2, 1);
+		final String a = new String("a");
+		final String b = new String("b");
+		si.reuse(a);
+		si.reuse(b);
+		// touch a, so b is the eldest.
+		si.reuse(new String("a"));
+		si.reuse("c");
+		assertEquals(2, si.size());
+		assertEquals(1L, si.getEvictionCount());
+		assertSame(a, si.reuse(new String("a")));
+		final String nb = new String("b");
+		assertSame(nb, si.reuse(nb));
+	}
+
+	@Test
+	public void testSmallBound() {
+		// more segments than capacity.
+		final StringInterner si = new StringInterner(1, 64);
+		si.reuse("a");
+		si.reuse("b");
+		assertEquals(1, si.size());
+	}
+
+	@Test
+	public void testIllegal() {
+		try {
+			new StringInterner(-1);
+			fail("Should not be able to have a negative size");
+		} catch (IllegalArgumentException iae) {
+			// good
+		}
+		try {
+			new StringInterner(10, 0);
+			fail("Should not be able to have no segments");
+		} catch (IllegalArgumentException iae) {
+			// good
+		}
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		final StringInterner si = new StringInterner();
+		final int threads = 4;
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+			for (int t = 0; t < threads; t++) {
+				results.add(pool.submit(new Callable<String[]>() {
+					@Override
+					public String[] call() {
+						final String[] ret = new String[1000];
+						for (int i = 0; i < ret.length; i++) {
+							ret[i] = si.reuse(new String("s" + i));
+						}
+						return ret;
+					}
+				}));
+			}
+			final String[] first = results.get(0).get();
+			for (Future<String[]> f : results) {
+				final String[] got = f.get();
+				for (int i = 0; i < got.length; i++) {
+					assertSame(first[i], got[i]);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(1000, si.size());
+		assertEquals(1000L, si.getMissCount());
+		assertEquals(1000L * (threads - 1), si.getHitCount());
+	}
+
+}
@@ -0,0 +1,333 @@
+package org.jdom2.test.cases.compact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jaxen.JaxenException;
+import org.junit.Test;
+
+import org.jdom2.Attribute;
+import org.jdom2.Content;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.compact.CompactAttribute;
+import org.jdom2.compact.CompactDocument;
+import org.jdom2.compact.CompactElement;
+import org.jdom2.compact.CompactNamespace;
+import org.jdom2.compact.CompactNode;
+import org.jdom2.compact.CompactXPath;
+import org.jdom2.filter.Filters;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.test.util.FidoFetch;
+import org.jdom2.xpath.XPathFactory;
+
+@SuppressWarnings("javadoc")
+public class TestCompactDocument {
+
+	private static final Namespace CHILDNS = Namespace.getNamespace("ns", "childns");
+
+	private static final Document complex() throws JDOMException, IOException {
+		final SAXBuilder sb = new SAXBuilder();
+		sb.setExpandEntities(false);
+		return sb.build(FidoFetch.getFido().getURL("/complex.xml"));
+	}
+
+	private static final <T> List<T> list(final Iterable<T> it) {
+		final ArrayList<T> ret = new ArrayList<T>();
+		for (final T t : it) {
+			ret.add(t);
+		}
+		return ret;
+	}
+
+	private static final void checkElement(final Element expect,
+			final CompactElement actual) {
+		assertEquals(expect.getName(), actual.getName());
+		assertEquals(expect.getNamespace(), actual.getNamespace());
+		assertEquals(expect.getQualifiedName(), actual.getQualifiedName());
+		assertEquals(expect.isRootElement(), actual.isRootElement());
+		assertEquals(expect.getText(), actual.getText());
+		assertEquals(expect.getValue(), actual.getValue());
+		assertEquals(expect.getAdditionalNamespaces(),
+				actual.getAdditionalNamespaces());
+		assertEquals(expect.getNamespacesInScope(), actual.getNamespacesInScope());
+		assertEquals(expect.getAttributesSize(), actual.getAttributesSize());
+		for (final Attribute att : expect.getAttributes()) {
+			final CompactAttribute ca =
+					actual.getAttribute(att.getName(), att.getNamespace());
+			assertEquals(att.getValue(), ca.getValue());
+			assertEquals(att.getQualifiedName(), ca.getQualifiedName());
+			assertEquals(att.getAttributeType(), ca.getAttributeType());
+			assertEquals(actual, ca.getParent());
+		}
+		assertEquals(expect.getContentSize(), actual.getContentSize());
+		final List<CompactNode> content = actual.getContent();
+		for (int i = 0; i < expect.getContentSize(); i++) {
+			final Content c = expect.getContent(i);
+			final CompactNode cn = content.get(i);
+			assertEquals(c.getCType(), cn.getCType());
+			assertEquals(c.getValue(), cn.getValue());
+			assertEquals(actual, cn.getParentElement());
+			if (c instanceof Element) {
+				checkElement((Element)c, (CompactElement)cn);
+			}
+		}
+		assertEquals(expect.getChildren().size(), actual.getChildren().size());
+		assertEquals(expect.getChildren("child").size(),
+				actual.getChildren("child").size());
+		assertEquals(expect.getChildren("child", CHILDNS).size(),
+				actual.getChildren("child", CHILDNS).size());
+	}
+
+	private static final String xml(final Document doc) {
+		return new XMLOutputter().outputString(doc);
+	}
+
+	@Test
+	public void testNavigate() throws JDOMException, IOException {
+		final Document doc = complex();
+		final CompactDocument cd = CompactDocument.build(doc);
+		assertEquals(doc.getContentSize(), cd.getContent().size());
+		assertEquals(doc.getBaseURI(), cd.getBaseURI());
+		checkElement(doc.getRootElement(), cd.getRootElement());
+		assertTrue(cd.getNodeCount() > 20);
+		assertEquals(cd.getRootElement(), cd.getRootElement());
+		assertTrue(cd.toString().contains("root"));
+	}
+
+	@Test
+	public void testLookups() throws JDOMException, IOException {
+		final CompactElement root = CompactDocument.build(complex()).getRootElement();
+		assertEquals("val1", root.getAttributeValue("att1"));
+		assertNull(root.getAttributeValue("nosuch"));
+		assertEquals("def", root.getAttributeValue("nosuch", "def"));
+		assertNull(root.getAttribute("att1", CHILDNS));
+		assertEquals(" hello Frodo Baggins! ", root.getChildText("child"));
+		assertEquals("child1", root.getChild("child").getAttributeValue("att"));
+		assertEquals("childns 1", root.getChild("child", CHILDNS)
+				.getAttributeValue("att"));
+		assertEquals("childns 2", root.getChildren("child", CHILDNS).get(1)
+				.getAttributeValue("att", CHILDNS));
+		assertNull(root.getChild("nosuch"));
+		assertNull(root.getChildText("nosuch"));
+		assertTrue(root.getChildren("nosuch").isEmpty());
+		assertTrue(root.getChildren("child", Namespace.getNamespace("x:y")).isEmpty());
+		assertEquals("Leaf6", root.getChildren("child").get(5)
+				.getChild("leaf").getAttributeValue("att"));
+	}
+
+	@Test
+	public void testToDocument() throws JDOMException, IOException {
+		final Document doc = complex();
+		final CompactDocument cd = CompactDocument.build(doc);
+		assertEquals(xml(doc), xml(cd.toDocument()));
+		final Element leaf = cd.getRootElement().getChildren().get(7)
+				.getChild("leaf").toElement();
+		assertNull(leaf.getParent());
+		assertEquals("Leaf6", leaf.getAttributeValue("att"));
+		final Attribute att = cd.getRootElement().getAttribute("att2").toAttribute();
+		assertEquals("val2", att.getValue());
+		assertNull(att.getParent());
+	}
+
+	@Test
+	public void testDeep() {
+		final int depth = 20000;
+		final Element root = new Element("root");
+		Element e = root;
+		for (int i = 1; i < depth; i++) {
+			final Element kid = new Element("e" + (i % 7), i % 2 == 0 ? CHILDNS
+					: Namespace.NO_NAMESPACE);
+			kid.setAttribute("n", Integer.toString(i));
+			e.addContent("t" + i);
+			e.addContent(kid);
+			e.addContent(new Element("leaf"));
+			e = kid;
+		}
+		final Document doc = new Document(root);
+		final CompactDocument cd = CompactDocument.build(doc);
+		final Document back = cd.toDocument();
+		final List<Content> expect = list(doc.getDescendants());
+		final List<Content> actual = list(back.getDescendants());
+		assertEquals(expect.size(), actual.size());
+		for (int i = 0; i < expect.size(); i++) {
+			final Content x = expect.get(i);
+			final Content a = actual.get(i);
+			assertEquals(x.getCType(), a.getCType());
+			if (x instanceof Element) {
+				assertEquals(((Element)x).getQualifiedName(),
+						((Element)a).getQualifiedName());
+				assertEquals(((Element)x).getAttributeValue("n"),
+						((Element)a).getAttributeValue("n"));
+				assertEquals(((Element)x).getContentSize(),
+						((Element)a).getContentSize());
+			} else {
+				assertEquals(x.getValue(), a.getValue());
+			}
+		}
+		CompactElement ce = cd.getRootElement();
+		for (int i = 1; i < 10; i++) {
+			ce = ce.getChildren().get(0);
+		}
+		assertEquals("9", ce.getAttributeValue("n"));
+		final Element sub = ce.toElement();
+		assertNull(sub.getParent());
+		assertEquals(3 * (depth - 10), list(sub.getDescendants()).size());
+	}
+
+	@Test
+	public void testStrings() {
+		final String odd = "ascii \u00e9\u00ff \u20ac\u0100 \ud83d\ude00 <&> end";
+		final Element root = new Element("r\u00e9sum\u00e9");
+		root.setAttribute("a", odd);
+		root.addContent(odd);
+		root.addContent(new Element("e").setText(""));
+		root.addContent(new Element("e").setText(odd));
+		final Document doc = new Document(root);
+		final CompactDocument cd = CompactDocument.build(doc);
+		final CompactElement croot = cd.getRootElement();
+		assertEquals("r\u00e9sum\u00e9", croot.getName());
+		assertEquals(odd, croot.getAttributeValue("a"));
+		assertEquals(odd, croot.getText());
+		assertEquals("", croot.getChildren("e").get(0).getText());
+		assertEquals(odd, croot.getChildren("e").get(1).getText());
+		assertEquals(xml(doc), xml(cd.toDocument()));
+	}
+
+	@Test
+	public void testMapFile() throws JDOMException, IOException {
+		final Document doc = complex();
+		final File file = File.createTempFile("jdom", ".compact");
+		try {
+			final FileOutputStream fos = new FileOutputStream(file);
+			try {
+				CompactDocument.write(doc, fos);
+			} finally {
+				fos.close();
+			}
+			final CompactDocument cd = CompactDocument.map(file);
+			assertEquals(file.length(), cd.getByteSize());
+			checkElement(doc.getRootElement(), cd.getRootElement());
+			assertEquals(xml(doc), xml(cd.toDocument()));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testWrap() throws JDOMException, IOException {
+		final Document doc = complex();
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		baos.write(new byte[] {1, 2, 3});
+		CompactDocument.write(doc, baos);
+		final byte[] bytes = baos.toByteArray();
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.position(3);
+		final CompactDocument cd = CompactDocument.wrap(buffer);
+		assertEquals(3, buffer.position());
+		assertEquals(bytes.length - 3, cd.getByteSize());
+		assertEquals(xml(doc), xml(cd.toDocument()));
+	}
+
+	@Test
+	public void testWrapInvalid() throws JDOMException, IOException {
+		try {
+			CompactDocument.wrap(ByteBuffer.wrap("<root/>".getBytes("UTF-8")));
+			fail("Should not be able to wrap XML");
+		} catch (IllegalArgumentException iae) {
+			// good
+		}
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		CompactDocument.write(complex(), baos);
+		final byte[] bytes = baos.toByteArray();
+		try {
+			CompactDocument.wrap(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+			fail("Should not be able to wrap a truncated document");
+		} catch (IllegalArgumentException iae) {
+			// good
+		}
+		final File file = File.createTempFile("jdom", ".compact");
+		try {
+			try {
+				CompactDocument.map(file);
+				fail("Should not be able to map an empty file");
+			} catch (IOException ioe) {
+				// good
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static final void checkXPath(final Document doc,
+			final CompactDocument cd, final String path) throws JaxenException {
+		final List<Object> expect = XPathFactory.instance().compile(path, Filters.fpassthrough(),
+				null, CHILDNS).evaluate(doc);
+		final CompactXPath xp = new CompactXPath(path);
+		xp.addNamespace(CHILDNS.getPrefix(), CHILDNS.getURI());
+		final List<?> actual = xp.selectNodes(cd);
+		assertEquals(path, expect.size(), actual.size());
+		for (int i = 0; i < expect.size(); i++) {
+			final Object e = expect.get(i);
+			final Object a = actual.get(i);
+			if (e instanceof Content) {
+				assertEquals(path, ((Content)e).getValue(), ((CompactNode)a).getValue());
+			} else if (e instanceof Attribute) {
+				assertEquals(path, ((Attribute)e).getValue(),
+						((CompactAttribute)a).getValue());
+			} else if (e instanceof Namespace) {
+				assertEquals(path, e, ((CompactNamespace)a).getNamespace());
+			} else if (e instanceof Document) {
+				assertSame(path, cd, a);
+			} else {
+				assertEquals(path, e, a);
+			}
+		}
+	}
+
+	@Test
+	public void testXPath() throws JDOMException, IOException, JaxenException {
+		final Document doc = complex();
+		final CompactDocument cd = CompactDocument.build(doc);
+		for (String path : new String[] {"/", "/root", "//child", "//@att",
+				"//@*", "//child/..", "//*/ancestor::*", "//ns:child", "//ns:*/@ns:att",
+				"//comment()", "//processing-instruction()", "//text()",
+				"//node()", "count(//*)", "string(/root/child[1])",
+				"//child[@att = 'child3']", "//child[last()]/leaf",
+				"//leaf/preceding::*", "/root/child[2]/following-sibling::node()",
+				"//child[1]/namespace::*", "//child | //leaf | //child"}) {
+			checkXPath(doc, cd, path);
+		}
+	}
+
+	@Test
+	public void testXPathContext() throws JaxenException, JDOMException, IOException {
+		final CompactDocument cd = CompactDocument.build(complex());
+		final CompactXPath xp = new CompactXPath("leaf/@att");
+		final CompactElement child6 = cd.getRootElement().getChildren().get(7);
+		assertEquals("Leaf6", xp.stringValueOf(child6));
+		assertEquals("", xp.stringValueOf(cd.getRootElement()));
+		assertFalse(xp.booleanValueOf(cd.getRootElement()));
+		// the results of an earlier evaluation stay valid.
+		final CompactXPath all = new CompactXPath("//leaf");
+		final Object first = all.selectSingleNode(cd);
+		assertEquals(first, all.selectSingleNode(cd));
+		assertEquals("leaf", ((CompactElement)first).getName());
+	}
+
+}
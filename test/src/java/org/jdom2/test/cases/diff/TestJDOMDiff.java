@@ -0,0 +1,287 @@
+package org.jdom2.test.cases.diff;
+
+import static org.jdom2.test.util.UnitTestUtil.checkException;
+import static org.jdom2.test.util.UnitTestUtil.failNoException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import org.jdom2.Comment;
+import org.jdom2.DocType;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMEquivalence;
+import org.jdom2.Namespace;
+import org.jdom2.diff.Edit;
+import org.jdom2.diff.EditScript;
+import org.jdom2.diff.JDOMDiff;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.test.util.FidoFetch;
+
+@SuppressWarnings("javadoc")
+public class TestJDOMDiff {
+
+	private static final JDOMEquivalence EQUIVALENCE = new JDOMEquivalence(false, false);
+
+	private static final Document parse() throws Exception {
+		return new SAXBuilder().build(FidoFetch.getFido().getURL("/complex.xml"));
+	}
+
+	private static final Document buildFeed(final int records) {
+		final Element root = new Element("feed");
+		for (int i = 0; i < records; i++) {
+			final Element record = new Element("record");
+			record.setAttribute("id", "r" + i);
+			record.addContent(new Element("title").setText("Title " + i));
+			record.addContent(new Element("body").setText("Body " + i));
+			root.addContent(record);
+		}
+		return new Document(root);
+	}
+
+	private static final Element record(final Document doc, final int index) {
+		return doc.getRootElement().getChildren().get(index);
+	}
+
+	/**
+	 * Diff the versions, apply the script to a copy of the original, and
+	 * check the copy is now the same as the new version.
+	 */
+	private static final EditScript roundTrip(final Document from, final Document to) {
+		final EditScript script = new JDOMDiff().diff(from, to);
+		final Document patched = script.apply(from.clone());
+		assertTrue(EQUIVALENCE.equivalent(to, patched));
+		assertEquals(new XMLOutputter().outputString(to),
+				new XMLOutputter().outputString(patched));
+		return script;
+	}
+
+	@Test
+	public void testNull() {
+		try {
+			new JDOMDiff(null);
+			failNoException(NullPointerException.class);
+		} catch (Exception e) {
+			checkException(NullPointerException.class, e);
+		}
+	}
+
+	@Test
+	public void testSame() throws Exception {
+		assertTrue(new JDOMDiff().diff(parse(), parse()).isEmpty());
+		final Document doc = buildFeed(10);
+		assertTrue(new JDOMDiff().diff(doc, doc.clone()).isEmpty());
+		assertTrue(new JDOMDiff().diff(doc.getRootElement(),
+				doc.clone().getRootElement()).isEmpty());
+	}
+
+	@Test
+	public void testAttributes() {
+		final Document from = buildFeed(5);
+		final Document to = from.clone();
+		record(to, 1).setAttribute("lang", "en");
+		record(to, 2).getChild("title").setAttribute("type", "plain");
+		record(to, 3).setAttribute("rank", "3");
+		to.getRootElement().setAttribute("version", "2");
+		final EditScript script = roundTrip(from, to);
+		assertEquals(4, script.size());
+		for (final Edit edit : script) {
+			assertEquals(edit.toString(), Edit.Type.SET_ATTRIBUTE, edit.getType());
+		}
+		record(to, 2).getChild("title").removeAttribute("type");
+		roundTrip(from, to);
+		roundTrip(to, from);
+		// a changed ID is a different record.
+		record(to, 4).setAttribute("id", "changed");
+		roundTrip(from, to);
+	}
+
+	@Test
+	public void testText() {
+		final Document from = buildFeed(100);
+		final Document to = from.clone();
+		record(to, 50).getChild("body").setText("Changed");
+		final EditScript script = roundTrip(from, to);
+		// only the text of the one body changes.
+		assertEquals(2, script.size());
+		assertEquals(Edit.Type.REMOVE, script.get(0).getType());
+		assertEquals(Edit.Type.INSERT, script.get(1).getType());
+		assertEquals(3, script.get(0).getDepth());
+		assertEquals(50, script.get(0).getPath()[1]);
+	}
+
+	@Test
+	public void testRanges() {
+		final Document from = buildFeed(100);
+		final Document to = from.clone();
+		to.getRootElement().getContent().subList(10, 20).clear();
+		final Element added = new Element("added");
+		to.getRootElement().addContent(60, added);
+		to.getRootElement().addContent(61, new Comment("new"));
+		final EditScript script = roundTrip(from, to);
+		assertEquals(2, script.size());
+		assertEquals(Edit.Type.REMOVE, script.get(0).getType());
+		assertEquals(10, script.get(0).getIndex());
+		assertEquals(10, script.get(0).getCount());
+		assertEquals(Edit.Type.INSERT, script.get(1).getType());
+		assertEquals(60, script.get(1).getIndex());
+		assertEquals(2, script.get(1).getCount());
+		// the script has its own copy of the content.
+		assertFalse(added == script.get(1).getContent().get(0));
+	}
+
+	@Test
+	public void testMoves() {
+		final Document from = buildFeed(20);
+		final Document to = from.clone();
+		final Element root = to.getRootElement();
+		final Element moved = record(to, 3);
+		moved.detach();
+		root.addContent(moved);
+		final Element changed = record(to, 10);
+		changed.getChild("title").setText("New title");
+		changed.detach();
+		root.addContent(0, changed);
+		roundTrip(from, to);
+		roundTrip(to, from);
+	}
+
+	@Test
+	public void testReorderedSiblings() {
+		final Document from = buildFeed(30);
+		final Document to = from.clone();
+		final Element root = to.getRootElement();
+		// reverse the order, and change every third record.
+		for (int i = 0; i < 30; i++) {
+			final Element e = record(to, 29);
+			e.detach();
+			root.addContent(i, e);
+			if (i % 3 == 0) {
+				e.getChild("body").setText("body " + i);
+			}
+		}
+		roundTrip(from, to);
+	}
+
+	@Test
+	public void testNamespaces() {
+		final Namespace ns = Namespace.getNamespace("m", "urn:meta");
+		final Namespace other = Namespace.getNamespace("o", "urn:meta");
+		final Document from = buildFeed(5);
+		record(from, 1).addContent(new Element("tag", ns).setText("music"));
+		final Document to = from.clone();
+		record(to, 1).getChild("tag", ns).setNamespace(other).setText("jazz");
+		record(to, 2).setAttribute("flag", "yes", ns);
+		roundTrip(from, to);
+		roundTrip(to, from);
+	}
+
+	@Test
+	public void testRootElement() {
+		final Element from = new Element("a").setAttribute("x", "1");
+		from.addContent(new Element("kid"));
+		final Element to = new Element("b", Namespace.getNamespace("urn:b"));
+		to.addContent(new Element("kid"));
+		to.setAttribute("y", "2");
+		final EditScript script = new JDOMDiff().diff(from, to);
+		final Element patched = script.apply(from.clone());
+		assertEquals(new XMLOutputter().outputString(to),
+				new XMLOutputter().outputString(patched));
+	}
+
+	@Test
+	public void testDocument() throws Exception {
+		final Document from = buildFeed(3);
+		from.addContent(0, new Comment("leading"));
+		final Document to = buildFeed(3);
+		to.setRootElement(new Element("other").addContent("text"));
+		to.setDocType(new DocType("other"));
+		to.addContent(new Comment("trailing"));
+		roundTrip(from, to);
+		roundTrip(to, from);
+		roundTrip(parse(), to);
+	}
+
+	@Test
+	public void testComplex() throws Exception {
+		final Document from = parse();
+		final Document to = parse();
+		final Element root = to.getRootElement();
+		root.getChildren().get(0).setAttribute("added", "value");
+		root.addContent(1, new Element("inserted").setText("text"));
+		root.getChildren().get(root.getChildren().size() - 1).detach();
+		roundTrip(from, to);
+		roundTrip(to, from);
+	}
+
+	/**
+	 * Element.clone() is recursive, so build each copy.
+	 */
+	private static final Element buildChain(final int depth, final String text) {
+		final Element root = new Element("root");
+		Element e = root;
+		for (int i = 0; i < depth; i++) {
+			final Element kid = new Element("kid");
+			e.addContent(kid);
+			e = kid;
+		}
+		if (text != null) {
+			e.setText(text);
+		}
+		return root;
+	}
+
+	@Test
+	public void testDeep() {
+		final Element to = buildChain(10000, "bottom");
+		final EditScript script = new JDOMDiff().diff(buildChain(10000, null), to);
+		assertEquals(1, script.size());
+		assertEquals(10000, script.get(0).getDepth());
+		assertTrue(EQUIVALENCE.equivalent(to,
+				script.apply(buildChain(10000, null))));
+	}
+
+	@Test
+	public void testSerializable() throws Exception {
+		final Document from = buildFeed(10);
+		final Document to = from.clone();
+		record(to, 4).getChild("title").setText("Serialized");
+		record(to, 7).detach();
+		final EditScript script = new JDOMDiff().diff(from, to);
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(script);
+		oos.close();
+		final ObjectInputStream ois = new ObjectInputStream(
+				new ByteArrayInputStream(baos.toByteArray()));
+		final EditScript copy = (EditScript) ois.readObject();
+		ois.close();
+		assertEquals(script.size(), copy.size());
+		assertEquals(new XMLOutputter().outputString(to),
+				new XMLOutputter().outputString(copy.apply(from.clone())));
+	}
+
+	@Test
+	public void testMismatch() {
+		final Document from = buildFeed(10);
+		final Document to = from.clone();
+		record(to, 9).getChild("body").setText("Changed");
+		final EditScript script = new JDOMDiff().diff(from, to);
+		try {
+			script.apply(buildFeed(2));
+			failNoException(IllegalArgumentException.class);
+		} catch (Exception e) {
+			checkException(IllegalArgumentException.class, e);
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+package org.jdom2.test.cases.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import org.jdom2.Content;
+import org.jdom2.DeferredContent;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMFactory;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.DeferredSAXHandlerFactory;
+import org.jdom2.input.sax.DefaultSAXHandlerFactory;
+import org.jdom2.located.Located;
+import org.jdom2.located.LocatedJDOMFactory;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.test.util.FidoFetch;
+
+@SuppressWarnings("javadoc")
+public class TestDeferredBuild {
+	
+	private static final String[] RESOURCES = {
+		"/complex.xml", "/SAXBuilderTestEntity.xml", "/SAXBuilderTestEntity2.xml",
+		"/SAXBuilderTestIntExtEntity.xml", "/SAXBuilderTestDecl.xml",
+		"/DOMBuilder/namespaces.xml", "/DOMBuilder/attributes.xml",
+		"/DOMBuilder/complex.xml", "/xmlchars.xml"
+	};
+	
+	private static final String toString(final Document doc) {
+		return new XMLOutputter(Format.getRawFormat()).outputString(doc);
+	}
+	
+	private static final SAXBuilder builder(final JDOMFactory factory,
+			final boolean deferred, final boolean expand,
+			final boolean ignorewhite, final boolean ignoreboundary) {
+		final SAXBuilder sb = new SAXBuilder();
+		sb.setDeferredBuild(deferred);
+		sb.setExpandEntities(expand);
+		sb.setIgnoringElementContentWhitespace(ignorewhite);
+		sb.setIgnoringBoundaryWhitespace(ignoreboundary);
+		if (factory != null) {
+			sb.setJDOMFactory(factory);
+		}
+		return sb;
+	}
+
+	@Test
+	public void testDeferredBuildSetting() {
+		final SAXBuilder sb = new SAXBuilder();
+		assertFalse(sb.isDeferredBuild());
+		sb.setDeferredBuild(true);
+		assertTrue(sb.isDeferredBuild());
+		assertTrue(sb.getSAXHandlerFactory() instanceof DeferredSAXHandlerFactory);
+		sb.setDeferredBuild(false);
+		assertFalse(sb.isDeferredBuild());
+		assertTrue(sb.getSAXHandlerFactory() instanceof DefaultSAXHandlerFactory);
+	}
+
+	@Test
+	public void testSameAsEager() throws Exception {
+		for (final String res : RESOURCES) {
+			for (int opts = 0; opts < 8; opts++) {
+				final boolean expand = (opts & 1) != 0;
+				final boolean white = (opts & 2) != 0;
+				final boolean boundary = (opts & 4) != 0;
+				final Document eager = builder(null, false, expand, white, 
+						boundary).build(FidoFetch.getFido().getURL(res));
+				final Document deferred = builder(null, true, expand, white, 
+						boundary).build(FidoFetch.getFido().getURL(res));
+				assertEquals(res + " options " + opts, toString(eager), 
+						toString(deferred));
+			}
+		}
+	}
+
+	@Test
+	public void testLocated() throws Exception {
+		for (final String res : RESOURCES) {
+			final Document eager = builder(new LocatedJDOMFactory(), false, 
+					true, false, false).build(FidoFetch.getFido().getURL(res));
+			final Document deferred = builder(new LocatedJDOMFactory(), true, 
+					true, false, false).build(FidoFetch.getFido().getURL(res));
+			final Iterator<Content> ei = eager.getDescendants();
+			final Iterator<Content> di = deferred.getDescendants();
+			while (ei.hasNext()) {
+				assertTrue(di.hasNext());
+				final Content e = ei.next();
+				final Content d = di.next();
+				assertEquals(res, e.getClass(), d.getClass());
+				if (e instanceof Located) {
+					assertEquals(res + " " + e, ((Located)e).getLine(), 
+							((Located)d).getLine());
+					assertEquals(res + " " + e, ((Located)e).getColumn(), 
+							((Located)d).getColumn());
+				}
+			}
+			assertFalse(di.hasNext());
+		}
+	}
+
+	@Test
+	public void testOnlyAccessedContentIsBuilt() throws Exception {
+		final String xml = "<root a='x'><one><two><three/></two></one>" 
+				+ "<four>text</four></root>";
+		final Document doc = builder(null, true, true, false, false)
+				.build(new StringReader(xml));
+		final Element root = doc.getRootElement();
+		assertEquals("x", root.getAttributeValue("a"));
+		assertTrue(DeferredContent.isDeferred(root));
+		final Element one = root.getChild("one");
+		assertFalse(DeferredContent.isDeferred(root));
+		assertTrue(DeferredContent.isDeferred(one));
+		assertTrue(DeferredContent.isDeferred(root.getChild("four")));
+		assertEquals("text", root.getChildText("four"));
+		assertFalse(DeferredContent.isDeferred(root.getChild("four")));
+		assertTrue(DeferredContent.isDeferred(one));
+		// clones share the deferred content.
+		final Element clone = one.clone();
+		assertTrue(DeferredContent.isDeferred(clone));
+		assertTrue(DeferredContent.isDeferred(one));
+		assertEquals("three", clone.getChild("two").getChildren().get(0).getName());
+		assertTrue(DeferredContent.isDeferred(one));
+		// removing all content does not build it.
+		one.removeContent();
+		assertFalse(DeferredContent.isDeferred(one));
+		assertEquals(0, one.getContentSize());
+		assertEquals("<root a=\"x\"><one /><four>text</four></root>", 
+				new XMLOutputter().outputString(root));
+	}
+
+	@Test
+	public void testReuseBuilder() throws Exception {
+		final SAXBuilder sb = builder(null, true, true, false, false);
+		final Document d1 = sb.build(new StringReader("<a><b>one</b></a>"));
+		final Document d2 = sb.build(new StringReader("<a><b>two</b><c/></a>"));
+		assertEquals("two", d2.getRootElement().getChildText("b"));
+		assertEquals("one", d1.getRootElement().getChildText("b"));
+		assertEquals(2, d2.getRootElement().getContentSize());
+	}
+
+}
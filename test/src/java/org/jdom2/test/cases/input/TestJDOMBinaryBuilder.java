@@ -0,0 +1,253 @@
+package org.jdom2.test.cases.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.IllegalNameException;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.UncheckedJDOMFactory;
+import org.jdom2.input.JDOMBinaryBuilder;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.JDOMBinaryOutputter;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.test.util.FidoFetch;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestJDOMBinaryBuilder {
+
+	private static final String ODD = "ascii \u00e9\u00ff \u20ac\u0100 "
+			+ "\ud83d\ude00 <&>\"\t\r\n end";
+
+	private static final Document complex() throws JDOMException, IOException {
+		final SAXBuilder sb = new SAXBuilder();
+		sb.setExpandEntities(false);
+		return sb.build(FidoFetch.getFido().getURL("/complex.xml"));
+	}
+
+	private static final String xml(final Document doc) {
+		return new XMLOutputter().outputString(doc);
+	}
+
+	@Test
+	public void testDocumentRoundTrip() throws JDOMException, IOException {
+		final Document doc = complex();
+		final byte[] data = new JDOMBinaryOutputter().outputBytes(doc);
+		final Document back = new JDOMBinaryBuilder().build(data);
+		assertEquals(xml(doc), xml(back));
+		assertEquals(doc.getBaseURI(), back.getBaseURI());
+		assertEquals(doc.getDocType().getInternalSubset(),
+				back.getDocType().getInternalSubset());
+
+		// the stream methods give the same result.
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new JDOMBinaryOutputter().output(doc, baos);
+		assertTrue(Arrays.equals(data, baos.toByteArray()));
+		assertEquals(xml(doc), xml(new JDOMBinaryBuilder().build(
+				new ByteArrayInputStream(data))));
+	}
+
+	@Test
+	public void testConsecutive() throws JDOMException, IOException {
+		final Document doc = complex();
+		final Document small = new Document(new Element("small"));
+		final JDOMBinaryOutputter out = new JDOMBinaryOutputter();
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		out.output(doc, baos);
+		out.output(small, baos);
+		out.output(small.getRootElement(), baos);
+		baos.write(42);
+		final ByteArrayInputStream in = new ByteArrayInputStream(
+				baos.toByteArray());
+		final JDOMBinaryBuilder builder = new JDOMBinaryBuilder();
+		assertEquals(xml(doc), xml(builder.build(in)));
+		assertEquals(xml(small), xml(builder.build(in)));
+		assertEquals("small", builder.buildElement(in).getName());
+		// the builder stops at the end of each one.
+		assertEquals(42, in.read());
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testElementRoundTrip() throws JDOMException, IOException {
+		final Element child = complex().getRootElement().getChildren().get(5);
+		final byte[] data = new JDOMBinaryOutputter().outputBytes(child);
+		final Element back = new JDOMBinaryBuilder().buildElement(data);
+		assertNull(back.getParent());
+		final XMLOutputter out = new XMLOutputter();
+		assertEquals(out.outputString(child), out.outputString(back));
+	}
+
+	@Test
+	public void testStringsAndAttributes() throws JDOMException {
+		final Namespace a = Namespace.getNamespace("a", "urn:x");
+		final Namespace b = Namespace.getNamespace("b", "urn:x");
+		final Element root = new Element("r\u00e9sum\u00e9", a);
+		root.addNamespaceDeclaration(b);
+		root.setAttribute(new Attribute("id", "i1", AttributeType.ID));
+		final Attribute dflt = new Attribute("att", ODD, b);
+		dflt.setSpecified(false);
+		root.setAttribute(dflt);
+		final StringBuilder sb = new StringBuilder();
+		while (sb.length() < 50000) {
+			sb.append(ODD);
+		}
+		root.addContent(sb.toString());
+		root.addContent(new Element("empty", b).setText(""));
+		final Element back = new JDOMBinaryBuilder().buildElement(
+				new JDOMBinaryOutputter().outputBytes(root));
+		assertEquals("r\u00e9sum\u00e9", back.getName());
+		assertSame(a, back.getNamespace());
+		assertEquals(Arrays.asList(b), back.getAdditionalNamespaces());
+		assertEquals(AttributeType.ID, back.getAttribute("id").getAttributeType());
+		assertTrue(back.getAttribute("id").isSpecified());
+		assertEquals(ODD, back.getAttributeValue("att", b));
+		assertFalse(back.getAttribute("att", b).isSpecified());
+		assertEquals(sb.toString(), back.getText());
+		assertSame(b, back.getChild("empty", b).getNamespace());
+		assertEquals("", back.getChild("empty", b).getText());
+	}
+
+	@Test
+	public void testUnpairedSurrogates() throws JDOMException {
+		// only an unchecked factory can create these, but they survive.
+		final String bad = "a\ud83db\ude00c\ud83d";
+		final Element root = new UncheckedJDOMFactory().element("root");
+		root.addContent(new UncheckedJDOMFactory().text(bad));
+		assertEquals(bad, new JDOMBinaryBuilder().buildElement(
+				new JDOMBinaryOutputter().outputBytes(root)).getText());
+	}
+
+	@Test
+	public void testNamesShared() throws JDOMException {
+		final Element root = new Element("root");
+		for (int i = 0; i < 100; i++) {
+			root.addContent(new Element("record").setAttribute("id", "" + i));
+		}
+		final byte[] data = new JDOMBinaryOutputter().outputBytes(root);
+		final Element back = new JDOMBinaryBuilder().buildElement(data);
+		assertEquals(100, back.getChildren("record").size());
+		// the name is in the stream once, and shared by all the Elements.
+		assertSame(back.getChildren().get(0).getName(),
+				back.getChildren().get(99).getName());
+	}
+
+	@Test
+	public void testDeep() throws JDOMException {
+		final Element root = new Element("root");
+		Element e = root;
+		for (int i = 0; i < 20000; i++) {
+			final Element kid = new Element("e");
+			e.addContent(kid);
+			e = kid;
+		}
+		e.setText("bottom");
+		Element back = new JDOMBinaryBuilder().buildElement(
+				new JDOMBinaryOutputter().outputBytes(root));
+		int depth = 0;
+		while (back.getChild("e") != null) {
+			back = back.getChild("e");
+			depth++;
+		}
+		assertEquals(20000, depth);
+		assertEquals("bottom", back.getText());
+	}
+
+	@Test
+	public void testSmallerThanSerialization() throws JDOMException, IOException {
+		final Document doc = complex();
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(doc);
+		oos.close();
+		assertTrue(new JDOMBinaryOutputter().outputBytes(doc).length
+				< baos.size());
+	}
+
+	@Test
+	public void testCheckedFactory() throws JDOMException, IOException {
+		final JDOMBinaryBuilder builder = new JDOMBinaryBuilder(new DefaultJDOMFactory());
+		assertTrue(builder.getFactory() instanceof DefaultJDOMFactory);
+		final Document doc = complex();
+		assertEquals(xml(doc), xml(builder.build(
+				new JDOMBinaryOutputter().outputBytes(doc))));
+		try {
+			builder.setFactory(null);
+			fail("Should not be able to use a null factory");
+		} catch (NullPointerException npe) {
+			// good
+		}
+	}
+
+	@Test
+	public void testCheckedFactoryRejects() throws JDOMException {
+		final byte[] data = new JDOMBinaryOutputter().outputBytes(
+				new Element("name"));
+		// change the name to something illegal: 'n' -> ' '
+		for (int i = 0; i < data.length; i++) {
+			if (data[i] == 'n') {
+				data[i] = ' ';
+				break;
+			}
+		}
+		assertEquals(" ame", new JDOMBinaryBuilder().buildElement(data).getName());
+		try {
+			new JDOMBinaryBuilder(new DefaultJDOMFactory()).buildElement(data);
+			fail("Should not be able to build an illegal name");
+		} catch (IllegalNameException ine) {
+			// good
+		}
+	}
+
+	@Test
+	public void testInvalid() throws JDOMException, IOException {
+		final JDOMBinaryBuilder builder = new JDOMBinaryBuilder();
+		try {
+			builder.build("<root/>".getBytes("UTF-8"));
+			fail("Should not be able to build XML");
+		} catch (JDOMException je) {
+			// good
+		}
+		final byte[] element = new JDOMBinaryOutputter().outputBytes(
+				new Element("root"));
+		try {
+			builder.build(element);
+			fail("Should not be able to build a Document from an Element");
+		} catch (JDOMException je) {
+			// good
+		}
+		final byte[] doc = new JDOMBinaryOutputter().outputBytes(complex());
+		final byte[] truncated = new byte[doc.length - 10];
+		System.arraycopy(doc, 0, truncated, 0, truncated.length);
+		try {
+			builder.build(truncated);
+			fail("Should not be able to build a truncated Document");
+		} catch (JDOMException je) {
+			// good
+		}
+		try {
+			builder.build(new ByteArrayInputStream(truncated));
+			fail("Should not be able to build a truncated Document");
+		} catch (EOFException eofe) {
+			// good
+		}
+	}
+
+}
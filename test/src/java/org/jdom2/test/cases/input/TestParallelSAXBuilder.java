@@ -0,0 +1,171 @@
+package org.jdom2.test.cases.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.input.ParallelSAXBuilder;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestParallelSAXBuilder {
+
+	private static final String RECORD = 
+			"<rec id='%d' a=\"x>y\">text &amp; <b>bold</b><!-- a <rec> comment -->"
+			+ "<![CDATA[ <rec> ]]><?pi <rec>?><empty/><ns:n xmlns:ns='urn:ns'/>"
+			+ "&ent;</rec>\n";
+
+	private static final String PROLOG = "<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<!-- before -->\n"
+			+ "<!DOCTYPE root [ <!ENTITY ent 'ENT>'> <!-- ] > --> ]>\n"
+			+ "<root xmlns='urn:default' att='a>'>\n";
+
+	private static final String EPILOG = "</root>\n<!-- after --><?after pi?>\n";
+
+	private static final String records(final int count) {
+		final StringBuilder sb = new StringBuilder(PROLOG);
+		for (int i = 0; i < count; i++) {
+			sb.append(String.format(RECORD, Integer.valueOf(i)));
+			if (i % 7 == 3) {
+				sb.append("<other>\u00e9\u20ac</other> loose text ");
+			}
+		}
+		sb.append(EPILOG);
+		return sb.toString();
+	}
+
+	private static final String serialize(final Document doc) {
+		return new XMLOutputter(Format.getRawFormat()).outputString(doc);
+	}
+
+	private static final void checkSame(final byte[] data, final int chunk)
+			throws JDOMException, IOException {
+		final String expect = serialize(new SAXBuilder().build(
+				new ByteArrayInputStream(data)));
+		final ParallelSAXBuilder psb = new ParallelSAXBuilder(new SAXBuilder());
+		psb.setChunkSize(chunk);
+		assertEquals(expect, serialize(psb.build(data)));
+	}
+
+	@Test
+	public void testRecords() throws Exception {
+		final byte[] data = records(200).getBytes("UTF-8");
+		checkSame(data, 1);
+		checkSame(data, 100);
+		checkSame(data, 1000);
+		checkSame(data, data.length);
+		checkSame(data, ParallelSAXBuilder.DEFAULT_CHUNK_SIZE);
+	}
+
+	@Test
+	public void testContentPreserved() throws Exception {
+		final ParallelSAXBuilder psb = new ParallelSAXBuilder(new SAXBuilder());
+		psb.setChunkSize(50);
+		final Document doc = psb.build(records(100).getBytes("UTF-8"));
+		assertEquals(100, doc.getRootElement().getChildren("rec", 
+				doc.getRootElement().getNamespace()).size());
+		assertEquals("99", doc.getRootElement().getChildren().get(113)
+				.getAttributeValue("id"));
+		assertTrue(doc.getDocType() != null);
+		// the comments and PI after the root.
+		assertEquals(5, doc.getContentSize());
+	}
+
+	@Test
+	public void testNoBody() throws Exception {
+		checkSame("<root/>".getBytes("UTF-8"), 1);
+		checkSame("<root></root>".getBytes("UTF-8"), 1);
+		checkSame("<root><a/></root>".getBytes("UTF-8"), 1);
+		checkSame("\ufeff<root><a/><b/><c/></root>".getBytes("UTF-8"), 1);
+	}
+
+	@Test
+	public void testUTF16() throws Exception {
+		final byte[] data = records(20).replace("UTF-8", "UTF-16")
+				.getBytes("UTF-16");
+		checkSame(data, 1);
+	}
+
+	@Test
+	public void testLatin1() throws Exception {
+		final byte[] data = records(20).replace("UTF-8", "ISO-8859-1")
+				.getBytes("ISO-8859-1");
+		checkSame(data, 1);
+	}
+
+	@Test
+	public void testExecutorAndFile() throws Exception {
+		final String xml = records(50);
+		final File file = File.createTempFile("jdom", ".xml");
+		file.deleteOnExit();
+		final FileOutputStream fos = new FileOutputStream(file);
+		try {
+			fos.write(xml.getBytes("UTF-8"));
+		} finally {
+			fos.close();
+		}
+		final ExecutorService exec = Executors.newFixedThreadPool(3);
+		try {
+			final ParallelSAXBuilder psb = new ParallelSAXBuilder(
+					new SAXBuilder(), exec);
+			psb.setChunkSize(200);
+			final String expect = serialize(new SAXBuilder().build(file));
+			assertEquals(expect, serialize(psb.build(file)));
+			final ByteBuffer bb = ByteBuffer.wrap(xml.getBytes("UTF-8"));
+			assertEquals(expect, serialize(psb.build(bb, null)));
+			assertEquals(0, bb.position());
+			assertTrue(!exec.isShutdown());
+		} finally {
+			exec.shutdown();
+		}
+	}
+
+	@Test
+	public void testBadChunk() throws Exception {
+		final String xml = records(50).replace("<rec id='40'", "<rec id='40' id='41'");
+		final ParallelSAXBuilder psb = new ParallelSAXBuilder(new SAXBuilder());
+		psb.setChunkSize(100);
+		try {
+			psb.build(xml.getBytes("UTF-8"));
+			fail("Should not be able to parse a duplicate attribute");
+		} catch (JDOMException e) {
+			// good
+		}
+		try {
+			psb.build(records(50).substring(0, 2000).getBytes("UTF-8"));
+			fail("Should not be able to parse a truncated document");
+		} catch (JDOMException e) {
+			// good
+		}
+	}
+
+	@Test
+	public void testBadArgs() {
+		try {
+			new ParallelSAXBuilder(null);
+			fail("Should not be able to use a null template");
+		} catch (NullPointerException npe) {
+			// good
+		}
+		try {
+			new ParallelSAXBuilder(new SAXBuilder()).setChunkSize(0);
+			fail("Should not be able to use a zero chunk size");
+		} catch (IllegalArgumentException iae) {
+			// good
+		}
+	}
+
+}
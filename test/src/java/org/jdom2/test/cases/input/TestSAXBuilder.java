@@ -77,10 +77,15 @@ import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
 import java.util.List;
 
@@ -916,6 +921,74 @@ public final class TestSAXBuilder {
 		}
 	}
 
+	@Test
+	public void testBuildMapped() throws Exception {
+		File tmp = File.createTempFile("tst", ".xml");
+		tmp.deleteOnExit();
+		try {
+			FileWriter fw = new FileWriter(tmp);
+			fw.write(testxml.toCharArray());
+			fw.close();
+			SAXBuilder sb = new SAXBuilder();
+			assertXMLMatches(tmp.toURI().toString(), sb.buildMapped(tmp));
+			assertXMLMatches(tmp.toURI().toString(), sb.buildMapped(tmp));
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	@Test
+	public void testBuildFileChannel() throws Exception {
+		File tmp = File.createTempFile("tst", ".xml");
+		tmp.deleteOnExit();
+		try {
+			FileWriter fw = new FileWriter(tmp);
+			// skip the junk at the start with the channel position.
+			fw.write("junk");
+			fw.write(testxml.toCharArray());
+			fw.close();
+			RandomAccessFile raf = new RandomAccessFile(tmp, "r");
+			try {
+				FileChannel fc = raf.getChannel();
+				fc.position(4);
+				assertXMLMatches(null, new SAXBuilder().build(fc, null));
+				assertEquals(fc.size(), fc.position());
+				assertTrue(fc.isOpen());
+			} finally {
+				raf.close();
+			}
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	@Test
+	public void testBuildChannel() throws Exception {
+		SAXBuilder sb = new SAXBuilder();
+		ReadableByteChannel rbc = Channels.newChannel(
+				new ByteArrayInputStream(testxml.getBytes("UTF-8")));
+		assertXMLMatches(null, sb.build(rbc, null));
+		final URL url = FidoFetch.getFido().getURL("/complex.xml");
+		final Document expect = sb.build(url);
+		final Document actual = sb.build(Channels.newChannel(
+				FidoFetch.getFido().getStream("/complex.xml")), url.toExternalForm());
+		final XMLOutputter out = new XMLOutputter();
+		assertEquals(out.outputString(expect), out.outputString(actual));
+	}
+
+	@Test
+	public void testBuildByteBuffer() throws Exception {
+		SAXBuilder sb = new SAXBuilder();
+		ByteBuffer bb = ByteBuffer.wrap(("junk" + testxml).getBytes("UTF-8"));
+		bb.position(4);
+		assertXMLMatches(null, sb.build(bb, null));
+		assertEquals(4, bb.position());
+		ByteBuffer direct = ByteBuffer.allocateDirect(100);
+		direct.put(testxml.getBytes("UTF-8"));
+		direct.flip();
+		assertXMLMatches(null, sb.build(direct, null));
+	}
+
 	@Test
 	public void testBuildFile() {
 		File tmp = null;
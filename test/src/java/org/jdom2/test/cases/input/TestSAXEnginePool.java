@@ -0,0 +1,159 @@
+package org.jdom2.test.cases.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import org.jdom2.DefaultJDOMFactory;
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.SAXEnginePool;
+import org.jdom2.test.util.FidoFetch;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestSAXEnginePool {
+
+	@Test
+	public void testSharedPool() {
+		final SAXBuilder sb = new SAXBuilder();
+		final SAXEnginePool pool = sb.getEnginePool();
+		assertSame(pool, sb.getEnginePool());
+		assertEquals(SAXEnginePool.DEFAULT_CAPACITY, pool.getCapacity());
+		sb.setExpandEntities(false);
+		final SAXEnginePool other = sb.getEnginePool();
+		assertNotSame(pool, other);
+		// the pools read the settings through to the SAXBuilder.
+		assertFalse(pool.getExpandEntities());
+		assertFalse(other.getExpandEntities());
+		assertSame(sb.getJDOMFactory(), other.getJDOMFactory());
+		assertEquals(sb.isValidating(), other.isValidating());
+		assertEquals(sb.getIgnoringBoundaryWhitespace(), 
+				other.getIgnoringBoundaryWhitespace());
+		assertEquals(sb.getIgnoringElementContentWhitespace(), 
+				other.getIgnoringElementContentWhitespace());
+		assertSame(sb.getErrorHandler(), other.getErrorHandler());
+		assertSame(sb.getEntityResolver(), other.getEntityResolver());
+		assertSame(sb.getDTDHandler(), other.getDTDHandler());
+		sb.setJDOMFactory(new DefaultJDOMFactory());
+		assertNotSame(other, sb.getEnginePool());
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		final SAXEnginePool pool = new SAXBuilder().buildEnginePool(1);
+		for (int i = 0; i < 5; i++) {
+			final Document doc = pool.build(new StringReader("<root att='" + i + "'/>"));
+			assertEquals(String.valueOf(i), 
+					doc.getRootElement().getAttributeValue("att"));
+		}
+		assertEquals(5, pool.getBuildCount());
+		assertEquals(1, pool.getCreatedCount());
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(0, pool.getActiveCount());
+		assertEquals(0, pool.getDiscardedCount());
+		assertTrue(pool.toString().indexOf("builds=5") > 0);
+		pool.clear();
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(1, pool.getDiscardedCount());
+	}
+
+	@Test
+	public void testReuseAfterParseError() throws Exception {
+		final SAXEnginePool pool = new SAXBuilder().buildEnginePool(1);
+		try {
+			pool.build(new StringReader("<root>"));
+			fail("Should not be able to parse broken XML");
+		} catch (JDOMException e) {
+			// good
+		}
+		assertEquals(1, pool.getIdleCount());
+		assertEquals("root", pool.build(new StringReader("<root/>"))
+				.getRootElement().getName());
+		assertEquals(1, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testBuildMethods() throws Exception {
+		final SAXEnginePool pool = new SAXBuilder().getEnginePool();
+		final Document expect = new SAXBuilder().build(
+				FidoFetch.getFido().getURL("/complex.xml"));
+		final int size = expect.getRootElement().getContentSize();
+		assertEquals(size, pool.build(FidoFetch.getFido().getURL("/complex.xml"))
+				.getRootElement().getContentSize());
+		assertEquals(size, pool.build(FidoFetch.getFido().getStream("/complex.xml"))
+				.getRootElement().getContentSize());
+		assertEquals(size, pool.build(FidoFetch.getFido().getStream("/complex.xml"),
+				FidoFetch.getFido().getURL("/complex.xml").toExternalForm())
+				.getRootElement().getContentSize());
+		assertEquals(size, pool.build(FidoFetch.getFido().getURL("/complex.xml")
+				.toExternalForm()).getRootElement().getContentSize());
+		assertEquals(4, pool.getBuildCount());
+		assertEquals(1, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testConcurrentBuilds() throws Exception {
+		final SAXEnginePool pool = new SAXBuilder().buildEnginePool(2);
+		final ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 200; i++) {
+				final String value = "v" + i;
+				results.add(exec.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return pool.build(new StringReader("<root><child>" + value
+								+ "</child></root>")).getRootElement()
+								.getChildText("child");
+					}
+				}));
+			}
+			for (int i = 0; i < 200; i++) {
+				assertEquals("v" + i, results.get(i).get());
+			}
+		} finally {
+			exec.shutdown();
+		}
+		assertEquals(200, pool.getBuildCount());
+		assertEquals(0, pool.getActiveCount());
+		// engines returned to a full pool are discarded, and later builds
+		// create new ones, so the created count is not bounded.
+		assertTrue(pool.getIdleCount() <= pool.getCapacity());
+		assertEquals(pool.getCreatedCount(), 
+				pool.getIdleCount() + pool.getDiscardedCount());
+	}
+
+	@Test
+	public void testBadPools() {
+		try {
+			new SAXBuilder().buildEnginePool(-1);
+			fail("Should not be able to have a negative capacity");
+		} catch (IllegalArgumentException iae) {
+			// good
+		}
+		final SAXBuilder sb = new SAXBuilder();
+		sb.setXMLFilter(new XMLFilterImpl());
+		try {
+			sb.getEnginePool();
+			fail("Should not be able to pool a shared XMLFilter");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+	}
+
+}
@@ -0,0 +1,242 @@
+package org.jdom2.test.cases.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import org.jdom2.CDATA;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMFactory;
+import org.jdom2.SharedTextBuffer;
+import org.jdom2.Text;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.located.LocatedJDOMFactory;
+import org.jdom2.located.LocatedText;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.test.util.FidoFetch;
+
+@SuppressWarnings("javadoc")
+public class TestSharedText {
+
+	private static final String[] RESOURCES = {
+		"/complex.xml", "/SAXBuilderTestEntity.xml", "/SAXBuilderTestEntity2.xml",
+		"/SAXBuilderTestIntExtEntity.xml", "/SAXBuilderTestDecl.xml",
+		"/DOMBuilder/namespaces.xml", "/DOMBuilder/attributes.xml",
+		"/DOMBuilder/complex.xml", "/xmlchars.xml"
+	};
+
+	private static final String toString(final Document doc, final Format format) {
+		return new XMLOutputter(format).outputString(doc);
+	}
+
+	private static final String toBytes(final Document doc) throws Exception {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new XMLOutputter().output(doc, baos);
+		return baos.toString("UTF-8");
+	}
+
+	private static final SAXBuilder builder(final JDOMFactory factory,
+			final boolean shared, final boolean expand,
+			final boolean ignoreboundary) {
+		final SAXBuilder sb = new SAXBuilder();
+		sb.setSharedText(shared);
+		sb.setExpandEntities(expand);
+		sb.setIgnoringBoundaryWhitespace(ignoreboundary);
+		if (factory != null) {
+			sb.setJDOMFactory(factory);
+		}
+		return sb;
+	}
+
+	@Test
+	public void testSharedTextSetting() {
+		final SAXBuilder sb = new SAXBuilder();
+		assertFalse(sb.isSharedText());
+		sb.setSharedText(true);
+		assertTrue(sb.isSharedText());
+		sb.setSharedText(false);
+		assertFalse(sb.isSharedText());
+	}
+
+	@Test
+	public void testSameAsUnshared() throws Exception {
+		for (final String res : RESOURCES) {
+			for (int opts = 0; opts < 4; opts++) {
+				final boolean expand = (opts & 1) != 0;
+				final boolean boundary = (opts & 2) != 0;
+				final Document plain = builder(null, false, expand,
+						boundary).build(FidoFetch.getFido().getURL(res));
+				final Document shared = builder(null, true, expand,
+						boundary).build(FidoFetch.getFido().getURL(res));
+				final String msg = res + " options " + opts;
+				assertEquals(msg, toString(plain, Format.getRawFormat()),
+						toString(shared, Format.getRawFormat()));
+				assertEquals(msg, toString(plain, Format.getPrettyFormat()),
+						toString(shared, Format.getPrettyFormat()));
+				assertEquals(msg, toBytes(plain), toBytes(shared));
+				assertEquals(msg, plain.getRootElement().getValue(),
+						shared.getRootElement().getValue());
+			}
+		}
+	}
+
+	@Test
+	public void testLazyString() throws Exception {
+		final Document doc = builder(null, true, true, false).build(
+				new StringReader("<root>a &amp; b<![CDATA[<c>]]></root>"));
+		final Element root = doc.getRootElement();
+		assertEquals(2, root.getContentSize());
+		final Text text = (Text)root.getContent(0);
+		final CDATA cdata = (CDATA)root.getContent(1);
+		assertFalse(text.getCharSequence() instanceof String);
+		assertEquals("a & b", text.getCharSequence().toString());
+		assertEquals("<c>", cdata.getCharSequence().toString());
+		final String value = text.getText();
+		assertEquals("a & b", value);
+		// the String is only made once.
+		assertSame(value, text.getText());
+		assertSame(value, text.getCharSequence());
+		assertEquals("<root>a &amp; b<![CDATA[<c>]]></root>",
+				new XMLOutputter().outputString(root));
+	}
+
+	@Test
+	public void testFreezeCreatesStrings() throws Exception {
+		final Document doc = builder(null, true, true, false).build(
+				new StringReader("<root>a<e>b<![CDATA[c]]></e></root>"));
+		final Element root = doc.getRootElement();
+		final Text a = (Text)root.getContent(0);
+		final CDATA c = (CDATA)root.getChild("e").getContent(1);
+		assertFalse(a.getCharSequence() instanceof String);
+		doc.freeze();
+		// reading frozen Text writes nothing, the Strings already exist.
+		assertTrue(a.getCharSequence() instanceof String);
+		assertTrue(c.getCharSequence() instanceof String);
+		assertSame(a.getCharSequence(), a.getText());
+		assertEquals("<root>a<e>b<![CDATA[c]]></e></root>",
+				new XMLOutputter().outputString(root));
+	}
+
+	@Test
+	public void testModify() throws Exception {
+		final Document doc = builder(null, true, true, false).build(
+				new StringReader("<root>abc<![CDATA[def]]><e>ghi</e></root>"));
+		final Element root = doc.getRootElement();
+		final Text text = (Text)root.getContent(0);
+		final CDATA cdata = (CDATA)root.getContent(1);
+		final Text inner = (Text)root.getChild("e").getContent(0);
+		final CharSequence before = inner.getCharSequence();
+		text.append("123");
+		assertEquals("abc123", text.getText());
+		cdata.append("456");
+		assertEquals("def456", cdata.getText());
+		inner.setText("xyz");
+		assertEquals("xyz", inner.getText());
+		assertEquals("xyz", inner.getCharSequence());
+		// the old slice does not change.
+		assertEquals("ghi", before.toString());
+		assertEquals("<root>abc123<![CDATA[def456]]><e>xyz</e></root>",
+				new XMLOutputter().outputString(root));
+
+		final Text clone = ((Text)root.getChild("e").getContent(0)).clone();
+		assertEquals("xyz", clone.getText());
+		final Document copy = doc.clone();
+		assertEquals(new XMLOutputter().outputString(doc),
+				new XMLOutputter().outputString(copy));
+	}
+
+	@Test
+	public void testSerialize() throws Exception {
+		final Document doc = builder(null, true, true, false).build(
+				FidoFetch.getFido().getURL("/complex.xml"));
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(doc);
+		oos.close();
+		final ObjectInputStream ois = new ObjectInputStream(
+				new ByteArrayInputStream(baos.toByteArray()));
+		final Document back = (Document)ois.readObject();
+		assertEquals(toString(doc, Format.getRawFormat()),
+				toString(back, Format.getRawFormat()));
+	}
+
+	@Test
+	public void testLocated() throws Exception {
+		final Document doc = builder(new LocatedJDOMFactory(), true, true, false)
+				.build(new StringReader("<root>\n  <e>text</e>\n</root>"));
+		final Text text = (Text)doc.getRootElement().getChild("e").getContent(0);
+		assertTrue(text instanceof LocatedText);
+		assertEquals(2, ((LocatedText)text).getLine());
+		// the LocatedText can't share the buffer.
+		assertTrue(text.getCharSequence() instanceof String);
+		assertEquals("text", text.getText());
+	}
+
+	@Test
+	public void testReuseParser() throws Exception {
+		final SAXBuilder sb = builder(null, true, true, false);
+		sb.setReuseParser(true);
+		final Document one = sb.build(new StringReader("<root>one</root>"));
+		final Document two = sb.build(new StringReader("<root>two</root>"));
+		assertEquals("one", one.getRootElement().getText());
+		assertEquals("two", two.getRootElement().getText());
+	}
+
+	@Test
+	public void testBufferChunks() {
+		final SharedTextBuffer buffer = new SharedTextBuffer(4);
+		final char[] chars = "abcdefghij".toCharArray();
+		final Text[] texts = new Text[5];
+		for (int i = 0; i < texts.length; i++) {
+			buffer.append(chars, i, 1);
+			buffer.append(chars, i + 1, 2);
+			assertEquals(3, buffer.length());
+			texts[i] = buffer.text();
+			assertEquals(0, buffer.length());
+		}
+		for (int i = 0; i < texts.length; i++) {
+			assertEquals(new String(chars, i, 3), texts[i].getText());
+		}
+		buffer.append(chars, 0, chars.length);
+		final CharSequence big = buffer.text().getCharSequence();
+		assertEquals("abcdefghij", big.toString());
+		assertEquals("cde", big.subSequence(2, 5).toString());
+		assertEquals('j', big.charAt(9));
+		try {
+			big.charAt(10);
+			fail("Should not be able to read past the end of a slice");
+		} catch (IndexOutOfBoundsException e) {
+			// good
+		}
+		buffer.append(chars, 2, 3);
+		final CDATA cdata = buffer.cdata();
+		assertEquals("cde", cdata.getText());
+		assertNull(cdata.getParent());
+		// there is no pending text.
+		assertEquals("", buffer.text().getText());
+		buffer.append(" \t\n".toCharArray(), 0, 3);
+		assertTrue(buffer.isAllWhitespace());
+		buffer.clear();
+		assertEquals(0, buffer.length());
+		try {
+			new SharedTextBuffer(0);
+			fail("Should not be able to have empty chunks");
+		} catch (IllegalArgumentException e) {
+			// good
+		}
+	}
+
+}
@@ -4,10 +4,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
@@ -20,6 +24,8 @@ import org.jdom2.DefaultJDOMFactory;
 import org.jdom2.DocType;
 import org.jdom2.Document;
 import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
 import org.jdom2.input.SAXBuilder;
 import org.jdom2.input.StAXStreamBuilder;
 import org.jdom2.input.stax.DefaultStAXFilter;
@@ -142,7 +148,13 @@ public class TestStAXStreamBuilder {
 			Document saxbuild = sb.build(FidoFetch.getFido().getURL(resname));
 			Element saxroot = saxbuild.hasRootElement() ? saxbuild.getRootElement() : null;
 			
+			stxb.setDeferredBuild(true);
+			assertTrue(stxb.isDeferredBuild());
+			XMLStreamReader defreader = inputfac.createXMLStreamReader(FidoFetch.getFido().getStream(resname));
+			Document defbuild = stxb.build(defreader);
+			
 			assertEquals("DOC SAX to StAXReader", toString(saxbuild), toString(staxbuild));
+			assertEquals("DOC SAX to deferred StAXReader", toString(saxbuild), toString(defbuild));
 			assertEquals("ROOT SAX to StAXReader", toString(saxroot), toString(staxroot));
 			assertEquals("DOC SAX to StAXReader FragmentList", toString(saxbuild), toString(fragbuild));
 			assertEquals("ROOT SAX to StAXReader FragmentList", toString(saxroot), toString(fragroot));
@@ -198,4 +210,114 @@ public class TestStAXStreamBuilder {
 		return caw.toString();
 	}
 
+	private static final String FEED = "<feed><header/>"
+			+ "<record id='1'><t>a</t><junk><t>b</t></junk></record> text "
+			+ "<!-- comment --><record id='2'/>"
+			+ "<other><record id='x'/></other></feed>";
+
+	private static final class RecordFilter extends DefaultStAXFilter {
+		private final int depth;
+		
+		public RecordFilter(int depth) {
+			this.depth = depth;
+		}
+		
+		@Override
+		public boolean includeElement(int edepth, String name, Namespace ns) {
+			return (depth < 0 || edepth == depth) && "record".equals(name);
+		}
+		
+		@Override
+		public boolean pruneElement(int edepth, String name, Namespace ns) {
+			return "junk".equals(name);
+		}
+	}
+	
+	private static final String ids(Iterator<Element> it) {
+		final StringBuilder sb = new StringBuilder();
+		while (it.hasNext()) {
+			final Element e = it.next();
+			assertTrue(e.getParent() == null);
+			sb.append(e.getAttributeValue("id"));
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testElementIterator() throws Exception {
+		final StAXStreamBuilder stxb = new StAXStreamBuilder();
+		final XMLInputFactory inputfac = XMLInputFactory.newInstance();
+		
+		Iterator<Element> it = stxb.buildElementIterator(
+				inputfac.createXMLStreamReader(new StringReader(FEED)), 
+				new RecordFilter(1));
+		assertTrue(it.hasNext());
+		assertTrue(it.hasNext());
+		final Element first = it.next();
+		assertEquals("1", first.getAttributeValue("id"));
+		assertEquals("a", first.getChildText("t"));
+		assertTrue(first.getChild("junk") == null);
+		assertEquals("2", ids(it));
+		assertFalse(it.hasNext());
+		try {
+			it.next();
+			fail("Should not be able to go past the end");
+		} catch (NoSuchElementException nsee) {
+			// good
+		}
+		
+		it = stxb.buildElementIterator(
+				inputfac.createXMLStreamReader(new StringReader(FEED)), 
+				new RecordFilter(-1));
+		assertEquals("12x", ids(it));
+		
+		it = stxb.buildElementIterator(
+				inputfac.createXMLStreamReader(new StringReader(FEED)), 
+				new RecordFilter(0));
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testElementIteratorRemove() throws Exception {
+		final Iterator<Element> it = new StAXStreamBuilder().buildElementIterator(
+				XMLInputFactory.newInstance().createXMLStreamReader(
+						new StringReader(FEED)), new RecordFilter(1));
+		it.next();
+		try {
+			it.remove();
+			fail("Should not be able to remove()");
+		} catch (UnsupportedOperationException uoe) {
+			// good
+		}
+	}
+
+	@Test
+	public void testElementIteratorState() throws Exception {
+		final XMLStreamReader reader = XMLInputFactory.newInstance()
+				.createXMLStreamReader(new StringReader(FEED));
+		reader.next();
+		try {
+			new StAXStreamBuilder().buildElementIterator(reader, new RecordFilter(1));
+			fail("Should not be able to iterate from the middle of a document");
+		} catch (JDOMException je) {
+			// good
+		}
+	}
+
+	@Test
+	public void testElementIteratorBrokenXML() throws Exception {
+		final Iterator<Element> it = new StAXStreamBuilder().buildElementIterator(
+				XMLInputFactory.newInstance().createXMLStreamReader(
+						new StringReader("<feed><record id='1'/><record></feed>")), 
+				new RecordFilter(1));
+		assertEquals("1", it.next().getAttributeValue("id"));
+		try {
+			it.hasNext();
+			fail("Should not be able to parse broken XML");
+		} catch (IllegalStateException ise) {
+			// good
+		}
+		assertFalse(it.hasNext());
+	}
+
 }
@@ -0,0 +1,304 @@
+package org.jdom2.test.cases.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.transform.Result;
+
+import org.jdom2.Attribute;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.Text;
+import org.jdom2.filter.Filters;
+import org.jdom2.internal.OutputCache;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.test.util.FidoFetch;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestCachedOutput {
+
+	private static final Format[] FORMATS = {
+		Format.getRawFormat(),
+		Format.getPrettyFormat(),
+		Format.getCompactFormat(),
+		Format.getPrettyFormat().setExpandEmptyElements(true),
+	};
+
+	private static final Document complex() throws Exception {
+		return new SAXBuilder().build(FidoFetch.getFido().getURL("/complex.xml"));
+	}
+
+	/**
+	 * Output the Document with and without caching, in all the formats,
+	 * twice each, and check they are all the same.
+	 */
+	private static final void checkOutput(final Document doc) {
+		for (final Format f : FORMATS) {
+			final String expect = new XMLOutputter(f).outputString(doc);
+			final XMLOutputter cached = new XMLOutputter(
+					f.clone().setCacheElements(true));
+			assertEquals(expect, cached.outputString(doc));
+			assertEquals(expect, cached.outputString(doc));
+		}
+	}
+
+	private static final Document sample() {
+		final Namespace ns = Namespace.getNamespace("p", "uri:p");
+		final Element root = new Element("root");
+		root.addNamespaceDeclaration(ns);
+		for (int i = 0; i < 5; i++) {
+			final Element rec = new Element("rec");
+			rec.setAttribute("id", "r" + i);
+			rec.addContent(new Element("name", ns).setText("name " + i));
+			rec.addContent(new Element("value").setText("<" + i + ">"));
+			root.addContent(rec);
+		}
+		return new Document(root);
+	}
+
+	@Test
+	public void testSameAsUncached() throws Exception {
+		checkOutput(sample());
+		checkOutput(complex());
+	}
+
+	@Test
+	public void testCacheSet() {
+		final Document doc = sample();
+		final Element root = doc.getRootElement();
+		final XMLOutputter out = new XMLOutputter(
+				Format.getPrettyFormat().setCacheElements(true));
+		assertNull(OutputCache.get(root));
+		out.outputString(doc);
+		assertNotNull(OutputCache.get(root));
+		for (final Element e : root.getDescendants(Filters.element())) {
+			assertNotNull(OutputCache.get(e));
+		}
+		// the default format does not cache.
+		final Element other = sample().getRootElement();
+		new XMLOutputter().outputString(other);
+		assertNull(OutputCache.get(other));
+	}
+
+	@Test
+	public void testEditsInvalidate() {
+		final Document doc = sample();
+		final Element root = doc.getRootElement();
+		final Element rec1 = root.getChildren().get(1);
+		final Element rec3 = root.getChildren().get(3);
+		final XMLOutputter out = new XMLOutputter(
+				Format.getPrettyFormat().setCacheElements(true));
+		out.outputString(doc);
+		final Object rec3cache = OutputCache.get(rec3);
+
+		// a change deep in rec1 clears rec1 and the root, not rec3.
+		rec1.getChild("value").setText("changed & more");
+		assertNull(OutputCache.get(root));
+		assertNull(OutputCache.get(rec1));
+		assertSame(rec3cache, OutputCache.get(rec3));
+		checkOutput(doc);
+
+		rec1.setAttribute("extra", "\"quoted\"");
+		checkOutput(doc);
+		rec1.getAttribute("extra").setValue("v2");
+		checkOutput(doc);
+		rec1.removeAttribute("extra");
+		checkOutput(doc);
+		rec1.setName("record");
+		checkOutput(doc);
+		rec1.addContent(new Element("added"));
+		checkOutput(doc);
+		rec1.getChild("added").detach();
+		checkOutput(doc);
+		((Text)rec1.getChild("value").getContent(0)).append(" appended");
+		checkOutput(doc);
+		rec1.addNamespaceDeclaration(Namespace.getNamespace("q", "uri:q"));
+		checkOutput(doc);
+		root.getChildren().remove(0);
+		checkOutput(doc);
+		root.getChildren().add(2, rec3.clone());
+		checkOutput(doc);
+	}
+
+	@Test
+	public void testAttributeChangeInvalidates() {
+		final Document doc = sample();
+		final Attribute id = doc.getRootElement().getChildren().get(2)
+				.getAttribute("id");
+		final Format specified = Format.getRawFormat();
+		specified.setSpecifiedAttributesOnly(true);
+		final String before = new XMLOutputter(specified).outputString(doc);
+		final XMLOutputter out = new XMLOutputter(
+				specified.clone().setCacheElements(true));
+		assertEquals(before, out.outputString(doc));
+		// the id Attribute is no longer output.
+		id.setSpecified(false);
+		final String after = new XMLOutputter(specified).outputString(doc);
+		assertFalse(before.equals(after));
+		assertEquals(after, out.outputString(doc));
+		id.setNamespace(Namespace.getNamespace("a", "uri:a"));
+		checkOutput(doc);
+	}
+
+	@Test
+	public void testMovedElement() {
+		final Document doc = sample();
+		final Element root = doc.getRootElement();
+		checkOutput(doc);
+		// the cached name Element is moved to a different depth, and out of
+		// the scope of the p Namespace declaration on the root.
+		final Element name = root.getChildren().get(0).getChild("name",
+				Namespace.getNamespace("uri:p"));
+		assertNotNull(OutputCache.get(name));
+		name.detach();
+		root.getChildren().get(4).getChild("value").addContent(name);
+		checkOutput(doc);
+		final Element wrapper = new Element("wrapper");
+		wrapper.addContent(name.detach());
+		checkOutput(new Document(wrapper));
+		assertTrue(new XMLOutputter(Format.getRawFormat().setCacheElements(true))
+				.outputString(name.detach()).indexOf("xmlns:p=\"uri:p\"") > 0);
+		// and the root's declaration is removed.
+		root.removeNamespaceDeclaration(Namespace.getNamespace("p", "uri:p"));
+		checkOutput(doc);
+	}
+
+	@Test
+	public void testXmlSpace() {
+		final Document doc = sample();
+		final Element root = doc.getRootElement();
+		checkOutput(doc);
+		final Element rec = root.getChildren().get(2);
+		rec.setAttribute("space", "preserve", Namespace.XML_NAMESPACE);
+		checkOutput(doc);
+		// the same Element inside a preserved Element is output differently.
+		final Element keep = new Element("keep");
+		keep.setAttribute("space", "preserve", Namespace.XML_NAMESPACE);
+		root.addContent(keep);
+		final Element moved = root.getChildren().get(1);
+		checkOutput(doc);
+		keep.addContent(moved.detach());
+		checkOutput(doc);
+		moved.setAttribute("space", "default", Namespace.XML_NAMESPACE);
+		checkOutput(doc);
+	}
+
+	@Test
+	public void testEscapingPI() {
+		final Document doc = sample();
+		final Element root = doc.getRootElement();
+		checkOutput(doc);
+		final Element rec = root.getChildren().get(3);
+		root.addContent(root.indexOf(rec), new ProcessingInstruction(
+				Result.PI_DISABLE_OUTPUT_ESCAPING, ""));
+		checkOutput(doc);
+		root.addContent(root.indexOf(rec) + 1, new ProcessingInstruction(
+				Result.PI_ENABLE_OUTPUT_ESCAPING, ""));
+		checkOutput(doc);
+	}
+
+	@Test
+	public void testAlternateFormats() {
+		final Document doc = sample();
+		final XMLOutputter pretty = new XMLOutputter(
+				Format.getPrettyFormat().setCacheElements(true));
+		final XMLOutputter raw = new XMLOutputter(
+				Format.getRawFormat().setCacheElements(true));
+		final String p = new XMLOutputter(Format.getPrettyFormat()).outputString(doc);
+		final String r = new XMLOutputter(Format.getRawFormat()).outputString(doc);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(p, pretty.outputString(doc));
+			assertEquals(r, raw.outputString(doc));
+		}
+		// and just an Element, at the top level.
+		final Element rec = doc.getRootElement().getChildren().get(1);
+		assertEquals(new XMLOutputter(Format.getPrettyFormat()).outputString(rec),
+				pretty.outputString(rec));
+	}
+
+	@Test
+	public void testLargeElements() throws IOException {
+		final Element root = new Element("root");
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			sb.append("large text ");
+		}
+		final String large = sb.toString();
+		for (int i = 0; i < 20; i++) {
+			final Element rec = new Element("rec");
+			for (int j = 0; j < 3; j++) {
+				rec.addContent(new Element("small").setText("s" + j));
+				rec.addContent(new Element("large").setText(large));
+			}
+			root.addContent(rec);
+		}
+		final Document doc = new Document(root);
+		checkOutput(doc);
+		assertNotNull(OutputCache.get(root));
+		root.getChildren().get(7).getChildren("small").get(1).setText("edit");
+		checkOutput(doc);
+		root.getChildren().get(7).getChildren("large").get(2).setText("small");
+		checkOutput(doc);
+
+		final XMLOutputter out = new XMLOutputter(
+				Format.getPrettyFormat().setCacheElements(true));
+		final ByteArrayOutputStream expect = new ByteArrayOutputStream();
+		new XMLOutputter(Format.getPrettyFormat()).output(doc, expect);
+		for (int i = 0; i < 2; i++) {
+			final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			out.output(doc, actual);
+			assertEquals(expect.toString("UTF-8"), actual.toString("UTF-8"));
+		}
+	}
+
+	@Test
+	public void testSetOutputCache() {
+		final Element root = new Element("root");
+		final Element kid = new Element("kid");
+		final Element grandkid = new Element("grandkid");
+		root.addContent(kid.addContent(grandkid));
+		// a child Element has no cache.
+		assertFalse(OutputCache.set(root, "root"));
+		assertNull(OutputCache.get(root));
+		assertTrue(OutputCache.set(grandkid, "grandkid"));
+		assertTrue(OutputCache.set(kid, "kid"));
+		assertTrue(OutputCache.set(root, "root"));
+		assertEquals("root", OutputCache.get(root));
+		// discarding a cache discards the ancestors' caches too.
+		assertTrue(OutputCache.set(kid, null));
+		assertNull(OutputCache.get(kid));
+		assertNull(OutputCache.get(root));
+		assertEquals("grandkid", OutputCache.get(grandkid));
+		assertTrue(OutputCache.set(kid, "kid"));
+		assertTrue(OutputCache.set(root, "root"));
+		grandkid.setAttribute("a", "b");
+		assertNull(OutputCache.get(grandkid));
+		assertNull(OutputCache.get(kid));
+		assertNull(OutputCache.get(root));
+	}
+
+	@Test
+	public void testFrozen() throws Exception {
+		final Document doc = complex().freeze();
+		checkOutput(doc);
+		assertNotNull(OutputCache.get(doc.getRootElement()));
+		// a clone of a frozen Document can be changed.
+		final Document copy = doc.clone();
+		copy.getRootElement().getChildren().get(0).setAttribute("x", "y");
+		checkOutput(copy);
+		checkOutput(doc);
+	}
+
+}
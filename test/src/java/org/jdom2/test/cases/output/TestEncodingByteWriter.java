@@ -0,0 +1,221 @@
+package org.jdom2.test.cases.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.IllegalDataException;
+import org.jdom2.output.EscapeStrategy;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.output.support.EncodingByteWriter;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestEncodingByteWriter {
+
+	private static final String MIXED = "ascii \u00e9\u00ff \u20ac\u0100 "
+			+ "\ud83d\ude00 <&>\"\t\r\n end";
+
+	private static final byte[] expect(final String encoding, final String value)
+			throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final Writer w = new OutputStreamWriter(baos, encoding);
+		w.write(value);
+		w.close();
+		return baos.toByteArray();
+	}
+
+	private static final byte[] actual(final String encoding, final String value)
+			throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final Writer w = new EncodingByteWriter(baos, encoding);
+		w.write(value);
+		w.close();
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testIsSupported() {
+		assertTrue(EncodingByteWriter.isSupported("UTF-8"));
+		assertTrue(EncodingByteWriter.isSupported("utf8"));
+		assertTrue(EncodingByteWriter.isSupported("US-ASCII"));
+		assertTrue(EncodingByteWriter.isSupported("ASCII"));
+		assertTrue(EncodingByteWriter.isSupported("ISO-8859-1"));
+		assertTrue(EncodingByteWriter.isSupported("Latin1"));
+		assertFalse(EncodingByteWriter.isSupported("UTF-16"));
+		assertFalse(EncodingByteWriter.isSupported("ISO-8859-2"));
+		assertFalse(EncodingByteWriter.isSupported("NoSuchEncoding"));
+		assertFalse(EncodingByteWriter.isSupported("$illegal$"));
+		assertFalse(EncodingByteWriter.isSupported(null));
+	}
+
+	@Test
+	public void testUnsupported() throws IOException {
+		try {
+			new EncodingByteWriter(new ByteArrayOutputStream(), "UTF-16");
+			fail("Should not support UTF-16");
+		} catch (UnsupportedEncodingException uee) {
+			// good
+		}
+	}
+
+	@Test
+	public void testEncodeLikeOutputStreamWriter() throws IOException {
+		for (String enc : new String[] {"UTF-8", "US-ASCII", "ISO-8859-1"}) {
+			assertArrayEquals(enc, expect(enc, MIXED), actual(enc, MIXED));
+		}
+	}
+
+	@Test
+	public void testUnpairedSurrogates() throws IOException {
+		final String bad = "a\ud83db\ude00c\ud83d";
+		assertArrayEquals(expect("UTF-8", bad), actual("UTF-8", bad));
+	}
+
+	@Test
+	public void testSurrogateAcrossWrites() throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final Writer w = new EncodingByteWriter(baos, "UTF-8");
+		w.write('\ud83d');
+		w.flush();
+		w.write(new char[] {'\ude00'}, 0, 1);
+		w.close();
+		assertArrayEquals(expect("UTF-8", "\ud83d\ude00"), baos.toByteArray());
+	}
+
+	@Test
+	public void testLargeContent() throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		while (sb.length() < EncodingByteWriter.DEFAULT_BUFFER_SIZE * 3) {
+			sb.append(MIXED);
+		}
+		final String big = sb.toString();
+		assertArrayEquals(expect("UTF-8", big), actual("UTF-8", big));
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final Writer w = new EncodingByteWriter(Channels.newChannel(baos), "UTF-8");
+		w.write(big.toCharArray(), 0, big.length());
+		w.close();
+		assertArrayEquals(expect("UTF-8", big), baos.toByteArray());
+	}
+
+	@Test
+	public void testClosed() throws IOException {
+		final Writer w = new EncodingByteWriter(new ByteArrayOutputStream(), "UTF-8");
+		w.close();
+		// closing twice is OK
+		w.close();
+		try {
+			w.write("x");
+			fail("Should not be able to write to a closed writer");
+		} catch (IOException ioe) {
+			// good
+		}
+	}
+
+	private static final String escapeText(final String encoding,
+			final EscapeStrategy strategy, final String eol, final String value)
+			throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final EncodingByteWriter w = new EncodingByteWriter(baos, encoding);
+		w.writeEscapedText(strategy, eol, value);
+		w.close();
+		return baos.toString(encoding);
+	}
+
+	private static final String escapeAttribute(final String encoding,
+			final EscapeStrategy strategy, final String value)
+			throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final EncodingByteWriter w = new EncodingByteWriter(baos, encoding);
+		w.writeEscapedAttribute(strategy, value);
+		w.close();
+		return baos.toString(encoding);
+	}
+
+	@Test
+	public void testEscapeLikeFormat() throws IOException {
+		for (String enc : new String[] {"UTF-8", "US-ASCII", "ISO-8859-1"}) {
+			final EscapeStrategy es = Format.getRawFormat().setEncoding(enc)
+					.getEscapeStrategy();
+			assertEquals(enc, Format.escapeText(es, null, MIXED),
+					escapeText(enc, es, null, MIXED));
+			assertEquals(enc, Format.escapeText(es, "\r\n", MIXED),
+					escapeText(enc, es, "\r\n", MIXED));
+			assertEquals(enc, Format.escapeAttribute(es, MIXED),
+					escapeAttribute(enc, es, MIXED));
+		}
+	}
+
+	@Test
+	public void testEscapeCustomStrategy() throws IOException {
+		final EscapeStrategy vowels = new EscapeStrategy() {
+			@Override
+			public boolean shouldEscape(char ch) {
+				return "aeiou\"".indexOf(ch) >= 0;
+			}
+		};
+		assertEquals(Format.escapeText(vowels, null, MIXED),
+				escapeText("UTF-8", vowels, null, MIXED));
+		assertEquals(Format.escapeAttribute(vowels, MIXED),
+				escapeAttribute("UTF-8", vowels, MIXED));
+	}
+
+	@Test
+	public void testEscapeBrokenSurrogate() throws IOException {
+		final EscapeStrategy es = Format.getRawFormat().getEscapeStrategy();
+		try {
+			escapeText("UTF-8", es, null, "x\ud83dx");
+			fail("Should not be able to escape broken surrogate pair");
+		} catch (IllegalDataException ide) {
+			// good
+		}
+		try {
+			escapeAttribute("UTF-8", es, "x\ud83d");
+			fail("Should not be able to escape truncated surrogate pair");
+		} catch (IllegalDataException ide) {
+			// good
+		}
+	}
+
+	@Test
+	public void testXMLOutputterStreamAndChannel() throws IOException {
+		final Element root = new Element("root");
+		root.setAttribute("att", MIXED);
+		root.addContent(MIXED);
+		root.addContent(new Element("child").setText("\u00e9"));
+		final Document doc = new Document(root);
+		for (String enc : new String[] {"UTF-8", "US-ASCII", "ISO-8859-1", "UTF-16"}) {
+			checkOutput(doc, Format.getRawFormat().setEncoding(enc));
+			checkOutput(doc, Format.getPrettyFormat().setEncoding(enc));
+		}
+	}
+
+	private static final void checkOutput(final Document doc, final Format format)
+			throws IOException {
+		final String enc = format.getEncoding();
+		final XMLOutputter xout = new XMLOutputter(format);
+		final byte[] expect = xout.outputString(doc).getBytes(enc);
+
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		xout.output(doc, stream);
+		assertArrayEquals(enc, expect, stream.toByteArray());
+
+		final ByteArrayOutputStream channel = new ByteArrayOutputStream();
+		xout.output(doc, Channels.newChannel(channel));
+		assertArrayEquals(enc, expect, channel.toByteArray());
+	}
+
+}
@@ -3,7 +3,14 @@ package org.jdom2.test.cases.output;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+
+import org.jdom2.IllegalDataException;
 import org.jdom2.output.EscapeStrategy;
 import org.jdom2.output.Format;
 import org.jdom2.output.Format.TextMode;
@@ -112,6 +119,17 @@ public class TestFormat {
 		assertTrue (mine.isSpecifiedAttributesOnly());
 	}
 
+	@Test
+	public void testCacheElements() {
+		assertFalse(Format.getPrettyFormat().isCacheElements());
+		assertFalse(Format.getCompactFormat().isCacheElements());
+		Format mine = Format.getRawFormat();
+		assertFalse(mine.isCacheElements());
+		assertTrue(mine == mine.setCacheElements(true));
+		assertTrue (mine.isCacheElements());
+		assertTrue (mine.clone().isCacheElements());
+	}
+
 	@Test
 	public void testExpandEmptyElements() {
 		assertFalse(Format.getPrettyFormat().getExpandEmptyElements());
@@ -219,6 +237,23 @@ public class TestFormat {
 				new char[] {(char)0xD800});
 	}
 	
+	@Test
+	public void testCharsetEncodingTable() {
+		for (String encoding : new String[] {"windows-1252", "UTF-16LE"}) {
+			final CharsetEncoder enc = Charset.forName(encoding).newEncoder();
+			final EscapeStrategy es = Format.getRawFormat()
+					.setEncoding(encoding).getEscapeStrategy();
+			for (int i = 0; i <= Character.MAX_VALUE; i++) {
+				final char ch = (char)i;
+				final boolean expect = Character.isHighSurrogate(ch) || !enc.canEncode(ch);
+				if (expect != es.shouldEscape(ch)) {
+					fail("Incorrect escape of char 0x" + Integer.toHexString(i)
+							+ " in " + encoding);
+				}
+			}
+		}
+	}
+	
 	private void checkBitEscape(String encoding, 
 			char[] keep, char[] escape) {
 		Format form = Format.getPrettyFormat();
@@ -252,8 +287,29 @@ public class TestFormat {
 	
 	private void checkEscapes(String eol, String base, String txt, String att) {
 		EscapeStrategy strategy = Format.getPrettyFormat().getEscapeStrategy();
+		checkEscapes(strategy, eol, base, txt, att);
+	}
+	
+	private void checkEscapes(EscapeStrategy strategy, String eol, String base,
+			String txt, String att) {
 		assertEquals(txt, Format.escapeText(strategy, eol, base));
 		assertEquals(att, Format.escapeAttribute(strategy, base));
+		try {
+			final StringBuilder sb = new StringBuilder("x");
+			Format.escapeText(strategy, eol, new StringBuilder(base), sb);
+			assertEquals("x" + txt, sb.toString());
+			sb.setLength(1);
+			Format.escapeAttribute(strategy, new StringBuilder(base), sb);
+			assertEquals("x" + att, sb.toString());
+			StringWriter sw = new StringWriter();
+			Format.escapeText(strategy, eol, base, sw);
+			assertEquals(txt, sw.toString());
+			sw = new StringWriter();
+			Format.escapeAttribute(strategy, base, sw);
+			assertEquals(att, sw.toString());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
 	}
 	
 	@Test
@@ -265,4 +321,53 @@ public class TestFormat {
 		checkEscapes("\r\n", " \" \n ", " \" \r\n ", " &quot; &#xA; ");
 	}
 
+	@Test
+	public void testEscapeTextStrategies() {
+		final String base = "a<b>c&d\"e\tf\rg\nh\u00e9\u20ac\ud83d\ude00";
+		checkEscapes(Format.getRawFormat().setEncoding("UTF-8").getEscapeStrategy(),
+				"\r\n", base,
+				"a&lt;b&gt;c&amp;d\"e\tf&#xD;g\r\nh\u00e9\u20ac&#x1f600;",
+				"a&lt;b&gt;c&amp;d&quot;e&#x9;f&#xD;g&#xA;h\u00e9\u20ac&#x1f600;");
+		checkEscapes(Format.getRawFormat().setEncoding("ISO-8859-1").getEscapeStrategy(),
+				null, base,
+				"a&lt;b&gt;c&amp;d\"e\tf&#xD;g\nh\u00e9&#x20ac;&#x1f600;",
+				"a&lt;b&gt;c&amp;d&quot;e&#x9;f&#xD;g&#xA;h\u00e9&#x20ac;&#x1f600;");
+		checkEscapes(Format.getRawFormat().setEncoding("US-ASCII").getEscapeStrategy(),
+				null, base,
+				"a&lt;b&gt;c&amp;d\"e\tf&#xD;g\nh&#xe9;&#x20ac;&#x1f600;",
+				"a&lt;b&gt;c&amp;d&quot;e&#x9;f&#xD;g&#xA;h&#xe9;&#x20ac;&#x1f600;");
+		checkEscapes(Format.getRawFormat().setEncoding("windows-1252").getEscapeStrategy(),
+				null, base,
+				"a&lt;b&gt;c&amp;d\"e\tf&#xD;g\nh\u00e9\u20ac&#x1f600;",
+				"a&lt;b&gt;c&amp;d&quot;e&#x9;f&#xD;g&#xA;h\u00e9\u20ac&#x1f600;");
+		// custom strategies may escape ASCII chars too.
+		final EscapeStrategy vowels = new EscapeStrategy() {
+			@Override
+			public boolean shouldEscape(char ch) {
+				return "aeiou\"<".indexOf(ch) >= 0;
+			}
+		};
+		checkEscapes(vowels, null, "bad\"<\u00e9",
+				"b&#x61;d&#x22;&lt;\u00e9", "b&#x61;d&quot;&lt;\u00e9");
+	}
+
+	@Test
+	public void testEscapeBrokenSurrogates() throws IOException {
+		final EscapeStrategy es = Format.getRawFormat().getEscapeStrategy();
+		for (String bad : new String[] {"x\ud83dx", "x\ud83d"}) {
+			try {
+				Format.escapeText(es, null, bad, new StringBuilder());
+				fail("Should not be able to escape broken surrogates " + bad);
+			} catch (IllegalDataException ide) {
+				// good
+			}
+			try {
+				Format.escapeAttribute(es, bad, new StringBuilder());
+				fail("Should not be able to escape broken surrogates " + bad);
+			} catch (IllegalDataException ide) {
+				// good
+			}
+		}
+	}
+
 }
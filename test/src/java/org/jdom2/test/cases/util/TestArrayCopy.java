@@ -52,6 +52,14 @@ public class TestArrayCopy {
 		assertTrue(Arrays.equals(ArrayCopy.copyOf(val, 5), Arrays.copyOf(val, 5)));
 	}
 
+	@Test
+	public void testCopyOfLongArrayInt() {
+		final long[] val = {1L, 2L, 3L, 4L};
+		assertTrue(Arrays.equals(ArrayCopy.copyOf(val, 3), Arrays.copyOf(val, 3)));
+		assertTrue(Arrays.equals(ArrayCopy.copyOf(val, 0), Arrays.copyOf(val, 0)));
+		assertTrue(Arrays.equals(ArrayCopy.copyOf(val, 5), Arrays.copyOf(val, 5)));
+	}
+
 	@Test
 	public void testCopyOfBooleanArrayInt() {
 		final boolean[] val = {true, false, true, false};
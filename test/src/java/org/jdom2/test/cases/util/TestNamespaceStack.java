@@ -135,6 +135,23 @@ public class TestNamespaceStack {
 		
 	}
 	
+	@Test
+	public void testIsScope() {
+		final Namespace ns = Namespace.getNamespace("p", "uri:p");
+		final NamespaceStack nstack = new NamespaceStack();
+		final Namespace[] top = nstack.getScope();
+		assertTrue(nstack.isScope(top));
+		assertFalse(nstack.isScope(null));
+		nstack.push(new Element("root", ns));
+		assertFalse(nstack.isScope(top));
+		final Namespace[] inner = nstack.getScope();
+		assertTrue(nstack.isScope(inner));
+		inner[0] = Namespace.getNamespace("z", "uri:z");
+		assertFalse(nstack.isScope(inner));
+		nstack.pop();
+		assertTrue(nstack.isScope(top));
+	}
+
 	@Test
 	public void testSimpleEment() {
 		Element root = new Element("root");